@@ -37,10 +37,12 @@ package app;
 import gui.SimGUIMainWindow;
 
 import java.io.File;
+import java.io.IOException;
 
 import org.apache.log4j.Logger;
 import org.apache.log4j.PropertyConfigurator;
 
+import sim.BatchRunner;
 import sim.SimulationRunner;
 import utility.Copyright;
 import utility.time.TimeManager;
@@ -142,10 +144,65 @@ public class CReSTApp
 			logDir.mkdir();
 		}
 		
+		File snapshotCacheDir = parser.cacheDirName.equals("none")? null : new File(parser.cacheDirName);
+		boolean use_checkpoint = !parser.checkpointFileName.equals("none");
+		boolean use_resume = !parser.resumeFileName.equals("none");
+		if(use_checkpoint && parser.checkpointMinutes <= 0) {
+			logger.error("CReST: checkpoint period must be positive: " + parser.checkpointMinutes);
+			System.err.println("CReST: checkpoint period must be positive: " + parser.checkpointMinutes);
+			System.exit(1);
+		}
+		
+		//batch mode? (always without GUI)
+		if(!parser.seeds.equals("none") || !parser.grid.isEmpty()) {
+			logger.info("Running in batch mode...");
+			if(use_checkpoint || use_resume) {
+				logger.warn("Checkpoint and resume options are not supported in batch mode.  Ignoring...");
+				System.err.println("Warning: checkpoint and resume options are not supported in batch mode.  Ignoring...");
+			}
+			if(snapshotCacheDir != null || parser.stream) {
+				logger.warn("Cache and stream options are not used in batch mode (the configuration is loaded once).  Ignoring...");
+			}
+			BatchRunner batch = new BatchRunner(new File(configFilename), parser.threads);
+			if(use_params_file) {
+				batch.setParamsFileName(paramsFilename);
+			}
+			if(use_events_file) {
+				batch.setEventsFileName(eventsFilename);
+			}
+			try {
+				if(!parser.seeds.equals("none")) {
+					batch.addSeeds(parser.seeds);
+				}
+				batch.addGridParameters(parser.grid);
+				if(parser.branchMinutes >= 0) {
+					batch.setBranchTime(TimeManager.minutesToSimulationTime(parser.branchMinutes));
+				}
+				batch.run();
+			} catch (IllegalArgumentException e) {
+				logger.error("CReST: invalid batch parameters: " + e.getMessage());
+				System.err.println("CReST: invalid batch parameters: " + e.getMessage());
+				System.exit(1);
+			} catch (IOException e) {
+				logger.fatal("CReST: batch run failed: " + e.getMessage());
+				System.exit(1);
+			}
+			logger.info("Closing CReSTApp.");
+			return;
+		}
+		
+		if(parser.branchMinutes >= 0) {
+			logger.warn("The branchAt option is only supported in batch mode.  Ignoring...");
+			System.err.println("Warning: the branchAt option is only supported in batch mode.  Ignoring...");
+		}
+		
 		//use GUI?
 		if(parser.nogui) {
 			useGUI = false;
 			logger.info("Command line argument 'no gui' selected");
+		} else if(use_checkpoint || use_resume) {
+			useGUI = false;
+			logger.info("Checkpoint/resume selected.  Running without GUI");
 		}
 		
 		//create GUI if necessary
@@ -153,6 +210,8 @@ public class CReSTApp
 		{
 			logger.info("Creating GUI...");
 			SimGUIMainWindow.create(new File(configFilename));
+			SimGUIMainWindow.getInstance().setSnapshotCacheDir(snapshotCacheDir);
+			SimGUIMainWindow.getInstance().setUseStreamingLoader(parser.stream);
 			
 			if(use_params_file) {
 				SimGUIMainWindow.getInstance().setParamsFileName(paramsFilename);
@@ -165,12 +224,20 @@ public class CReSTApp
 		{
 			logger.info("Running without GUI.  Creating new SimulationRunner...");
 			SimulationRunner simulator = new SimulationRunner(new File(configFilename));
+			simulator.setSnapshotCacheDir(snapshotCacheDir);
+			simulator.setUseStreamingLoader(parser.stream);
 			if(use_params_file) {
 				simulator.setParamsFileName(paramsFilename);
 			}
 			if(use_events_file) {
 				simulator.setEventsFileName(eventsFilename);
 			}
+			if(use_checkpoint) {
+				simulator.setCheckpoint(new File(parser.checkpointFileName), TimeManager.minutesToSimulationTime(parser.checkpointMinutes));
+			}
+			if(use_resume) {
+				simulator.setResumeFile(new File(parser.resumeFileName));
+			}
 			logger.info("Starting SimulationRunner...");
 			simulator.run();
 			logger.info("Closing CReSTApp.");
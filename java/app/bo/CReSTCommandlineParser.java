@@ -55,6 +55,15 @@ import com.beust.jcommander.internal.Lists;
  * 	-gui		use graphical interface
  *  -version	return version information
  *  -help		return help	
+ *  -seeds		followed by seeds to run in batch mode, e.g., 1-10 or 1,4,9
+ *  -grid		followed by key=v1,v2,... parameter values to run in batch mode (repeatable)
+ *  -threads	followed by number of batch runs to execute in parallel
+ *  -branchAt	followed by simulated minutes: in batch mode, run each seed once to this time, then fork the grid from there
+ *  -cache		followed by directory to keep configuration snapshots in (default: no cache, always parse the configuration file)
+ *  -stream		load the configuration file with the streaming loader
+ *  -checkpoint	followed by name of file to write simulation checkpoints to (implies -nogui)
+ *  -checkpointEvery	followed by simulated minutes between checkpoints
+ *  -resume		followed by name of checkpoint file to resume the simulation from (implies -nogui)
  * 
  * @author cszjpc
  *
@@ -75,6 +84,33 @@ public class CReSTCommandlineParser {
 	  @Parameter(names = { "--nogui", "-nogui", "-ng" }, description = "No graphical interface")
 	  public boolean nogui = false;
 	  
+	  @Parameter(names = {"--seeds", "-seeds"}, description = "Batch mode: seeds to run, e.g., 1-10 or 1,4,9", required = false)
+	  public String seeds = "none";
+	  
+	  @Parameter(names = {"--grid", "-grid"}, description = "Batch mode: parameter values to run, key=v1,v2,... (repeat for each parameter)", required = false)
+	  public List<String> grid = Lists.newArrayList();
+	  
+	  @Parameter(names = {"--threads", "-threads"}, description = "Batch mode: number of runs to execute in parallel", required = false)
+	  public int threads = 1;
+	  
+	  @Parameter(names = {"--branchAt", "-branchAt"}, description = "Batch mode: simulated minutes to run each seed to once, before forking each grid combination from that point", required = false)
+	  public long branchMinutes = -1;
+	  
+	  @Parameter(names = { "--cache", "-cache" }, description = "Configuration snapshot cache directory: load unchanged configuration files from snapshots kept here (default: no cache)", required = false)
+	  public String cacheDirName = "none";
+	  
+	  @Parameter(names = { "--stream", "-stream" }, description = "Load the configuration file with the streaming loader (for very large configurations)")
+	  public boolean stream = false;
+	  
+	  @Parameter(names = { "--checkpoint", "-checkpoint" }, description = "Checkpoint filename: periodically save the simulation state to this file, so the run can be resumed (implies -nogui)", required = false)
+	  public String checkpointFileName = "none";
+	  
+	  @Parameter(names = { "--checkpointEvery", "-checkpointEvery" }, description = "Simulated minutes between checkpoints", required = false)
+	  public long checkpointMinutes = 1440;
+	  
+	  @Parameter(names = { "--resume", "-resume" }, description = "Checkpoint filename: resume the simulation from this checkpoint (the configuration and params files must be those of the original run; implies -nogui)", required = false)
+	  public String resumeFileName = "none";
+	  
 	  @Parameter(names = { "--help", "-help", "-h" }, description = "Help")
 	  public boolean help = false;
 	  
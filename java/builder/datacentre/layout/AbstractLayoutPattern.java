@@ -60,6 +60,9 @@ public abstract class AbstractLayoutPattern
 	
 	protected Random r;
 	
+	/** Seed for the random choices of the layout (e.g., which rack goes where), or null for a different layout each time */
+	protected Long seed = null;
+	
 	public AbstractLayoutPattern(LayoutPatternType layoutPatternType)
 	{
 		this.layoutPatternType = layoutPatternType;
@@ -79,4 +82,22 @@ public abstract class AbstractLayoutPattern
 	{
 		return layoutPatternType;
 	}
+	
+	/**
+	 * Generate the same layout every time, for the given seed
+	 * 
+	 * @param seed - the seed
+	 */
+	public void setSeed(long seed)
+	{
+		this.seed = seed;
+	}
+	
+	/**
+	 * @return a new random number generator for generating a layout (seeded, if a seed has been set)
+	 */
+	protected Random createRandom()
+	{
+		return (seed == null) ? new Random() : new Random(seed);
+	}
 }
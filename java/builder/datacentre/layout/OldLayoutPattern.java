@@ -66,7 +66,7 @@ public class OldLayoutPattern extends AbstractLayoutPattern
 		mTopAirCon = mGeneratedDatacentre.getAircon();
 		mNetworkDistances = pNetworkDistances;
 		// Randomiser
-		r = new Random();		
+		r = createRandom();		
 		
 		mAisles = (int) Math.floor((mLength - 1) / 2);
 		mRacksnumber = mWidth - 2; // -2 to leave a gap at each end
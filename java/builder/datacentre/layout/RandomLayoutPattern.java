@@ -67,7 +67,7 @@ public class RandomLayoutPattern extends AbstractLayoutPattern
 		mLength = mGeneratedDatacentre.getDimY();
 		mTopAirCon = mGeneratedDatacentre.getAircon();
 		mNetworkDistances = pNetworkDistances;
-		r = new Random();
+		r = createRandom();
 		
 		mAisles = (int) Math.floor((mLength - 1) / 2);
 		mRacksnumber = mWidth - 2; // -2 to leave a gap at each end
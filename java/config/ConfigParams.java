@@ -120,6 +120,17 @@ public class ConfigParams {
 	 * @return true
 	 */
 	public static SettingsManagerAccess update(SettingsManagerAccess settings) {
+		return update(settings, prop);
+	}
+	
+	/**
+	 * Update settings using the given parameter values
+	 * 
+	 * @param settings - the settings to update
+	 * @param prop - parameter name/value pairs
+	 * @return the updated settings
+	 */
+	public static SettingsManagerAccess update(SettingsManagerAccess settings, Properties prop) {
 				
 		logger.info("Updating settings using config parameters: " + prop);
 		
@@ -35,6 +35,7 @@ package config;
 
 import org.apache.log4j.Logger;
 
+import sim.SimulationContext;
 import sim.module.Module;
 import sim.module.broker.configparams.BrokerModuleConfigParams;
 import sim.module.demand.configparams.DemandModuleConfigParams;
@@ -79,9 +80,6 @@ public class SettingsManager implements SettingsManagerAccess
 	///// END OF LATEST SETTINGS MANAGER HARD-CODED VALUES ///
 	
 
-    // Singleton instance.
-    private static SettingsManagerAccess instance         = null;
-
     //TODO JC, Jan 2012 - clean this up with more smaller ConfigParam classes, such as SubscriptionsConfigparams
     //One Params class for each module would make the most sense, I think
     //JC, May 2012 -- There is now a structure in place for multiple Config classes for each Module...
@@ -95,7 +93,7 @@ public class SettingsManager implements SettingsManagerAccess
     public SettingsManager()
     {
         // Set as the instance.
-        instance = this;
+        SimulationContext.getCurrent().setSingleton(SettingsManagerAccess.class, this);
     }
 
 	/**
@@ -116,6 +114,8 @@ public class SettingsManager implements SettingsManagerAccess
 			((SimModuleConfigParams) Module.SIM_MODULE.getParams()).setEndTime(Long.parseLong(value));
 		} else if(key.equals(LengthOfTime.END_TIME_UNIT_XML_TAG)) {
 			((SimModuleConfigParams) Module.SIM_MODULE.getParams()).setEndTimeUnit(LengthOfTime.valueOf(value));
+		} else if(key.equals(SimModuleConfigParams.INDEPENDENT_STREAMS_XML_TAG)) {
+			((SimModuleConfigParams) Module.SIM_MODULE.getParams()).setIndependentStreams(Boolean.parseBoolean(value));
 		} 
 		//isOn settings
 		else if(key.equals("isOnSubscriptions")) {
@@ -256,7 +256,7 @@ public class SettingsManager implements SettingsManagerAccess
 	@Deprecated
     public static void setInstance(SettingsManagerAccess instance)
     {
-        SettingsManager.instance = instance;
+        SimulationContext.getCurrent().setSingleton(SettingsManagerAccess.class, instance);
     }
     
     /**
@@ -267,6 +267,7 @@ public class SettingsManager implements SettingsManagerAccess
      */
     public static SettingsManagerAccess getInstance()
     {
+        SettingsManagerAccess instance = SimulationContext.getCurrent().getSingleton(SettingsManagerAccess.class);
         if (instance == null)
         {
             instance = new SettingsManager();
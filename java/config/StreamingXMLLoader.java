@@ -0,0 +1,349 @@
+/**
+ *   This file is part of CReST: The Cloud Research Simulation Toolkit 
+ *   Copyright (C) 2011, 2012 John Cartlidge 
+ * 
+ *   For a full list of contributors, refer to file CONTRIBUTORS.txt 
+ *
+ *   CReST was developed at the University of Bristol, UK, using 
+ *   financial support from the UK's Engineering and Physical 
+ *   Sciences Research Council (EPSRC) grant EP/H042644/1 entitled 
+ *   "Cloud Computing for Large-Scale Complex IT Systems". Refer to
+ *   <http://gow.epsrc.ac.uk/NGBOViewGrant.aspx?GrantRef=EP/H042644/1>
+ * 
+ *   CReST is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/gpl.txt>.
+ *
+ *   For further information, contact: 
+ *
+ *   Dr. John Cartlidge: john@john-cartlidge.co.uk
+ *   Department of Computer Science,
+ *   University of Bristol, The Merchant Venturers Building,
+ *   Woodland Road, Bristol, BS8-1UB, United Kingdom.
+ *
+ */
+package config;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.log4j.Logger;
+import org.jdom.Element;
+import org.jdom.output.Format;
+import org.jdom.output.XMLOutputter;
+
+import sim.module.replacements.ReplacementsModuleRunner;
+import sim.physical.Datacentre;
+import sim.physical.World;
+import sim.physical.bo.ServerWontFitException;
+import config.physical.ConfigAisle;
+import config.physical.ConfigDatacentre;
+import config.physical.ConfigRack;
+import config.physical.ConfigServer;
+import config.physical.ConfigServerType;
+import config.physical.ConfigWorld;
+
+/**
+ * Streaming (StAX) loader for the simulator.  
+ * 
+ * Produces the same SimulatorConfiguration as XMLLoader.load(), but without building a JDOM 
+ * document or a Config* tree of the whole world first.  Datacentres are created as they are 
+ * read, and each aisle is built (all copies of it) as soon as its end tag is read, after which 
+ * its configuration is discarded.  Peak memory for loading is therefore the World plus one 
+ * aisle's configuration, rather than the World plus the whole document.
+ * 
+ * Identical server elements (same model, size, direction, CPUs, RAM, etc.) share one parsed 
+ * ConfigServer template, so each distinct server specification is parsed only once.
+ * 
+ * Attribute parsing and defaults are those of XMLLoader (the same stage 2 methods are used on 
+ * small per-element JDOM elements), and simulation objects are created in the same order.
+ * 
+ * The settings element must precede the world element (as written by XMLSaver).
+ * 
+ * @see XMLLoader
+ */
+public class StreamingXMLLoader
+{
+	private static Logger logger = Logger.getLogger(StreamingXMLLoader.class);
+	
+	private final XMLStreamReader reader;
+	
+	private String name;
+	private SettingsManager settings;
+	private World world;
+	private final List<ConfigServerType> replacements = new ArrayList<ConfigServerType>();
+	
+	//parsed server templates, keyed by their (compact) xml
+	private final Map<String, ConfigServer> serverTemplates = new HashMap<String, ConfigServer>();
+	private final XMLOutputter keyOutputter = new XMLOutputter(Format.getCompactFormat());
+	
+	private int numServerElements = 0;
+	
+	private StreamingXMLLoader(XMLStreamReader reader)
+	{
+		this.reader = reader;
+	}
+	
+	/**
+	 * Load a (gzipped) xml configuration file for the simulator
+	 * 
+	 * @param pFile - xml.gz configuration file
+	 * @return the simulator configuration
+	 */
+	public static SimulatorConfiguration load(File pFile) throws IOException
+	{
+		logger.debug("Streaming configuration from file: '" + pFile + "'");
+		InputStream in = new GZIPInputStream(new FileInputStream(pFile), 1 << 16);
+		try
+		{
+			XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(in);
+			try
+			{
+				return new StreamingXMLLoader(reader).readConfiguration();
+			}
+			finally
+			{
+				reader.close();
+			}
+		}
+		catch (XMLStreamException e)
+		{
+			String errorMessage = "XML error in loading file " + pFile + " :" + e.getMessage();
+			logger.error(errorMessage);
+			throw new IOException(errorMessage);
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+	
+	private SimulatorConfiguration readConfiguration() throws XMLStreamException, IOException
+	{
+		reader.nextTag();
+		name = reader.getAttributeValue(null, "name");
+		
+		while(reader.nextTag() == XMLStreamConstants.START_ELEMENT)
+		{
+			String tag = reader.getLocalName();
+			if(tag.equals("settings"))
+			{
+				settings = XMLLoader.createConfigManager(readElement());
+			}
+			else if(tag.equals("replacementServers"))
+			{
+				@SuppressWarnings("unchecked")
+				List<Element> rep = readElement().getChildren("server");
+				for(Element e : rep)
+				{
+					replacements.add(XMLLoader.loadConfigServerType(e));
+				}
+			}
+			else if(tag.equals("world"))
+			{
+				readWorld();
+			}
+			else
+			{
+				skipElement();
+			}
+		}
+		
+		if(world == null)
+		{
+			throw new IOException("Configuration has no world element");
+		}
+		
+		//Create replacement servers (replacing any from a previously loaded world)
+		ReplacementsModuleRunner.clearServerTypes();
+		for (ConfigServerType replacementServer : replacements)
+		{
+			logger.debug("Adding next replacement server model: " + replacementServer.getModel());
+			XMLLoader.buildReplacementServer(replacementServer);
+		}
+		
+		logger.info("World created with " + world.getNumberOfDatacentres() + " datacentres (" 
+				+ numServerElements + " server elements, " + serverTemplates.size() + " distinct)");
+		logger.debug("Creating new log manager...");
+		world.createLogManager();
+		return new SimulatorConfiguration(name, settings, world);
+	}
+	
+	private void readWorld() throws XMLStreamException, IOException
+	{
+		if(settings == null)
+		{
+			throw new IOException("Configuration settings must precede the world element");
+		}
+		ConfigWorld confWorld = XMLLoader.loadConfigWorld(readAttributes());
+		world = World.getInstance(confWorld.getNetworkDistance());
+		world.clear();
+		logger.debug("Loading world instance = " + world);
+		
+		int counter = 0;
+		while(reader.nextTag() == XMLStreamConstants.START_ELEMENT)
+		{
+			if(reader.getLocalName().equals("datacentre"))
+			{
+				logger.debug("Next DC... Building datacentre with id=" + counter);
+				world.addDatacentre(readDatacentre(counter));
+				counter++;
+			}
+			else
+			{
+				skipElement();
+			}
+		}
+	}
+	
+	private Datacentre readDatacentre(int dcID) throws XMLStreamException
+	{
+		ConfigDatacentre confDC = XMLLoader.loadConfigDatacentre(readAttributes());
+		Datacentre data = XMLLoader.createDatacentre(confDC, dcID, settings);
+		while(reader.nextTag() == XMLStreamConstants.START_ELEMENT)
+		{
+			if(reader.getLocalName().equals("aisle"))
+			{
+				XMLLoader.buildAisles(readAisle(), data);
+			}
+			else
+			{
+				skipElement();
+			}
+		}
+		return data;
+	}
+	
+	private ConfigAisle readAisle() throws XMLStreamException
+	{
+		ConfigAisle aisle = XMLLoader.loadConfigAisle(readAttributes());
+		while(reader.nextTag() == XMLStreamConstants.START_ELEMENT)
+		{
+			String tag = reader.getLocalName();
+			if(tag.equals("rack"))
+			{
+				aisle.addRack(readRack());
+			}
+			else if(tag.equals("airConditioner"))
+			{
+				aisle.addAirCon(XMLLoader.loadConfigAirCon(readElement()));
+			}
+			else
+			{
+				skipElement();
+			}
+		}
+		return aisle;
+	}
+	
+	private ConfigRack readRack() throws XMLStreamException
+	{
+		ConfigRack rack = XMLLoader.loadConfigRack(readAttributes());
+		while(reader.nextTag() == XMLStreamConstants.START_ELEMENT)
+		{
+			if(reader.getLocalName().equals("server"))
+			{
+				try
+				{
+					rack.addServer(getServerTemplate(readElement()));
+				} catch (ServerWontFitException e)
+				{
+					logger.warn("too many servers for rack, ignoring extra servers");
+				}
+			}
+			else
+			{
+				skipElement();
+			}
+		}
+		return rack;
+	}
+	
+	/**
+	 * @return the shared template for a server element (parsed the first time it is seen)
+	 */
+	private ConfigServer getServerTemplate(Element server)
+	{
+		numServerElements++;
+		String key = keyOutputter.outputString(server);
+		ConfigServer template = serverTemplates.get(key);
+		if(template == null)
+		{
+			template = XMLLoader.loadConfigServer(server);
+			serverTemplates.put(key, template);
+		}
+		return template;
+	}
+	
+	/**
+	 * @return an element holding the current start tag's attributes (no content)
+	 */
+	private Element readAttributes()
+	{
+		Element e = new Element(reader.getLocalName());
+		for(int i = 0; i < reader.getAttributeCount(); i++)
+		{
+			e.setAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+		}
+		return e;
+	}
+	
+	/**
+	 * Read the current element (start tag to end tag) into a JDOM element.  Used for small elements only.
+	 */
+	private Element readElement() throws XMLStreamException
+	{
+		Element e = readAttributes();
+		while(true)
+		{
+			int event = reader.next();
+			if(event == XMLStreamConstants.START_ELEMENT)
+			{
+				e.addContent(readElement());
+			}
+			else if(event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA)
+			{
+				if(!reader.isWhiteSpace()) e.addContent(reader.getText());
+			}
+			else if(event == XMLStreamConstants.END_ELEMENT)
+			{
+				return e;
+			}
+		}
+	}
+	
+	/**
+	 * Skip the current element and its content
+	 */
+	private void skipElement() throws XMLStreamException
+	{
+		int depth = 1;
+		while(depth > 0)
+		{
+			int event = reader.next();
+			if(event == XMLStreamConstants.START_ELEMENT) depth++;
+			else if(event == XMLStreamConstants.END_ELEMENT) depth--;
+		}
+	}
+}
@@ -0,0 +1,540 @@
+/**
+ *   This file is part of CReST: The Cloud Research Simulation Toolkit 
+ *   Copyright (C) 2011, 2012 John Cartlidge 
+ * 
+ *   For a full list of contributors, refer to file CONTRIBUTORS.txt 
+ *
+ *   CReST was developed at the University of Bristol, UK, using 
+ *   financial support from the UK's Engineering and Physical 
+ *   Sciences Research Council (EPSRC) grant EP/H042644/1 entitled 
+ *   "Cloud Computing for Large-Scale Complex IT Systems". Refer to
+ *   <http://gow.epsrc.ac.uk/NGBOViewGrant.aspx?GrantRef=EP/H042644/1>
+ * 
+ *   CReST is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/gpl.txt>.
+ *
+ *   For further information, contact: 
+ *
+ *   Dr. John Cartlidge: john@john-cartlidge.co.uk
+ *   Department of Computer Science,
+ *   University of Bristol, The Merchant Venturers Building,
+ *   Woodland Road, Bristol, BS8-1UB, United Kingdom.
+ *
+ */
+package config;
+
+import java.awt.Point;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.jdom.Document;
+import org.jdom.JDOMException;
+import org.jdom.input.SAXBuilder;
+import org.jdom.output.Format;
+import org.jdom.output.XMLOutputter;
+
+import sim.module.Module;
+import sim.module.replacements.ReplacementsModuleRunner;
+import sim.physical.AirConditioner;
+import sim.physical.Aisle;
+import sim.physical.CPU;
+import sim.physical.Datacentre;
+import sim.physical.Harddisk;
+import sim.physical.RAM;
+import sim.physical.Rack;
+import sim.physical.Server;
+import sim.physical.World;
+import utility.direction.CompassDirection;
+import utility.time.TimeManager;
+import config.physical.ConfigAirCon;
+import config.physical.ConfigAisle;
+import config.physical.ConfigCPU;
+import config.physical.ConfigDatacentre;
+import config.physical.ConfigRack;
+import config.physical.ConfigServer;
+import config.physical.ConfigServerType;
+import config.physical.ServerType;
+
+/**
+ * Compact binary snapshot of a configuration, used to start the simulator without parsing XML.
+ * 
+ * The snapshot holds everything that XMLLoader.loadWorld() needs (the datacentre tree with aisle 
+ * and rack counts, the replacement servers and the module settings).  Server specifications are 
+ * written once to a table, and each server in a rack is written as an index into that table and 
+ * a direction.  
+ * 
+ * Reading a snapshot builds the World directly (no JDOM document or Config* objects), creating 
+ * the simulation objects in the same order as XMLLoader, so a simulation loaded from a snapshot 
+ * is identical to one loaded from the XML file.
+ * 
+ * @see XMLLoader
+ * @see WorldSnapshotCache
+ */
+public class WorldSnapshot
+{
+	private static Logger logger = Logger.getLogger(WorldSnapshot.class);
+	
+	/** "CRSW" */
+	private static final int MAGIC = 0x43525357;
+	
+	/** Increment whenever the format changes (old snapshots are then ignored) */
+	public static final int FORMAT_VERSION = 1;
+	
+	private static final int NO_DIRECTION = -1;
+	
+	// ////// //
+	// WRITER //
+	// ////// //
+	
+	/**
+	 * Write a snapshot of a loaded configuration. 
+	 * 
+	 * The module settings written are the current module settings, so this should be 
+	 * called directly after XMLLoader.loadConfig().
+	 * 
+	 * @param pFile - snapshot file to write
+	 * @param config - the configuration
+	 */
+	public static void write(File pFile, EditorConfiguration config) throws IOException
+	{
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(pFile), 1 << 16));
+		try
+		{
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			writeString(out, config.getName());
+			
+			// module settings (small, so kept as XML)
+			String modules = new XMLOutputter(Format.getCompactFormat()).outputString(Module.getModulesXMLElement());
+			byte[] bytes = modules.getBytes("UTF-8");
+			out.writeInt(bytes.length);
+			out.write(bytes);
+			
+			// replacement servers
+			List<ConfigServerType> replacements = config.getReplacements();
+			out.writeInt(replacements.size());
+			for(ConfigServerType s : replacements)
+			{
+				writeString(out, s.getModel());
+				out.writeInt(s.getSize());
+				writeCPUs(out, s.getCPUs());
+				writeString(out, s.getRAM().getModel());
+				out.writeDouble(s.getRAM().getSpeed());
+				out.writeInt(s.getRAM().getSize());
+				out.writeLong(s.getMeanFailTime());
+				out.writeLong(s.getTimeAvailableFrom());
+			}
+			
+			// server specifications, indexed by the servers in each rack
+			List<ConfigServer> specs = new ArrayList<ConfigServer>();
+			Map<String, Integer> specIndex = new HashMap<String, Integer>();
+			for (ConfigDatacentre c : config.getConfWorld().getDCs())
+			{
+				for (ConfigAisle a : c.getAisles())
+				{
+					for (ConfigRack r : a.getRacks())
+					{
+						for (ConfigServer s : r.getServers())
+						{
+							String key = specKey(s);
+							if(!specIndex.containsKey(key))
+							{
+								specIndex.put(key, specs.size());
+								specs.add(s);
+							}
+						}
+					}
+				}
+			}
+			out.writeInt(specs.size());
+			for (ConfigServer s : specs)
+			{
+				writeString(out, s.getModel());
+				out.writeInt(s.getSize());
+				writeCPUs(out, s.getCPUs());
+				writeString(out, s.getRAM().getModel());
+				out.writeDouble(s.getRAM().getSpeed());
+				out.writeInt(s.getRAM().getSize());
+				out.writeLong(s.getMeanFailTime());
+			}
+			
+			// world
+			out.writeInt(config.getConfWorld().getNetworkDistance());
+			ConfigDatacentre[] dcs = config.getConfWorld().getDCs();
+			out.writeInt(dcs.length);
+			for (ConfigDatacentre c : dcs)
+			{
+				out.writeInt(c.getNetworkDistance());
+				writeString(out, c.getDatacentreName());
+				out.writeInt(c.getDimX());
+				out.writeInt(c.getDimY());
+				out.writeDouble(c.getSuppliedPower());
+				out.writeDouble(c.getGridPowerCost());
+				out.writeDouble(c.getMaintenancePowerCost());
+				out.writeDouble(c.getMaintenanceCoolingCost());
+				out.writeDouble(c.getEmployeesPerRack());
+				out.writeDouble(c.getCostofEmployees());
+				out.writeInt(c.getHardwareLifetime());
+				out.writeDouble(c.getRent());
+				
+				ConfigAisle[] aisles = c.getAisles();
+				out.writeInt(aisles.length);
+				for (ConfigAisle a : aisles)
+				{
+					out.writeInt(a.getCount());
+					out.writeInt(a.getNetworkDistance());
+					writeString(out, a.getAisleName());
+					writePoint(out, a.getLocation());
+					writePoint(out, a.getDimensions());
+					
+					ConfigRack[] racks = a.getRacks();
+					out.writeInt(racks.length);
+					for (ConfigRack r : racks)
+					{
+						out.writeInt(r.getCount());
+						out.writeInt(r.getNetworkDistance());
+						writeString(out, r.getRackName());
+						out.writeInt(r.getLocation());
+						writeDirection(out, r.getServersDirection());
+						
+						ConfigServer[] servers = r.getServers();
+						out.writeInt(servers.length);
+						for (ConfigServer s : servers)
+						{
+							out.writeInt(specIndex.get(specKey(s)));
+							writeDirection(out, s.getDirection());
+						}
+					}
+					
+					ConfigAirCon[] aircons = a.getAirCons();
+					out.writeInt(aircons.length);
+					for (ConfigAirCon ac : aircons)
+					{
+						writePoint(out, ac.getLocation());
+					}
+				}
+			}
+		}
+		finally
+		{
+			out.close();
+		}
+		logger.debug("Configuration snapshot written to: '" + pFile + "'");
+	}
+	
+	private static String specKey(ConfigServer s)
+	{
+		StringBuilder key = new StringBuilder();
+		key.append(s.getModel()).append('|').append(s.getSize()).append('|').append(s.getMeanFailTime());
+		key.append('|').append(s.getRAM().getModel()).append('|').append(s.getRAM().getSpeed()).append('|').append(s.getRAM().getSize());
+		for (ConfigCPU cpu : s.getCPUs())
+		{
+			key.append('|').append(cpu.getModel()).append('|').append(cpu.getSpeed()).append('|').append(cpu.getCores());
+		}
+		return key.toString();
+	}
+	
+	private static void writeCPUs(DataOutputStream out, ConfigCPU[] cpus) throws IOException
+	{
+		out.writeInt(cpus.length);
+		for (ConfigCPU cpu : cpus)
+		{
+			writeString(out, cpu.getModel());
+			out.writeInt(cpu.getSpeed());
+			out.writeInt(cpu.getCores());
+		}
+	}
+	
+	private static void writeString(DataOutputStream out, String s) throws IOException
+	{
+		out.writeBoolean(s != null);
+		if(s != null) out.writeUTF(s);
+	}
+	
+	private static void writePoint(DataOutputStream out, Point p) throws IOException
+	{
+		out.writeInt(p.x);
+		out.writeInt(p.y);
+	}
+	
+	private static void writeDirection(DataOutputStream out, CompassDirection d) throws IOException
+	{
+		out.writeInt(d == null ? NO_DIRECTION : d.ordinal());
+	}
+	
+	// ////// //
+	// READER //
+	// ////// //
+	
+	/**
+	 * Load a configuration from a snapshot: configure the modules and build the World.
+	 * 
+	 * @param pFile - snapshot file
+	 * @return the simulator configuration
+	 * @throws IOException if the file cannot be read or is not a snapshot of the current format
+	 */
+	public static SimulatorConfiguration read(File pFile) throws IOException
+	{
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(pFile), 1 << 16));
+		try
+		{
+			if(in.readInt() != MAGIC) throw new IOException("Not a configuration snapshot: " + pFile);
+			int version = in.readInt();
+			if(version != FORMAT_VERSION) throw new IOException("Snapshot format version " + version + " is not supported (expected " + FORMAT_VERSION + "): " + pFile);
+			String name = readString(in);
+			
+			// module settings, then settings manager (as XMLLoader.createConfigManager)
+			byte[] bytes = new byte[in.readInt()];
+			in.readFully(bytes);
+			try
+			{
+				Document modules = new SAXBuilder().build(new StringReader(new String(bytes, "UTF-8")));
+				Module.configureUsingXML(modules.getRootElement());
+			}
+			catch (JDOMException e)
+			{
+				throw new IOException("Invalid module settings in snapshot " + pFile + ": " + e.getMessage());
+			}
+			SettingsManager settings = new SettingsManager();
+			
+			// replacement servers are added after the World has been cleared (as XMLLoader.loadWorld)
+			int numReplacements = in.readInt();
+			List<ServerType> replacements = new ArrayList<ServerType>(numReplacements);
+			for (int i = 0; i < numReplacements; i++)
+			{
+				String model = readString(in);
+				int size = in.readInt();
+				CPU[] cpus = readCPUs(in);
+				RAM ram = new RAM(readString(in), in.readDouble(), in.readInt());
+				long meanFailTime = in.readLong();
+				long timeAvailableFrom = in.readLong();
+				replacements.add(new ServerType(cpus, ram, new Harddisk(), size,
+						TimeManager.daysToSimulationTime(meanFailTime), model,
+						Server.DEFAULT_DEFAULT_POWER_CONSUMPTION,
+						Server.DEFAULT_MAX_POWER_CONSUMED,
+						Server.DEFAULT_PURCHASE_COST,
+						TimeManager.daysToSimulationTime(timeAvailableFrom)));
+			}
+			
+			ServerSpec[] specs = new ServerSpec[in.readInt()];
+			for (int i = 0; i < specs.length; i++)
+			{
+				specs[i] = new ServerSpec(in);
+			}
+			
+			World w = World.getInstance(in.readInt());
+			w.clear();
+			ReplacementsModuleRunner.clearServerTypes();
+			for (ServerType type : replacements)
+			{
+				ReplacementsModuleRunner.addServerType(type);
+			}
+			
+			int numDCs = in.readInt();
+			for (int dcID = 0; dcID < numDCs; dcID++)
+			{
+				w.addDatacentre(readDatacentre(in, dcID, specs));
+			}
+			
+			logger.info("World created with " + w.getNumberOfDatacentres() + " datacentres (from snapshot)");
+			w.createLogManager();
+			return new SimulatorConfiguration(name, settings, w);
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+	
+	/**
+	 * Read a datacentre, expanding aisle and rack counts as XMLLoader.buildDatacentre() does
+	 */
+	private static Datacentre readDatacentre(DataInputStream in, int dcID, ServerSpec[] specs) throws IOException
+	{
+		int networkDistance = in.readInt();
+		String name = readString(in);
+		Datacentre data = new Datacentre(networkDistance, name, dcID, in.readInt(), in.readInt());
+		
+		data.getCosts().setmSuppliedPower(in.readDouble());
+		data.getCosts().setmGridPowerCost(in.readDouble());
+		data.getCosts().setmMaintenanceCostPowerSystem(in.readDouble());
+		data.getCosts().setmMaintenanceCostCoolingSystem(in.readDouble());
+		data.getCosts().setmEmployeesPerRack(in.readDouble());
+		data.getCosts().setmCostOfFullyLoadedEmployees(in.readDouble());
+		data.getCosts().setmHardwareLifetime(in.readInt());
+		data.getCosts().setmRent(in.readDouble());
+		
+		int numAisles = in.readInt();
+		for (int i = 0; i < numAisles; i++)
+		{
+			int aisleCount = in.readInt();
+			int aisleNetworkDistance = in.readInt();
+			String aisleName = readString(in);
+			Point aisleLocation = readPoint(in);
+			Point aisleDimensions = readPoint(in);
+			
+			// racks are read once and built for each copy of the aisle
+			int numRacks = in.readInt();
+			int[] rackCount = new int[numRacks];
+			int[] rackNetworkDistance = new int[numRacks];
+			String[] rackName = new String[numRacks];
+			int[] rackLocation = new int[numRacks];
+			CompassDirection[] rackDirection = new CompassDirection[numRacks];
+			int[][] serverSpec = new int[numRacks][];
+			CompassDirection[][] serverDirection = new CompassDirection[numRacks][];
+			for (int r = 0; r < numRacks; r++)
+			{
+				rackCount[r] = in.readInt();
+				rackNetworkDistance[r] = in.readInt();
+				rackName[r] = readString(in);
+				rackLocation[r] = in.readInt();
+				rackDirection[r] = readDirection(in);
+				int numServers = in.readInt();
+				serverSpec[r] = new int[numServers];
+				serverDirection[r] = new CompassDirection[numServers];
+				for (int s = 0; s < numServers; s++)
+				{
+					serverSpec[r][s] = in.readInt();
+					serverDirection[r][s] = readDirection(in);
+				}
+			}
+			Point[] airconLocation = new Point[in.readInt()];
+			for (int ac = 0; ac < airconLocation.length; ac++)
+			{
+				airconLocation[ac] = readPoint(in);
+			}
+			
+			for (int j = 0; j < aisleCount; j++)
+			{
+				Aisle ais = new Aisle(aisleNetworkDistance, aisleName, aisleLocation, aisleDimensions);
+				data.addAisle(ais);
+				for (int r = 0; r < numRacks; r++)
+				{
+					for (int k = 0; k < rackCount[r]; k++)
+					{
+						Point rackLoc = new Point(rackLocation[r], 0);
+						Rack rks = new Rack(rackNetworkDistance[r], rackName[r], rackLoc);
+						rks.setDirection(rackDirection[r]);
+						ais.addRack(rks);
+						for (int s = 0; s < serverSpec[r].length; s++)
+						{
+							try
+							{
+								rks.addServer(specs[serverSpec[r][s]].build(rackLoc, serverDirection[r][s]));
+							} catch (Exception e)
+							{
+								// must just be too full
+								logger.warn("Rack too full, ignoring extra server");
+							}
+						}
+					}
+				}
+				for (Point location : airconLocation)
+				{
+					//TODO Read in from config (as XMLLoader).
+					final long meanFailureTime = TimeManager.hoursToSimulationTime(6);
+					ais.addAirCon(new AirConditioner(location, meanFailureTime));
+				}
+			}
+		}
+		return data;
+	}
+	
+	private static CPU[] readCPUs(DataInputStream in) throws IOException
+	{
+		CPU[] cpus = new CPU[in.readInt()];
+		for (int i = 0; i < cpus.length; i++)
+		{
+			cpus[i] = new CPU(readString(in), in.readInt(), in.readInt());
+		}
+		return cpus;
+	}
+	
+	private static String readString(DataInputStream in) throws IOException
+	{
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+	
+	private static Point readPoint(DataInputStream in) throws IOException
+	{
+		return new Point(in.readInt(), in.readInt());
+	}
+	
+	private static CompassDirection readDirection(DataInputStream in) throws IOException
+	{
+		int ordinal = in.readInt();
+		return ordinal == NO_DIRECTION ? null : CompassDirection.values()[ordinal];
+	}
+	
+	/**
+	 * A server specification from the snapshot's table
+	 */
+	private static class ServerSpec
+	{
+		private final String model;
+		private final int size;
+		private final String[] cpuModel;
+		private final int[] cpuSpeed;
+		private final int[] cpuCores;
+		private final String ramModel;
+		private final double ramSpeed;
+		private final int ramSize;
+		private final long meanFailTime;
+		
+		ServerSpec(DataInputStream in) throws IOException
+		{
+			model = readString(in);
+			size = in.readInt();
+			int numCPUs = in.readInt();
+			cpuModel = new String[numCPUs];
+			cpuSpeed = new int[numCPUs];
+			cpuCores = new int[numCPUs];
+			for (int i = 0; i < numCPUs; i++)
+			{
+				cpuModel[i] = readString(in);
+				cpuSpeed[i] = in.readInt();
+				cpuCores[i] = in.readInt();
+			}
+			ramModel = readString(in);
+			ramSpeed = in.readDouble();
+			ramSize = in.readInt();
+			meanFailTime = TimeManager.daysToSimulationTime(in.readLong());
+		}
+		
+		/**
+		 * Create a server of this specification (with its own CPUs and RAM, as XMLLoader.buildServer)
+		 */
+		Server build(Point loc, CompassDirection direction)
+		{
+			CPU[] cpus = new CPU[cpuModel.length];
+			for (int i = 0; i < cpus.length; i++)
+			{
+				cpus[i] = new CPU(cpuModel[i], cpuSpeed[i], cpuCores[i]);
+			}
+			RAM ram = new RAM(ramModel, ramSpeed, ramSize);
+			return new Server(loc, cpus, ram, size, direction, model, meanFailTime);
+		}
+	}
+}
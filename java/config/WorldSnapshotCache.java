@@ -0,0 +1,175 @@
+/**
+ *   This file is part of CReST: The Cloud Research Simulation Toolkit 
+ *   Copyright (C) 2011, 2012 John Cartlidge 
+ * 
+ *   For a full list of contributors, refer to file CONTRIBUTORS.txt 
+ *
+ *   CReST was developed at the University of Bristol, UK, using 
+ *   financial support from the UK's Engineering and Physical 
+ *   Sciences Research Council (EPSRC) grant EP/H042644/1 entitled 
+ *   "Cloud Computing for Large-Scale Complex IT Systems". Refer to
+ *   <http://gow.epsrc.ac.uk/NGBOViewGrant.aspx?GrantRef=EP/H042644/1>
+ * 
+ *   CReST is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/gpl.txt>.
+ *
+ *   For further information, contact: 
+ *
+ *   Dr. John Cartlidge: john@john-cartlidge.co.uk
+ *   Department of Computer Science,
+ *   University of Bristol, The Merchant Venturers Building,
+ *   Woodland Road, Bristol, BS8-1UB, United Kingdom.
+ *
+ */
+package config;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Cache of configuration snapshots, keyed by a hash of the XML configuration file.
+ * 
+ * The first time a configuration file is loaded, it is parsed as usual (XMLLoader) and a 
+ * snapshot is written to the cache directory.  Later loads of an unchanged file read the 
+ * snapshot instead, skipping XML parsing.  If the file changes, its hash changes and a new 
+ * snapshot is written.
+ * 
+ * @see WorldSnapshot
+ */
+public class WorldSnapshotCache
+{
+	private static Logger logger = Logger.getLogger(WorldSnapshotCache.class);
+	
+	private static final String SNAPSHOT_SUFFIX = ".snapshot";
+	
+	private final File cacheDir;
+	
+	public WorldSnapshotCache(File cacheDir)
+	{
+		this.cacheDir = cacheDir;
+	}
+	
+	/**
+	 * Load a configuration file, using (or creating) a cached snapshot
+	 * 
+	 * @param pFile - xml configuration file
+	 * @return the simulator configuration
+	 */
+	public SimulatorConfiguration load(File pFile) throws IOException
+	{
+		File snapshot = getSnapshotFile(pFile);
+		if(snapshot.exists())
+		{
+			try
+			{
+				logger.info("Loading configuration snapshot: '" + snapshot + "'");
+				return WorldSnapshot.read(snapshot);
+			}
+			catch (IOException e)
+			{
+				logger.warn("Ignoring unreadable configuration snapshot '" + snapshot + "': " + e.getMessage());
+			}
+		}
+		
+		EditorConfiguration stage2 = XMLLoader.loadConfig(pFile);
+		store(snapshot, stage2);
+		return new SimulatorConfiguration(stage2.getName(), stage2.getConfig(),
+				XMLLoader.loadWorld(stage2.getConfWorld(), stage2.getConfig(), stage2.getReplacements()));
+	}
+	
+	/**
+	 * Write a snapshot to a temporary file, then rename it, so that concurrent 
+	 * runs never read a partially written snapshot.  Failure to write is not fatal.
+	 */
+	private void store(File snapshot, EditorConfiguration config)
+	{
+		if(!cacheDir.exists() && !cacheDir.mkdirs() && !cacheDir.exists())
+		{
+			logger.warn("Unable to create snapshot cache directory '" + cacheDir + "'");
+			return;
+		}
+		File temp = null;
+		try
+		{
+			temp = File.createTempFile(snapshot.getName(), ".tmp", cacheDir);
+			WorldSnapshot.write(temp, config);
+			if(!temp.renameTo(snapshot) && !snapshot.exists())
+			{
+				logger.warn("Unable to store configuration snapshot '" + snapshot + "'");
+			}
+			else
+			{
+				logger.info("Configuration snapshot written to: '" + snapshot + "'");
+			}
+		}
+		catch (IOException e)
+		{
+			logger.warn("Unable to write configuration snapshot '" + snapshot + "': " + e.getMessage());
+		}
+		finally
+		{
+			if(temp != null && temp.exists()) temp.delete();
+		}
+	}
+	
+	/**
+	 * @return the cache file for a configuration file (named by the hash of its content)
+	 */
+	public File getSnapshotFile(File pFile) throws IOException
+	{
+		return new File(cacheDir, hash(pFile) + "_v" + WorldSnapshot.FORMAT_VERSION + SNAPSHOT_SUFFIX);
+	}
+	
+	/**
+	 * @return hex SHA-1 hash of a file's content
+	 */
+	public static String hash(File pFile) throws IOException
+	{
+		MessageDigest digest;
+		try
+		{
+			digest = MessageDigest.getInstance("SHA-1");
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			throw new IllegalStateException("SHA-1 not available", e);
+		}
+		InputStream in = new BufferedInputStream(new FileInputStream(pFile));
+		try
+		{
+			byte[] buffer = new byte[1 << 16];
+			int n;
+			while((n = in.read(buffer)) > 0)
+			{
+				digest.update(buffer, 0, n);
+			}
+		}
+		finally
+		{
+			in.close();
+		}
+		StringBuilder hex = new StringBuilder();
+		for(byte b : digest.digest())
+		{
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return hex.toString();
+	}
+}
@@ -157,7 +157,7 @@ public class XMLLoader
 	}
 
 	@SuppressWarnings("unchecked")
-	private static ConfigWorld loadConfigWorld(Element world)
+	static ConfigWorld loadConfigWorld(Element world)
 	{
 		// Create Config World Object to use
 		ConfigWorld conf = new ConfigWorld();
@@ -182,7 +182,7 @@ public class XMLLoader
 	}
 
 	@SuppressWarnings("unchecked")
-	private static ConfigDatacentre loadConfigDatacentre(Element dc)
+	static ConfigDatacentre loadConfigDatacentre(Element dc)
 	{
 		ConfigDatacentre data = new ConfigDatacentre();
 		// name
@@ -279,7 +279,7 @@ public class XMLLoader
 	}
 
 	@SuppressWarnings("unchecked")
-	private static ConfigAisle loadConfigAisle(Element ai)
+	static ConfigAisle loadConfigAisle(Element ai)
 	{
 		ConfigAisle aisle = new ConfigAisle();
 		// name
@@ -327,7 +327,7 @@ public class XMLLoader
 		return aisle;
 	}
 
-	private static ConfigAirCon loadConfigAirCon(Element ac)
+	static ConfigAirCon loadConfigAirCon(Element ac)
 	{
 		ConfigAirCon aircon = new ConfigAirCon();
 		// Position
@@ -345,7 +345,7 @@ public class XMLLoader
 	}
 	
 	@SuppressWarnings("unchecked")
-	private static ConfigRack loadConfigRack(Element rk)
+	static ConfigRack loadConfigRack(Element rk)
 	{
 		ConfigRack rack = new ConfigRack();
 		// name
@@ -404,7 +404,7 @@ public class XMLLoader
 	}
 
 	@SuppressWarnings("unchecked")
-	private static ConfigServer loadConfigServer(Element sv)
+	static ConfigServer loadConfigServer(Element sv)
 	{
 		ConfigServer serve = new ConfigServer();
 		// model
@@ -461,7 +461,7 @@ public class XMLLoader
 	}
 
 	@SuppressWarnings("unchecked")
-	private static ConfigServerType loadConfigServerType(Element sv)
+	static ConfigServerType loadConfigServerType(Element sv)
 	{
 		ConfigServerType serve = new ConfigServerType();
 		// model
@@ -590,7 +590,8 @@ public class XMLLoader
 		w.clear();
 		logger.debug("Loading world instance = " + w);		
 		
-		//Create replacement servers
+		//Create replacement servers (replacing any from a previously loaded world)
+		ReplacementsModuleRunner.clearServerTypes();
 		for (ConfigServerType replacementServer : confReplacementServers)
 		{
 			logger.debug("Adding next replacement server model: " + replacementServer.getModel());
@@ -622,6 +623,25 @@ public class XMLLoader
 	 * @return the datacentre
 	 */
 	public static Datacentre buildDatacentre(ConfigDatacentre c, int dcID, SettingsManager confMang)
+	{
+		Datacentre data = createDatacentre(c, dcID, confMang);
+		
+		// Create Aisles
+		for (ConfigAisle a : c.getAisles())
+		{
+			buildAisles(a, data);
+		}
+		return data;
+	}
+	
+	/**
+	 * Create an (empty) Datacentre
+	 * @param c - configuration of datacentre (aisles are ignored)
+	 * @param dcID - id of datacentre
+	 * @param confMang - settings manager
+	 * @return the datacentre, without aisles
+	 */
+	static Datacentre createDatacentre(ConfigDatacentre c, int dcID, SettingsManager confMang)
 	{
 		
 		logger.debug("Building datacentre, ID#=" + dcID);
@@ -644,53 +664,58 @@ public class XMLLoader
 		data.getCosts().setmCostOfFullyLoadedEmployees(c.getCostofEmployees());
 		data.getCosts().setmHardwareLifetime(c.getHardwareLifetime());
 		data.getCosts().setmRent(c.getRent());
-		
-		// Create Aisles
-		for (ConfigAisle a : c.getAisles())
-		{
-			for (int j = 0; j < a.getCount(); j++)
-			{                
-                Aisle ais = new Aisle(a.getNetworkDistance(),
-                        a.getAisleName(), a.getLocation(), a.getDimensions());
-                data.addAisle(ais);
-				// Create Racks
-				for (ConfigRack r : a.getRacks())
+		return data;
+	}
+	
+	/**
+	 * Create the aisles (count copies) of an aisle configuration, with their racks, 
+	 * servers and air conditioners, and add them to a datacentre
+	 * @param a - configuration of aisle
+	 * @param data - datacentre to add the aisles to
+	 */
+	static void buildAisles(ConfigAisle a, Datacentre data)
+	{
+		for (int j = 0; j < a.getCount(); j++)
+		{                
+            Aisle ais = new Aisle(a.getNetworkDistance(),
+                    a.getAisleName(), a.getLocation(), a.getDimensions());
+            data.addAisle(ais);
+			// Create Racks
+			for (ConfigRack r : a.getRacks())
+			{
+				for (int k = 0; k < r.getCount(); k++)
 				{
-					for (int k = 0; k < r.getCount(); k++)
+					Point rackLoc = new Point( r.getLocation(), 0);
+					//System.out.println("Create Rack at: " + rackLoc.x + ", " + rackLoc.y);
+					Rack rks = new Rack(r.getNetworkDistance(),
+							r.getRackName(),rackLoc);
+					rks.setDirection(r.getServersDirection());
+					ais.addRack(rks);
+					// Create servers
+					for (ConfigServer s : r.getServers())
 					{
-						Point rackLoc = new Point( r.getLocation(), 0);
-						//System.out.println("Create Rack at: " + rackLoc.x + ", " + rackLoc.y);
-						Rack rks = new Rack(r.getNetworkDistance(),
-								r.getRackName(),rackLoc);
-						rks.setDirection(r.getServersDirection());
-						ais.addRack(rks);
-						// Create servers
-						for (ConfigServer s : r.getServers())
+						try
+						{
+							rks.addServer(buildServer(s,
+							        rackLoc));
+						} catch (Exception e)
 						{
-							try
-							{
-								rks.addServer(buildServer(s,
-								        rackLoc));
-							} catch (Exception e)
-							{
-								// must just be too full
-								logger.warn("Rack too full, ignoring extra server");
-							}
+							// must just be too full
+							logger.warn("Rack too full, ignoring extra server");
 						}
 					}
 				}
-				// Create Air Con
-				for (ConfigAirCon ac : a.getAirCons())
-				{
-				    //TODO Read in from config.
-				    final long meanFailureTime = TimeManager.hoursToSimulationTime(6);
-				    
-					AirConditioner aircon = new AirConditioner(ac.getLocation(), meanFailureTime);
-					ais.addAirCon(aircon);
-				}
+			}
+			// Create Air Con
+			for (ConfigAirCon ac : a.getAirCons())
+			{
+			    //TODO Read in from config.
+			    final long meanFailureTime = TimeManager.hoursToSimulationTime(6);
+			    
+				AirConditioner aircon = new AirConditioner(ac.getLocation(), meanFailureTime);
+				ais.addAirCon(aircon);
 			}
 		}
-		return data;
 	}
 	
 	private static Server buildServer(ConfigServer s, Point loc)
@@ -713,7 +738,7 @@ public class XMLLoader
 		return server;
 	}
 	
-	private static void buildReplacementServer(ConfigServerType s)
+	static void buildReplacementServer(ConfigServerType s)
 	{		
 		ConfigCPU[] confCpus = s.getCPUs();
 		CPU[] cpus = new CPU[confCpus.length];
@@ -750,7 +775,7 @@ public class XMLLoader
 	 * @param modulesElement
 	 * @return
 	 */
-	private static SettingsManager createConfigManager(Element configElement)
+	static SettingsManager createConfigManager(Element configElement)
 	{		
 		
 		// modules
@@ -0,0 +1,326 @@
+/**
+ *   This file is part of CReST: The Cloud Research Simulation Toolkit 
+ *   Copyright (C) 2011, 2012 John Cartlidge 
+ * 
+ *   For a full list of contributors, refer to file CONTRIBUTORS.txt 
+ *
+ *   CReST was developed at the University of Bristol, UK, using 
+ *   financial support from the UK's Engineering and Physical 
+ *   Sciences Research Council (EPSRC) grant EP/H042644/1 entitled 
+ *   "Cloud Computing for Large-Scale Complex IT Systems". Refer to
+ *   <http://gow.epsrc.ac.uk/NGBOViewGrant.aspx?GrantRef=EP/H042644/1>
+ * 
+ *   CReST is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/gpl.txt>.
+ *
+ *   For further information, contact: 
+ *
+ *   Dr. John Cartlidge: john@john-cartlidge.co.uk
+ *   Department of Computer Science,
+ *   University of Bristol, The Merchant Venturers Building,
+ *   Woodland Road, Bristol, BS8-1UB, United Kingdom.
+ *
+ */
+package gui;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+import sim.module.Module;
+import sim.module.costs.CostsModuleRunner;
+import sim.module.service.ServiceModuleRunner;
+import sim.module.service.bo.ServiceManager;
+import sim.module.subscriptions.SubscriptionsModuleRunner;
+import sim.module.thermal.ThermalModuleRunner;
+import sim.module.thermal.bo.ThermalCell;
+import sim.module.thermal.bo.ThermalGrid;
+import sim.physical.AirConditioner;
+import sim.physical.Aisle;
+import sim.physical.Datacentre;
+import sim.physical.Rack;
+import sim.physical.World;
+import utility.physics.Velocity;
+import utility.time.LengthOfTime;
+import utility.time.TimeManager;
+
+/**
+ * An immutable snapshot of everything the time series graphs and the
+ * datacentre maps display.
+ * 
+ * A frame is captured on the simulation thread (where the world, the module
+ * runners and the module settings of the current SimulationContext can be read
+ * safely) and is then handed to the Swing event dispatch thread by the
+ * GUIUpdateBridge.  Nothing on the EDT should read the live world.
+ */
+public class GUIFrame
+{
+	public static Logger logger = Logger.getLogger(GUIFrame.class);
+
+	/** Indices into DatacentreFrame.getServiceCounts() */
+	public static final int SERVICES_TOTAL = 0;
+	public static final int SERVICES_RUNNING = 1;
+	public static final int SERVICES_FAILED = 2;
+	public static final int SERVICES_COMPLETE = 3;
+	public static final int SERVICES_STOPPED = 4;
+	public static final int NUM_SERVICE_COUNTS = 5;
+
+	private final long mSimulationTime;
+	private final String mSubscriptionsParams;
+	private final List<DatacentreFrame> mDatacentres;
+
+	private GUIFrame(long simulationTime, String subscriptionsParams, List<DatacentreFrame> datacentres)
+	{
+		mSimulationTime = simulationTime;
+		mSubscriptionsParams = subscriptionsParams;
+		mDatacentres = datacentres;
+	}
+
+	/**
+	 * Capture the current state of the world.  Must be called on the
+	 * simulation thread.
+	 * 
+	 * @param withMaps - true to capture per-tile data for the datacentre maps
+	 * 
+	 * @return a new frame
+	 */
+	public static GUIFrame capture(boolean withMaps)
+	{
+		World world = World.getInstance();
+
+		boolean costs = Module.COSTS_MODULE.isActive();
+		boolean services = Module.SERVICE_MODULE.isActive();
+		boolean subscriptions = Module.SUBSCRIPTION_MODULE.isActive();
+		boolean thermal = Module.THERMAL_MODULE.isActive();
+
+		String subscriptionsParams = null;
+		if(subscriptions) {
+			subscriptionsParams = String.valueOf(Module.SUBSCRIPTION_MODULE.getParams());
+		}
+
+		List<DatacentreFrame> datacentres = new ArrayList<DatacentreFrame>(world.getNumberOfDatacentres());
+		for(int i=0; i<world.getNumberOfDatacentres(); i++) {
+			Datacentre dc = world.getDatacentre(i);
+
+			double percentageAlive = (1.0 - ((double) dc.getNumFailedServers() / dc.getNumServers())) * 100;
+			double cost = Double.NaN;
+			double averageTemperature = Double.NaN;
+			double inconsistency = Double.NaN;
+			int[] serviceCounts = null;
+			ThermalGrid grid = null;
+
+			if(costs) {
+				cost = CostsModuleRunner.getInstance().getCosts(i).totalCost(LengthOfTime.HOUR.getTimeInSeconds());
+			}
+			if(thermal) {
+				grid = ThermalModuleRunner.getInstance().getThermalGrid(dc.getID());
+				averageTemperature = grid.getAverageTemperature();
+			}
+			if(subscriptions) {
+				inconsistency = SubscriptionsModuleRunner.getInstance().getSubscriptionNetwork(i).percentinconsistent();
+			}
+			if(services) {
+				ServiceManager sm = ServiceModuleRunner.getInstance().getServiceManager(i);
+				serviceCounts = new int[NUM_SERVICE_COUNTS];
+				serviceCounts[SERVICES_TOTAL] = sm.getTotalServices();
+				serviceCounts[SERVICES_RUNNING] = sm.getRunningServices();
+				serviceCounts[SERVICES_FAILED] = sm.getFailedServices();
+				serviceCounts[SERVICES_COMPLETE] = sm.getCompletedServices();
+				serviceCounts[SERVICES_STOPPED] = sm.getStoppedServices();
+			}
+
+			DatacentreFrame dcFrame = new DatacentreFrame(dc.getID(), dc.getName(), dc.getUtilisation(), 
+					percentageAlive, cost, averageTemperature, inconsistency, serviceCounts);
+			if(withMaps) {
+				dcFrame.captureMap(dc, grid);
+			}
+			datacentres.add(dcFrame);
+		}
+
+		return new GUIFrame(world.getTime(), subscriptionsParams, datacentres);
+	}
+
+	/**
+	 * @return the simulation time at which this frame was captured
+	 */
+	public long getSimulationTime()
+	{
+		return mSimulationTime;
+	}
+
+	/**
+	 * @param unitTime - the time unit required
+	 * @return the simulation time at which this frame was captured, rounded down to unitTime
+	 */
+	public long getTime(TimeManager.UnitTime unitTime)
+	{
+		return TimeManager.getTime(unitTime, mSimulationTime);
+	}
+
+	/**
+	 * @return the subscription module parameters, or null if the module is off
+	 */
+	public String getSubscriptionsParams()
+	{
+		return mSubscriptionsParams;
+	}
+
+	public int getNumberOfDatacentres()
+	{
+		return mDatacentres.size();
+	}
+
+	public DatacentreFrame getDatacentre(int i)
+	{
+		return mDatacentres.get(i);
+	}
+
+	public String toString()
+	{
+		return "GUIFrame [time=" + mSimulationTime + ", datacentres=" + mDatacentres.size() + "]";
+	}
+
+	/**
+	 * The values captured for a single datacentre.  Values belonging to a
+	 * module that is switched off are NaN (or null for arrays).
+	 */
+	public static class DatacentreFrame
+	{
+		private final int mID;
+		private final String mName;
+		private final double mUtilisation;
+		private final double mPercentageAlive;
+		private final double mCost;
+		private final double mAverageTemperature;
+		private final double mInconsistency;
+		private final int[] mServiceCounts;
+
+		// Map data: per rack and per aircon tile positions and values, and the thermal grid
+		private int[] mRackX, mRackY;
+		private double[] mRackFailure, mRackUtilisation, mRackPower;
+		private int[] mAirConX, mAirConY;
+		private boolean[] mAirConAlive;
+		private double[][] mTemperature;
+		private Velocity[][] mVelocity;
+
+		private DatacentreFrame(int id, String name, double utilisation, double percentageAlive, double cost, 
+				double averageTemperature, double inconsistency, int[] serviceCounts)
+		{
+			mID = id;
+			mName = name;
+			mUtilisation = utilisation;
+			mPercentageAlive = percentageAlive;
+			mCost = cost;
+			mAverageTemperature = averageTemperature;
+			mInconsistency = inconsistency;
+			mServiceCounts = serviceCounts;
+		}
+
+		/**
+		 * Copy the per-tile values the datacentre map renders.
+		 */
+		private void captureMap(Datacentre dc, ThermalGrid grid)
+		{
+			List<Rack> racks = new ArrayList<Rack>();
+			for(Aisle aisle : dc.getmAisles()) {
+				for(Rack r : aisle.getmRacks()) {
+					if(r.getNumServers() > 0) {
+						racks.add(r);
+					}
+				}
+			}
+			mRackX = new int[racks.size()];
+			mRackY = new int[racks.size()];
+			mRackFailure = new double[racks.size()];
+			mRackUtilisation = new double[racks.size()];
+			mRackPower = new double[racks.size()];
+			for(int i=0; i<racks.size(); i++) {
+				Rack r = racks.get(i);
+				Point p = r.getAbsolutePosition();
+				mRackX[i] = p.x;
+				mRackY[i] = p.y;
+				mRackFailure[i] = (double) r.getNumFailedServers() / r.getNumServers();
+				mRackUtilisation[i] = r.getMeanCPUutilisation();
+				mRackPower[i] = r.getPower();
+			}
+
+			List<AirConditioner> airCons = dc.getAirCons();
+			mAirConX = new int[airCons.size()];
+			mAirConY = new int[airCons.size()];
+			mAirConAlive = new boolean[airCons.size()];
+			for(int i=0; i<airCons.size(); i++) {
+				AirConditioner aircon = airCons.get(i);
+				Point p = aircon.getAbsolutePosition();
+				mAirConX[i] = p.x;
+				mAirConY[i] = p.y;
+				mAirConAlive[i] = aircon.isAlive();
+			}
+
+			if(grid != null) {
+				mTemperature = new double[grid.getWidth()][grid.getHeight()];
+				mVelocity = new Velocity[grid.getWidth()][grid.getHeight()];
+				for(int x=0; x<grid.getWidth(); x++) {
+					for(int y=0; y<grid.getHeight(); y++) {
+						ThermalCell cell = grid.getCell(x, y);
+						Velocity v = cell.getVelocity();
+						mTemperature[x][y] = cell.getTemperature();
+						mVelocity[x][y] = new Velocity(v.getX(), v.getY());
+					}
+				}
+			}
+		}
+
+		public int getID() { return mID; }
+		public String getName() { return mName; }
+		public double getUtilisation() { return mUtilisation; }
+		public double getPercentageAlive() { return mPercentageAlive; }
+		public double getCost() { return mCost; }
+		public double getAverageTemperature() { return mAverageTemperature; }
+		public double getInconsistency() { return mInconsistency; }
+
+		/**
+		 * @param index - one of the GUIFrame.SERVICES_* constants
+		 * @return the number of services, or 0 if the service module is off
+		 */
+		public int getServiceCount(int index)
+		{
+			return mServiceCounts == null ? 0 : mServiceCounts[index];
+		}
+
+		/**
+		 * @return true if map data was captured for this datacentre
+		 */
+		public boolean hasMapData() { return mRackX != null; }
+		public int getNumRacks() { return mRackX.length; }
+		public int getRackX(int i) { return mRackX[i]; }
+		public int getRackY(int i) { return mRackY[i]; }
+		public double getRackFailure(int i) { return mRackFailure[i]; }
+		public double getRackUtilisation(int i) { return mRackUtilisation[i]; }
+		public double getRackPower(int i) { return mRackPower[i]; }
+		public int getNumAirCons() { return mAirConX.length; }
+		public int getAirConX(int i) { return mAirConX[i]; }
+		public int getAirConY(int i) { return mAirConY[i]; }
+		public boolean isAirConAlive(int i) { return mAirConAlive[i]; }
+
+		/**
+		 * @return true if thermal grid data was captured for this datacentre
+		 */
+		public boolean hasThermalData() { return mTemperature != null; }
+		public int getThermalWidth() { return mTemperature.length; }
+		public int getThermalHeight() { return mTemperature.length == 0 ? 0 : mTemperature[0].length; }
+		public double getTemperature(int x, int y) { return mTemperature[x][y]; }
+		public Velocity getVelocity(int x, int y) { return mVelocity[x][y]; }
+	}
+}
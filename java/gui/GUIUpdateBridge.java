@@ -0,0 +1,153 @@
+/**
+ *   This file is part of CReST: The Cloud Research Simulation Toolkit 
+ *   Copyright (C) 2011, 2012 John Cartlidge 
+ * 
+ *   For a full list of contributors, refer to file CONTRIBUTORS.txt 
+ *
+ *   CReST was developed at the University of Bristol, UK, using 
+ *   financial support from the UK's Engineering and Physical 
+ *   Sciences Research Council (EPSRC) grant EP/H042644/1 entitled 
+ *   "Cloud Computing for Large-Scale Complex IT Systems". Refer to
+ *   <http://gow.epsrc.ac.uk/NGBOViewGrant.aspx?GrantRef=EP/H042644/1>
+ * 
+ *   CReST is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/gpl.txt>.
+ *
+ *   For further information, contact: 
+ *
+ *   Dr. John Cartlidge: john@john-cartlidge.co.uk
+ *   Department of Computer Science,
+ *   University of Bristol, The Merchant Venturers Building,
+ *   Woodland Road, Bristol, BS8-1UB, United Kingdom.
+ *
+ */
+package gui;
+
+import java.util.List;
+import java.util.Observable;
+import java.util.Observer;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.swing.SwingUtilities;
+
+import org.apache.log4j.Logger;
+
+import sim.module.gui.event.UpdateGUIEvent;
+import utility.time.TimeManager;
+
+/**
+ * Bridge between the simulation thread and the Swing event dispatch thread.
+ * 
+ * The bridge observes the event queue.  On each UpdateGUIEvent it captures a
+ * GUIFrame (on the simulation thread) and publishes it as the latest frame.
+ * At most one hand-over to the EDT is pending at any time: if the EDT has not
+ * yet consumed the previous frame, the new frame simply replaces it, so
+ * intermediate frames are dropped and the simulation never waits for Swing.
+ */
+public class GUIUpdateBridge implements Observer
+{
+	public static Logger logger = Logger.getLogger(GUIUpdateBridge.class);
+
+	private final List<GUIFrameListener> mListeners = new CopyOnWriteArrayList<GUIFrameListener>();
+	private final AtomicReference<GUIFrame> mLatest = new AtomicReference<GUIFrame>();
+	private final AtomicBoolean mPending = new AtomicBoolean(false);
+	private volatile boolean mCaptureMaps = false;
+	private long mFramesDropped = 0;
+
+	private final Runnable mDeliver = new Runnable() {
+		@Override
+		public void run() {
+			deliver();
+		}
+	};
+
+	/**
+	 * Add a listener.  Listeners are called on the EDT.
+	 */
+	public void addListener(GUIFrameListener listener)
+	{
+		mListeners.add(listener);
+	}
+
+	/**
+	 * Remove all listeners and discard any frame not yet delivered.
+	 */
+	public void reset()
+	{
+		mListeners.clear();
+		mLatest.set(null);
+		mCaptureMaps = false;
+	}
+
+	/**
+	 * Set whether frames should include per-tile data for the datacentre maps
+	 */
+	public void setCaptureMaps(boolean captureMaps)
+	{
+		mCaptureMaps = captureMaps;
+	}
+
+	/**
+	 * Capture a new frame on the calling (simulation) thread and hand it to the EDT.
+	 */
+	public void publish()
+	{
+		GUIFrame frame = GUIFrame.capture(mCaptureMaps);
+
+		if(mLatest.getAndSet(frame) != null) {
+			mFramesDropped++;
+			if(logger.isDebugEnabled()) {
+				logger.debug(TimeManager.log("EDT behind, dropped a frame (" + mFramesDropped + " so far)"));
+			}
+		}
+		if(mPending.compareAndSet(false, true)) {
+			SwingUtilities.invokeLater(mDeliver);
+		}
+	}
+
+	/**
+	 * Deliver the latest frame to all listeners.  Runs on the EDT.
+	 */
+	private void deliver()
+	{
+		mPending.set(false);
+		GUIFrame frame = mLatest.getAndSet(null);
+		if(frame == null) {
+			return;
+		}
+		for(GUIFrameListener listener : mListeners) {
+			listener.frameUpdated(frame);
+		}
+	}
+
+	/**
+	 * @return the number of frames replaced before the EDT could display them
+	 */
+	public long getFramesDropped()
+	{
+		return mFramesDropped;
+	}
+
+	/**
+	 * Publish a frame if an UpdateGUI event is passed
+	 */
+	@Override
+	public void update(Observable o, Object event)
+	{
+		if (event instanceof UpdateGUIEvent) {
+			publish();
+		}
+	}
+}
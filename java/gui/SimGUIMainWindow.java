@@ -33,13 +33,13 @@
  */
 package gui;
 
+import gui.GUIUpdateBridge;
 import gui.graph.CPUUtilisationGraph;
 import gui.graph.ConsistencyTimeGraph;
 import gui.graph.CostsTimeGraph;
 import gui.graph.FailureTimeGraph;
 import gui.graph.ServicesGraph;
 import gui.graph.TemperatureTimeGraph;
-import gui.map.RackDisplayRenderer;
 import gui.map.TabbedMapPane;
 import gui.panel.CostPanel;
 import gui.panel.LogPane;
@@ -103,6 +103,9 @@ public class SimGUIMainWindow implements ComponentListener, WorldListener
 	protected JPanel parentPricePanel; 
 	private CostPanel costPanel;
 
+	//Hands snapshots of the simulation to the graphs and maps on the EDT
+	private final GUIUpdateBridge mGUIBridge = new GUIUpdateBridge();
+
 	@SuppressWarnings("unused")
 	private JPanel mEventLog;
 	
@@ -111,6 +114,8 @@ public class SimGUIMainWindow implements ComponentListener, WorldListener
 	private boolean paramsFileExists = false;
 	private String eventsFileName;
 	private boolean eventsFileExists = false;
+	private File snapshotCacheDir = null;
+	private boolean useStreamingLoader = false;
 	
 	
 	protected SimulationRunner mSimulation;
@@ -163,6 +168,24 @@ public class SimGUIMainWindow implements ComponentListener, WorldListener
 		eventsFileExists = true;
 	}
 	
+	/**
+	 * Set the configuration snapshot cache directory for the Simulation (null for no cache)
+	 * 
+	 * @param cacheDir
+	 */
+	public void setSnapshotCacheDir(File cacheDir) {
+		snapshotCacheDir = cacheDir;
+	}
+	
+	/**
+	 * Set whether the Simulation loads the configuration file with the streaming loader
+	 * 
+	 * @param streaming
+	 */
+	public void setUseStreamingLoader(boolean streaming) {
+		useStreamingLoader = streaming;
+	}
+	
 	protected void initialiseWindow() {
 		
 		logger.debug("Initialising GUI window...");
@@ -532,6 +555,8 @@ public class SimGUIMainWindow implements ComponentListener, WorldListener
 			
 			logger.debug("About to create new simulation runner...");
 			mSimulation = new SimulationRunner(xmlConfigFile);
+			mSimulation.setSnapshotCacheDir(snapshotCacheDir);
+			mSimulation.setUseStreamingLoader(useStreamingLoader);
 			if(paramsFileExists) {
 				mSimulation.setParamsFileName(paramsFileName);
 			} 
@@ -784,13 +809,16 @@ public class SimGUIMainWindow implements ComponentListener, WorldListener
 	
 		SettingsManagerAccess sm = SettingsManager.getInstance();
 		
-    	//Initialise TimeSeries graphs and set as observers
+		//Drop the graphs and maps of any previous simulation
+		mGUIBridge.reset();
+		
+    	//Initialise TimeSeries graphs and set as frame listeners
 		
     	//Costs
 		if(Module.COSTS_MODULE.isActive()) {
 			CostsTimeGraph.getInstance().initialise();
 			CostsTimeGraph.getInstance().setUnitTime(sm.getUnitTimeForGraphs());
-        	mSimulation.addEventObserver(CostsTimeGraph.getInstance());
+        	mGUIBridge.addListener(CostsTimeGraph.getInstance());
 		} else {
 			CostsTimeGraph.getInstance().removeAll();
 			CostsTimeGraph.getInstance().repaint();
@@ -801,7 +829,7 @@ public class SimGUIMainWindow implements ComponentListener, WorldListener
 		if(Module.FAILURE_MODULE.isActive()) {
 	    	FailureTimeGraph.getInstance().initialise();
 	    	FailureTimeGraph.getInstance().setUnitTime(sm.getUnitTimeForGraphs());
-	    	mSimulation.addEventObserver(FailureTimeGraph.getInstance());
+	    	mGUIBridge.addListener(FailureTimeGraph.getInstance());
 		}else {
 			FailureTimeGraph.getInstance().removeAll();
 			FailureTimeGraph.getInstance().repaint();
@@ -812,7 +840,7 @@ public class SimGUIMainWindow implements ComponentListener, WorldListener
         if(Module.SERVICE_MODULE.isActive()) {
         	ServicesGraph.getInstance().initialise();
         	ServicesGraph.getInstance().setUnitTime(sm.getUnitTimeForGraphs());
-        	mSimulation.addEventObserver(ServicesGraph.getInstance());
+        	mGUIBridge.addListener(ServicesGraph.getInstance());
         } else {
         	ServicesGraph.getInstance().removeAll();
         	ServicesGraph.getInstance().repaint();
@@ -822,13 +850,13 @@ public class SimGUIMainWindow implements ComponentListener, WorldListener
         //Utilisation
         CPUUtilisationGraph.getInstance().initialise();
         CPUUtilisationGraph.getInstance().setUnitTime(sm.getUnitTimeForGraphs());
-        mSimulation.addEventObserver(CPUUtilisationGraph.getInstance());
+        mGUIBridge.addListener(CPUUtilisationGraph.getInstance());
         
         //Temperature
         if(Module.THERMAL_MODULE.isActive()) {
             TemperatureTimeGraph.getInstance().initialise();
             TemperatureTimeGraph.getInstance().setUnitTime(sm.getUnitTimeForGraphs());    
-            mSimulation.addEventObserver(TemperatureTimeGraph.getInstance());
+            mGUIBridge.addListener(TemperatureTimeGraph.getInstance());
         } else {
         	TemperatureTimeGraph.getInstance().removeAll();
         	TemperatureTimeGraph.getInstance().repaint();
@@ -839,7 +867,7 @@ public class SimGUIMainWindow implements ComponentListener, WorldListener
         if(Module.SUBSCRIPTION_MODULE.isActive()) {
         	 ConsistencyTimeGraph.getInstance().initialise();
         	 ConsistencyTimeGraph.getInstance().setUnitTime(sm.getUnitTimeForGraphs());
-        	 mSimulation.addEventObserver(ConsistencyTimeGraph.getInstance());
+        	 mGUIBridge.addListener(ConsistencyTimeGraph.getInstance());
         } else {
         	ConsistencyTimeGraph.getInstance().removeAll();
         	ConsistencyTimeGraph.getInstance().repaint();
@@ -850,15 +878,18 @@ public class SimGUIMainWindow implements ComponentListener, WorldListener
 
 		logger.debug("Setting renderers for each datacentre map...");
 		for(int i=0; i<World.getInstance().getNumberOfDatacentres(); i++) {
-			RackDisplayRenderer newRenderer = new RackDisplayRenderer(i);
-			TabbedMapPane.getSingletonObject().getMap(i).renderPhysicalLayout(world.getDatacentre(i), newRenderer);
+			TabbedMapPane.getSingletonObject().getMap(i).renderPhysicalLayout(world.getDatacentre(i));
 		}
 		
 		logger.debug("Setting event queue observers...");
-		//Set 2D maps as observers
+		//Set 2D maps as frame listeners
 		for(int i=0; i< World.getInstance().getNumberOfDatacentres(); i++) { 
-    		mSimulation.addEventObserver(TabbedMapPane.getSingletonObject().getMap(i)); 
+    		mGUIBridge.addListener(TabbedMapPane.getSingletonObject().getMap(i)); 
     	}
+		mGUIBridge.setCaptureMaps(true);
+		
+		//Graphs and maps are updated from frames captured on UpdateGUI events
+		mSimulation.addEventObserver(mGUIBridge);
 		
 		//Set status bar as observer
     	mSimulation.addEventObserver(mStatusBar); 
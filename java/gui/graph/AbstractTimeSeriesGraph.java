@@ -33,9 +33,9 @@
  */
 package gui.graph;
 
-import java.util.ArrayList;
-import java.util.Observable;
-import java.util.Observer;
+import gui.GUIFrame;
+
+import gui.GUIFrameListener;
 
 import javax.swing.JPanel;
 
@@ -44,17 +44,21 @@ import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartPanel;
 import org.jfree.chart.JFreeChart;
 import org.jfree.chart.plot.PlotOrientation;
-import org.jfree.data.xy.DefaultXYDataset;
+import org.jfree.data.xy.XYSeries;
+import org.jfree.data.xy.XYSeriesCollection;
 
-import sim.module.gui.event.UpdateGUIEvent;
-import sim.physical.World;
 import utility.time.TimeManager;
 
 /**
  * Class that contains a data against Time Graph. Includes data structures and
  * methods to update the graph.
+ * 
+ * The chart is created once, in initialise().  Each GUIFrame then appends one 
+ * point to each series in place; series keep at most TIME_BOUNDS points.  
+ * Frames are delivered on the EDT by the gui.GUIUpdateBridge, so subclasses 
+ * must read their values from the frame, never from the live world.
  */
-public abstract class AbstractTimeSeriesGraph extends JPanel implements Observer
+public abstract class AbstractTimeSeriesGraph extends JPanel implements GUIFrameListener
 {
 	public static Logger logger = Logger.getLogger(AbstractTimeSeriesGraph.class);
 	
@@ -74,10 +78,8 @@ public abstract class AbstractTimeSeriesGraph extends JPanel implements Observer
     protected JFreeChart         mChart      = null;
     private ChartPanel         	 mChartPanel = null;
 
-    protected DefaultXYDataset   mXYData;
-    protected GetData            mGetData;
+    protected XYSeriesCollection mXYData;
 
-    private boolean    mFirstDraw  = true;
     private final int  mTimeBounds;
 
     /**
@@ -92,18 +94,31 @@ public abstract class AbstractTimeSeriesGraph extends JPanel implements Observer
         mTimeBounds = pTimeBounds;
         this.unitTime = unitTime;
         
-        mXYData = new DefaultXYDataset();
-        mGetData = new GetData();
+        mXYData = new XYSeriesCollection();
     }
     
     /**
-     * Initialise the graph data structures 
+     * Initialise the graph data structures and create the chart
      */
     public void initialise()
     {
-    	mXYData = new DefaultXYDataset();
-    	mGetData = new GetData();
-    	mGetData.initialise();
+    	mXYData = new XYSeriesCollection();
+        mChart = ChartFactory.createXYLineChart(mTitle, mYTitle, mXTitle, mXYData, PlotOrientation.HORIZONTAL, true, false, false);
+        setTimeRange(0);
+        setXAxisRange();
+        setYAxisRange();
+
+        this.removeAll();
+        if (getChartPanel() == null)
+        {
+            setChartPanel(new ChartPanel(mChart));
+        }
+        else
+        {
+            getChartPanel().setChart(mChart);
+        }
+        this.add(getChartPanel());
+        revalidate();
     }
     
     /**
@@ -113,32 +128,49 @@ public abstract class AbstractTimeSeriesGraph extends JPanel implements Observer
     public void setUnitTime(TimeManager.UnitTime unitTime) {
         mXTitle = "Time (" + TimeManager.getTimeUnitString(unitTime) + ")";
         this.unitTime = unitTime;
+        if (mChart != null)
+        {
+        	mChart.getXYPlot().getRangeAxis().setLabel(mXTitle);
+        }
     }
 
     /**
-     * Updates the time series graph using the latest data
-     * 
+     * Updates the time series graph in place using the data in the given frame
      */
-    public void update()
+    @Override
+    public void frameUpdated(GUIFrame frame)
     {
-        this.removeAll();
-
-    	//JC, Jan 2012, Memory leak fix.  
-        //If DefaultXYDataset is not renewed its memory footprint continues to grow
-    	mXYData = new DefaultXYDataset();
+    	if (mChart == null)
+    	{
+    		return;
+    	}
     	
-        updateData();
-        updateGUI();
+        final double time = (double) frame.getTime(unitTime); //units will depend on the given graph (months, days, hours, minutes...)
+        if(logger.isDebugEnabled()) {
+        	logger.debug("Updating graph: '" + mTitle + "' with " + frame);
+        }
+        
+        updateData(frame, time);
+        
+        // Notify once per series, rather than once per point
+        for (int i = 0; i < mXYData.getSeriesCount(); i++)
+        {
+        	mXYData.getSeries(i).fireSeriesChanged();
+        }
+        setTimeRange(time);
+
+        if (!getChartPanel().getPreferredSize().equals(getSize()))
+        {
+        	getChartPanel().setPreferredSize(getSize());
+        	getChartPanel().revalidate();
+        }
     }
     
     /**
-     * Re-draws the chart with the latest data, keeps range of x axis within the time bounds set.
+     * Keeps range of the time axis within the time bounds set.
      */
-    private void updateGUI()
+    private void setTimeRange(double time)
     {
-        mChart = ChartFactory.createXYLineChart(mTitle, mYTitle, mXTitle, mXYData, PlotOrientation.HORIZONTAL, true, false, false);
-        final double time = (double) TimeManager.getTime(unitTime); //units will depend on the given graph (months, days, hours, minutes...)
-
         final double buffer = mTimeBounds / 2;
         double lower = time - (0.9 * mTimeBounds);
         double upper = time + buffer;
@@ -152,35 +184,42 @@ public abstract class AbstractTimeSeriesGraph extends JPanel implements Observer
             upper = mTimeBounds + buffer;
         }
 
-        logger.debug(TimeManager.log(mTitle+ ": Setting XRange: lower="+lower+", upper="+upper + " Unit=" + unitTime));
+        logger.debug(mTitle+ ": Setting XRange: lower="+lower+", upper="+upper + " Unit=" + unitTime);
         mChart.getXYPlot().getRangeAxis().setRange(lower, upper);
-        setXAxisRange();
-        setYAxisRange();
-
-        if (mFirstDraw == true)
-        {
-            setChartPanel(new ChartPanel(mChart));
-        }
-        else
-        {
-            getChartPanel().setChart(mChart);
-        }
-
-        getChartPanel().setPreferredSize(getSize());
-        getChartPanel().repaint();
-        getChartPanel().revalidate();
-
-        this.add(getChartPanel());
-
-        getChartPanel().updateUI();
+    }
 
-        mFirstDraw = false;
+    /**
+     * Add a point to a series, creating the series if this is the first point. 
+     * Listeners are not notified; frameUpdated() does that once all points are added.
+     * 
+     * @param pSeries - the series index; series must be created in index order
+     * @param pName - the series name, used when the series is created
+     * @param pData - the data value
+     * @param pTime - the time value
+     */
+    protected void add(int pSeries, String pName, double pData, double pTime)
+    {
+    	XYSeries series;
+    	if (pSeries < mXYData.getSeriesCount())
+    	{
+    		series = mXYData.getSeries(pSeries);
+    	}
+    	else
+    	{
+    		series = new XYSeries(pName, false, true);
+    		series.setMaximumItemCount(mTimeBounds);
+    		mXYData.addSeries(series);
+    	}
+    	series.add(pData, pTime, false);
     }
 
     /**
-     * Implemented in subclasses as each one uses a different data source. Basically adds the latest value to the end of the dataset. Deletes first if dataset is too long.
+     * Implemented in subclasses as each one uses a different data source. Adds the latest value from the frame to the end of each series (see add()).
+     * 
+     * @param frame - the latest frame
+     * @param time - the frame time in this graph's time units
      */
-    abstract void updateData();
+    abstract void updateData(GUIFrame frame, double time);
 
     /**
      * Implemented in subclasses. 
@@ -202,94 +241,4 @@ public abstract class AbstractTimeSeriesGraph extends JPanel implements Observer
 	public void setChartPanel(ChartPanel mChartPanel) {
 		this.mChartPanel = mChartPanel;
 	}
-
-	class GetData
-    {
-        ArrayList<ArrayList<Double>> mData;
-        ArrayList<ArrayList<Double>> mTimes;
-
-        /**
-         * Initialises the data structure
-         * 
-         * @author Alex Sheppard
-         */
-        private void initialise()
-        {
-            mData = new ArrayList<ArrayList<Double>>();
-            mTimes = new ArrayList<ArrayList<Double>>();
-
-            for (int i = 0; i < World.getInstance().getNumberOfDatacentres() * mNumItemsOfDataPerDC; i++)
-            {
-                mData.add(new ArrayList<Double>());
-                mTimes.add(new ArrayList<Double>());
-            }
-        }
-
-        /**
-         * Adds require data value.
-         * 
-         * @param pData
-         * @param pTime
-         * @param pDatacentre
-         */
-        protected void add(double pData, double pTime, int pDatacentre)
-        {
-            mData.get(pDatacentre).add(pData);
-            mTimes.get(pDatacentre).add(pTime);
-
-            if (mData.get(pDatacentre).size() > mTimeBounds)
-            {
-                mData.get(pDatacentre).remove(0);
-                mTimes.get(pDatacentre).remove(0);
-            }
-        }
-
-        protected int sizeData()
-        {
-            return mData.get(0).size();
-        }
-
-        protected int sizeTime()
-        {
-            return mTimes.get(0).size();
-        }
-
-        /**
-         * Returns the required data for the given datacentre / dataset
-         * 
-         * @author Alex Sheppard
-         * @param pDatacentre
-         *            the required datacentre / dataset
-         * @return the required data for the given datacentre / dataset
-         */
-        protected double[][] get(int pDatacentre)
-        {
-            double[][] data = new double[2][mData.get(pDatacentre).size()];
-
-            for (int i = 0; i < mData.get(pDatacentre).size(); i++)
-            {
-                data[0][i] = mData.get(pDatacentre).get(i);
-                data[1][i] = mTimes.get(pDatacentre).get(i);
-            }
-            return data;
-        }
-    }
-	
-
-	/**
-	 * Update the time series graph if an UpdateGUI event is passed
-	 */
-	@Override
-	public void update(Observable arg0, Object event) {
-		
-		//Is it an UpdateGUI event?  
-		if (event instanceof UpdateGUIEvent) { 
-			
-			logger.debug(TimeManager.log("Updating graph: '" + mTitle + "'" + " received event " + event));
-            update();
-            
-		} else { //else ignore
-//			logger.debug("Ignoring event: " + event);
-		}
-	}
 }
@@ -33,8 +33,8 @@
  */
 package gui.graph;
 
-import sim.physical.World;
-import utility.time.TimeManager;
+import gui.GUIFrame;
+
 import config.SettingsManager;
 
 @SuppressWarnings("serial")
@@ -83,11 +83,9 @@ public class CPUUtilisationGraph extends AbstractTimeSeriesGraph
      * 
      * @see sim.TimeSeriesGraph#update()
      */
-    void updateData() {
-        for (int i = 0; i < World.getInstance().getNumberOfDatacentres(); i++) {
-            mGetData.add(World.getInstance().getDatacentre(i).getUtilisation(), (double) TimeManager.getTime(unitTime), i);
-            mXYData.addSeries(World.getInstance().getDatacentre(i).getName(), mGetData.get(i));
-//            mXYData.addSeries("Utilisation " + i, mGetData.get(i));
+    void updateData(GUIFrame frame, double time) {
+        for (int i = 0; i < frame.getNumberOfDatacentres(); i++) {
+            add(i, frame.getDatacentre(i).getName(), frame.getDatacentre(i).getUtilisation(), time);
         }
     }
 
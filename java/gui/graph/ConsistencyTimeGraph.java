@@ -33,13 +33,10 @@
  */
 package gui.graph;
 
+import gui.GUIFrame;
+
 import org.apache.log4j.Logger;
 
-import sim.module.Module;
-import sim.module.subscriptions.SubscriptionsModuleRunner;
-import sim.module.subscriptions.configparams.SubscriptionsModuleConfigParams;
-import sim.physical.World;
-import utility.time.TimeManager;
 import config.SettingsManager;
 
 public class ConsistencyTimeGraph extends AbstractTimeSeriesGraph
@@ -91,22 +88,15 @@ public class ConsistencyTimeGraph extends AbstractTimeSeriesGraph
      * 
      * @see sim.TimeSeriesGraph#update()
      */
-    public void updateData()
+    public void updateData(GUIFrame frame, double time)
     {
-        World mWorld = World.getInstance();
-        String subscriptionsString = ((SubscriptionsModuleConfigParams) Module.SUBSCRIPTION_MODULE.getParams()).toString();
-        
         logger.debug("Updating consistency data...");
-        double timeNow = (double) TimeManager.getTime(unitTime);
-        
-        for (int i = 0; i < mWorld.mDatacentres.size(); i++)
+
+        for (int i = 0; i < frame.getNumberOfDatacentres(); i++)
         {
-        	mGetData.add(SubscriptionsModuleRunner.getInstance().getSubscriptionNetwork(i).percentinconsistent(), timeNow, i);
-            mXYData.addSeries(mWorld.getDatacentre(i).getName() + " " + subscriptionsString, mGetData.get(i));
-            
-            logger.debug("adding data: inconsistent=" + SubscriptionsModuleRunner.getInstance().getSubscriptionNetwork(i).percentinconsistent() + ", time=" + timeNow + " " + unitTime);
+        	add(i, frame.getDatacentre(i).getName() + " " + frame.getSubscriptionsParams(), frame.getDatacentre(i).getInconsistency(), time);
+            logger.debug("adding data: inconsistent=" + frame.getDatacentre(i).getInconsistency() + ", time=" + time + " " + unitTime);
         }
-        
     }
 
     /*
@@ -33,12 +33,10 @@
  */
 package gui.graph;
 
+import gui.GUIFrame;
+
 import org.apache.log4j.Logger;
 
-import sim.module.costs.CostsModuleRunner;
-import sim.physical.World;
-import utility.time.LengthOfTime;
-import utility.time.TimeManager;
 import config.SettingsManager;
 
 
@@ -92,22 +90,14 @@ public class CostsTimeGraph extends AbstractTimeSeriesGraph
      * 
      * @see sim.TimeSeriesGraph#update()
      */
-    public void updateData()
+    public void updateData(GUIFrame frame, double time)
     {
-        
-    	logger.debug(TimeManager.log("updating data..."));
-	
-	    World mWorld = World.getInstance();
-
-        for (int i = 0; i < mWorld.mDatacentres.size(); i++)
+    	logger.debug("updating data...");
+    	
+        for (int i = 0; i < frame.getNumberOfDatacentres(); i++)
         {
-        	
-            mGetData.add(CostsModuleRunner.getInstance().getCosts(i).totalCost(LengthOfTime.HOUR.getTimeInSeconds()), (double) TimeManager.getTime(unitTime), i);
-//            mXYData.addSeries("Price " + i, mGetData.get(i));
-            mXYData.addSeries(mWorld.mDatacentres.get(i).getName(), mGetData.get(i));
-            
+            add(i, frame.getDatacentre(i).getName(), frame.getDatacentre(i).getCost(), time);
         }
-    	
     }
 
     /*
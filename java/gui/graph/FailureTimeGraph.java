@@ -33,9 +33,8 @@
  */
 package gui.graph;
 
-import sim.physical.Datacentre;
-import sim.physical.World;
-import utility.time.TimeManager;
+import gui.GUIFrame;
+
 import config.SettingsManager;
 
 public class FailureTimeGraph extends AbstractTimeSeriesGraph
@@ -84,25 +83,11 @@ public class FailureTimeGraph extends AbstractTimeSeriesGraph
      * 
      * @see sim.TimeSeriesGraph#update()
      */
-    void updateData()
+    void updateData(GUIFrame frame, double time)
     {
-        World world = World.getInstance();
-        final double time = (double) TimeManager.getTime(unitTime);
-
-        for (int i = 0; i < world.mDatacentres.size(); i++)
+        for (int i = 0; i < frame.getNumberOfDatacentres(); i++)
         {
-            Datacentre dc = world.mDatacentres.get(i);
-            double numFailed = dc.getNumFailedServers();
-            double numServers = dc.getNumServers();
-            double percentageAlive = (1.0 - ((numFailed) / numServers)) * 100;
-//            final String newSeries = "Failure " + i;
-
-            mGetData.add(percentageAlive, time, i);
-            mXYData.addSeries(dc.getName(), mGetData.get(i));
-//            mXYData.addSeries(newSeries, mGetData.get(i));
-            
-//            logger.debug(TimeManager.log("Failed servers = [" + numFailed + " / " + numServers +"]"));
- 
+            add(i, frame.getDatacentre(i).getName(), frame.getDatacentre(i).getPercentageAlive(), time);
         }
     }
 
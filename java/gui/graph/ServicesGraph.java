@@ -33,11 +33,9 @@
  */
 package gui.graph;
 
-import sim.module.service.ServiceModuleRunner;
+import gui.GUIFrame;
+
 import sim.module.service.bo.Service;
-import sim.module.service.bo.ServiceManager;
-import sim.physical.World;
-import utility.time.TimeManager;
 import config.SettingsManager;
 
 public class ServicesGraph extends AbstractTimeSeriesGraph
@@ -83,30 +81,17 @@ public class ServicesGraph extends AbstractTimeSeriesGraph
      * Update the graph with latest data
      * 
      */
-    public void updateData()
+    public void updateData(GUIFrame frame, double time)
     {
-        World mWorld = World.getInstance();
-        
-        double time = (double) TimeManager.getTime(unitTime);
-        
-        for (int i = 0; i < mWorld.mDatacentres.size(); i++)
+        for (int i = 0; i < frame.getNumberOfDatacentres(); i++)
         {
-        	ServiceManager sm = ServiceModuleRunner.getInstance().getServiceManager(i);
+        	GUIFrame.DatacentreFrame dc = frame.getDatacentre(i);
         	
-            mGetData.add(sm.getTotalServices(), time, i * 5);
-            mXYData.addSeries(i + "Total", mGetData.get(i * 5));
-
-            mGetData.add(sm.getRunningServices(), time, i * 5 + 1);
-            mXYData.addSeries(i + " " + Service.Status.running, mGetData.get(i * 5 + 1));
-
-            mGetData.add(sm.getFailedServices(), time, i * 5 + 2);
-            mXYData.addSeries(i + " " + Service.Status.failed, mGetData.get(i * 5 + 2));
-
-            mGetData.add(sm.getCompletedServices(), time, i * 5 + 3);
-            mXYData.addSeries(i + " " + Service.Status.complete, mGetData.get(i * 5 + 3));
-
-            mGetData.add(sm.getStoppedServices(), time, i * 5 + 4);
-            mXYData.addSeries(i + " " + Service.Status.stopped, mGetData.get(i * 5 + 4));
+            add(i * 5, i + "Total", dc.getServiceCount(GUIFrame.SERVICES_TOTAL), time);
+            add(i * 5 + 1, i + " " + Service.Status.running, dc.getServiceCount(GUIFrame.SERVICES_RUNNING), time);
+            add(i * 5 + 2, i + " " + Service.Status.failed, dc.getServiceCount(GUIFrame.SERVICES_FAILED), time);
+            add(i * 5 + 3, i + " " + Service.Status.complete, dc.getServiceCount(GUIFrame.SERVICES_COMPLETE), time);
+            add(i * 5 + 4, i + " " + Service.Status.stopped, dc.getServiceCount(GUIFrame.SERVICES_STOPPED), time);
         }
     }
 
@@ -33,11 +33,8 @@
  */
 package gui.graph;
 
-import sim.module.thermal.ThermalModuleRunner;
-import sim.module.thermal.bo.ThermalGrid;
-import sim.physical.Datacentre;
-import sim.physical.World;
-import utility.time.TimeManager;
+import gui.GUIFrame;
+
 import config.SettingsManager;
 
 public class TemperatureTimeGraph extends AbstractTimeSeriesGraph
@@ -87,23 +84,12 @@ public class TemperatureTimeGraph extends AbstractTimeSeriesGraph
      * 
      * @see sim.TimeSeriesGraph#update()
      */
-    void updateData()
+    void updateData(GUIFrame frame, double time)
     {
-        logger.debug("--------start update data.");
-        
-        World world = World.getInstance();
-        final double time = (double) TimeManager.getTime(unitTime);
-
-        for (int i = 0; i < world.mDatacentres.size(); i++)
+        for (int i = 0; i < frame.getNumberOfDatacentres(); i++)
         {
-            final Datacentre dc = world.mDatacentres.get(i);
-            
-            ThermalGrid grid = ThermalModuleRunner.getInstance().getThermalGrid(dc.getID());
-            
-            mGetData.add(grid.getAverageTemperature(), time, i);
-            mXYData.addSeries(dc.getName(), mGetData.get(i));
+            add(i, frame.getDatacentre(i).getName(), frame.getDatacentre(i).getAverageTemperature(), time);
         }
-//        System.out.println("--------end update data.");
     }
 
     /*
@@ -33,11 +33,11 @@
  */
 package gui.map;
 
+import gui.GUIFrame;
 import gui.map.TabbedMapPane.MapViewEnum;
 
 import org.apache.log4j.Logger;
 
-import sim.module.event.Event;
 import sim.physical.Block;
 
 public abstract class AbstractMapRenderer
@@ -81,10 +81,10 @@ public abstract class AbstractMapRenderer
 	public abstract void renderPhysicalBlock(Block b);
 	
 	/**
-	 * Calls a new event and tells the MapRenderer to update the map
-	 * @param e
+	 * Update the map with the values captured in a frame.  Called on the EDT.
+	 * @param frame - the frame for this renderer's datacentre
 	 */
-	public abstract void update(Event e);
+	public abstract void update(GUIFrame.DatacentreFrame frame);
 	
 	/**
 	 * Set the data view we want to display.
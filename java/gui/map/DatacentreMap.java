@@ -33,21 +33,20 @@
  */
 package gui.map;
 
+import gui.GUIFrame;
+import gui.GUIFrameListener;
 import gui.map.TabbedMapPane.MapViewEnum;
 
 import java.awt.Dimension;
 import java.awt.GridLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.util.Observable;
-import java.util.Observer;
 
 import javax.swing.JComboBox;
 import javax.swing.JPanel;
 
 import org.apache.log4j.Logger;
 
-import sim.module.event.Event;
 import sim.physical.Block;
 import sim.physical.Datacentre;
 
@@ -60,7 +59,7 @@ import sim.physical.Datacentre;
  * 
  */
 
-public class DatacentreMap extends JPanel implements Observer, ActionListener
+public class DatacentreMap extends JPanel implements GUIFrameListener, ActionListener
 {
 	
 	private static Logger logger = Logger.getLogger(DatacentreMap.class);
@@ -204,25 +203,22 @@ public class DatacentreMap extends JPanel implements Observer, ActionListener
 		renderView(MapViewEnum.LAYOUT);
 	}
 
-	public void newEvent(Event e)
+	/**
+	 * Update the map from the latest frame.  Called on the EDT by the gui.GUIUpdateBridge.
+	 * 
+	 * @see gui.GUIFrameListener#frameUpdated(gui.GUIFrame)
+	 */
+	@Override
+	public void frameUpdated(GUIFrame frame)
 	{
-
-		if(logger.isDebugEnabled()) {
-			logger.debug("New event received: " + e.getClass().getName() + " with dcID " + e.getDatacentreIndex() + " @ " + this);
-		}
+		if(mDC == null) return;
 		
-		//Ignore event if it *only* applies to a different DatacentreMap
-		//Note: if DatacentreIndex == -1, event applies to all datacentres
-		if(e.getDatacentreIndex() >= 0 && e.getDatacentreIndex()!=mDC.getID()) {
-			//ignore this event
-			logger.debug("Event does not apply to this DatacentreMap.  Ignoring this event...");
-			return;
-		} else {
-			//this event applies, pass on to renderer
-			logger.debug("Event applies to this datacentreMap.  Passing on to renderer...");
-			mRender.update(e);
-			revalidate();
-			return;
+		for(int i=0; i<frame.getNumberOfDatacentres(); i++) {
+			if(frame.getDatacentre(i).getID() == mDC.getID()) {
+				mRender.update(frame.getDatacentre(i));
+				revalidate();
+				return;
+			}
 		}
 	}
 
@@ -250,22 +246,6 @@ public class DatacentreMap extends JPanel implements Observer, ActionListener
 		}
 	}
 
-	//This overrides the Observer.update method.  And is called when
-	//observable class changes (in this case the eventQueue)
-	/*
-	 * (non-Javadoc)
-	 * 
-	 * @see java.util.Observer#update(java.util.Observable, java.lang.Object)
-	 */
-	@Override
-	public void update(Observable pEventQueue, Object pEvent)
-	{
-		logger.debug(this + " DatacentreMap.update(.pEvent , .)" + pEvent);
-		// TODO: Better code (checks to ensure it is an event?).
-		Event event = (Event) pEvent;
-		newEvent(event);
-	}
-
 	/**
 	 * Handles events, sets the "data view" - data to display, then re-renders the
 	 * view. 
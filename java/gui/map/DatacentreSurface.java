@@ -0,0 +1,564 @@
+/**
+ *   This file is part of CReST: The Cloud Research Simulation Toolkit 
+ *   Copyright (C) 2011, 2012 John Cartlidge 
+ * 
+ *   For a full list of contributors, refer to file CONTRIBUTORS.txt 
+ *
+ *   CReST was developed at the University of Bristol, UK, using 
+ *   financial support from the UK's Engineering and Physical 
+ *   Sciences Research Council (EPSRC) grant EP/H042644/1 entitled 
+ *   "Cloud Computing for Large-Scale Complex IT Systems". Refer to
+ *   <http://gow.epsrc.ac.uk/NGBOViewGrant.aspx?GrantRef=EP/H042644/1>
+ * 
+ *   CReST is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/gpl.txt>.
+ *
+ *   For further information, contact: 
+ *
+ *   Dr. John Cartlidge: john@john-cartlidge.co.uk
+ *   Department of Computer Science,
+ *   University of Bristol, The Merchant Venturers Building,
+ *   Woodland Road, Bristol, BS8-1UB, United Kingdom.
+ *
+ */
+package gui.map;
+
+import gui.GUIFrame;
+import gui.GUIFrameListener;
+import gui.map.TabbedMapPane.MapViewEnum;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.image.BufferedImage;
+import java.text.DecimalFormat;
+
+import javax.swing.JComboBox;
+import javax.swing.JComponent;
+
+import org.apache.log4j.Logger;
+
+import sim.physical.Block;
+import sim.physical.Datacentre;
+import utility.direction.CompassDirection;
+
+/**
+ * Renders a 2D view of a Datacentre onto a single surface.
+ * 
+ * Unlike DatacentreMap, which uses one MapTile component per grid cell, the 
+ * values of every cell are held in primitive arrays and the map is drawn into
+ * a BufferedImage with one pixel per cell, scaled up when painted.  When a 
+ * frame arrives only cells whose colour changed are redrawn, and only the 
+ * screen region covering them is repainted.  
+ * 
+ * The mouse wheel zooms around the cursor, dragging pans and a double click 
+ * fits the whole floor into view again.
+ */
+public class DatacentreSurface extends JComponent implements GUIFrameListener, ActionListener
+{
+	public static Logger logger = Logger.getLogger(DatacentreSurface.class);
+
+	private static final long serialVersionUID = 1L;
+
+	private static final int MAX_COL_VALUE = 255;
+
+	/** Preferred size (in pixels) of a cell, as DatacentreMap */
+	private static final int TILE_SIZE = 10;
+	/** Preferred size is capped; larger floors are zoomed and panned */
+	private static final int MAX_PREFERRED_SIZE = 1000;
+	/** Cell borders are only drawn when a cell is at least this many pixels wide */
+	private static final double BORDER_MIN_SCALE = 6;
+	private static final double ZOOM_STEP = 1.25;
+	private static final double MAX_SCALE = 64;
+
+	// Cell types
+	private static final byte FLOOR = 0;
+	private static final byte RACK = 1;
+	private static final byte AIRCON = 2;
+
+	// Member Variables
+	private Datacentre mDC;
+	private int mWidth, mHeight;
+	private MapViewEnum mCurrentView = MapViewEnum.LAYOUT;
+
+	// Cell values, indexed [y * mWidth + x]
+	private byte[] mType;
+	private boolean[] mFacingNorth;
+	private double[] mTemperature;
+	private double[] mFailure;
+	private double[] mUtilisation;
+	private double[] mPower;
+	private String[] mVelocity;
+
+	// Rendered colours: background is held in the image, border alongside
+	private BufferedImage mImage;
+	private int[] mBorder;
+
+	// Dirty region (in cells) since the last repaint request
+	private int mDirtyMinX, mDirtyMinY, mDirtyMaxX, mDirtyMaxY;
+
+	// Zoom and pan: screen pixels per cell, and screen position of cell (0,0)
+	private double mScale = TILE_SIZE;
+	private double mOffsetX = 0, mOffsetY = 0;
+	private boolean mFitted = false;
+
+	/**
+	 * Creates a new, empty, map
+	 */
+	public DatacentreSurface(String name)
+	{
+		setName(name);
+		setOpaque(true);
+		setBackground(Color.WHITE);
+		setToolTipText(""); //register with the tooltip manager
+
+		MouseAdapter mouse = new MouseAdapter() {
+			private Point mDragStart;
+
+			@Override
+			public void mousePressed(MouseEvent e) {
+				mDragStart = e.getPoint();
+			}
+
+			@Override
+			public void mouseDragged(MouseEvent e) {
+				if(mDragStart != null) {
+					mOffsetX += e.getX() - mDragStart.x;
+					mOffsetY += e.getY() - mDragStart.y;
+					mDragStart = e.getPoint();
+					repaint();
+				}
+			}
+
+			@Override
+			public void mouseClicked(MouseEvent e) {
+				if(e.getClickCount() == 2) {
+					fitToView();
+					repaint();
+				}
+			}
+
+			@Override
+			public void mouseWheelMoved(MouseWheelEvent e) {
+				zoom(Math.pow(ZOOM_STEP, -e.getWheelRotation()), e.getX(), e.getY());
+			}
+		};
+		addMouseListener(mouse);
+		addMouseMotionListener(mouse);
+		addMouseWheelListener(mouse);
+	}
+
+	public String getName()
+	{
+		if(mDC!=null) {
+			return mDC.getName();
+		} else {
+			return "no datacentre attached";
+		}
+	}
+
+	public int getNumber()
+	{
+		if(mDC!=null) {
+			return mDC.getID();
+		} else {
+			return -1;
+		}
+	}
+
+	public String toString()
+	{
+		return "DatacentreSurface: [DC#=" + this.getNumber() + ", DCName=" + this.getName() + ", view=" + mCurrentView + "]";
+	}
+
+	/**
+	 * Render the physical layout of a datacentre
+	 * 
+	 * @param pDC - the datacentre to render
+	 */
+	public void renderPhysicalLayout(Datacentre pDC)
+	{
+		mDC = pDC;
+		mWidth = pDC.getGridWidth();
+		mHeight = pDC.getGridHeight();
+		logger.debug(this + " renderPhysicalLayout(" + mWidth + "x" + mHeight + ")");
+
+		int n = mWidth * mHeight;
+		mType = new byte[n];
+		mFacingNorth = new boolean[n];
+		mTemperature = new double[n];
+		mFailure = new double[n];
+		mUtilisation = new double[n];
+		mPower = new double[n];
+		mVelocity = new String[n];
+		mBorder = new int[n];
+		mImage = new BufferedImage(Math.max(mWidth, 1), Math.max(mHeight, 1), BufferedImage.TYPE_INT_RGB);
+
+		for (Block b : pDC.getBlocks())
+		{
+			renderPhysicalBlock(b);
+		}
+
+		setPreferredSize(new Dimension(Math.min(TILE_SIZE * mWidth, MAX_PREFERRED_SIZE), Math.min(TILE_SIZE * mHeight, MAX_PREFERRED_SIZE)));
+		mFitted = false;
+		mCurrentView = MapViewEnum.LAYOUT;
+		renderView(mCurrentView);
+		revalidate();
+	}
+
+	/**
+	 * Record the type of a block (recursing into aisles)
+	 */
+	private void renderPhysicalBlock(Block b)
+	{
+		if (b.isAirCon() || b.isRack())
+		{
+			Point p = b.getAbsolutePosition();
+			int i = p.y * mWidth + p.x;
+			if (b.isAirCon())
+			{
+				mType[i] = AIRCON;
+			}
+			else
+			{
+				mType[i] = RACK;
+				mFacingNorth[i] = b.toRack().getDirection().equals(CompassDirection.NORTH);
+			}
+		}
+		else
+		{
+			for (Block bl : b.getBlocks())
+			{
+				renderPhysicalBlock(bl);
+			}
+		}
+	}
+
+	/**
+	 * Set the data view and re-render every cell
+	 * 
+	 * @param view - the new view to render
+	 */
+	public void renderView(MapViewEnum view)
+	{
+		mCurrentView = view;
+		if (mDC == null) return;
+
+		for (int y = 0; y < mHeight; y++)
+		{
+			for (int x = 0; x < mWidth; x++)
+			{
+				int i = y * mWidth + x;
+				mImage.setRGB(x, y, background(i));
+				mBorder[i] = border(i);
+			}
+		}
+		clearDirty();
+		repaint();
+	}
+
+	public MapViewEnum getCurrentDataView()
+	{
+		return mCurrentView;
+	}
+
+	/**
+	 * Update the cell values from the latest frame, redrawing changed cells only.
+	 * 
+	 * @see gui.GUIFrameListener#frameUpdated(gui.GUIFrame)
+	 */
+	@Override
+	public void frameUpdated(GUIFrame frame)
+	{
+		if (mDC == null) return;
+
+		GUIFrame.DatacentreFrame dc = null;
+		for (int i = 0; i < frame.getNumberOfDatacentres(); i++)
+		{
+			if (frame.getDatacentre(i).getID() == mDC.getID())
+			{
+				dc = frame.getDatacentre(i);
+			}
+		}
+		if (dc == null || !dc.hasMapData()) return;
+
+		for (int r = 0; r < dc.getNumRacks(); r++)
+		{
+			int i = dc.getRackY(r) * mWidth + dc.getRackX(r);
+			mFailure[i] = dc.getRackFailure(r);
+			mUtilisation[i] = dc.getRackUtilisation(r);
+			mPower[i] = dc.getRackPower(r);
+			if (mCurrentView != MapViewEnum.TEMP) updateCell(dc.getRackX(r), dc.getRackY(r));
+		}
+		for (int a = 0; a < dc.getNumAirCons(); a++)
+		{
+			int i = dc.getAirConY(a) * mWidth + dc.getAirConX(a);
+			mFailure[i] = dc.isAirConAlive(a) ? 0.0 : 1.0;
+			if (mCurrentView != MapViewEnum.TEMP) updateCell(dc.getAirConX(a), dc.getAirConY(a));
+		}
+		if (dc.hasThermalData())
+		{
+			int w = Math.min(dc.getThermalWidth(), mWidth);
+			int h = Math.min(dc.getThermalHeight(), mHeight);
+			for (int x = 0; x < w; x++)
+			{
+				for (int y = 0; y < h; y++)
+				{
+					int i = y * mWidth + x;
+					mTemperature[i] = dc.getTemperature(x, y);
+					mVelocity[i] = String.valueOf(dc.getVelocity(x, y));
+					if (mCurrentView == MapViewEnum.TEMP) updateCell(x, y);
+				}
+			}
+		}
+
+		repaintDirty();
+	}
+
+	/**
+	 * Recompute the colours of a cell, marking it dirty if they changed
+	 */
+	private void updateCell(int x, int y)
+	{
+		int i = y * mWidth + x;
+		int bg = background(i);
+		int border = border(i);
+		if (bg != (mImage.getRGB(x, y) & 0xFFFFFF) || border != mBorder[i])
+		{
+			mImage.setRGB(x, y, bg);
+			mBorder[i] = border;
+			if (x < mDirtyMinX) mDirtyMinX = x;
+			if (y < mDirtyMinY) mDirtyMinY = y;
+			if (x > mDirtyMaxX) mDirtyMaxX = x;
+			if (y > mDirtyMaxY) mDirtyMaxY = y;
+		}
+	}
+
+	private void clearDirty()
+	{
+		mDirtyMinX = Integer.MAX_VALUE;
+		mDirtyMinY = Integer.MAX_VALUE;
+		mDirtyMaxX = -1;
+		mDirtyMaxY = -1;
+	}
+
+	/**
+	 * Request a repaint of the screen region covering the dirty cells
+	 */
+	private void repaintDirty()
+	{
+		if (mDirtyMaxX >= 0)
+		{
+			int x0 = (int) Math.floor(mOffsetX + mDirtyMinX * mScale);
+			int y0 = (int) Math.floor(mOffsetY + mDirtyMinY * mScale);
+			int x1 = (int) Math.ceil(mOffsetX + (mDirtyMaxX + 1) * mScale);
+			int y1 = (int) Math.ceil(mOffsetY + (mDirtyMaxY + 1) * mScale);
+			repaint(x0, y0, x1 - x0 + 1, y1 - y0 + 1);
+		}
+		clearDirty();
+	}
+
+	/**
+	 * Background colour of a cell in the current view (as MapTile)
+	 */
+	private int background(int i)
+	{
+		switch(mCurrentView) {
+			case LAYOUT:
+				if (mType[i] == AIRCON) return RackDisplayRenderer.DEFAULT_AC_COLOUR.getRGB() & 0xFFFFFF;
+				if (mType[i] == RACK) return (mFacingNorth[i] ? RackDisplayRenderer.DEFAULT_RACK_NORTH_COLOUR : RackDisplayRenderer.DEFAULT_RACK_SOUTH_COLOUR).getRGB() & 0xFFFFFF;
+				return RackDisplayRenderer.DEFAULT_EMPTY_COLOUR.getRGB() & 0xFFFFFF;
+			case FAILURE:
+				if (mType[i] == AIRCON) return (mFailure[i] == 0 ? RackDisplayRenderer.DEFAULT_AC_COLOUR : RackDisplayRenderer.DEFAULT_AC_FAIL_COLOUR).getRGB() & 0xFFFFFF;
+				if (mType[i] == RACK) return failureColour(mFailure[i]);
+				return RackDisplayRenderer.DEFAULT_EMPTY_COLOUR.getRGB() & 0xFFFFFF;
+			case UTIL:
+				if (mType[i] == RACK) return rgb(colourValue(mUtilisation[i]), 0, MAX_COL_VALUE - colourValue(mUtilisation[i]));
+				return RackDisplayRenderer.DEFAULT_EMPTY_COLOUR.getRGB() & 0xFFFFFF;
+			case TEMP:
+				if (mType[i] == RACK) return 0;
+				double ratio = Math.max(0.0, Math.min(1.0, mTemperature[i] / 100.0));
+				return rgb((int) (MAX_COL_VALUE * ratio), 0, (int) (MAX_COL_VALUE * (1 - ratio)));
+			default:
+				return 0;
+		}
+	}
+
+	/**
+	 * Border colour of a cell in the current view (as MapTile)
+	 */
+	private int border(int i)
+	{
+		switch(mCurrentView) {
+			case LAYOUT:
+			case FAILURE:
+				if (mType[i] == AIRCON) return 0;
+				break;
+			case UTIL:
+				if (mType[i] == RACK) return failureColour(mFailure[i]);
+				break;
+			case TEMP:
+				if (mType[i] == AIRCON) return Color.GRAY.getRGB() & 0xFFFFFF;
+				break;
+		}
+		return background(i);
+	}
+
+	/** Failures from green to red */
+	private static int failureColour(double failure)
+	{
+		int v = colourValue(failure);
+		return rgb(v, MAX_COL_VALUE - v, 0);
+	}
+
+	private static int colourValue(double ratio)
+	{
+		int v = (int) (MAX_COL_VALUE * ratio);
+		return v < 0 ? 0 : (v > MAX_COL_VALUE ? MAX_COL_VALUE : v);
+	}
+
+	private static int rgb(int r, int g, int b)
+	{
+		return (r << 16) | (g << 8) | b;
+	}
+
+	/**
+	 * Scale and centre the whole floor in the component
+	 */
+	private void fitToView()
+	{
+		if (mWidth == 0 || mHeight == 0 || getWidth() == 0 || getHeight() == 0) return;
+		mScale = Math.min((double) getWidth() / mWidth, (double) getHeight() / mHeight);
+		mOffsetX = (getWidth() - mWidth * mScale) / 2;
+		mOffsetY = (getHeight() - mHeight * mScale) / 2;
+		mFitted = true;
+	}
+
+	/**
+	 * Zoom by a factor, keeping the given screen point fixed
+	 */
+	private void zoom(double factor, int x, int y)
+	{
+		double scale = Math.max(0.1, Math.min(MAX_SCALE, mScale * factor));
+		mOffsetX = x - (x - mOffsetX) * scale / mScale;
+		mOffsetY = y - (y - mOffsetY) * scale / mScale;
+		mScale = scale;
+		repaint();
+	}
+
+	@Override
+	protected void paintComponent(Graphics g)
+	{
+		g.setColor(getBackground());
+		Rectangle clip = g.getClipBounds();
+		if (clip == null) clip = new Rectangle(0, 0, getWidth(), getHeight());
+		g.fillRect(clip.x, clip.y, clip.width, clip.height);
+		if (mDC == null) return;
+		if (!mFitted) fitToView();
+
+		Graphics2D g2 = (Graphics2D) g;
+		g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+
+		// Only the cells under the clip need drawing
+		int cx0 = Math.max(0, (int) Math.floor((clip.x - mOffsetX) / mScale));
+		int cy0 = Math.max(0, (int) Math.floor((clip.y - mOffsetY) / mScale));
+		int cx1 = Math.min(mWidth, (int) Math.ceil((clip.x + clip.width - mOffsetX) / mScale));
+		int cy1 = Math.min(mHeight, (int) Math.ceil((clip.y + clip.height - mOffsetY) / mScale));
+		if (cx0 >= cx1 || cy0 >= cy1) return;
+
+		int dx0 = (int) Math.round(mOffsetX + cx0 * mScale);
+		int dy0 = (int) Math.round(mOffsetY + cy0 * mScale);
+		int dx1 = (int) Math.round(mOffsetX + cx1 * mScale);
+		int dy1 = (int) Math.round(mOffsetY + cy1 * mScale);
+		g2.drawImage(mImage, dx0, dy0, dx1, dy1, cx0, cy0, cx1, cy1, null);
+
+		if (mScale >= BORDER_MIN_SCALE)
+		{
+			int thickness = Math.max(1, (int) (mScale / 6));
+			for (int y = cy0; y < cy1; y++)
+			{
+				for (int x = cx0; x < cx1; x++)
+				{
+					int i = y * mWidth + x;
+					if (mBorder[i] == (mImage.getRGB(x, y) & 0xFFFFFF)) continue;
+					int sx = (int) Math.round(mOffsetX + x * mScale);
+					int sy = (int) Math.round(mOffsetY + y * mScale);
+					int sw = (int) Math.round(mOffsetX + (x + 1) * mScale) - sx;
+					int sh = (int) Math.round(mOffsetY + (y + 1) * mScale) - sy;
+					g2.setColor(new Color(mBorder[i]));
+					g2.fillRect(sx, sy, sw, thickness);
+					g2.fillRect(sx, sy + sh - thickness, sw, thickness);
+					g2.fillRect(sx, sy, thickness, sh);
+					g2.fillRect(sx + sw - thickness, sy, thickness, sh);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Tooltip describing the cell under the mouse (as MapTile)
+	 */
+	@Override
+	public String getToolTipText(MouseEvent e)
+	{
+		if (mDC == null) return null;
+		int x = (int) Math.floor((e.getX() - mOffsetX) / mScale);
+		int y = (int) Math.floor((e.getY() - mOffsetY) / mScale);
+		if (x < 0 || y < 0 || x >= mWidth || y >= mHeight) return null;
+		int i = y * mWidth + x;
+
+		String type = mType[i] == RACK ? MapTile.PhysicalType.RACK.toString() : 
+			(mType[i] == AIRCON ? MapTile.PhysicalType.AIRCON.toString() : MapTile.PhysicalType.FLOOR.toString());
+		String tip = "[" + x + "][" + y + "] " + type;
+		switch(mCurrentView) {
+			case TEMP:
+				return tip + ": " + (int) mTemperature[i] + " \u00B0C" + (mVelocity[i] != null ? ", " + mVelocity[i] : "");
+			case FAILURE:
+				if (mType[i] == AIRCON && mFailure[i] != 0) return tip + " failed";
+				if (mType[i] == RACK) return tip + ": " + new DecimalFormat("#.#").format(100 * mFailure[i]) + "% failed";
+				return tip;
+			case UTIL:
+				if (mType[i] == RACK) return tip + ": " + new DecimalFormat("#.###").format(100 * mUtilisation[i]) + "% utilisation, " 
+						+ new DecimalFormat("#.#").format(mPower[i]) + " W";
+				return tip;
+			default:
+				if (mType[i] == RACK) return tip + ": facing " + (mFacingNorth[i] ? CompassDirection.NORTH : CompassDirection.SOUTH).getNameString();
+				return tip;
+		}
+	}
+
+	/**
+	 * Handles events from the data view combo box, then re-renders the view.
+	 */
+	@Override
+	public void actionPerformed(ActionEvent e)
+	{
+		logger.debug("DatacentreSurface.actionPerformed() Event: " + e);
+
+		if (e.getSource() == TabbedMapPane.getSingletonObject().getComboBox(MapViewEnum.getComboBoxString()))
+		{
+			renderView((MapViewEnum)((JComboBox) e.getSource()).getSelectedItem());
+		} else {
+			logger.warn(this + " e.getSource() is not the 'data view combo' ... so where is it from? " + e.getSource());
+		}
+	}
+}
@@ -33,36 +33,17 @@
  */
 package gui.map;
 
+import gui.GUIFrame;
 import gui.map.MapTile.PhysicalType;
 import gui.map.TabbedMapPane.MapViewEnum;
 
 import java.awt.Color;
 import java.awt.Point;
-import java.text.DecimalFormat;
 
 import org.apache.log4j.Logger;
 
-import sim.module.event.Event;
-import sim.module.failure.event.FailureEvent;
-import sim.module.failure.event.FailureEvent.ObjectType;
-import sim.module.replacements.event.ReplacementEvent;
-import sim.module.service.ServiceModuleRunner;
-import sim.module.service.bo.Service;
-import sim.module.service.event.ServiceStartEvent;
-import sim.module.service.event.ServiceStopEvent;
-import sim.module.subscriptions.event.InconsistencyUpdateEvent;
-import sim.module.thermal.ThermalModuleRunner;
-import sim.module.thermal.bo.ThermalGrid;
-import sim.module.thermal.event.ThermalEvent;
-import sim.physical.AirConditioner;
 import sim.physical.Block;
-import sim.physical.Datacentre;
-import sim.physical.Rack;
-import sim.physical.Server;
-import sim.physical.World;
-import sim.physical.network.IP;
 import utility.direction.CompassDirection;
-import utility.time.TimeManager;
 
 public class RackDisplayRenderer extends AbstractMapRenderer
 {
@@ -140,258 +121,34 @@ public class RackDisplayRenderer extends AbstractMapRenderer
 //		printAllTileData();
 	}
 	
-	//TODO: This is really bad example of RunTimeTypeIdentification.
-	//Can we use some polymorphism?
 	/*
 	 * (non-Javadoc)
-	 * @see gui.map.AbstractMapRenderer#update(sim.event.Event)
+	 * @see gui.map.AbstractMapRenderer#update(gui.GUIFrame.DatacentreFrame)
 	 */
 	@Override
-	public void update(Event e)
+	public void update(GUIFrame.DatacentreFrame frame)
 	{	
-		//should the event be ignored?
-		if(e.isIgnored()) return;
+		if(!frame.hasMapData()) return;
 		
-		//get datacentre ID of this event
-		int dcID = e.getDatacentreIndex();
-		
-	    final String className = e.getClass().getName();
-	    
-	    // Update the colours of the map grid with values from the given event.
-		if (className.equals(FailureEvent.class.getName()))
+		// Racks: percentage of failed servers and mean CPU utilisation
+		for(int i=0; i<frame.getNumRacks(); i++)
 		{
-		    /////////////////////////////////////
-		    /////////// FAILURE EVENTS //////////
-		    /////////////////////////////////////
-			
-			FailureEvent fail = (FailureEvent) e;
-				
-        	if(logger.isDebugEnabled()) {
-				logger.debug(TimeManager.log(this + " Received failure event: (DC#=" + dcID +")"));
-			}
-		    
-		    Point position;
-		    final double ratio;
-
-            // Calculate values to update the grid with depending on whether the
-            // object to fail is a server or an air conditioning unit.
-            if (fail.getObjectType() == ObjectType.server)
-            {
-                position = World.getInstance().getServer(fail.getID()).getAbsolutePosition();
-                Rack r = World.getInstance().getRack(World.getInstance().getServer(fail.getID()).getIP());
-                
-                ratio = (double) r.getNumFailedServers() / r.getNumServers();
-                    
-                mGrid[position.x][position.y].setPercentageFailure(ratio, mCurrentView);
-                //also, update this tile's new server utilisation based on failure
-                mGrid[position.x][position.y].setPercentageServerUtilisation(r.getMeanCPUutilisation(), mCurrentView);
-
-                
-              //TODO - clean this up .... a failure event can restart lots of services all over DC, so need to re-draw all utilisation tiles.
-                if(r.getMeanCPUutilisation()>0) outputAllUtilisationValues(0);
-
-            }
-            else
-            {
-                AirConditioner aircon = World.getInstance().getAirCon(fail.getID());
-                position = aircon.getAbsolutePosition();
-                
-                if (aircon.isAlive())
-                {
-                    ratio = 0.0;
-                }
-                else
-                {
-                    ratio = 1.0;
-                }
-                
-                mGrid[position.x][position.y].setPercentageFailure(ratio, mCurrentView);
-            }
-        }
-		
+			MapTile tile = mGrid[frame.getRackX(i)][frame.getRackY(i)];
+			tile.setPercentageFailure(frame.getRackFailure(i), mCurrentView);
+			tile.setPercentageServerUtilisation(frame.getRackUtilisation(i), mCurrentView);
+		}
 		
-		if (className.equals(ReplacementEvent.class.getName()))
+		// Air conditioners: failed or not
+		for(int i=0; i<frame.getNumAirCons(); i++)
 		{
-		    /////////////////////////////////////
-		    ///////// REPLACEMENT EVENTS ////////
-		    /////////////////////////////////////
-			
-			ReplacementEvent replace = (ReplacementEvent) e;
-				
-        	if(logger.isDebugEnabled()) {
-				logger.debug(TimeManager.log(this + " Received replacement event: (DC#=" + dcID +")"));
-			}
-		    
-		    Point position;
-		    final double ratio;
-
-            // Calculate values to update the grid with depending on whether the
-            // object to fail is a server or an air conditioning unit.
-            if (replace.getObjectType() == ObjectType.server)
-            {
-                position = World.getInstance().getServer(replace.getID()).getAbsolutePosition();
-                Rack r = World.getInstance().getRack(World.getInstance().getServer(replace.getID()).getIP());
-                
-                ratio = (double) r.getNumFailedServers() / r.getNumServers();
-                    
-                mGrid[position.x][position.y].setPercentageFailure(ratio, mCurrentView);
-                //also, update this tile's new server utilisation based on failure
-                mGrid[position.x][position.y].setPercentageServerUtilisation(r.getMeanCPUutilisation(), mCurrentView);
-
-                
-              //TODO - clean this up .... a failure event can restart lots of services all over DC, so need to re-draw all utilisation tiles.
-                if(r.getMeanCPUutilisation()>0) outputAllUtilisationValues(0);
-
-            }
-            else
-            {
-                AirConditioner aircon = World.getInstance().getAirCon(replace.getID());
-                position = aircon.getAbsolutePosition();
-                
-                if (aircon.isAlive())
-                {
-                    ratio = 0.0;
-                }
-                else
-                {
-                    ratio = 1.0;
-                }
-                
-                mGrid[position.x][position.y].setPercentageFailure(ratio, mCurrentView);
-            }
-        }
-		
-        else if (className.equals(ThermalEvent.class.getName()))
-        {
-    	    /////////////////////////////////////////
-    	    /////////// TEMPERATURE EVENTS //////////
-    	    /////////////////////////////////////////
-        	
-        	//All temperature values are updated at once
-            updateTemperatureValues();
-        }
-        else if (className.equals(InconsistencyUpdateEvent.class.getName()))
-        {
-    	    /////////////////////////////////////
-    	    //////// CONSISTENCY EVENTS /////////
-    	    /////////////////////////////////////
-        	
-        	//JC, Jan 2012 - Consistency now fixed, try to plot on map view
-        	//JC: 13/12/2011 NOT USED
-        	
-        	//TODO try to get datacentre ID - ignore event if incorrect DC
-        	
-//        	@SuppressWarnings("unused")
-//			InconsistencyUpdateEvent inc = (InconsistencyUpdateEvent) e;
-        	
-        	//TODO JC Dec 2011: - We dont currently seem to be using InconsistencyUpdateEvents
-        	//If we were, we could then display the percentage inconsistent per Rack, maybe?
-        	//for now its a waste of time.  
-//        	sim.middleware.subscription.SubscriptionGen.percentinconsistent();
-            // TODO
-        }
-        else if (className.equals(ServiceStartEvent.class.getName()))
-        {
-    	    /////////////////////////////////////
-    	    ////// SERVICE START EVENTS /////////
-    	    /////////////////////////////////////
-
-        	//where is this service located?
-        	Service s = ((ServiceStartEvent)e).getService();
-        	
-		    Point position;
-		    final double ratio;
-        	position = World.getInstance().getServer(s.getServerID()).getAbsolutePosition();
-            Rack r = World.getInstance().getRack(World.getInstance().getServer(s.getServerID()).getIP());
-            ratio = r.getMeanCPUutilisation();
-            DecimalFormat df = new DecimalFormat("#.##");
-            logger.debug("Mean CPU utilisation is now: " + df.format(ratio));
-            
-            mGrid[position.x][position.y].setPercentageServerUtilisation(ratio, mCurrentView);
-        }
-        else if (className.equals(ServiceStopEvent.class.getName()))
-        {
-    	    /////////////////////////////////////
-    	    ////// SERVICE STOP EVENTS  /////////
-    	    /////////////////////////////////////
-        	
-        	if(e.isIgnored()) { //we should never get here!
-        		logger.warn("DC#"+ this.getDatacentreNumber() + " This EventShouldBeIgnored!");
-        	}
-        	
-        	//where is this service located?
-        	Service s = ((ServiceStopEvent)e).getService();
-        	
-        	if(logger.isDebugEnabled()) {
-        		int server_ID = World.getInstance().getDatacentre(dcID).getServer(s.getServerID()).getID();
-        		Server server = World.getInstance().getDatacentre(dcID).getServer(s.getServerID());
-        		logger.debug("Server status =" + server.isAlive() + ", ServerID="+server_ID+ " Service = " + s);
-        	}
-        		
-        	//Check whether this stop event refers to an old issuenumber...
-//        	logger.warn("ServiceStopEvent: Service =  " + s);
-        	
-        	
-        	Service runningService = ServiceModuleRunner.getInstance().getServiceManager(dcID).getServiceWithID(s.getID());
-        	if(runningService!=null) {
-        		@SuppressWarnings("unused")
-				int currentServiceIssueNumber = runningService.getIssueNumber();
-//        		logger.warn("Current Service issue number = " + currentServiceIssueNumber);
-        	} else {
-//        		logger.warn("Current Service no longer exists...");
-        	}
-        	
-        	
-        	
-        	//check service hasn't already stopped on a failed machine
-        	//TODO: Its really bad to have these 'backward' references to the GUI.  Info should be in event
-        	if(World.getInstance().getDatacentre(dcID).getServer(s.getServerID()).isBroken()) {;
-        		logger.fatal("DC#"+ this.getDatacentreNumber() + " Running on a broken server!!!!! Event: " + e + " Server: " + World.getInstance().getDatacentre(dcID).getServer(s.getServerID()));
-        		System.exit(0);
-        	}
-		    Point position;
-		    final double ratio;
-        	position = World.getInstance().getServer(s.getServerID()).getAbsolutePosition();
-            Rack r = World.getInstance().getRack(World.getInstance().getServer(s.getServerID()).getIP());
-            ratio = r.getMeanCPUutilisation();
-            DecimalFormat df = new DecimalFormat("#.##");
-            logger.debug("Mean CPU utilisation is now: " + df.format(ratio));
-            mGrid[position.x][position.y].setPercentageServerUtilisation(ratio, mCurrentView);
-        }
-	}
-	
-	//TODO this is a bit ugly.  Im sure there is a more optimal way 
-	/**
-	 * Update all utilisation values
-	 *
-	 * @param dc_ID
-	 */
-	public void outputAllUtilisationValues(int dc_ID) {
-		
-		Datacentre dc = World.getInstance().getDatacentre(dc_ID);
+			mGrid[frame.getAirConX(i)][frame.getAirConY(i)].setPercentageFailure(frame.isAirConAlive(i) ? 0.0 : 1.0, mCurrentView);
+		}
 		
-	    IP serverIP;
-	    Rack r;
-	    Point p;
-	    double util = 0;
-
-	    for (int j = 0; j < dc.getNumAisles(); j++)
-	    {
-	        for (int k = 0; k < dc.getmAisles().get(j).getNumRacks(); k++)
-	        {
-            	//get server IP
-            	serverIP = dc.getmAisles().get(j).getmRacks().get(k).getmServers().get(0).getIP();
-            	r = dc.getRack(serverIP);
-                p = r.getAbsolutePosition();
-                util = r.getMeanCPUutilisation();
-                           
-                //set all values
-                mGrid[p.x][p.y].setPercentageServerUtilisation(util, mCurrentView);
-	        }
-	    }
-	    
-	    //re-calc all utilisation values:
-	    
+		//All temperature values are updated at once
+		if(frame.hasThermalData())
+		{
+			updateTemperatureValues(frame);
+		}
 	}
 	
 	/**
@@ -433,20 +190,15 @@ public class RackDisplayRenderer extends AbstractMapRenderer
 	}
 	
 	/**
-	 * Fetch the latest values from the temperature grid.
+	 * Copy the temperature grid values from the frame.
 	 */
-	private void updateTemperatureValues()
+	private void updateTemperatureValues(GUIFrame.DatacentreFrame frame)
 	{
-	
-		//get the thermal grid for this datacentre
-		ThermalGrid grid = ThermalModuleRunner.getInstance().getThermalGrid(getDatacentreNumber());
-		
-	    // Run through the entire temperature grid and fetch the up-to-date values.
-	    for (int x = 0; x < grid.getWidth(); x++)
+	    for (int x = 0; x < frame.getThermalWidth(); x++)
 	    {
-	        for (int y = 0; y < grid.getHeight(); y++)
+	        for (int y = 0; y < frame.getThermalHeight(); y++)
 	        {
-	            mGrid[x][y].setTemperature(grid.getCell(x, y).getTemperature(), grid.getCell(x, y).getVelocity(), mCurrentView);
+	            mGrid[x][y].setTemperature(frame.getTemperature(x, y), frame.getVelocity(x, y), mCurrentView);
 	        }
 	    }
 	}
@@ -111,7 +111,7 @@ public class TabbedMapPane extends JPanel {
 	private JTabbedPane tabbedPane; // for storing each of the map views
 	private JComponent panel[]; // for each map
 
-	private DatacentreMap[] maps; // array of datacentre maps
+	private DatacentreSurface[] maps; // array of datacentre maps
 	
 	private static TabbedMapPane ref; //the Singleton reference
 	
@@ -182,14 +182,14 @@ public class TabbedMapPane extends JPanel {
 		panel = new JComponent[numDatacentres];
 		
 		logger.debug("Creating DC Maps...");
-		maps = new DatacentreMap[numDatacentres];
+		maps = new DatacentreSurface[numDatacentres];
 		
 		// Populate tabs with datacentre maps
 		String dcName = "unknown";
 		for (int i = 0; i < numDatacentres; i++) {
 			dcName = World.getInstance().mDatacentres.get(i).getName();
 			panel[i] = new JPanel(true); //true = double-buffering for flicker-free updates (uses more memory)
-			maps[i] = new DatacentreMap(dcName); //create new map for this datacentre
+			maps[i] = new DatacentreSurface(dcName); //create new map for this datacentre
 			dataMenu.addActionListener(maps[i]); //add the map as a listener to the dataMenu
 			panel[i].add(dcName, maps[i]); //add the map to the panel
 			panel[i].setLayout(new GridLayout(1, 1));
@@ -201,7 +201,7 @@ public class TabbedMapPane extends JPanel {
 	}
 	
 	 /**
-     * Returns a JComboBox, for determining the source of events in DatacentreMap.
+     * Returns a JComboBox, for determining the source of events in DatacentreSurface.
      * @return the JComboBox
      */
 	public JComboBox getComboBox(String name) {
@@ -212,9 +212,9 @@ public class TabbedMapPane extends JPanel {
 	
     /**
      * Returns the map for a given datacentre number .
-     * @return the DatacentreMap
+     * @return the DatacentreSurface
      */
-	public DatacentreMap getMap(int dcNumber) {
+	public DatacentreSurface getMap(int dcNumber) {
 		if(dcNumber>=0 && dcNumber < maps.length) {
 			return maps[dcNumber];
 		} else {
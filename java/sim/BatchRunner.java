@@ -0,0 +1,502 @@
+/**
+ *   This file is part of CReST: The Cloud Research Simulation Toolkit 
+ *   Copyright (C) 2011, 2012 John Cartlidge 
+ * 
+ *   For a full list of contributors, refer to file CONTRIBUTORS.txt 
+ *
+ *   CReST was developed at the University of Bristol, UK, using 
+ *   financial support from the UK's Engineering and Physical 
+ *   Sciences Research Council (EPSRC) grant EP/H042644/1 entitled 
+ *   "Cloud Computing for Large-Scale Complex IT Systems". Refer to
+ *   <http://gow.epsrc.ac.uk/NGBOViewGrant.aspx?GrantRef=EP/H042644/1>
+ * 
+ *   CReST is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/gpl.txt>.
+ *
+ *   For further information, contact: 
+ *
+ *   Dr. John Cartlidge: john@john-cartlidge.co.uk
+ *   Department of Computer Science,
+ *   University of Bristol, The Merchant Venturers Building,
+ *   Woodland Road, Bristol, BS8-1UB, United Kingdom.
+ *
+ */
+package sim;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+import org.jdom.Element;
+
+import sim.module.Module;
+import sim.module.sim.configparams.SimModuleConfigParams;
+import config.EditorConfiguration;
+import config.XMLLoader;
+
+/**
+ * Headless batch runner: runs a configuration for a list of seeds and/or a grid of 
+ * parameter values inside one JVM, and writes a combined summary CSV.
+ * 
+ * Runs are executed either:
+ * 
+ * 	- sequentially (numThreads = 1): the XML configuration is parsed once, and each run builds 
+ * 	  a fresh World from the parsed EditorConfiguration. Module settings are restored to those 
+ * 	  loaded before each run, and SimulationRunner resets the singletons (World, EventQueue, 
+ * 	  ID counters) between runs.
+ * 
+ * 	- in parallel (numThreads > 1): each run executes in its own SimulationContext, so every run has 
+ * 	  its own World, EventQueue, module runners, module settings and ID counters. The configuration 
+ * 	  is parsed once and shared (read-only) between runs.
+ * 
+ * 	- branched (branch time set): for each seed, the simulation is run once, with the base settings, 
+ * 	  to the branch time, and its state is kept in memory.  Each combination of grid values then 
+ * 	  continues from the branch point as a fork, in its own SimulationContext, so the run up to the 
+ * 	  branch point is simulated once per seed rather than once per run.  Grid values take effect 
+ * 	  from the branch point, and the summary's wallMillis excludes the run to the branch point.  
+ * 	  Each branch logs to its own results directory, listed in the summary's branchDir column.
+ * 
+ * Parameter overrides use the same keys as the params file (see SettingsManager.setValue). The 
+ * seed of each run is set using the "seed" key.
+ * 
+ * @see SimulationRunner
+ * @see SimulationContext
+ */
+public class BatchRunner {
+
+	public static Logger logger = Logger.getLogger(BatchRunner.class);
+	
+	/** Summary columns that are written for every run */
+	protected static final String[] SUMMARY_COLUMNS = {"runStatus", "eventsProcessed", "simEndTime", "wallMillis", "resultsDir"};
+	
+	/** Summary column for branched runs: the results directory of the run to the branch point */
+	protected static final String BRANCH_DIR_COLUMN = "branchDir";
+	
+	private final File configFile;
+	private String paramsFileName;
+	private String eventsFileName;
+	private final int numThreads;
+	
+	private final List<Long> seeds = new ArrayList<Long>();
+	private final Map<String, List<String>> grid = new LinkedHashMap<String, List<String>>();
+	
+	private long branchTime = -1;
+	
+	private DecimalFormat df = new DecimalFormat("000");
+	
+	/**
+	 * Create a batch runner for a configuration file
+	 * 
+	 * @param configFile - xml configuration file
+	 * @param numThreads - number of runs to execute at once (1 => sequential)
+	 */
+	public BatchRunner(File configFile, int numThreads) {
+		this.configFile = configFile;
+		this.numThreads = Math.max(1, numThreads);
+	}
+	
+	public void setParamsFileName(String paramsFileName) {
+		this.paramsFileName = paramsFileName;
+	}
+	
+	public void setEventsFileName(String eventsFileName) {
+		this.eventsFileName = eventsFileName;
+	}
+	
+	/**
+	 * Run the grid as forks from a branch point, rather than each run from the start
+	 * 
+	 * @param branchTime - simulation time of the branch point
+	 * @see SimulationRunner#setBranchTime(long)
+	 */
+	public void setBranchTime(long branchTime) {
+		if(branchTime < 0) {
+			throw new IllegalArgumentException("Branch time must not be negative: " + branchTime);
+		}
+		this.branchTime = branchTime;
+	}
+	
+	public void addSeed(long seed) {
+		seeds.add(seed);
+	}
+	
+	/**
+	 * Add a parameter to the grid.  Every combination of grid values is run for every seed.
+	 * 
+	 * @param key - parameter name (as used in the params file)
+	 * @param values - values to run
+	 */
+	public void addGridParameter(String key, List<String> values) {
+		grid.put(key, new ArrayList<String>(values));
+	}
+	
+	/**
+	 * Parse a seed list of the form "1,2,5" or "1-10" (or a mixture, e.g., "1-3,7")
+	 */
+	public void addSeeds(String seedList) {
+		for(String token: seedList.split(",")) {
+			token = token.trim();
+			if(token.length()==0) continue;
+			int dash = token.indexOf('-', 1);
+			if(dash > 0) {
+				long from = Long.parseLong(token.substring(0, dash).trim());
+				long to = Long.parseLong(token.substring(dash+1).trim());
+				for(long s=from; s<=to; s++) addSeed(s);
+			} else {
+				addSeed(Long.parseLong(token));
+			}
+		}
+	}
+	
+	/**
+	 * Parse grid arguments of the form "key=v1,v2,v3".  
+	 * 
+	 * Arguments without an '=' are treated as further values of the previous key, 
+	 * so the list may already have been split on commas by the command line parser.
+	 */
+	public void addGridParameters(List<String> args) {
+		String key = null;
+		for(String arg: args) {
+			for(String token: arg.split(",")) {
+				token = token.trim();
+				if(token.length()==0) continue;
+				int eq = token.indexOf('=');
+				if(eq > 0) {
+					key = token.substring(0, eq).trim();
+					grid.put(key, new ArrayList<String>());
+					token = token.substring(eq+1).trim();
+					if(token.length()==0) continue;
+				}
+				if(key == null) {
+					throw new IllegalArgumentException("Grid value '" + token + "' has no parameter name. Use key=v1,v2,...");
+				}
+				grid.get(key).add(token);
+			}
+		}
+	}
+	
+	/**
+	 * @return the parameter overrides for every run: the cross product of the grid, for each seed
+	 */
+	public List<Properties> getRuns() {
+		List<Properties> combinations = new ArrayList<Properties>();
+		combinations.add(new Properties());
+		for(Map.Entry<String, List<String>> entry: grid.entrySet()) {
+			List<Properties> next = new ArrayList<Properties>();
+			for(Properties p: combinations) {
+				for(String value: entry.getValue()) {
+					Properties q = new Properties();
+					q.putAll(p);
+					q.setProperty(entry.getKey(), value);
+					next.add(q);
+				}
+			}
+			combinations = next;
+		}
+		
+		if(seeds.isEmpty()) return combinations;
+		
+		List<Properties> runs = new ArrayList<Properties>();
+		for(long seed: seeds) {
+			for(Properties p: combinations) {
+				Properties q = new Properties();
+				q.putAll(p);
+				q.setProperty(SimModuleConfigParams.SEED_XML_TAG, String.valueOf(seed));
+				runs.add(q);
+			}
+		}
+		return runs;
+	}
+	
+	/**
+	 * Execute all runs and write the summary CSV to the log directory
+	 * 
+	 * @return summary of each run (in run order)
+	 */
+	public List<Map<String, String>> run() throws IOException {
+		List<Properties> runs = getRuns();
+		logger.info("Starting batch of " + runs.size() + " runs using " + numThreads + (numThreads>1 ? " threads" : " thread"));
+		
+		List<Map<String, String>> results;
+		if(branchTime >= 0) {
+			results = runBranched(runs);
+		} else {
+			results = (numThreads > 1) ? runParallel(runs) : runSequential(runs);
+		}
+		
+		File summary = writeSummary(runs, results);
+		logger.info("Batch finished. Summary written to: '" + summary.getPath() + "'");
+		return results;
+	}
+	
+	/**
+	 * Run sequentially, parsing the configuration once
+	 */
+	protected List<Map<String, String>> runSequential(List<Properties> runs) throws IOException {
+		logger.info("Loading configuration file: '" + configFile + "'");
+		EditorConfiguration config = XMLLoader.loadConfig(configFile);
+		
+		// Modules change their own settings during a run (e.g., the log module switches itself off), 
+		// so keep the settings as loaded and restore them before each run
+		Element modules = Module.getModulesXMLElement();
+		
+		List<Map<String, String>> results = new ArrayList<Map<String, String>>();
+		for(int i=0; i<runs.size(); i++) {
+			logger.info("Batch run " + (i+1) + "/" + runs.size() + ": " + runs.get(i));
+			Module.configureUsingXML(modules);
+			SimulationRunner runner = new SimulationRunner(config);
+			results.add(runSingle(runner, paramsFileName, eventsFileName, runs.get(i)));
+		}
+		return results;
+	}
+	
+	/**
+	 * Run in parallel, each run in its own SimulationContext
+	 */
+	protected List<Map<String, String>> runParallel(final List<Properties> runs) throws IOException {
+		logger.info("Loading configuration file: '" + configFile + "'");
+		final EditorConfiguration config = XMLLoader.loadConfig(configFile);
+		final Element modules = Module.getModulesXMLElement();
+		
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		List<Future<Map<String, String>>> futures = new ArrayList<Future<Map<String, String>>>();
+		for(int i=0; i<runs.size(); i++) {
+			final int index = i;
+			futures.add(executor.submit(new Callable<Map<String, String>>() {
+				@Override
+				public Map<String, String> call() throws Exception {
+					logger.info("Batch run " + (index+1) + "/" + runs.size() + ": " + runs.get(index));
+					SimulationContext context = new SimulationContext("batch run " + (index+1));
+					SimulationContext previous = context.enter();
+					try {
+						Module.configureUsingXML(modules);
+						return runSingle(new SimulationRunner(config, context), paramsFileName, eventsFileName, runs.get(index));
+					} finally {
+						context.exit(previous);
+					}
+				}
+			}));
+		}
+		
+		List<Map<String, String>> results = new ArrayList<Map<String, String>>();
+		try {
+			for(Future<Map<String, String>> f: futures) {
+				try {
+					results.add(f.get());
+				} catch (ExecutionException e) {
+					logger.error("Batch run failed: " + e.getCause());
+					results.add(failed(e.getCause()));
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for batch runs", e);
+		} finally {
+			executor.shutdown();
+		}
+		return results;
+	}
+	
+	/**
+	 * Run each seed to the branch point once, then each run as a fork of its seed's branch 
+	 * checkpoint.  Every run (and branch) executes in its own SimulationContext.
+	 */
+	protected List<Map<String, String>> runBranched(final List<Properties> runs) throws IOException {
+		logger.info("Loading configuration file: '" + configFile + "'");
+		final EditorConfiguration config = XMLLoader.loadConfig(configFile);
+		final Element modules = Module.getModulesXMLElement();
+		
+		// one branch per seed, run with the base settings (no grid values)
+		Map<String, Properties> branches = new LinkedHashMap<String, Properties>();
+		for(Properties run: runs) {
+			String seed = run.getProperty(SimModuleConfigParams.SEED_XML_TAG, "");
+			if(!branches.containsKey(seed)) {
+				Properties overrides = new Properties();
+				if(seed.length() > 0) overrides.setProperty(SimModuleConfigParams.SEED_XML_TAG, seed);
+				branches.put(seed, overrides);
+			}
+		}
+		logger.info("Running " + branches.size() + (branches.size()>1 ? " branches" : " branch") + " to time " + branchTime);
+		
+		// results directory of each branch, by seed
+		final Map<String, String> branchDirs = new ConcurrentHashMap<String, String>();
+		
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		
+		// Branches are submitted first, so (the queue being FIFO) every branch has started before 
+		// any fork takes a thread to wait for its checkpoint
+		final Map<String, Future<SimulationCheckpoint>> checkpoints = new LinkedHashMap<String, Future<SimulationCheckpoint>>();
+		for(final Map.Entry<String, Properties> branch: branches.entrySet()) {
+			checkpoints.put(branch.getKey(), executor.submit(new Callable<SimulationCheckpoint>() {
+				@Override
+				public SimulationCheckpoint call() throws Exception {
+					SimulationContext context = new SimulationContext("batch branch " + branch.getValue());
+					SimulationContext previous = context.enter();
+					try {
+						Module.configureUsingXML(modules);
+						SimulationRunner runner = new SimulationRunner(config, context);
+						runner.setBranchTime(branchTime);
+						Map<String, String> result = runSingle(runner, paramsFileName, eventsFileName, branch.getValue());
+						logger.info("Batch branch " + branch.getValue() + " finished: " + result);
+						if(runner.getResultsDirName() != null) branchDirs.put(branch.getKey(), runner.getResultsDirName());
+						return runner.getBranchCheckpoint();
+					} finally {
+						context.exit(previous);
+					}
+				}
+			}));
+		}
+		
+		List<Future<Map<String, String>>> futures = new ArrayList<Future<Map<String, String>>>();
+		for(int i=0; i<runs.size(); i++) {
+			final int index = i;
+			final Future<SimulationCheckpoint> checkpoint = checkpoints.get(runs.get(i).getProperty(SimModuleConfigParams.SEED_XML_TAG, ""));
+			futures.add(executor.submit(new Callable<Map<String, String>>() {
+				@Override
+				public Map<String, String> call() throws Exception {
+					SimulationCheckpoint start = checkpoint.get();
+					if(start == null) {
+						throw new IllegalStateException("Branch ended before the branch time " + branchTime + " (is it after the configured end time?)");
+					}
+					logger.info("Batch run " + (index+1) + "/" + runs.size() + " (fork): " + runs.get(index));
+					SimulationContext context = new SimulationContext("batch run " + (index+1));
+					SimulationContext previous = context.enter();
+					try {
+						Module.configureUsingXML(modules);
+						SimulationRunner runner = new SimulationRunner(config, context);
+						runner.setStartCheckpoint(start);
+						return runSingle(runner, paramsFileName, eventsFileName, runs.get(index));
+					} finally {
+						context.exit(previous);
+					}
+				}
+			}));
+		}
+		
+		List<Map<String, String>> results = new ArrayList<Map<String, String>>();
+		try {
+			for(Future<Map<String, String>> f: futures) {
+				try {
+					results.add(f.get());
+				} catch (ExecutionException e) {
+					logger.error("Batch run failed: " + e.getCause());
+					results.add(failed(e.getCause()));
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for batch runs", e);
+		} finally {
+			executor.shutdown();
+		}
+		
+		for(int i=0; i<runs.size(); i++) {
+			results.get(i).put(BRANCH_DIR_COLUMN, branchDirs.get(runs.get(i).getProperty(SimModuleConfigParams.SEED_XML_TAG, "")));
+		}
+		return results;
+	}
+	
+	/**
+	 * Execute one run and summarise it
+	 */
+	protected static Map<String, String> runSingle(SimulationRunner runner, String paramsFileName, String eventsFileName, Properties overrides) {
+		if(paramsFileName != null) runner.setParamsFileName(paramsFileName);
+		if(eventsFileName != null) runner.setEventsFileName(eventsFileName);
+		runner.setParameterOverrides(overrides);
+		
+		Map<String, String> result = new LinkedHashMap<String, String>();
+		long start = System.currentTimeMillis();
+		try {
+			runner.run();
+			result.put("runStatus", "ok");
+		} catch (RuntimeException e) {
+			logger.error("Run failed: " + e, e);
+			result.put("runStatus", "failed: " + e);
+		}
+		result.put("eventsProcessed", String.valueOf(runner.getNumEventsProcessed()));
+		result.put("simEndTime", String.valueOf(runner.getFinalTime()));
+		result.put("wallMillis", String.valueOf(System.currentTimeMillis() - start));
+		result.put("resultsDir", runner.getResultsDirName());
+		return result;
+	}
+	
+	protected static Map<String, String> failed(Throwable t) {
+		Map<String, String> result = new LinkedHashMap<String, String>();
+		result.put("runStatus", "failed: " + t);
+		return result;
+	}
+	
+	/**
+	 * Write one row per run to log/batchNNN_summary.csv
+	 */
+	protected File writeSummary(List<Properties> runs, List<Map<String, String>> results) throws IOException {
+		File logDir = new File("log");
+		if(!logDir.exists()) logDir.mkdir();
+		
+		int iterator = 1;
+		File file = new File(logDir, "batch" + df.format(iterator) + "_summary.csv");
+		while(!file.createNewFile()) {
+			iterator++;
+			file = new File(logDir, "batch" + df.format(iterator) + "_summary.csv");
+		}
+		
+		List<String> keys = new ArrayList<String>();
+		if(!seeds.isEmpty()) keys.add(SimModuleConfigParams.SEED_XML_TAG);
+		keys.addAll(grid.keySet());
+		
+		List<String> columns = new ArrayList<String>(Arrays.asList(SUMMARY_COLUMNS));
+		if(branchTime >= 0) columns.add(BRANCH_DIR_COLUMN);
+		
+		BufferedWriter out = new BufferedWriter(new FileWriter(file));
+		try {
+			StringBuilder line = new StringBuilder("run");
+			for(String key: keys) line.append(',').append(key);
+			for(String column: columns) line.append(',').append(column);
+			out.write(line.toString());
+			out.newLine();
+			
+			for(int i=0; i<runs.size(); i++) {
+				line.setLength(0);
+				line.append(i+1);
+				for(String key: keys) line.append(',').append(csv(runs.get(i).getProperty(key)));
+				for(String column: columns) line.append(',').append(csv(results.get(i).get(column)));
+				out.write(line.toString());
+				out.newLine();
+			}
+		} finally {
+			out.close();
+		}
+		return file;
+	}
+	
+	private static String csv(String value) {
+		if(value == null) return "";
+		if(value.indexOf(',') < 0 && value.indexOf('"') < 0) return value;
+		return "\"" + value.replace("\"", "\"\"") + "\"";
+	}
+}
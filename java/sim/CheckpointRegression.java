@@ -0,0 +1,296 @@
+/**
+ *   This file is part of CReST: The Cloud Research Simulation Toolkit 
+ *   Copyright (C) 2011, 2012 John Cartlidge 
+ * 
+ *   For a full list of contributors, refer to file CONTRIBUTORS.txt 
+ *
+ *   CReST was developed at the University of Bristol, UK, using 
+ *   financial support from the UK's Engineering and Physical 
+ *   Sciences Research Council (EPSRC) grant EP/H042644/1 entitled 
+ *   "Cloud Computing for Large-Scale Complex IT Systems". Refer to
+ *   <http://gow.epsrc.ac.uk/NGBOViewGrant.aspx?GrantRef=EP/H042644/1>
+ * 
+ *   CReST is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/gpl.txt>.
+ *
+ *   For further information, contact: 
+ *
+ *   Dr. John Cartlidge: john@john-cartlidge.co.uk
+ *   Department of Computer Science,
+ *   University of Bristol, The Merchant Venturers Building,
+ *   Woodland Road, Bristol, BS8-1UB, United Kingdom.
+ *
+ */
+package sim;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import org.apache.log4j.BasicConfigurator;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.PropertyConfigurator;
+
+import sim.module.sim.configparams.SimModuleConfigParams;
+import utility.time.TimeManager;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.ParameterException;
+
+import config.EditorConfiguration;
+import config.XMLLoader;
+
+/**
+ * Regression check for simulation checkpoints.
+ * 
+ * Runs a configuration with a fixed seed three times: once without stopping; once stopping after 
+ * a number of simulated minutes, having written a checkpoint file (see SimulationRunner.setCheckpoint() 
+ * and setBranchTime()); and once resuming from that checkpoint file to the end of the run.  The 
+ * results logs of the resumed run are then compared, byte for byte, with those of the run that 
+ * did not stop.  The check fails if any log differs, or is in one run but not the other.
+ * 
+ * Logs are paired by name, without the "runNNN_" prefix (each run has its own results directory).  
+ * The checkpoint must be before the configured end time.  The results directories are kept.  
+ * Without a configuration file, the built-in RegressionScenario is run.
+ * 
+ * Usage: CheckpointRegression [-c config.xml.gz] [-seed 1] [-minutes 60] [-checkpoint file] 
+ * 			[-p params.txt] [-log4j log4j.properties]
+ * 
+ * Exits with status 0 if the check passes, 1 if it fails and 2 on error.
+ *
+ */
+public class CheckpointRegression {
+
+	public static Logger logger = Logger.getLogger(CheckpointRegression.class);
+	
+	/**
+	 * Command line options
+	 */
+	public static class Options {
+		
+		@Parameter(names = {"--config", "-config", "-c"}, description = "Configuration filename (default: the built-in RegressionScenario)")
+		public String configFileName = null;
+		
+		@Parameter(names = {"--seed", "-seed"}, description = "Seed (default: the seed in the configuration)")
+		public Long seed = null;
+		
+		@Parameter(names = {"--minutes", "-minutes"}, description = "Simulated minutes to run for before checkpointing and stopping")
+		public long minutes = 60;
+		
+		@Parameter(names = {"--checkpoint", "-checkpoint"}, description = "Checkpoint filename (default: a temporary file, deleted afterwards)")
+		public String checkpointFileName = null;
+		
+		@Parameter(names = {"--params", "-params", "-p"}, description = "Parameters filename")
+		public String paramsFileName = null;
+		
+		@Parameter(names = {"--log4j", "-log4j"}, description = "log4j properties filename (default: logging off)")
+		public String log4jFileName = null;
+		
+		@Parameter(names = {"--help", "-help", "-h"}, description = "Help", help = true)
+		public boolean help = false;
+	}
+	
+	/**
+	 * Create a simulator for one of the runs, with the options common to all runs
+	 */
+	protected static SimulationRunner createRunner(Options options, EditorConfiguration config, String name) {
+		SimulationRunner runner = new SimulationRunner(config, new SimulationContext(name));
+		if(options.paramsFileName != null) runner.setParamsFileName(options.paramsFileName);
+		if(options.seed != null) {
+			Properties overrides = new Properties();
+			overrides.setProperty(SimModuleConfigParams.SEED_XML_TAG, String.valueOf(options.seed));
+			runner.setParameterOverrides(overrides);
+		}
+		return runner;
+	}
+	
+	/**
+	 * Run the simulation to the end, without stopping
+	 * 
+	 * @return the results directory
+	 */
+	protected static File runUninterrupted(Options options, EditorConfiguration config) {
+		SimulationRunner runner = createRunner(options, config, "uninterrupted");
+		runner.run();
+		logger.info("Uninterrupted run: " + runner.getNumEventsProcessed() + " events, results in '" + runner.getResultsDirName() + "'");
+		return new File(runner.getResultsDirName());
+	}
+	
+	/**
+	 * Run the simulation, writing a checkpoint file and stopping after the given number of minutes, 
+	 * then resume it from the checkpoint file to the end
+	 * 
+	 * @return the results directory
+	 */
+	protected static File runResumed(Options options, EditorConfiguration config, File checkpointFile) {
+		
+		long checkpointTime = TimeManager.minutesToSimulationTime(options.minutes);
+		SimulationRunner stopped = createRunner(options, config, "checkpointed");
+		stopped.setCheckpoint(checkpointFile, checkpointTime);
+		stopped.setBranchTime(checkpointTime);
+		stopped.run();
+		if(stopped.getBranchCheckpoint() == null || !checkpointFile.exists()) {
+			throw new IllegalStateException("Simulation ended before " + options.minutes + " minutes (is it after the configured end time?)");
+		}
+		logger.info("Checkpointed run: stopped after " + stopped.getNumEventsProcessed() + " events");
+		
+		SimulationRunner resumed = createRunner(options, config, "resumed");
+		resumed.setResumeFile(checkpointFile);
+		resumed.run();
+		logger.info("Resumed run: " + resumed.getNumEventsProcessed() + " events, results in '" + resumed.getResultsDirName() + "'");
+		return new File(resumed.getResultsDirName());
+	}
+	
+	/**
+	 * @return the files of a results directory, by name without the "runNNN_" prefix
+	 */
+	protected static Map<String, File> getLogs(File dir) throws IOException {
+		File[] files = dir.listFiles();
+		if(files == null) {
+			throw new IOException("Unable to list results directory '" + dir + "'");
+		}
+		Map<String, File> logs = new TreeMap<String, File>();
+		for(File file: files) {
+			if(file.isFile()) logs.put(file.getName().replaceFirst("^run\\d+_", ""), file);
+		}
+		return logs;
+	}
+	
+	/**
+	 * @return the offset of the first byte that differs between the files, or -1 if they are the same
+	 */
+	protected static long firstDifference(File a, File b) throws IOException {
+		InputStream inA = new BufferedInputStream(new FileInputStream(a));
+		try {
+			InputStream inB = new BufferedInputStream(new FileInputStream(b));
+			try {
+				long offset = 0;
+				while(true) {
+					int byteA = inA.read();
+					int byteB = inB.read();
+					if(byteA != byteB) return offset;
+					if(byteA < 0) return -1;
+					offset++;
+				}
+			} finally {
+				inB.close();
+			}
+		} finally {
+			inA.close();
+		}
+	}
+	
+	/**
+	 * Compare the logs of the resumed run with those of the uninterrupted run, and print the differences
+	 * 
+	 * @return true if both runs have the same logs, with the same contents
+	 */
+	protected static boolean compare(File expectedDir, File actualDir) throws IOException {
+		
+		Map<String, File> expected = getLogs(expectedDir);
+		Map<String, File> actual = getLogs(actualDir);
+		
+		int numDifferent = 0;
+		for(Map.Entry<String, File> log: expected.entrySet()) {
+			File resumed = actual.get(log.getKey());
+			if(resumed == null) {
+				System.out.println("FAIL: " + log.getValue() + " has no counterpart in '" + actualDir + "'");
+				numDifferent++;
+				continue;
+			}
+			long offset = firstDifference(log.getValue(), resumed);
+			if(offset >= 0) {
+				System.out.println("FAIL: " + resumed + " differs from " + log.getValue() + " at byte " + offset);
+				numDifferent++;
+			}
+		}
+		for(Map.Entry<String, File> log: actual.entrySet()) {
+			if(!expected.containsKey(log.getKey())) {
+				System.out.println("FAIL: " + log.getValue() + " has no counterpart in '" + expectedDir + "'");
+				numDifferent++;
+			}
+		}
+		
+		System.out.println("Logs compared: " + expected.size() + " ('" + expectedDir + "' with '" + actualDir + "')");
+		System.out.println("Logs different or missing: " + numDifferent);
+		System.out.println((numDifferent == 0) ? "PASS" : "FAIL");
+		return numDifferent == 0;
+	}
+	
+	public static void main(String[] args) {
+		
+		Options options = new Options();
+		try {
+			new JCommander(options, args);
+		} catch (ParameterException e) {
+			System.err.println("CheckpointRegression: " + e.getMessage() + "\n");
+			new JCommander(options).usage();
+			System.exit(2);
+		}
+		if(options.help) {
+			new JCommander(options).usage();
+			System.exit(0);
+		}
+		
+		if(options.log4jFileName != null) {
+			PropertyConfigurator.configure(options.log4jFileName);
+		} else {
+			BasicConfigurator.configure();
+			Logger.getRootLogger().setLevel(Level.OFF);
+		}
+		
+		File checkpointFile = null;
+		boolean deleteCheckpoint = false;
+		File scenarioDir = null;
+		try {
+			if(options.checkpointFileName != null) {
+				checkpointFile = new File(options.checkpointFileName);
+			} else {
+				checkpointFile = File.createTempFile("crest", ".checkpoint");
+				checkpointFile.delete(); // so a run that ends before the checkpoint is detected
+				deleteCheckpoint = true;
+			}
+			
+			File configFile;
+			if(options.configFileName != null) {
+				configFile = new File(options.configFileName);
+			} else {
+				scenarioDir = RegressionScenario.createDirectory();
+				configFile = RegressionScenario.write(scenarioDir);
+			}
+			logger.info("Loading configuration file: '" + configFile + "'");
+			EditorConfiguration config = XMLLoader.loadConfig(configFile);
+			
+			File expectedDir = runUninterrupted(options, config);
+			File actualDir = runResumed(options, config, checkpointFile);
+			
+			boolean pass = compare(expectedDir, actualDir);
+			if(deleteCheckpoint) checkpointFile.delete();
+			if(scenarioDir != null) RegressionScenario.delete(scenarioDir);
+			System.exit(pass ? 0 : 1);
+		} catch (Exception e) {
+			logger.error("Checkpoint regression check failed to run: " + e, e);
+			System.err.println("CheckpointRegression: " + e);
+			if(deleteCheckpoint) checkpointFile.delete();
+			if(scenarioDir != null) RegressionScenario.delete(scenarioDir);
+			System.exit(2);
+		}
+	}
+}
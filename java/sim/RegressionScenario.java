@@ -0,0 +1,176 @@
+/**
+ *   This file is part of CReST: The Cloud Research Simulation Toolkit 
+ *   Copyright (C) 2011, 2012 John Cartlidge 
+ * 
+ *   For a full list of contributors, refer to file CONTRIBUTORS.txt 
+ *
+ *   CReST was developed at the University of Bristol, UK, using 
+ *   financial support from the UK's Engineering and Physical 
+ *   Sciences Research Council (EPSRC) grant EP/H042644/1 entitled 
+ *   "Cloud Computing for Large-Scale Complex IT Systems". Refer to
+ *   <http://gow.epsrc.ac.uk/NGBOViewGrant.aspx?GrantRef=EP/H042644/1>
+ * 
+ *   CReST is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/gpl.txt>.
+ *
+ *   For further information, contact: 
+ *
+ *   Dr. John Cartlidge: john@john-cartlidge.co.uk
+ *   Department of Computer Science,
+ *   University of Bristol, The Merchant Venturers Building,
+ *   Woodland Road, Bristol, BS8-1UB, United Kingdom.
+ *
+ */
+package sim;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Random;
+
+import org.apache.log4j.Logger;
+
+import builder.datacentre.layout.AbstractLayoutPattern;
+import builder.datacentre.layout.LayoutPatternFactory;
+import builder.datacentre.layout.LayoutPatternFactory.LayoutPatternType;
+
+import sim.module.Module;
+import sim.module.demand.configparams.DemandModuleConfigParams;
+import sim.module.sim.configparams.SimModuleConfigParams;
+import utility.time.LengthOfTime;
+
+import config.DatacentreGenerator;
+import config.EditorConfiguration;
+import config.SettingsManager;
+import config.XMLSaver;
+import config.physical.ConfigServerType;
+import config.physical.ConfigWorld;
+
+/**
+ * A small scenario built in code, for the regression checks (CheckpointRegression, ThermalRegression) 
+ * to use when no configuration file is given, so they can be run without any data files.
+ * 
+ * The configuration is one datacentre of NUM_SERVERS servers, laid out by the default layout pattern 
+ * with a fixed seed (LAYOUT_SEED), and the default settings except for the seed (SEED) and end time 
+ * (END_HOURS).  The demand file has NUM_PROFILES profiles of NUM_MONTHS monthly values, drawn from a 
+ * fixed seed.  Both are the same every time they are written, so results of the scenario can be 
+ * compared between runs, and between builds.
+ * 
+ * Usage: File config = RegressionScenario.write(RegressionScenario.createDirectory());
+ *
+ */
+public class RegressionScenario {
+
+	public static Logger logger = Logger.getLogger(RegressionScenario.class);
+	
+	public static final String NAME = "built-in regression scenario";
+	
+	public static final String CONFIG_FILENAME = "regression.xml.gz";
+	public static final String DEMAND_FILENAME = "regression_demand.csv";
+	
+	public static final long SEED = 1;
+	public static final long END_HOURS = 3;
+	
+	public static final int NUM_SERVERS = 200;
+	public static final long LAYOUT_SEED = 1;
+	public static final int NUM_PROFILES = 41; // the default broker demand profile is 40
+	public static final int NUM_MONTHS = 120;
+	public static final long DEMAND_SEED = 1;
+	
+	private RegressionScenario() {}
+	
+	/**
+	 * @return a new temporary directory to write the scenario to
+	 */
+	public static File createDirectory() throws IOException {
+		return Files.createTempDirectory("crest-regression").toFile();
+	}
+	
+	/**
+	 * Write the scenario's demand file and configuration file to a directory.  The configuration 
+	 * refers to the demand file by its absolute path.
+	 * 
+	 * @param dir - the directory to write to
+	 * @return the configuration file
+	 */
+	public static File write(File dir) throws IOException {
+		
+		File demandFile = new File(dir, DEMAND_FILENAME);
+		writeDemand(demandFile);
+		
+		File configFile = new File(dir, CONFIG_FILENAME);
+		SimulationContext context = new SimulationContext("regression scenario");
+		SimulationContext previous = context.enter();
+		try {
+			SimModuleConfigParams simParams = (SimModuleConfigParams) Module.SIM_MODULE.getParams();
+			simParams.setSeed(SEED);
+			simParams.setEndTime(END_HOURS);
+			simParams.setEndTimeUnit(LengthOfTime.HOUR);
+			Module.DEMAND_MODULE.setParams(new DemandModuleConfigParams(demandFile.getAbsolutePath(), Module.BROKER_MODULE.isActive()));
+			
+			AbstractLayoutPattern pattern = LayoutPatternFactory.getLayoutPattern(LayoutPatternType.getDefault());
+			pattern.setSeed(LAYOUT_SEED);
+			DatacentreGenerator generator = new DatacentreGenerator(NUM_SERVERS, 1.0, true, pattern, new int[]{1,1,1,1}, "dc", 0);
+			generator.run();
+			ConfigWorld world = new ConfigWorld();
+			world.addDatacentre(generator.getGeneratedDatacentre());
+			
+			XMLSaver.save(configFile, new EditorConfiguration(NAME, world, new SettingsManager(), new ArrayList<ConfigServerType>()));
+		} finally {
+			context.exit(previous);
+		}
+		logger.info("Wrote " + NAME + " to '" + dir + "'");
+		return configFile;
+	}
+	
+	/**
+	 * Write the demand file: a "date" column, then one column per profile, of demand values in [0,1)
+	 */
+	protected static void writeDemand(File file) throws IOException {
+		Random random = new Random(DEMAND_SEED);
+		BufferedWriter out = new BufferedWriter(new FileWriter(file));
+		try {
+			out.append("date");
+			for(int p=0; p<NUM_PROFILES; p++) {
+				out.append(",p" + p);
+			}
+			out.append("\n");
+			for(int m=0; m<NUM_MONTHS; m++) {
+				out.append("m" + m);
+				for(int p=0; p<NUM_PROFILES; p++) {
+					out.append(String.format(Locale.UK, ",%.3f", random.nextDouble()));
+				}
+				out.append("\n");
+			}
+		} finally {
+			out.close();
+		}
+	}
+	
+	/**
+	 * Delete a directory the scenario was written to, and the files in it
+	 */
+	public static void delete(File dir) {
+		File[] files = dir.listFiles();
+		if(files != null) {
+			for(File file: files) {
+				file.delete();
+			}
+		}
+		dir.delete();
+	}
+}
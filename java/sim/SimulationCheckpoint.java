@@ -0,0 +1,344 @@
+/**
+ *   This file is part of CReST: The Cloud Research Simulation Toolkit 
+ *   Copyright (C) 2011, 2012 John Cartlidge 
+ * 
+ *   For a full list of contributors, refer to file CONTRIBUTORS.txt 
+ *
+ *   CReST was developed at the University of Bristol, UK, using 
+ *   financial support from the UK's Engineering and Physical 
+ *   Sciences Research Council (EPSRC) grant EP/H042644/1 entitled 
+ *   "Cloud Computing for Large-Scale Complex IT Systems". Refer to
+ *   <http://gow.epsrc.ac.uk/NGBOViewGrant.aspx?GrantRef=EP/H042644/1>
+ * 
+ *   CReST is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/gpl.txt>.
+ *
+ *   For further information, contact: 
+ *
+ *   Dr. John Cartlidge: john@john-cartlidge.co.uk
+ *   Department of Computer Science,
+ *   University of Bristol, The Merchant Venturers Building,
+ *   Woodland Road, Bristol, BS8-1UB, United Kingdom.
+ *
+ */
+package sim;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.log4j.Logger;
+
+import sim.module.AbstractModuleRunner;
+import sim.module.log.LogManager;
+import sim.physical.World;
+import config.SettingsManagerAccess;
+
+/**
+ * Checkpoint of a simulation between events, from which the simulation can be resumed.
+ * 
+ * A checkpoint holds the state of a SimulationContext: its singletons (World, EventQueue, 
+ * RandomSingleton, module runners, etc.) and ID counters, together with the number of events 
+ * processed and the length of each results log file.  The state is serialized and compressed 
+ * when the checkpoint is captured, so restoring a checkpoint always builds a new copy of the 
+ * simulation.
+ * 
+ * Module settings are not part of the checkpoint.  A resumed simulation loads them from the 
+ * configuration, as for a new run, so a checkpoint can be forked to continue with different 
+ * settings (see {@link #fork(SimulationContext)}).
+ * 
+ * Checkpoints use Java serialization, so can only be resumed by the same build of the simulator.
+ * 
+ * @see SimulationRunner#setCheckpoint(File, long)
+ * @see SimulationRunner#setResumeFile(File)
+ * @see SimulationRunner#setBranchTime(long)
+ */
+public class SimulationCheckpoint
+{
+	private static Logger logger = Logger.getLogger(SimulationCheckpoint.class);
+	
+	/** "CRSC" */
+	private static final int MAGIC = 0x43525343;
+	
+	/** Increment whenever the format changes */
+	public static final int FORMAT_VERSION = 1;
+	
+	private final long time;
+	private final int numEventsProcessed;
+	private final Map<String, Long> logLengths;
+	private final byte[] state;
+	
+	private SimulationCheckpoint(long time, int numEventsProcessed, Map<String, Long> logLengths, byte[] state)
+	{
+		this.time = time;
+		this.numEventsProcessed = numEventsProcessed;
+		this.logLengths = logLengths;
+		this.state = state;
+	}
+	
+	/**
+	 * Capture the state of a simulation.  Must be called between events.
+	 * 
+	 * @param context - the context of the simulation
+	 * @param numEventsProcessed - the number of events processed so far
+	 * @return the checkpoint
+	 * @throws IOException if the state cannot be serialized
+	 */
+	public static SimulationCheckpoint capture(SimulationContext context, int numEventsProcessed) throws IOException
+	{
+		Map<Class<?>, Object> singletons = context.getSingletons();
+		
+		// settings are loaded from the configuration on resume
+		singletons.remove(SettingsManagerAccess.class);
+		
+		World world = (World) singletons.get(World.class);
+		if(world == null) throw new IllegalStateException("No World to checkpoint in " + context);
+		
+		Map<String, Long> logLengths = new LinkedHashMap<String, Long>();
+		for(Object singleton: singletons.values())
+		{
+			if(singleton instanceof AbstractModuleRunner)
+			{
+				for(String fileName: ((AbstractModuleRunner) singleton).getLogFileNames())
+				{
+					logLengths.put(fileName, new File(fileName).length());
+				}
+			}
+		}
+		
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 16);
+		ObjectOutputStream out = new ObjectOutputStream(new GZIPOutputStream(bytes, 1 << 16));
+		try
+		{
+			out.writeObject(singletons);
+			out.writeObject(context.getIDCounters());
+		}
+		finally
+		{
+			out.close();
+		}
+		
+		logger.info("Captured checkpoint of " + context + " at time " + world.getTime() + " (" + bytes.size() + " bytes)");
+		return new SimulationCheckpoint(world.getTime(), numEventsProcessed, logLengths, bytes.toByteArray());
+	}
+	
+	/**
+	 * Restore the simulation state into a context, replacing its World, EventQueue, etc., and 
+	 * reopen the results logs where they were when the checkpoint was captured.
+	 * 
+	 * The context's module settings should already be configured.  Its settings manager is kept.
+	 * 
+	 * @param context - the context to restore into
+	 * @throws IOException if the state cannot be read, or the logs cannot be reopened
+	 */
+	public void restore(SimulationContext context) throws IOException
+	{
+		for(AbstractModuleRunner runner: restoreState(context))
+		{
+			runner.resumeLogs(logLengths);
+		}
+		logger.info("Restored checkpoint at time " + time + " into " + context);
+	}
+	
+	/**
+	 * Restore the simulation state into a context as a new simulation (a 'fork') that 
+	 * continues from the checkpoint.  
+	 * 
+	 * The fork gets its own results directory, starting with a copy of the results logged up to 
+	 * the checkpoint, so the simulation the checkpoint was taken from is unaffected and a 
+	 * checkpoint can be forked any number of times, concurrently, each fork in its own context.
+	 * 
+	 * The fork's module settings (which may differ from those of the simulation the checkpoint 
+	 * was taken from) should already be configured.  Settings read as the simulation runs take 
+	 * effect from the checkpoint; see {@link AbstractModuleRunner#forked()} for the rest.
+	 * 
+	 * @param context - the context of the fork
+	 * @throws IOException if the state cannot be read, or the logs cannot be copied
+	 */
+	public void fork(SimulationContext context) throws IOException
+	{
+		List<AbstractModuleRunner> runners = restoreState(context);
+		
+		LogManager logManager = context.getSingleton(World.class).getLogManager();
+		String fromPrefix = logManager.getLogFilePrefix();
+		logManager.createResultsDir();
+		String toPrefix = logManager.getLogFilePrefix();
+		
+		for(AbstractModuleRunner runner: runners)
+		{
+			runner.forkLogs(fromPrefix, toPrefix, logLengths);
+		}
+		for(AbstractModuleRunner runner: runners)
+		{
+			runner.forked();
+		}
+		logger.info("Forked checkpoint at time " + time + " into " + context + " ('" + logManager.getLogResultsDirName() + "')");
+	}
+	
+	/**
+	 * Deserialize the state into a context
+	 * 
+	 * @return the restored module runners
+	 */
+	@SuppressWarnings("unchecked")
+	private List<AbstractModuleRunner> restoreState(SimulationContext context) throws IOException
+	{
+		Map<Class<?>, Object> singletons;
+		int[] idCounters;
+		ObjectInputStream in = new ObjectInputStream(new GZIPInputStream(new ByteArrayInputStream(state)));
+		try
+		{
+			singletons = (Map<Class<?>, Object>) in.readObject();
+			idCounters = (int[]) in.readObject();
+		}
+		catch (ClassNotFoundException e)
+		{
+			throw new IOException("Checkpoint refers to unknown class: " + e.getMessage(), e);
+		}
+		finally
+		{
+			in.close();
+		}
+		
+		SettingsManagerAccess settings = context.getSingleton(SettingsManagerAccess.class);
+		if(settings != null)
+		{
+			singletons.put(SettingsManagerAccess.class, settings);
+		}
+		context.setSingletons(singletons);
+		context.setIDCounters(idCounters);
+		
+		List<AbstractModuleRunner> runners = new ArrayList<AbstractModuleRunner>();
+		for(Object singleton: singletons.values())
+		{
+			if(singleton instanceof AbstractModuleRunner)
+			{
+				runners.add((AbstractModuleRunner) singleton);
+			}
+		}
+		return runners;
+	}
+	
+	/**
+	 * @return the simulation time at which the checkpoint was captured
+	 */
+	public long getTime()
+	{
+		return time;
+	}
+	
+	/**
+	 * @return the number of events processed when the checkpoint was captured
+	 */
+	public int getNumEventsProcessed()
+	{
+		return numEventsProcessed;
+	}
+	
+	/**
+	 * Write the checkpoint to a file.  The checkpoint is written to a temporary file first, 
+	 * then renamed over the checkpoint file (atomically where the file system allows), so there is 
+	 * always a complete checkpoint file, even if the simulation is killed while writing.
+	 * 
+	 * @param pFile - the checkpoint file
+	 */
+	public void write(File pFile) throws IOException
+	{
+		File temp = new File(pFile.getPath() + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 1 << 16));
+		try
+		{
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.writeLong(time);
+			out.writeInt(numEventsProcessed);
+			out.writeInt(logLengths.size());
+			for(Map.Entry<String, Long> log: logLengths.entrySet())
+			{
+				out.writeUTF(log.getKey());
+				out.writeLong(log.getValue());
+			}
+			out.writeInt(state.length);
+			out.write(state);
+		}
+		finally
+		{
+			out.close();
+		}
+		
+		try
+		{
+			Files.move(temp.toPath(), pFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch (AtomicMoveNotSupportedException e)
+		{
+			Files.move(temp.toPath(), pFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		logger.info("Wrote checkpoint: '" + pFile + "'");
+	}
+	
+	/**
+	 * Read a checkpoint from a file
+	 * 
+	 * @param pFile - the checkpoint file
+	 * @return the checkpoint
+	 * @throws IOException if the file cannot be read or is not a checkpoint of the current format
+	 */
+	public static SimulationCheckpoint read(File pFile) throws IOException
+	{
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(pFile), 1 << 16));
+		try
+		{
+			if(in.readInt() != MAGIC) throw new IOException("Not a simulation checkpoint: " + pFile);
+			int version = in.readInt();
+			if(version != FORMAT_VERSION) throw new IOException("Checkpoint format version " + version + " is not supported (expected " + FORMAT_VERSION + "): " + pFile);
+			
+			long time = in.readLong();
+			int numEventsProcessed = in.readInt();
+			int numLogs = in.readInt();
+			Map<String, Long> logLengths = new LinkedHashMap<String, Long>();
+			for(int i = 0; i < numLogs; i++)
+			{
+				String fileName = in.readUTF();
+				logLengths.put(fileName, in.readLong());
+			}
+			byte[] state = new byte[in.readInt()];
+			in.readFully(state);
+			
+			logger.info("Read checkpoint at time " + time + ": '" + pFile + "'");
+			return new SimulationCheckpoint(time, numEventsProcessed, logLengths, state);
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+}
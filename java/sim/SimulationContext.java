@@ -0,0 +1,297 @@
+/**
+ *   This file is part of CReST: The Cloud Research Simulation Toolkit 
+ *   Copyright (C) 2011, 2012 John Cartlidge 
+ * 
+ *   For a full list of contributors, refer to file CONTRIBUTORS.txt 
+ *
+ *   CReST was developed at the University of Bristol, UK, using 
+ *   financial support from the UK's Engineering and Physical 
+ *   Sciences Research Council (EPSRC) grant EP/H042644/1 entitled 
+ *   "Cloud Computing for Large-Scale Complex IT Systems". Refer to
+ *   <http://gow.epsrc.ac.uk/NGBOViewGrant.aspx?GrantRef=EP/H042644/1>
+ * 
+ *   CReST is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/gpl.txt>.
+ *
+ *   For further information, contact: 
+ *
+ *   Dr. John Cartlidge: john@john-cartlidge.co.uk
+ *   Department of Computer Science,
+ *   University of Bristol, The Merchant Venturers Building,
+ *   Woodland Road, Bristol, BS8-1UB, United Kingdom.
+ *
+ */
+package sim;
+
+import java.lang.reflect.Method;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.log4j.Logger;
+
+import sim.module.Module;
+import sim.module.configparams.ModuleParamsInterface;
+
+/**
+ * The state of one simulation: the World, EventQueue, random number generator, settings, 
+ * module runners, module configuration and ID counters.
+ * 
+ * The simulator's singletons (World.getInstance(), EventQueue.getInstance(), 
+ * RandomSingleton.getInstance(), XxxModuleRunner.getInstance(), etc.) are accessors to the 
+ * current context.  Unless a thread has entered a context, the current context is the 
+ * process-wide default context, so single simulation runs (and the GUI) work as before.
+ * 
+ * To run several simulations side by side, create a context for each and run each simulation 
+ * inside its own context (see call(), or SimulationRunner.setContext()).  Threads started 
+ * from inside a context inherit it.
+ * 
+ * Usage:
+ * 
+ * 	SimulationContext context = new SimulationContext("run1"); // copies current module settings
+ * 	context.call(new Callable<Void>() {...});
+ * 
+ */
+public class SimulationContext {
+
+	public static Logger logger = Logger.getLogger(SimulationContext.class);
+	
+	private static final SimulationContext DEFAULT_CONTEXT = new SimulationContext();
+	
+	private static final InheritableThreadLocal<SimulationContext> current = new InheritableThreadLocal<SimulationContext>();
+	
+	/** Set once any thread enters a context, so the default-only case avoids the thread-local lookup */
+	private static volatile boolean contextsInUse = false;
+	
+	private final String name;
+	
+	// per-simulation singletons (World, EventQueue, module runners, ...), keyed by class
+	private final Map<Class<?>, Object> singletons = new ConcurrentHashMap<Class<?>, Object>();
+	
+	// module on/off status and parameters (null in the default context, which uses the values held by Module)
+	private final Map<Module, Boolean> moduleStatus;
+	private final Map<Module, ModuleParamsInterface> moduleParams;
+	
+	// ID counters
+	private int nextServerID = 0;
+	private int nextServiceID = -1;
+	
+	/**
+	 * The default context
+	 */
+	private SimulationContext() {
+		this.name = "default";
+		this.moduleStatus = null;
+		this.moduleParams = null;
+	}
+	
+	/**
+	 * Create a new context, with a copy of the current context's module settings. 
+	 * 
+	 * The new context has no World, EventQueue, etc.  These are created on first use in the context.
+	 * 
+	 * @param name - name of the context (used for logging)
+	 */
+	public SimulationContext(String name) {
+		this.name = name;
+		this.moduleStatus = new EnumMap<Module, Boolean>(Module.class);
+		this.moduleParams = new EnumMap<Module, ModuleParamsInterface>(Module.class);
+		
+		for(Module m: Module.values()) {
+			moduleStatus.put(m, m.isActive());
+			ModuleParamsInterface params = m.getParams();
+			if(params != null) {
+				moduleParams.put(m, copyParams(params));
+			}
+		}
+		logger.info("Created simulation context '" + name + "'");
+	}
+	
+	/**
+	 * Copy module parameters into a new default parameters object of the same class
+	 */
+	private static ModuleParamsInterface copyParams(ModuleParamsInterface params) {
+		try {
+			Method getDefault = params.getClass().getMethod("getDefault");
+			ModuleParamsInterface copy = (ModuleParamsInterface) getDefault.invoke(null);
+			copy.clone(params);
+			return copy;
+		} catch (Exception e) {
+			throw new IllegalStateException("Cannot copy module parameters " + params.getClass().getName() + ": " + e, e);
+		}
+	}
+	
+	/**
+	 * @return the process-wide default context
+	 */
+	public static SimulationContext getDefault() {
+		return DEFAULT_CONTEXT;
+	}
+	
+	/**
+	 * @return the context of the current thread, or the default context if the thread has not entered one
+	 */
+	public static SimulationContext getCurrent() {
+		if(!contextsInUse) return DEFAULT_CONTEXT;
+		SimulationContext c = current.get();
+		return (c == null) ? DEFAULT_CONTEXT : c;
+	}
+	
+	/**
+	 * Make this the current context of the calling thread
+	 * 
+	 * @return the previous context of the thread (to pass to exit())
+	 */
+	public SimulationContext enter() {
+		contextsInUse = true;
+		SimulationContext previous = current.get();
+		current.set(this);
+		return previous;
+	}
+	
+	/**
+	 * Leave this context, restoring the thread's previous context
+	 * 
+	 * @param previous - the value returned by enter()
+	 */
+	public void exit(SimulationContext previous) {
+		if(previous == null) {
+			current.remove();
+		} else {
+			current.set(previous);
+		}
+	}
+	
+	/**
+	 * Run a task inside this context
+	 */
+	public <T> T call(Callable<T> task) throws Exception {
+		SimulationContext previous = enter();
+		try {
+			return task.call();
+		} finally {
+			exit(previous);
+		}
+	}
+	
+	public String getName() {
+		return name;
+	}
+	
+	public boolean isDefault() {
+		return this == DEFAULT_CONTEXT;
+	}
+	
+	/**
+	 * Get the singleton of the given class in this context
+	 * 
+	 * @return the singleton, or null if it has not been created
+	 */
+	public <T> T getSingleton(Class<T> type) {
+		return type.cast(singletons.get(type));
+	}
+	
+	/**
+	 * Set (or, if instance is null, remove) the singleton of the given class in this context
+	 */
+	public <T> void setSingleton(Class<T> type, T instance) {
+		if(instance == null) {
+			singletons.remove(type);
+		} else {
+			singletons.put(type, instance);
+		}
+	}
+	
+	/**
+	 * @return a copy of this context's singletons, keyed by class (used by SimulationCheckpoint)
+	 */
+	public Map<Class<?>, Object> getSingletons() {
+		return new HashMap<Class<?>, Object>(singletons);
+	}
+	
+	/**
+	 * Replace all of this context's singletons (used by SimulationCheckpoint)
+	 */
+	public void setSingletons(Map<Class<?>, Object> singletons) {
+		this.singletons.clear();
+		this.singletons.putAll(singletons);
+	}
+	
+	/**
+	 * @return the module's status in this context, or null if the context uses the Module's own status
+	 */
+	public Boolean getModuleStatus(Module m) {
+		return (moduleStatus == null) ? null : moduleStatus.get(m);
+	}
+	
+	/**
+	 * Set the module's status in this context
+	 * 
+	 * @return false if the context uses the Module's own status
+	 */
+	public boolean setModuleStatus(Module m, boolean status) {
+		if(moduleStatus == null) return false;
+		moduleStatus.put(m, status);
+		return true;
+	}
+	
+	/**
+	 * @return the module's parameters in this context, or null if the context uses the Module's own parameters
+	 */
+	public ModuleParamsInterface getModuleParams(Module m) {
+		return (moduleParams == null) ? null : moduleParams.get(m);
+	}
+	
+	/**
+	 * @return the next Server ID in this context
+	 */
+	public synchronized int nextServerID() {
+		return nextServerID++;
+	}
+	
+	public synchronized void resetServerID() {
+		nextServerID = 0;
+	}
+	
+	/**
+	 * @return the next Service ID in this context
+	 */
+	public synchronized int nextServiceID() {
+		return ++nextServiceID;
+	}
+	
+	public synchronized void resetServiceID() {
+		nextServiceID = -1;
+	}
+	
+	/**
+	 * @return the Server and Service ID counters (used by SimulationCheckpoint)
+	 */
+	public synchronized int[] getIDCounters() {
+		return new int[] {nextServerID, nextServiceID};
+	}
+	
+	/**
+	 * Restore the Server and Service ID counters (used by SimulationCheckpoint)
+	 */
+	public synchronized void setIDCounters(int[] counters) {
+		nextServerID = counters[0];
+		nextServiceID = counters[1];
+	}
+	
+	public String toString() {
+		return "SimulationContext '" + name + "'";
+	}
+}
@@ -40,10 +40,12 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Observer;
+import java.util.Properties;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.log4j.Logger;
 
+import sim.event.StopSimEvent;
 import sim.module.AbstractModuleRunner;
 import sim.module.Module;
 import sim.module.event.Event;
@@ -53,11 +55,16 @@ import sim.module.service.bo.Service;
 import sim.module.sim.configparams.SimModuleConfigParams;
 import sim.module.userevents.configparams.UserEventsModuleConfigParams;
 import sim.physical.AirConditioner;
+import sim.physical.Server;
 import sim.physical.World;
 import sim.probability.RandomSingleton;
+import sim.probability.SamplingService;
 import utility.time.TimeManager;
 import config.ConfigParams;
+import config.EditorConfiguration;
 import config.SimulatorConfiguration;
+import config.StreamingXMLLoader;
+import config.WorldSnapshotCache;
 import config.XMLLoader;
 
 /**
@@ -83,6 +90,8 @@ public class SimulationRunner extends Thread
     
     //configuration
     private final File configFile;
+    private final EditorConfiguration editorConfig;
+    private Properties parameterOverrides;
     private String paramsFileName;
     private boolean paramsFileExists = false;
     
@@ -91,6 +100,32 @@ public class SimulationRunner extends Thread
     
     private List<WorldListener>    myWorldListeners = new ArrayList<WorldListener>();
     
+    //directory of the configuration snapshot cache (skips XML parsing for unchanged files); null for no cache
+    private File snapshotCacheDir = null;
+    
+    //load the configuration file with the streaming loader (for very large configurations)
+    private boolean useStreamingLoader = false;
+    
+    //the simulation context (World, EventQueue, module runners, ...) that this runner uses
+    private final SimulationContext context;
+    
+    //checkpoints: written every checkpointPeriod of simulated time (see SimulationCheckpoint)
+    private File checkpointFile = null;
+    private long checkpointPeriod = 0;
+    private long nextCheckpointTime = 0;
+    
+    //checkpoint to resume the simulation from (instead of starting a new run)
+    private File resumeFile = null;
+    
+    //branching: stop at branchTime, keeping a checkpoint in memory that forks start from
+    private long branchTime = -1;
+    private SimulationCheckpoint branchCheckpoint = null;
+    private SimulationCheckpoint startCheckpoint = null;
+    
+    //summary of the last run (the World is destroyed when the run finishes)
+    private String resultsDirName = "";
+    private long finalTime = 0;
+    
     /**
      * Basic constructor.
      * 
@@ -98,13 +133,167 @@ public class SimulationRunner extends Thread
      *            	the config file which the simulator will be initialised with          
      */
     public SimulationRunner(File xmlConfigFile)
+    {
+        this(xmlConfigFile, null, SimulationContext.getCurrent());
+    }
+    
+    /**
+     * Construct a simulator from a configuration that has already been parsed (loading stages 1 and 2).
+     * 
+     * The World is built from the configuration at the start of each run, so the same 
+     * EditorConfiguration can be used for many runs without re-reading the XML file.
+     * 
+     * @param editorConfig - the parsed configuration
+     */
+    public SimulationRunner(EditorConfiguration editorConfig)
+    {
+        this(null, editorConfig, SimulationContext.getCurrent());
+    }
+    
+    /**
+     * Construct a simulator that runs in the given context.
+     * 
+     * Several simulators can run concurrently, each in its own SimulationContext.
+     * 
+     * @param editorConfig - the parsed configuration
+     * @param context - the simulation context
+     */
+    public SimulationRunner(EditorConfiguration editorConfig, SimulationContext context)
+    {
+        this(null, editorConfig, context);
+    }
+    
+    private SimulationRunner(File xmlConfigFile, EditorConfiguration editorConfig, SimulationContext context)
     {
         configFile = xmlConfigFile;
+        this.editorConfig = editorConfig;
+        this.context = context;
         paramsFileName = ""; //there is no params file - ugly code
         
 		//Add ConcreteModuleRunners (for each Module) as listeners
         logger.info("Adding world listeners...");
-		this.addWorldListeners(AbstractModuleRunner.getWorldListeners());
+        SimulationContext previous = enterContext();
+        try {
+        	this.addWorldListeners(AbstractModuleRunner.getWorldListeners());
+        } finally {
+        	exitContext(previous);
+        }
+    }
+    
+    /**
+     * Load the configuration file via a snapshot cache kept in the given directory.  
+     * By default (null) there is no cache and the configuration file is always parsed.
+     * 
+     * @param snapshotCacheDir - cache directory, or null for no cache
+     * 
+     * @see WorldSnapshotCache
+     */
+    public void setSnapshotCacheDir(File snapshotCacheDir) {
+    	this.snapshotCacheDir = snapshotCacheDir;
+    }
+    
+    /**
+     * Set whether the configuration file is loaded by the streaming loader (default false).  
+     * The streaming loader does not use the snapshot cache.
+     * 
+     * @see StreamingXMLLoader
+     */
+    public void setUseStreamingLoader(boolean useStreamingLoader) {
+    	this.useStreamingLoader = useStreamingLoader;
+    }
+    
+    /**
+     * Periodically write a checkpoint of the simulation, from which it can be resumed.  
+     * 
+     * A checkpoint is written after the first event at or after each multiple of the period, 
+     * and replaces the previous checkpoint.
+     * 
+     * @param checkpointFile - the checkpoint file
+     * @param checkpointPeriod - simulation time between checkpoints
+     * @see #setResumeFile(File)
+     */
+    public void setCheckpoint(File checkpointFile, long checkpointPeriod) {
+    	if(checkpointPeriod <= 0) {
+    		throw new IllegalArgumentException("Checkpoint period must be positive: " + checkpointPeriod);
+    	}
+    	this.checkpointFile = checkpointFile;
+    	this.checkpointPeriod = checkpointPeriod;
+    	logger.info("Writing checkpoints to '" + checkpointFile + "' every " + checkpointPeriod);
+    }
+    
+    /**
+     * Resume the simulation from a checkpoint, rather than starting a new run.
+     * 
+     * The configuration (and params and events files) must be those of the run that wrote the 
+     * checkpoint.  The results logs of that run are cut back to where they were at the checkpoint, 
+     * and the resumed run appends to them, so they end up the same as if the run had not stopped.
+     * 
+     * @param resumeFile - the checkpoint file
+     */
+    public void setResumeFile(File resumeFile) {
+    	this.resumeFile = resumeFile;
+    	logger.info("Resuming from checkpoint '" + resumeFile + "'");
+    }
+    
+    /**
+     * Run the simulation to a branch point, rather than to the end.
+     * 
+     * After the first event at or after the branch time, the state of the simulation is captured 
+     * in memory and the simulation stops.  Forks of the simulation (with the same or different 
+     * settings) can then continue from the branch point, so the run up to it is only simulated once.
+     * 
+     * @param branchTime - simulation time of the branch point
+     * @see #getBranchCheckpoint()
+     * @see #setStartCheckpoint(SimulationCheckpoint)
+     */
+    public void setBranchTime(long branchTime) {
+    	if(branchTime < 0) {
+    		throw new IllegalArgumentException("Branch time must not be negative: " + branchTime);
+    	}
+    	this.branchTime = branchTime;
+    }
+    
+    /**
+     * @return the checkpoint captured at the branch point, or null if the simulation ended 
+     * (or failed) before reaching it
+     */
+    public SimulationCheckpoint getBranchCheckpoint() {
+    	return branchCheckpoint;
+    }
+    
+    /**
+     * Start the simulation as a fork of a checkpoint held in memory (usually a branch checkpoint), 
+     * rather than starting a new run.
+     * 
+     * The configuration and events must be those of the run the checkpoint was taken from, but 
+     * the params and parameter overrides may differ.  The fork logs to its own results directory.
+     * 
+     * @param startCheckpoint - the checkpoint to fork
+     * @see SimulationCheckpoint#fork(SimulationContext)
+     */
+    public void setStartCheckpoint(SimulationCheckpoint startCheckpoint) {
+    	this.startCheckpoint = startCheckpoint;
+    }
+    
+    /**
+     * @return the simulation context of this runner
+     */
+    public SimulationContext getContext() {
+    	return context;
+    }
+    
+    /**
+     * Make this runner's context current for the calling thread (if it is not already)
+     * 
+     * @return the previous context, to pass to exitContext()
+     */
+    private SimulationContext enterContext() {
+    	if(SimulationContext.getCurrent() == context) return context;
+    	return context.enter();
+    }
+    
+    private void exitContext(SimulationContext previous) {
+    	if(previous != context) context.exit(previous);
     }
     
     /**
@@ -133,6 +322,18 @@ public class SimulationRunner extends Thread
     	logger.warn("Setting User Events FileName: '" + eventsFileName + "'");
     }   
     
+    /**
+     * Set parameter values to over-ride after the params file has been applied.
+     * 
+     * Keys are the same as those used in the params file.  Used by BatchRunner for seed and parameter sweeps.
+     * 
+     * @param overrides - parameter name/value pairs
+     */
+    public void setParameterOverrides(Properties overrides) {
+    	this.parameterOverrides = overrides;
+    	logger.info("Setting parameter overrides: " + overrides);
+    }
+    
     /**
      * Add world listener that listens for world updated messages
      * 
@@ -166,6 +367,11 @@ public class SimulationRunner extends Thread
         initialiseUserEvents();
         initialiseParametersConfig();
         
+        if(resumeFile != null || startCheckpoint != null) {
+        	logger.debug("Resuming from checkpoint...");
+        	resumeFromCheckpoint();
+        	return;
+        }
         
         logger.debug("Initialising variables...");
         initialiseVariables();
@@ -245,10 +451,23 @@ public class SimulationRunner extends Thread
      */
     private boolean initialiseConfig()
     {
+    	if(editorConfig != null) {
+    		logger.debug("Building world from pre-loaded configuration '" + editorConfig.getName() + "'...");
+    		World world = XMLLoader.loadWorld(editorConfig.getConfWorld(), editorConfig.getConfig(), editorConfig.getReplacements());
+    		mConfig = new SimulatorConfiguration(editorConfig.getName(), editorConfig.getConfig(), world);
+    		return true;
+    	}
+    	
     	logger.debug("Attempting to read in configuration file...");
         try
         {
-            mConfig = XMLLoader.load(configFile);
+            if(useStreamingLoader) {
+            	mConfig = StreamingXMLLoader.load(configFile);
+            } else if(snapshotCacheDir != null) {
+            	mConfig = new WorldSnapshotCache(snapshotCacheDir).load(configFile);
+            } else {
+            	mConfig = XMLLoader.load(configFile);
+            }
         }
         catch (FileNotFoundException e)
         {
@@ -303,6 +522,9 @@ public class SimulationRunner extends Thread
 		ConfigParams.init(paramsFileName);
 		logger.info(ConfigParams.getProperties());
 		ConfigParams.update(mConfig.getConfig());
+		if(parameterOverrides != null) {
+			ConfigParams.update(mConfig.getConfig(), parameterOverrides);
+		}
 		logger.info("Seed is " + ((SimModuleConfigParams) Module.SIM_MODULE.getParams()).getSeed());
 		
 	    logger.info("Configuration params file successfully read in"); 
@@ -317,6 +539,7 @@ public class SimulationRunner extends Thread
 	{
 	    runSimulation = true;
 	    stopNowFlag = false;
+	    nextCheckpointTime = checkpointPeriod;
 	    
 	    //reset seed
 	    RandomSingleton.getInstance().reset(((SimModuleConfigParams) Module.SIM_MODULE.getParams()).getSeed());
@@ -325,9 +548,95 @@ public class SimulationRunner extends Thread
 
 	    //reset seed
 	    RandomSingleton.getInstance().reset(((SimModuleConfigParams) Module.SIM_MODULE.getParams()).getSeed());
+	    SamplingService.getInstance().setIndependentStreams(((SimModuleConfigParams) Module.SIM_MODULE.getParams()).isIndependentStreams());
 	
 	}
 
+	/**
+	 * Restore the simulation from the resume checkpoint (or fork the start checkpoint), in place 
+	 * of initialiseVariables(), prepareWorld() and initialiseWorldListeners().
+	 * 
+	 * @WARNING This must be called after initialiseConfig().
+	 */
+	private void resumeFromCheckpoint()
+	{
+		try {
+			SimulationCheckpoint checkpoint;
+			if(startCheckpoint != null) {
+				checkpoint = startCheckpoint;
+				checkpoint.fork(context);
+				scheduleForkedEnd(checkpoint.getTime());
+			} else {
+				checkpoint = SimulationCheckpoint.read(resumeFile);
+				checkpoint.restore(context);
+			}
+			
+			runSimulation = true;
+			stopNowFlag = false;
+			queue = EventQueue.getInstance();
+			mNumEventsProcessed = checkpoint.getNumEventsProcessed();
+			if(checkpointFile != null) {
+				nextCheckpointTime = nextCheckpointTime(checkpoint.getTime());
+			}
+			logger.info(TimeManager.log("Resumed simulation from checkpoint '" + (startCheckpoint != null ? "(fork)" : resumeFile) + "' after " + mNumEventsProcessed + " events"));
+		} catch (IOException e) {
+			logger.fatal("Error: unable to resume from checkpoint '" + (startCheckpoint != null ? "(fork)" : resumeFile) + "': " + e.getMessage() + ". Exiting system.");
+			stopSimulation();
+		}
+	}
+	
+	/**
+	 * The end of run StopSimEvent in a forked simulation is for the end time of the run the 
+	 * checkpoint was taken from, so replace it with one for the fork's end time.  Other stop 
+	 * events (e.g., a user event simStop) are kept.
+	 */
+	private void scheduleForkedEnd(long forkTime)
+	{
+		final long endTime = ((SimModuleConfigParams) Module.SIM_MODULE.getParams()).getSimulationEndTime();
+		EventQueue.getInstance().removeEndOfRunStops();
+		if(endTime != 0)
+		{
+			EventQueue.getInstance().addEvent(StopSimEvent.createEndOfRun(Math.max(endTime, forkTime)));
+		}
+	}
+	
+	/**
+	 * @return the time of the next checkpoint after the given time
+	 */
+	private long nextCheckpointTime(long time)
+	{
+		return (time / checkpointPeriod + 1) * checkpointPeriod;
+	}
+	
+	/**
+	 * Write a checkpoint of the simulation.  Failure to write is not fatal.
+	 */
+	private void checkpoint()
+	{
+		final long time = World.getInstance().getTime();
+		nextCheckpointTime = nextCheckpointTime(time);
+		try {
+			SimulationCheckpoint.capture(context, mNumEventsProcessed).write(checkpointFile);
+		} catch (IOException e) {
+			logger.error(TimeManager.log("Unable to write checkpoint '" + checkpointFile + "': " + e.getMessage()));
+		}
+	}
+	
+	/**
+	 * Capture the branch checkpoint in memory and stop the simulation.  If the state cannot be 
+	 * captured, the simulation stops without a branch checkpoint.
+	 */
+	private void branch()
+	{
+		try {
+			branchCheckpoint = SimulationCheckpoint.capture(context, mNumEventsProcessed);
+			logger.info(TimeManager.log("Reached branch point after " + mNumEventsProcessed + " events"));
+		} catch (IOException e) {
+			logger.error(TimeManager.log("Unable to capture branch checkpoint: " + e.getMessage()));
+		}
+		runSimulation = false;
+	}
+	
 	/**
 	 * Initialise all worldListeners that the world has been updated.
 	 * 
@@ -357,6 +666,8 @@ public class SimulationRunner extends Thread
 		//reset Server iterator
 		logger.debug("Resetting next Service ID to 0!");
 		Service.resetNextServiceIDToZero();
+		logger.debug("Resetting next Server ID to 0!");
+		Server.resetNextServerID();
 		
 		logger.debug("Singletons now clean.");
     }
@@ -364,12 +675,15 @@ public class SimulationRunner extends Thread
     /**
      * Pop the next event from the event queue and execute it, notifying the GUI
      * (if it exists) of any changes.
+     * 
+     * The event is released once performed, so must not be used afterwards.
      */
-    private Event handleEvent()
+    private void handleEvent()
     {
         final Event event = queue.nextEvent();
 
         runSimulation = event.perform();  //some events return false (which stops SimRunner)
+        event.release();
 
         if (!EventQueue.USE_DOUBLE_QUEUE)
         {
@@ -377,8 +691,6 @@ public class SimulationRunner extends Thread
         }
 
         mNumEventsProcessed++;
-
-        return event;
     }
 
     /**
@@ -411,6 +723,15 @@ public class SimulationRunner extends Thread
         {
             handleEvent();
             loopDecision();
+            
+            if (checkpointFile != null && runSimulation && World.getInstance().getTime() >= nextCheckpointTime)
+            {
+                checkpoint();
+            }
+            if (branchTime >= 0 && runSimulation && World.getInstance().getTime() >= branchTime)
+            {
+                branch();
+            }
         }
         logger.info(TimeManager.log("Exiting eventLoop..."));
     }
@@ -419,8 +740,19 @@ public class SimulationRunner extends Thread
      * Main simulator method which contains the event loop.
      */
     public void run()
+    {
+    	SimulationContext previous = enterContext();
+    	try {
+    		runInContext();
+    	} finally {
+    		exitContext(previous);
+    	}
+    }
+    
+    private void runInContext()
     {
     	isStopped = false;
+    	branchCheckpoint = null;
     	logger.info("Initialising...");
         initialise();
         logger.info("Finished Initialising");
@@ -440,9 +772,12 @@ public class SimulationRunner extends Thread
         
         logger.debug("Total number of servers = " + World.getInstance().getNumServers());
         
+        resultsDirName = World.getInstance().getLogManager().getLogResultsDirName();
+        
         logger.info("Starting simulation...");
         eventLoop();
         logger.debug("Exited event loop.");
+        finalTime = World.getInstance().getTime();
 
         logger.info("Finalising...");
         finalise();
@@ -469,6 +804,27 @@ public class SimulationRunner extends Thread
     	return !isStopped;
     }
 
+	/**
+	 * @return the number of events processed by the last run
+	 */
+	public int getNumEventsProcessed() {
+		return mNumEventsProcessed;
+	}
+	
+	/**
+	 * @return the results log directory of the last run
+	 */
+	public String getResultsDirName() {
+		return resultsDirName;
+	}
+	
+	/**
+	 * @return the simulation time at which the last run stopped
+	 */
+	public long getFinalTime() {
+		return finalTime;
+	}
+
 	public boolean isParamsFileExists() {
 		return paramsFileExists;
 	}
@@ -45,6 +45,8 @@ import sim.module.log.Log;
  */
 public class StartSimEvent extends Event
 {
+    private static final long serialVersionUID = 1L;
+
     /**
      * Constructor.
      * 
@@ -46,16 +46,24 @@ import utility.time.TimeManager;
  */
 public class StopSimEvent extends Event
 {
+    private static final long serialVersionUID = 1L;
+
+    // Whether this event is for the configured end time of the run
+    private final boolean mEndOfRun;
+
     /**
      * Constructor.
      * 
      * @param pStartTime
      *            the time at which to execute this event.
+     * @param pEndOfRun
+     *            whether the event is for the configured end time of the run.
      */
-    private StopSimEvent(final long pStartTime)
+    private StopSimEvent(final long pStartTime, final boolean pEndOfRun)
     {
     	//This is not datacentre specific, so set dcID=-1
         super(pStartTime, -1);
+        mEndOfRun = pEndOfRun;
     }
 
     /**
@@ -69,7 +77,32 @@ public class StopSimEvent extends Event
      */
     public static StopSimEvent create(final long pStartTime)
     {
-        return new StopSimEvent(pStartTime);
+        return new StopSimEvent(pStartTime, false);
+    }
+
+    /**
+     * Create the stop event for the configured end time of the run.  Unlike 
+     * other stop events, it is replaced if the end time changes (e.g., when 
+     * a simulation is forked with a different end time).
+     * 
+     * @param pEndTime
+     *            The end time of the run.
+     * 
+     * @return The stop event.
+     * 
+     * @see sim.module.event.EventQueue#removeEndOfRunStops()
+     */
+    public static StopSimEvent createEndOfRun(final long pEndTime)
+    {
+        return new StopSimEvent(pEndTime, true);
+    }
+
+    /**
+     * @return true if this is the stop event for the configured end time of the run.
+     */
+    public boolean isEndOfRun()
+    {
+        return mEndOfRun;
     }
 
     /*
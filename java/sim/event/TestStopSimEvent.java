@@ -0,0 +1,197 @@
+/**
+ *   This file is part of CReST: The Cloud Research Simulation Toolkit 
+ *   Copyright (C) 2011, 2012 John Cartlidge 
+ * 
+ *   For a full list of contributors, refer to file CONTRIBUTORS.txt 
+ *
+ *   CReST was developed at the University of Bristol, UK, using 
+ *   financial support from the UK's Engineering and Physical 
+ *   Sciences Research Council (EPSRC) grant EP/H042644/1 entitled 
+ *   "Cloud Computing for Large-Scale Complex IT Systems". Refer to
+ *   <http://gow.epsrc.ac.uk/NGBOViewGrant.aspx?GrantRef=EP/H042644/1>
+ * 
+ *   CReST is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/gpl.txt>.
+ *
+ *   For further information, contact: 
+ *
+ *   Dr. John Cartlidge: john@john-cartlidge.co.uk
+ *   Department of Computer Science,
+ *   University of Bristol, The Merchant Venturers Building,
+ *   Woodland Road, Bristol, BS8-1UB, United Kingdom.
+ *
+ */
+package sim.event;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Properties;
+
+import org.apache.log4j.BasicConfigurator;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.PropertyConfigurator;
+
+import sim.RegressionScenario;
+import sim.SimulationCheckpoint;
+import sim.SimulationContext;
+import sim.SimulationRunner;
+import sim.module.event.Event;
+import sim.module.event.EventQueue;
+import sim.module.sim.configparams.SimModuleConfigParams;
+import utility.time.TimeManager;
+
+import config.EditorConfiguration;
+import config.XMLLoader;
+
+/**
+ * Checks that each way of stopping a simulation ends the run when it should:
+ * 
+ *  - the stop event an empty event queue returns;
+ *  - the configured end time;
+ *  - a user event simStop before the configured end time;
+ *  - the end time of a fork whose end time is put back (the end of run stop event of the run 
+ *    it was forked from is replaced, see EventQueue.removeEndOfRunStops());
+ *  - a user event simStop in such a fork, before either end time.
+ * 
+ * Runs the built-in RegressionScenario.  Forks are branched after BRANCH_MINUTES.
+ * 
+ * Usage: TestStopSimEvent [log4j.properties]
+ * 
+ * Exits with status 0 if every check passes, 1 if any fails and 2 on error.
+ *
+ */
+public class TestStopSimEvent {
+
+	public static Logger logger = Logger.getLogger(TestStopSimEvent.class);
+	
+	public static final long BRANCH_MINUTES = 30;
+	public static final long SIM_STOP_MINUTES = 60;
+	public static final long FORK_END_HOURS = RegressionScenario.END_HOURS + 1;
+	
+	protected static final String EVENTS_FILENAME = "stop_events.txt";
+	
+	/**
+	 * Print the result of a check
+	 * 
+	 * @return pass
+	 */
+	protected static boolean check(String description, boolean pass) {
+		System.out.println((pass ? "PASS: " : "FAIL: ") + description);
+		return pass;
+	}
+	
+	/**
+	 * Check that the event an empty queue returns stops the simulation (with an end time configured)
+	 */
+	protected static boolean checkEmptyQueue() {
+		SimulationContext context = new SimulationContext("empty queue");
+		SimulationContext previous = context.enter();
+		try {
+			EventQueue queue = EventQueue.getInstance();
+			Event event = queue.nextEvent();
+			boolean running = event.perform();
+			return check("an empty event queue stops the simulation", 
+					queue.size() == 0 && event instanceof StopSimEvent && !running);
+		} finally {
+			context.exit(previous);
+		}
+	}
+	
+	/**
+	 * Create a runner for the scenario, with a user events file and a different end time if given
+	 */
+	protected static SimulationRunner createRunner(EditorConfiguration config, String name, File eventsFile, Long endHours) {
+		SimulationRunner runner = new SimulationRunner(config, new SimulationContext(name));
+		if(eventsFile != null) runner.setEventsFileName(eventsFile.getPath());
+		if(endHours != null) {
+			Properties overrides = new Properties();
+			overrides.setProperty(SimModuleConfigParams.END_TIME_XML_TAG, String.valueOf(endHours));
+			runner.setParameterOverrides(overrides);
+		}
+		return runner;
+	}
+	
+	/**
+	 * Run the scenario and check the time it ends
+	 */
+	protected static boolean checkRun(String description, SimulationRunner runner, long expectedTime) {
+		runner.run();
+		return check(description + ": ended at " + TimeManager.getTimeString(runner.getFinalTime()) + 
+				", expected " + TimeManager.getTimeString(expectedTime), runner.getFinalTime() == expectedTime);
+	}
+	
+	/**
+	 * Run the scenario to the branch point, then fork it with a later end time and check the time it ends
+	 */
+	protected static boolean checkFork(String description, EditorConfiguration config, File eventsFile, long expectedTime) {
+		SimulationRunner branch = createRunner(config, "branch", eventsFile, null);
+		branch.setBranchTime(TimeManager.minutesToSimulationTime(BRANCH_MINUTES));
+		branch.run();
+		SimulationCheckpoint checkpoint = branch.getBranchCheckpoint();
+		if(checkpoint == null) {
+			return check(description + ": the run ended before the branch point", false);
+		}
+		
+		SimulationRunner fork = createRunner(config, "fork", eventsFile, FORK_END_HOURS);
+		fork.setStartCheckpoint(checkpoint);
+		return checkRun(description, fork, expectedTime);
+	}
+	
+	public static void main(String[] args) {
+		
+		if(args.length > 0) {
+			PropertyConfigurator.configure(args[0]);
+		} else {
+			BasicConfigurator.configure();
+			Logger.getRootLogger().setLevel(Level.OFF);
+		}
+		
+		File scenarioDir = null;
+		try {
+			scenarioDir = RegressionScenario.createDirectory();
+			EditorConfiguration config = XMLLoader.loadConfig(RegressionScenario.write(scenarioDir));
+			
+			final long simStopTime = TimeManager.minutesToSimulationTime(SIM_STOP_MINUTES);
+			File eventsFile = new File(scenarioDir, EVENTS_FILENAME);
+			Writer out = new FileWriter(eventsFile);
+			try {
+				out.write("# stop before the end time\n");
+				out.write("simStop " + simStopTime + "\n");
+			} finally {
+				out.close();
+			}
+			
+			final long endTime = TimeManager.hoursToSimulationTime(RegressionScenario.END_HOURS);
+			final long forkEndTime = TimeManager.hoursToSimulationTime(FORK_END_HOURS);
+			
+			int numFailed = 0;
+			if(!checkEmptyQueue()) numFailed++;
+			if(!checkRun("end time", createRunner(config, "end time", null, null), endTime)) numFailed++;
+			if(!checkRun("simStop", createRunner(config, "simStop", eventsFile, null), simStopTime)) numFailed++;
+			if(!checkFork("fork with a later end time", config, null, forkEndTime)) numFailed++;
+			if(!checkFork("fork with a later end time and simStop", config, eventsFile, simStopTime)) numFailed++;
+			
+			System.out.println((numFailed == 0) ? "PASS" : "FAIL (" + numFailed + " checks)");
+			RegressionScenario.delete(scenarioDir);
+			System.exit((numFailed == 0) ? 0 : 1);
+		} catch (IOException e) {
+			logger.error("Stop event checks failed to run: " + e, e);
+			System.err.println("TestStopSimEvent: " + e);
+			if(scenarioDir != null) RegressionScenario.delete(scenarioDir);
+			System.exit(2);
+		}
+	}
+}
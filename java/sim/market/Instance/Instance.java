@@ -63,7 +63,7 @@ public class Instance {
 		logger.debug("New instance created: " + this);
 	}
 		
-	protected static int getNextID() {
+	protected static synchronized int getNextID() {
 		Instance.id_counter++;
 		return Instance.id_counter;
 	}
@@ -105,7 +105,7 @@ public class InstanceProvider {
 		return new ReservedInstance("Reserved", reservedInstanceTermInMonths, reservedInstancePrice);
 	}
 
-	public void payCommission(double comms) {
+	public synchronized void payCommission(double comms) {
 		logger.info("Provider receiving commission=$" + comms);
 		commission+=comms;
 		
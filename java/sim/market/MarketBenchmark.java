@@ -0,0 +1,348 @@
+/**
+ *   This file is part of CReST: The Cloud Research Simulation Toolkit 
+ *   Copyright (C) 2011, 2012, 2013 John Cartlidge 
+ * 
+ *   For a full list of contributors, refer to file CONTRIBUTORS.txt 
+ *
+ *   CReST was developed at the University of Bristol, UK, using 
+ *   financial support from the UK's Engineering and Physical 
+ *   Sciences Research Council (EPSRC) grant EP/H042644/1 entitled 
+ *   "Cloud Computing for Large-Scale Complex IT Systems". Refer to
+ *   <http://gow.epsrc.ac.uk/NGBOViewGrant.aspx?GrantRef=EP/H042644/1>
+ * 
+ *   CReST is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/gpl.txt>.
+ *
+ *   For further information, contact: 
+ *
+ *   Dr. John Cartlidge: john@john-cartlidge.co.uk
+ *   Department of Computer Science,
+ *   University of Bristol, The Merchant Venturers Building,
+ *   Woodland Road, Bristol, BS8-1UB, United Kingdom.
+ *
+ */
+package sim.market;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.log4j.BasicConfigurator;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.PropertyConfigurator;
+
+import sim.market.Instance.InstanceProvider;
+import sim.market.log.MarketLogger;
+import sim.market.order.Assignment;
+import sim.market.order.AssignmentServer;
+import sim.market.order.Commodity;
+import sim.market.order.Direction;
+import sim.market.order.IncrementalSchedule;
+import sim.market.order.Order;
+import sim.market.trader.BaseTrader;
+import sim.market.trader.InstanceTrader;
+import sim.market.trader.TestTrader;
+import sim.market.trader.TraderFactory;
+import sim.market.trader.TraderFactory.TraderEnum;
+import sim.market.trader.pricer.Shout;
+import sim.market.trader.pricer.ZipBuyPricer;
+import sim.market.trader.pricer.ZipSellPricer;
+import utility.benchmark.Benchmark;
+import utility.benchmark.BenchmarkRunner;
+
+/**
+ * Benchmarks for the market engine:
+ * 
+ *  - OrderBook add + cancel of a resting order, and matching of an aggressive order, at several book depths
+ *  - A full trading round of the RunICAART2014InstanceMarket population, at several population sizes
+ *  - ZIP buy and sell pricer margin updates
+ *  
+ * Usage: MarketBenchmark [log4j properties file]
+ * 
+ * If no log4j properties file is given, logging is switched off so that only the cost of the market engine 
+ * (including building any log messages) is measured.
+ *
+ */
+public class MarketBenchmark {
+
+	public static Logger logger = Logger.getLogger(MarketBenchmark.class);
+	
+	public static final long SEED = 1;
+	
+	public static final int[] BOOK_DEPTHS = {10, 100, 500};
+	public static final int[] POPULATION_SIZES = {50, 200, 1000};
+	
+	protected static final int BOOK_OPS = 20000;	// (operations x depth) per invocation of an order book benchmark
+	protected static final int PRICER_OPS = 100000;	// operations per invocation of a pricer benchmark
+	protected static final int TRADING_ROUNDS = 10;	// rounds per invocation of a trading round benchmark
+	
+	// RunICAART2014InstanceMarket parameters used for the trading round benchmark
+	protected static final double OD_PRICE = 100;
+	protected static final double RI_PRICE = 600;
+	protected static final int RI_TERM = 12;
+	protected static final double PROPORTION_MARKET_MAKERS = 0.2;
+	protected static final double MM_UNITS = 1.5;
+	protected static final double PROB_DEMAND = 0.7;
+	protected static final double PROB_ON_DEMAND = 0.5;
+	
+	/**
+	 * Remove order books created by previous benchmark invocations, so OrderBook.getBook() finds the current book
+	 */
+	protected static void resetMarket() {
+		OrderBook.clearBooks();
+		IncrementalSchedule.clearSchedules();
+		MarketLogger.getSingleton().resetValues();
+	}
+	
+	/**
+	 * An order book holding 'depth' bids and 'depth' asks (volume 1 each), owned by one buyer and one seller. 
+	 */
+	protected static abstract class OrderBookBenchmark extends Benchmark {
+		
+		protected final int depth;
+		protected final int ops;
+		protected Random prng;
+		protected Commodity c;
+		protected OrderBook book;
+		protected BaseTrader buyer;
+		protected BaseTrader seller;
+		protected Assignment buy;
+		protected Assignment sell;
+		
+		public OrderBookBenchmark(String name, int depth) {
+			super(name + " [depth=" + depth + "]");
+			this.depth = depth;
+			this.ops = Math.max(BOOK_OPS/depth, 10);
+		}
+		
+		@Override
+		public void setUp() {
+			if(book!=null) return; // each operation leaves the book as it found it, so build once
+			
+			resetMarket();
+			prng = new Random(SEED);
+			c = new Commodity("RI");
+			book = new OrderBook(prng, c);
+			buyer = new TestTrader(prng);
+			seller = new TestTrader(prng);
+			buy = new Assignment(buyer, 2*depth, Integer.MAX_VALUE, Direction.BUY, c, 0, Long.MAX_VALUE);
+			sell = new Assignment(seller, 1, Integer.MAX_VALUE, Direction.SELL, c, 0, Long.MAX_VALUE);
+			buyer.addAssignment(buy);
+			seller.addAssignment(sell);
+			
+			// bids priced in [1, depth], asks priced in [depth+1, 2*depth]
+			for(int i=0; i<depth; i++) {
+				addOrder(buy, 1+prng.nextInt(depth), i);
+				addOrder(sell, depth+1+prng.nextInt(depth), i);
+			}
+		}
+		
+		protected Order addOrder(Assignment a, double price, long time) {
+			Order o = new Order(a.getOwner(), time, c, price, 1, a.getDirection());
+			a.newOrder(o);
+			book.addOrder(o);
+			return o;
+		}
+	}
+	
+	/**
+	 * Add a non-crossing order inside the spread of the book, then cancel it
+	 */
+	protected static class AddCancelBenchmark extends OrderBookBenchmark {
+		
+		public AddCancelBenchmark(int depth) {
+			super("OrderBook.addOrder+cancelOrder", depth);
+		}
+		
+		@Override
+		public int run() {
+			for(int i=0; i<ops; i++) {
+				Order o;
+				if((i&1)==0) o = addOrder(buy, 1+prng.nextInt(depth), depth+i);
+				else o = addOrder(sell, depth+1+prng.nextInt(depth), depth+i);
+				book.cancelOrder(o);
+			}
+			consume(book.getBestBidPrice());
+			return ops;
+		}
+	}
+	
+	/**
+	 * Add a marketable order that executes against the top of the book, then replenish the book
+	 */
+	protected static class MatchBenchmark extends OrderBookBenchmark {
+		
+		public MatchBenchmark(int depth) {
+			super("OrderBook.addOrder (matching)", depth);
+		}
+		
+		@Override
+		public int run() {
+			for(int i=0; i<ops; i++) {
+				if((i&1)==0) {
+					double price = book.getBestBidPrice();
+					addOrder(sell, 1, depth+i);		// sell at the lowest price: executes against best bid
+					addOrder(buy, price, depth+i);	// replenish
+				} else {
+					double price = book.getBestAskPrice();
+					addOrder(buy, 2*depth, depth+i);	// buy at the highest price: executes against best ask
+					addOrder(sell, price, depth+i);				// replenish
+				}
+			}
+			consume(book.getTradeHistory().size());
+			return ops;
+		}
+	}
+	
+	/**
+	 * A trading round of the RunICAART2014InstanceMarket population: every trader (in random order) is pushed to trade.
+	 * 
+	 * Each invocation starts from a freshly prepared month (demand assigned, investments and excess volume for sale), 
+	 * following the set up in RunICAART2014InstanceMarket.main().
+	 */
+	protected static class TradingRoundBenchmark extends Benchmark {
+		
+		protected final int numAgents;
+		protected Random prng;
+		protected Commodity c;
+		protected List<BaseTrader> population;
+		
+		public TradingRoundBenchmark(int numAgents) {
+			super("RunICAART2014InstanceMarket trading round [agents=" + numAgents + "]");
+			this.numAgents = numAgents;
+		}
+		
+		@Override
+		public void setUp() {
+			
+			resetMarket();
+			prng = new Random(SEED);
+			c = new Commodity("RI");
+			OrderBook ob = new OrderBook(prng, c);
+			InstanceProvider.createInstanceProvider(OD_PRICE, RI_PRICE, RI_TERM, 0);
+			
+			int numMarketMakers = (int) (numAgents*PROPORTION_MARKET_MAKERS);
+			population = new ArrayList<BaseTrader>();
+			List<BaseTrader> nonMMPopulation = new ArrayList<BaseTrader>();
+			List<InstanceTrader> marketMakerPop = new ArrayList<InstanceTrader>();
+			for(int i=0; i<numAgents; i++) {
+				InstanceTrader t = (InstanceTrader) TraderFactory.getTrader(TraderEnum.IT, prng, 0.05, 0.35, 0.05, 0.35);
+				t.setInternalSellLimitPrice((int)(RI_PRICE-OD_PRICE)/(RI_TERM-1));
+				t.setDefaultBuy(c, OD_PRICE-1);
+				if(i<numMarketMakers) {
+					t.setProbBuyingRI(MM_UNITS);
+					t.setMarketMaker(true, false, 0, 0);
+					marketMakerPop.add(t);
+				} else {
+					t.setProbBuyingOnDemand(PROB_ON_DEMAND);
+					nonMMPopulation.add(t);
+				}
+				t.setDefaultSell(c);
+				ob.addObserver(t);
+				population.add(t);
+			}
+			
+			AssignmentServer assServer = new AssignmentServer(prng, c);
+			assServer.generateDemandSchedule(50, (int) OD_PRICE-1, 1, numAgents-numMarketMakers);
+			assServer.generateSupplySchedule(40, 80, 1, numMarketMakers);
+			assServer.assignDemand(nonMMPopulation, PROB_DEMAND, 1);
+			assServer.assignInternalSellLimitPrices(marketMakerPop);
+			
+			for(BaseTrader t: population) ((InstanceTrader) t).investInCommodity(c);
+			for(BaseTrader t: population) t.internalizeTrades(c);
+			for(BaseTrader t: population) t.assignExcessVolumeForSale(c);
+			for(BaseTrader t: population) ((InstanceTrader) t).selectInstanceType();
+		}
+		
+		@Override
+		public int run() {
+			for(int i=0; i<TRADING_ROUNDS; i++) {
+				Collections.shuffle(population, prng);
+				int market_demand = 0;
+				int market_supply = 0;
+				for(BaseTrader t: population) {
+					t.trade(false);
+					market_demand += t.getDemandVolume(c);
+					market_supply += t.getSupplyVolume(c);
+				}
+				consume(market_demand+market_supply);
+			}
+			return TRADING_ROUNDS;
+		}
+	}
+	
+	/**
+	 * ZIP pricer margin updates in response to a stream of shouts
+	 */
+	protected static class ZipPricerBenchmark extends Benchmark {
+		
+		protected Random prng = new Random(SEED);
+		protected ZipBuyPricer buyPricer;
+		protected ZipSellPricer sellPricer;
+		protected Assignment buy;
+		protected Assignment sell;
+		protected Shout[] shouts;
+		
+		public ZipPricerBenchmark() {
+			super("ZipBuyPricer+ZipSellPricer.updatePrice");
+			Commodity c = new Commodity("RI");
+			BaseTrader trader = new TestTrader(prng);
+			buyPricer = new ZipBuyPricer(prng, -0.2, 0.3, 0.5);
+			sellPricer = new ZipSellPricer(prng, 0.2, 0.3, 0.5);
+			buy = new Assignment(trader, 100, 1, Direction.BUY, c, 0, 0);
+			sell = new Assignment(trader, 100, 1, Direction.SELL, c, 0, 0);
+			shouts = new Shout[1024];
+			for(int i=0; i<shouts.length; i++) {
+				shouts[i] = new Shout(50+prng.nextInt(100), prng.nextBoolean()?Direction.BUY:Direction.SELL, prng.nextBoolean());
+			}
+		}
+		
+		@Override
+		public int run() {
+			for(int i=0; i<PRICER_OPS; i+=2) {
+				Shout shout = shouts[i & (shouts.length-1)];
+				consume(buyPricer.updatePrice(buy, shout));
+				consume(sellPricer.updatePrice(sell, shout));
+			}
+			consume(buyPricer.getPrice(buy)+sellPricer.getPrice(sell));
+			return PRICER_OPS;
+		}
+	}
+	
+	public static void main(String[] args) {
+		
+		if(args.length>0) {
+			PropertyConfigurator.configure(args[0]);
+		} else {
+			BasicConfigurator.configure();
+			Logger.getRootLogger().setLevel(Level.OFF);
+		}
+		
+		BenchmarkRunner runner = new BenchmarkRunner();
+		
+		for(int depth: BOOK_DEPTHS) {
+			runner.run(new AddCancelBenchmark(depth));
+		}
+		for(int depth: BOOK_DEPTHS) {
+			runner.run(new MatchBenchmark(depth));
+		}
+		for(int numAgents: POPULATION_SIZES) {
+			runner.run(new TradingRoundBenchmark(numAgents));
+		}
+		runner.run(new ZipPricerBenchmark());
+		
+		runner.printResults();
+	}
+}
@@ -0,0 +1,356 @@
+/**
+ *   This file is part of CReST: The Cloud Research Simulation Toolkit 
+ *   Copyright (C) 2011, 2012, 2013 John Cartlidge 
+ * 
+ *   For a full list of contributors, refer to file CONTRIBUTORS.txt 
+ *
+ *   CReST was developed at the University of Bristol, UK, using 
+ *   financial support from the UK's Engineering and Physical 
+ *   Sciences Research Council (EPSRC) grant EP/H042644/1 entitled 
+ *   "Cloud Computing for Large-Scale Complex IT Systems". Refer to
+ *   <http://gow.epsrc.ac.uk/NGBOViewGrant.aspx?GrantRef=EP/H042644/1>
+ * 
+ *   CReST is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/gpl.txt>.
+ *
+ *   For further information, contact: 
+ *
+ *   Dr. John Cartlidge: john@john-cartlidge.co.uk
+ *   Department of Computer Science,
+ *   University of Bristol, The Merchant Venturers Building,
+ *   Woodland Road, Bristol, BS8-1UB, United Kingdom.
+ *
+ */
+package sim.market;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Observer;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+
+import sim.market.order.Commodity;
+import sim.market.trader.BaseTrader;
+import utility.logging.LogSwitch;
+
+/**
+ * Schedules a trading round across all registered order books (see OrderBook.getBooks()).
+ * 
+ * Books are grouped into independent components: two books are in the same component if any trader observes both.
+ * Books in different components share no traders, so components can be matched concurrently. Within a component, 
+ * traders are pushed to trade in population order, once for each book of the component they observe.
+ * 
+ * With one thread (the default) components are matched sequentially in order of book creation, so runs are 
+ * reproducible. With more threads, each book should be given its own Random, and ID counters are no longer 
+ * allocated in a deterministic order.
+ * 
+ * Per-book throughput metrics are collected for every round.
+ *
+ */
+public class MatchingScheduler {
+
+	public static Logger logger = Logger.getLogger(MatchingScheduler.class);
+	
+	protected final int numThreads;
+	protected ExecutorService executor;
+	protected Map<Commodity, BookMetrics> metrics = new LinkedHashMap<Commodity, BookMetrics>();
+	
+	/**
+	 * Callback made after each trader has been pushed to trade on a book.
+	 * 
+	 * When matching concurrently, callbacks for different components are made from different threads.
+	 */
+	public interface TradeListener {
+		public void traded(BaseTrader t, OrderBook ob);
+	}
+	
+	/**
+	 * Throughput metrics for a single order book
+	 */
+	public static class BookMetrics {
+		
+		protected final OrderBook book;
+		protected final long ordersAddedAtStart;
+		protected final long ordersCancelledAtStart;
+		protected final long tradesAtStart;
+		protected final long volumeAtStart;
+		protected int rounds = 0;
+		protected long traderActions = 0;
+		protected long nanos = 0;
+		
+		public BookMetrics(OrderBook book) {
+			this.book = book;
+			ordersAddedAtStart = book.getOrdersAdded();
+			ordersCancelledAtStart = book.getOrdersCancelled();
+			tradesAtStart = book.getTradesExecuted();
+			volumeAtStart = book.getVolumeTraded();
+		}
+		
+		public Commodity getCommodity() {
+			return book.getCommodity();
+		}
+		
+		public int getRounds() {
+			return rounds;
+		}
+		
+		public long getTraderActions() {
+			return traderActions;
+		}
+		
+		public long getNanos() {
+			return nanos;
+		}
+		
+		public long getOrdersAdded() {
+			return book.getOrdersAdded()-ordersAddedAtStart;
+		}
+		
+		public long getOrdersCancelled() {
+			return book.getOrdersCancelled()-ordersCancelledAtStart;
+		}
+		
+		public long getTrades() {
+			return book.getTradesExecuted()-tradesAtStart;
+		}
+		
+		public long getVolume() {
+			return book.getVolumeTraded()-volumeAtStart;
+		}
+		
+		/**
+		 * @return orders added per second of matching time
+		 */
+		public double getOrdersPerSecond() {
+			if(nanos==0) return 0;
+			return getOrdersAdded() / (nanos / 1e9);
+		}
+		
+		/**
+		 * @return trades executed per second of matching time
+		 */
+		public double getTradesPerSecond() {
+			if(nanos==0) return 0;
+			return getTrades() / (nanos / 1e9);
+		}
+		
+		@Override
+		public String toString() {
+			return "BookMetrics [" + getCommodity().getName() + ": rounds=" + rounds + ", traderActions=" + traderActions 
+					+ ", ordersAdded=" + getOrdersAdded() + ", ordersCancelled=" + getOrdersCancelled() 
+					+ ", trades=" + getTrades() + ", volume=" + getVolume() + ", time=" + (nanos/1e6) + "ms"
+					+ ", orders/s=" + Math.round(getOrdersPerSecond()) + ", trades/s=" + Math.round(getTradesPerSecond()) + "]";
+		}
+	}
+	
+	/**
+	 * Create a scheduler that matches all order books sequentially
+	 */
+	public MatchingScheduler() {
+		this(1);
+	}
+	
+	/**
+	 * Create a scheduler that matches independent order books using up to numThreads threads
+	 * @param numThreads - number of threads (1 => sequential)
+	 */
+	public MatchingScheduler(int numThreads) {
+		this.numThreads = Math.max(1, numThreads);
+		if(this.numThreads>1) executor = Executors.newFixedThreadPool(this.numThreads);
+	}
+	
+	public int getNumThreads() {
+		return numThreads;
+	}
+	
+	/**
+	 * Perform one trading round on every registered order book. 
+	 * 
+	 * The population should be shuffled by the caller: traders act in population order.
+	 * 
+	 * @param population - the traders
+	 * @param retailMarket - if true, buyers do not enter orders into book.
+	 */
+	public void tradingRound(List<BaseTrader> population, boolean retailMarket) {
+		tradingRound(population, retailMarket, null);
+	}
+	
+	/**
+	 * Perform one trading round on every registered order book. 
+	 * 
+	 * The population should be shuffled by the caller: traders act in population order.
+	 * 
+	 * @param population - the traders
+	 * @param retailMarket - if true, buyers do not enter orders into book.
+	 * @param listener - called after each trader has traded on a book (may be null)
+	 */
+	public void tradingRound(final List<BaseTrader> population, final boolean retailMarket, final TradeListener listener) {
+		
+		List<List<OrderBook>> components = getIndependentBooks(OrderBook.getBooks());
+		logger.debug("Trading round on " + components.size() + " independent book component(s)");
+
+		// create metrics before matching, so the map is not modified concurrently
+		for(List<OrderBook> component: components) {
+			for(OrderBook ob: component) getMetrics(ob);
+		}
+		
+		if(executor==null || components.size()<2) {
+			for(List<OrderBook> component: components) {
+				tradeComponent(component, population, retailMarket, listener);
+			}
+		} else {
+			List<Future<Object>> futures = new ArrayList<Future<Object>>();
+			for(final List<OrderBook> component: components) {
+				futures.add(executor.submit(new Callable<Object>() {
+					@Override
+					public Object call() {
+						tradeComponent(component, population, retailMarket, listener);
+						return null;
+					}
+				}));
+			}
+			for(Future<Object> f: futures) {
+				try {
+					f.get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IllegalStateException("Interrupted while waiting for trading round", e);
+				} catch (ExecutionException e) {
+					logger.error("Trading round failed: " + e.getCause());
+					throw new IllegalStateException("Trading round failed", e.getCause());
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Push every trader observing a book in the component to trade on that book
+	 */
+	protected void tradeComponent(List<OrderBook> component, List<BaseTrader> population, boolean retailMarket, TradeListener listener) {
+
+		List<Set<Observer>> observers = new ArrayList<Set<Observer>>();
+		List<BookMetrics> bookMetrics = new ArrayList<BookMetrics>();
+		for(OrderBook ob: component) {
+			observers.add(new HashSet<Observer>(ob.getObservers()));
+			bookMetrics.add(metrics.get(ob.getCommodity()));
+		}
+		
+		for(BaseTrader t: population) {
+			for(int i=0; i<component.size(); i++) {
+				if(!observers.get(i).contains(t)) continue;
+				if(LogSwitch.MARKET && logger.isInfoEnabled()) logger.info("Pushing trader #" + t.getId() + " to trade " + component.get(i).getCommodity().getName());
+				BookMetrics m = bookMetrics.get(i);
+				long start = System.nanoTime();
+				t.trade(component.get(i).getCommodity(), retailMarket);
+				m.nanos += System.nanoTime()-start;
+				m.traderActions++;
+				if(listener!=null) listener.traded(t, component.get(i));
+			}
+		}
+		for(BookMetrics m: bookMetrics) m.rounds++;
+	}
+	
+	/**
+	 * Group order books into components that share no observing traders
+	 * @param books - the order books
+	 * @return list of components, each a list of books in order of creation
+	 */
+	protected static List<List<OrderBook>> getIndependentBooks(List<OrderBook> books) {
+		
+		// union-find over book indices
+		int[] parent = new int[books.size()];
+		for(int i=0; i<parent.length; i++) parent[i] = i;
+		
+		Map<Observer, Integer> firstBook = new HashMap<Observer, Integer>();
+		for(int i=0; i<books.size(); i++) {
+			for(Observer o: books.get(i).getObservers()) {
+				Integer j = firstBook.get(o);
+				if(j==null) firstBook.put(o, i);
+				else parent[find(parent, i)] = find(parent, j);
+			}
+		}
+		
+		Map<Integer, List<OrderBook>> components = new LinkedHashMap<Integer, List<OrderBook>>();
+		for(int i=0; i<books.size(); i++) {
+			int root = find(parent, i);
+			List<OrderBook> component = components.get(root);
+			if(component==null) {
+				component = new ArrayList<OrderBook>();
+				components.put(root, component);
+			}
+			component.add(books.get(i));
+		}
+		return new ArrayList<List<OrderBook>>(components.values());
+	}
+	
+	private static int find(int[] parent, int i) {
+		while(parent[i]!=i) {
+			parent[i] = parent[parent[i]];
+			i = parent[i];
+		}
+		return i;
+	}
+	
+	/**
+	 * Get the metrics of order book ob, creating them if necessary
+	 */
+	protected BookMetrics getMetrics(OrderBook ob) {
+		BookMetrics m = metrics.get(ob.getCommodity());
+		if(m==null || m.book!=ob) {
+			m = new BookMetrics(ob);
+			metrics.put(ob.getCommodity(), m);
+		}
+		return m;
+	}
+	
+	/**
+	 * Get the throughput metrics for the book trading commodity c
+	 * @return metrics, or null if the book has not been scheduled
+	 */
+	public BookMetrics getMetrics(Commodity c) {
+		return metrics.get(c);
+	}
+	
+	/**
+	 * Get the throughput metrics of all scheduled books
+	 */
+	public List<BookMetrics> getMetrics() {
+		return new ArrayList<BookMetrics>(metrics.values());
+	}
+	
+	/**
+	 * Log the throughput metrics of all scheduled books
+	 */
+	public void logMetrics() {
+		for(BookMetrics m: metrics.values()) {
+			logger.info(m);
+		}
+	}
+	
+	/**
+	 * Stop the worker threads (if any)
+	 */
+	public void shutdown() {
+		if(executor!=null) executor.shutdown();
+	}
+}
@@ -35,7 +35,9 @@ package sim.market;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 
 import org.apache.log4j.Logger;
@@ -47,6 +49,8 @@ import sim.market.order.PriceVolumeTuple;
 import sim.market.order.Trade;
 import sim.market.trader.pricer.Shout;
 import utility.ShuffledObservable;
+import utility.logging.LazyLog;
+import utility.logging.LogSwitch;
 
 /**
  * An public order book, containing a list of bids (offers to buy) and asks (offers to sell).
@@ -60,7 +64,8 @@ public class OrderBook extends ShuffledObservable{
 
 	public static Logger logger = Logger.getLogger(OrderBook.class);
 
-	public static List<OrderBook> books;
+	// Registry of order books, indexed by commodity (in order of creation)
+	protected static Map<Commodity, OrderBook> books = new LinkedHashMap<Commodity, OrderBook>();
 	
 	protected static int id_counter = 0;
 	
@@ -73,38 +78,100 @@ public class OrderBook extends ShuffledObservable{
 	List<Trade> tradeHistory = new ArrayList<Trade>();
 	List<OrderBookRecord> bookHistory = new ArrayList<OrderBookRecord>();
 	
-	protected static Trade lastTrade;
+	protected Trade lastTrade;
 	
+	// Throughput counters
+	protected long ordersAdded = 0;
+	protected long ordersCancelled = 0;
+	protected long tradesExecuted = 0;
+	protected long volumeTraded = 0;
+	
+	/**
+	 * Get the price of the last trade on the order book for commodity c
+	 * @param c - the commodity
+	 * @return last trade price, or Double.NaN if there is no book or no trade yet
+	 */
 	public static double getLastTradePrice(Commodity c) {
-		return lastTrade.getPrice();
+		OrderBook ob = getBook(c);
+		if(ob==null || ob.lastTrade==null) {
+			logger.warn("No trade exists for commodity: " + c + ". Returning NaN");
+			return Double.NaN;
+		}
+		return ob.lastTrade.getPrice();
 	}
 	
+	/**
+	 * Create an order book for commodity c and register it, so that it can be found using getBook(c).
+	 * 
+	 * If a book already exists for commodity c, it is replaced in the registry.
+	 */
 	public OrderBook(Random prng, Commodity c) {
 		super(prng,  true); //shuffle order of observers before notifying of update
 		this.prng = prng;
 		commodity = c;
 		id = getNextID();
-		if(books==null) books = new ArrayList<OrderBook>();
-		books.add(this);
+		synchronized(books) {
+			if(books.put(c, this)!=null) logger.warn("Replacing existing order book for commodity: " + c);
+		}
 	}
 	
-	protected static int getNextID() {
+	protected static synchronized int getNextID() {
 		return ++OrderBook.id_counter;
 	}
 	
 	public static OrderBook getBook(Commodity c) {
 		
-		for(OrderBook ob: books) {
-			if(ob.getCommodity()==c) return ob;
+		OrderBook ob;
+		synchronized(books) {
+			ob = books.get(c);
+		}
+		if(ob==null) logger.warn("No order book exists for commodity: " + c + ". Returning null");
+		return ob;
+	}
+	
+	/**
+	 * Get all registered order books, in order of creation
+	 * @return a copy of the list of order books
+	 */
+	public static List<OrderBook> getBooks() {
+		synchronized(books) {
+			return new ArrayList<OrderBook>(books.values());
+		}
+	}
+	
+	/**
+	 * Remove all order books from the registry
+	 */
+	public static void clearBooks() {
+		synchronized(books) {
+			books.clear();
 		}
-		logger.warn("No order book exists for commodity: " + c + ". Returning null");
-		return null;
 	}
 	
-	protected Commodity getCommodity() {
+	public Commodity getCommodity() {
 		return commodity;
 	}
 	
+	public int getId() {
+		return id;
+	}
+	
+	public long getOrdersAdded() {
+		return ordersAdded;
+	}
+
+	public long getOrdersCancelled() {
+		return ordersCancelled;
+	}
+
+	public long getTradesExecuted() {
+		return tradesExecuted;
+	}
+
+	public long getVolumeTraded() {
+		return volumeTraded;
+	}
+	
 	/**
 	 * Add an order to the orderbook
 	 * @param o - the order to add
@@ -112,7 +179,19 @@ public class OrderBook extends ShuffledObservable{
 	 */
 	public boolean addOrder(Order o) {
 
-		logger.debug(this + "\nAdding order to the book: " + o);
+		if(LogSwitch.MARKET) LazyLog.debug(logger, "{}\nAdding order to the book: {}", this, o);
+		ordersAdded++;
+		return insertOrder(o);
+	}
+	
+	/**
+	 * Execute an order against the book, or rest it in the book if it does not execute. 
+	 * Does not count the order as added (see addOrder(), and residual orders in performExecutions())
+	 * @param o - the order
+	 * @return true if the order executes, false otherwise
+	 */
+	private boolean insertOrder(Order o) {
+		
 		if(!this.orderExecutes(o)) {
 			if(o.isBid()) {
 				bids.add(o);
@@ -122,9 +201,9 @@ public class OrderBook extends ShuffledObservable{
 				Collections.sort(asks);
 			}
 			bookHistory.add(new OrderBookRecord(o,false));
-			logger.debug("Updating latest record to: " + getLatestRecord());
+			if(LogSwitch.MARKET) LazyLog.debug(logger, "Updating latest record to: {}", getLatestRecord());
 			
-			logger.info(new Shout(getLatestRecord()));
+			if(LogSwitch.MARKET && logger.isInfoEnabled()) logger.info(new Shout(getLatestRecord()));
 			
 			// Notify all observing Traders about the update
 			notifyTradersOfUpdate();
@@ -149,16 +228,17 @@ public class OrderBook extends ShuffledObservable{
 	 */
 	public boolean cancelOrder(Order o) {
 
-		logger.debug(this +"Cancelling order from the book: " + o);
+		if(LogSwitch.MARKET) LazyLog.debug(logger, "{}Cancelling order from the book: {}", this, o);
 		
 		if(remove(o)) {
 			o.delete();
+			ordersCancelled++;
 			logger.debug("Order cancellation successful");
 		} else {
 			logger.warn("Order could not be cancelled: " + o);
 		}
 		
-		logger.debug(this.toString());
+		if(LogSwitch.MARKET) logger.debug(this);
 		
 		return true;
 	}
@@ -254,7 +334,7 @@ public class OrderBook extends ShuffledObservable{
 				if(order.getPrice()>=ask.getPrice()) {
 					return ask.getVolume();
 				} else {
-					logger.debug("Bid order price: " + order.getPrice() + " is less than ask price: " + ask.getPrice() + "; breaking");
+					if(LogSwitch.MARKET) LazyLog.debug(logger, "Bid order price: {} is less than ask price: {}; breaking", order.getPrice(), ask.getPrice());
 					break;
 				}
 			}
@@ -263,7 +343,7 @@ public class OrderBook extends ShuffledObservable{
 				if(order.getPrice()<=bid.getPrice()) {
 					return bid.getVolume();
 				} else {
-					logger.debug("Ask order price: " + order.getPrice() + " is greater than bid price: " + bid.getPrice() + "; breaking");
+					if(LogSwitch.MARKET) LazyLog.debug(logger, "Ask order price: {} is greater than bid price: {}; breaking", order.getPrice(), bid.getPrice());
 					break;
 				}
 			}
@@ -365,14 +445,14 @@ public class OrderBook extends ShuffledObservable{
 	
 		if(o.isBid()) {
 			if(asks.size()>0 && o.getPrice()>=getBestAskPrice()) {
-				logger.debug("New order executes: " + o);
-				logger.debug("Counterparty in book: " + asks.get(0));
+				if(LogSwitch.MARKET) LazyLog.debug(logger, "New order executes: {}", o);
+				if(LogSwitch.MARKET) LazyLog.debug(logger, "Counterparty in book: {}", asks.get(0));
 				return true;
 			}
 		} else {
 			if(bids.size()>0 && o.getPrice()<=getBestBidPrice()) {
-				logger.debug("New order executes: " + o);
-				logger.debug("Counterparty in book: " + bids.get(0));
+				if(LogSwitch.MARKET) LazyLog.debug(logger, "New order executes: {}", o);
+				if(LogSwitch.MARKET) LazyLog.debug(logger, "Counterparty in book: {}", bids.get(0));
 				return true;
 			}
 		}
@@ -381,7 +461,7 @@ public class OrderBook extends ShuffledObservable{
 
 	protected void performExecutions(Order o) {
 		
-		logger.debug("performing executions generated by order: " + o);
+		if(LogSwitch.MARKET) LazyLog.debug(logger, "performing executions generated by order: {}", o);
 		
 		// eat through the book generating trades for each execution 
 		Order residualOrder = o;
@@ -395,18 +475,18 @@ public class OrderBook extends ShuffledObservable{
 			
 			if (volumeAtTouch<=0) { // no more volume available, add residual to book and break loop
 				
-				logger.debug("No more volume available, adding residual order to book: " + residualOrder);
-				addOrder(residualOrder);
+				if(LogSwitch.MARKET) LazyLog.debug(logger, "No more volume available, adding residual order to book: {}", residualOrder);
+				insertOrder(residualOrder); // the residual is not a new order
 				break;
 			}
 			
-			logger.debug("Volume available at touch = " + volumeAtTouch);
+			if(LogSwitch.MARKET) LazyLog.debug(logger, "Volume available at touch = {}", volumeAtTouch);
 			
 			//performing execution
 			residualOrder = performExecution(residualOrder);
 			if(residualOrder==null) orderVolumeToExecute=0;
 			else orderVolumeToExecute = residualOrder.getVolume();
-			logger.debug("Order volume left to execute = " + orderVolumeToExecute);
+			if(LogSwitch.MARKET) LazyLog.debug(logger, "Order volume left to execute = {}", orderVolumeToExecute);
 		}
 		
 		logger.debug("Finished executing order");
@@ -434,27 +514,27 @@ public class OrderBook extends ShuffledObservable{
 			if(o.isBid()) counterparty = asks.get(0); 
 			else counterparty = bids.get(0);
 				
-			logger.debug("Found counterparty for order. Order = " + o + "; counterparty = " + counterparty);
+			if(LogSwitch.MARKET) LazyLog.debug(logger, "Found counterparty for order. Order = {}; counterparty = {}", o, counterparty);
 	
 			//If volumes match, then we have no problem, just make trade
 			if(o.getVolume()==counterparty.getVolume()) {
 	
-				logger.debug("Order volume = " + o.getVolume() + " matches counterparty volume = " + counterparty.getVolume() +
-						". Performing single trade execution.");
+				if(LogSwitch.MARKET) LazyLog.debug(logger, "Order volume = {} matches counterparty volume = {}. Performing single trade execution.", 
+						o.getVolume(), counterparty.getVolume());
 				remove(counterparty);
 				t = new Trade(counterparty.getPrice(),counterparty.getVolume(),o.getTimestamp(),o,counterparty);
 	
 			} else if(o.getVolume()<counterparty.getVolume()) { //execute order, and update book volume
 	
-				logger.debug("Order volume = " + o.getVolume() + " is less than counterparty volume = " + counterparty.getVolume() +
-						". Splitting counterparty order and performing single trade execution");
+				if(LogSwitch.MARKET) LazyLog.debug(logger, "Order volume = {} is less than counterparty volume = {}. Splitting counterparty order and performing single trade execution", 
+						o.getVolume(), counterparty.getVolume());
 				Order executedCounterpartyOrder = counterparty.splitOrder(o.getVolume());
 				t = new Trade(executedCounterpartyOrder.getPrice(),o.getVolume(),o.getTimestamp(),o,executedCounterpartyOrder);
 	
 			} else { // execute as much volume of order as we can, then continue "eating" through book.
 	
-				logger.debug("Order volume = " + o.getVolume() + " is greater than counterparty volume = " + counterparty.getVolume() +
-						". Executing what we can, then will continue to eat through book.");	
+				if(LogSwitch.MARKET) LazyLog.debug(logger, "Order volume = {} is greater than counterparty volume = {}. Executing what we can, then will continue to eat through book.", 
+						o.getVolume(), counterparty.getVolume());	
 				logger.debug("Splitting order");
 				residualOrder = o.splitOrder(o.getVolume()-counterparty.getVolume());
 				remove(counterparty);
@@ -470,9 +550,11 @@ public class OrderBook extends ShuffledObservable{
 		// Perform accounting
 		if(t!=null) {
 			bookHistory.add(new OrderBookRecord(t.getVolume(), t.getPrice(), o.getDirection(), true, o.getCommodity(), o.getTimestamp()));
-			logger.debug("Updating latest record to: " + getLatestRecord());
+			if(LogSwitch.MARKET) LazyLog.debug(logger, "Updating latest record to: {}", getLatestRecord());
 		    tradeHistory.add(t); // add trade to history 
 		    lastTrade = t;
+		    tradesExecuted++;
+		    volumeTraded += t.getVolume();
 		    t.updateOwners();    // update owners of the trade
 		    
 			// Notify all observing Traders about the latest record
@@ -491,20 +573,20 @@ public class OrderBook extends ShuffledObservable{
 		
 		if(o.isBid()) {
 			if(bids.contains(o)) {
-				logger.debug("removing order from OB bids: " + o);
+				if(LogSwitch.MARKET) LazyLog.debug(logger, "removing order from OB bids: {}", o);
 				bids.remove(o);
 				return true;
 			} else {
-				logger.debug("Cannot remove order from OB bids, doesn't exist in book: " + o);
+				if(LogSwitch.MARKET) LazyLog.debug(logger, "Cannot remove order from OB bids, doesn't exist in book: {}", o);
 				return false;
 			}
 		} else {
 			if(asks.contains(o)) {
-				logger.debug("removing order from OB asks: " + o);
+				if(LogSwitch.MARKET) LazyLog.debug(logger, "removing order from OB asks: {}", o);
 				asks.remove(o);
 				return true;
 			} else {
-				logger.debug("Cannot remove order from OB asks, doesn't exist in book: " + o);
+				if(LogSwitch.MARKET) LazyLog.debug(logger, "Cannot remove order from OB asks, doesn't exist in book: {}", o);
 				return false;
 			}			
 		}
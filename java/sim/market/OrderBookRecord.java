@@ -129,7 +129,7 @@ public class OrderBookRecord {
 		this.commodity = commodity;
 	}
 
-	protected static int getNextID() {
+	protected static synchronized int getNextID() {
 		OrderBookRecord.id_counter++;
 		return OrderBookRecord.id_counter;
 	}
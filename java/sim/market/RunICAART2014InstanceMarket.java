@@ -48,14 +48,13 @@ import sim.market.config.MarketConfigParams;
 import sim.market.config.MarketSettings;
 import sim.market.log.InstanceTraderPopLogger;
 import sim.market.log.MarketLogger;
+import sim.market.log.MarketTelemetry;
 import sim.market.log.ProviderLogger;
 import sim.market.order.Assignment;
 import sim.market.order.AssignmentServer;
 import sim.market.order.Commodity;
-import sim.market.order.DemandSchedule;
-import sim.market.order.PriceVolumeSchedule;
+import sim.market.order.IncrementalSchedule;
 import sim.market.order.PriceVolumeTuple;
-import sim.market.order.SupplySchedule;
 import sim.market.trader.BaseTrader;
 import sim.market.trader.InstanceTrader;
 import sim.market.trader.TraderFactory;
@@ -88,23 +87,24 @@ public class RunICAART2014InstanceMarket {
 		MarketLogger.getSingleton().initLogs(dirPrefix);
 		ProviderLogger.getSingleton().initLogs(dirPrefix);
 		InstanceTraderPopLogger.getSingleton().initLogs(dirPrefix);
+		MarketTelemetry.getSingleton().initLogs(dirPrefix);
 	}
 	
 	/**
 	 * Log (theoretical) equilibrium values for the market
-	 * @param population
-	 * @param c
+	 * 
+	 * Values are read from the commodity's IncrementalSchedule, which is kept up to date by the 
+	 * traders' order management systems, so no population-wide demand/supply schedules are built.
+	 * 
+	 * @param c - the commodity
 	 */
-	public static void logEquilibriumValues(List<BaseTrader> population, Commodity c) {
-		DemandSchedule demandSchedule = new DemandSchedule(population, c);
-		SupplySchedule supplySchedule = new SupplySchedule(population, c);		
-		logger.info("Demand schedule = " + demandSchedule);
-		logger.info("Supply schedule = " + supplySchedule);
-		PriceVolumeTuple equilibrium = PriceVolumeSchedule.getEquilibrium(demandSchedule, supplySchedule);
-		double surplusProfit = PriceVolumeSchedule.getSurplusProfit(demandSchedule, supplySchedule, equilibrium);
+	public static void logEquilibriumValues(Commodity c) {
+		IncrementalSchedule schedule = IncrementalSchedule.getSchedule(c);
+		PriceVolumeTuple equilibrium = schedule.getEquilibrium();
+		logger.info("Schedule = " + schedule + ", equilibrium = [" + equilibrium + "]");
 		MarketLogger.getSingleton().setEquilibriumPrice(equilibrium.getPrice());
 		MarketLogger.getSingleton().setEquilibriumVolume(equilibrium.getVolume());
-		MarketLogger.getSingleton().setProfitSurplus(surplusProfit);
+		MarketLogger.getSingleton().setProfitSurplus(schedule.getSurplusProfit());
 	}
 
 	
@@ -114,6 +114,7 @@ public class RunICAART2014InstanceMarket {
 	public static void writeMonthlyLogs() {
 		MarketLogger.getSingleton().writeLog();
 		ProviderLogger.getSingleton().writeLog();
+		MarketTelemetry.getSingleton().writeLog();
 	}
 	
 	/**
@@ -125,22 +126,24 @@ public class RunICAART2014InstanceMarket {
 		MarketLogger.getSingleton().resetValues();
 		MarketLogger.getSingleton().setMonth(m);
 		ProviderLogger.getSingleton().setMonth(m);
+		MarketTelemetry.getSingleton().setMonth(m);
 	}
 	
 	public static void writeSummaryLogs(List<BaseTrader> population) {
 		
 		logger.info("Writing population log...");
 		InstanceTraderPopLogger.getSingleton().writeLog(population);
+		MarketTelemetry.getSingleton().close();
 	}
 	
 	public static String getPopulationOrderingAsString(List<BaseTrader> population) {
 		
-		String s = "Population ordering: [";
+		StringBuilder s = new StringBuilder("Population ordering: [");
 		for(BaseTrader t: population) {
-			s += " " + t.getId();
+			s.append(' ').append(t.getId());
 		}
-		s+= "]";
-		return s;
+		s.append(']');
+		return s.toString();
 	}
 	
 	public static void main(String[] args) {
@@ -190,6 +193,7 @@ public class RunICAART2014InstanceMarket {
         prng = new Random(marketSettings.getSeed());
 		
 		Commodity c = new Commodity("RI");
+		IncrementalSchedule.clearSchedules();
 		
 		logger.info("Creating order book....");
 		OrderBook ob = new OrderBook(prng, c); //an order book selling RIs
@@ -310,6 +314,8 @@ public class RunICAART2014InstanceMarket {
 		int numOnDemandSold = 0;
 		
 		double inc = 0.0;
+		MatchingScheduler scheduler = new MatchingScheduler();
+		
 		for(int m=1; m<=marketSettings.getMonths(); m++) {
 			
 			double p = marketSettings.getProbPurchasingOnDemand();
@@ -334,13 +340,13 @@ public class RunICAART2014InstanceMarket {
 			
 			// Shuffle assignment distribution?
 			if(marketSettings.getShuffleMonth()>0 && (m % marketSettings.getShuffleMonth()==0)) {
-				logger.info("Before shuffle: " + getPopulationOrderingAsString(population));
+				if(logger.isDebugEnabled()) logger.debug("Before shuffle: " + getPopulationOrderingAsString(population));
 				Collections.shuffle(population,prng);
-				logger.info("After shuffle: " + getPopulationOrderingAsString(population));
+				if(logger.isDebugEnabled()) logger.debug("After shuffle: " + getPopulationOrderingAsString(population));
 			} else {
-				logger.info("Before sort: " + getPopulationOrderingAsString(population));
+				if(logger.isDebugEnabled()) logger.debug("Before sort: " + getPopulationOrderingAsString(population));
 				Collections.sort(population);
-				logger.info("After sort: " + getPopulationOrderingAsString(population));
+				if(logger.isDebugEnabled()) logger.debug("After sort: " + getPopulationOrderingAsString(population));
 			}
 			
 			//get population of non-market makers and population of market makers...
@@ -362,9 +368,9 @@ public class RunICAART2014InstanceMarket {
 			assServer.assignInternalSellLimitPrices(marketMakerPop);
 			
 			
-			logger.info("Before sort: " + getPopulationOrderingAsString(population));
+			if(logger.isDebugEnabled()) logger.debug("Before sort: " + getPopulationOrderingAsString(population));
 			Collections.sort(population);
-			logger.info("After sort: " + getPopulationOrderingAsString(population));
+			if(logger.isDebugEnabled()) logger.debug("After sort: " + getPopulationOrderingAsString(population));
 			
 			logger.info("Allow traders to buy RIs for investment...");
 			if(marketSettings.getMonths()-m >= (marketSettings.getRITermInMonths()-1)) {
@@ -395,7 +401,7 @@ public class RunICAART2014InstanceMarket {
 			}
 
 			// Log (theoretical) equilibrium values for the market
-			logEquilibriumValues(population, c);
+			logEquilibriumValues(c);
 			
 			
 			
@@ -416,19 +422,27 @@ public class RunICAART2014InstanceMarket {
 			for(int i=0; i<marketSettings.getNumTradingRounds(); i++) {
 				logger.info("Trading round " + i + "/" + marketSettings.getNumTradingRounds());
 				
-				logger.info("Before shuffle: " + getPopulationOrderingAsString(population));
+				if(logger.isDebugEnabled()) logger.debug("Before shuffle: " + getPopulationOrderingAsString(population));
 				Collections.shuffle(population,prng);
-				logger.info("After shuffle: " + getPopulationOrderingAsString(population));
+				if(logger.isDebugEnabled()) logger.debug("After shuffle: " + getPopulationOrderingAsString(population));
 				
-				int market_demand = 0;
-				int market_supply = 0;
-				for(BaseTrader t: population) {
-					logger.info("Pushing trader #" + t.getId() + " to trade");
-					t.trade(marketSettings.isRetailMarket());
-					market_demand += t.getDemandVolume(c);
-					market_supply += t.getSupplyVolume(c);
-				}
+				// market demand and supply, summed as each trader trades
+				final int[] volumes = new int[2];
+				scheduler.tradingRound(population, marketSettings.isRetailMarket(), new MatchingScheduler.TradeListener() {
+					@Override
+					public void traded(BaseTrader t, OrderBook ob) {
+						volumes[0] += t.getDemandVolume(ob.getCommodity());
+						volumes[1] += t.getSupplyVolume(ob.getCommodity());
+					}
+				});
+				int market_demand = volumes[0];
+				int market_supply = volumes[1];
 				logger.info("Total market demand=" + market_demand + ", supply=" + market_supply);
+				logger.info("Equilibrium after round " + i + " = [" + IncrementalSchedule.getSchedule(c).getEquilibrium() + "]");
+				MarketTelemetry.getSingleton().endRound(i, 
+						ob.isEmptyBids() ? Double.NaN : ob.getBestBidPrice(), 
+						ob.isEmptyAsks() ? Double.NaN : ob.getBestAskPrice(), 
+						market_demand, market_supply);
 				if(market_demand==0 || market_supply==0) {
 					logger.info("No more demand or supply, finishing trading..."); 
 					//otherwise, if we have supply and no buyers, the market goes into free fall (and vice-versa)
@@ -520,6 +534,9 @@ public class RunICAART2014InstanceMarket {
 
 		}
 		
+		scheduler.logMetrics();
+		scheduler.shutdown();
+		
 		logger.info("Writing trader population to log...");
 		writeSummaryLogs(population);
 		
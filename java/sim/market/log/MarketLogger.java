@@ -33,8 +33,7 @@
  */
 package sim.market.log;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 import org.apache.log4j.Logger;
 
@@ -59,14 +58,17 @@ public class MarketLogger extends AbstractMarketLogger{
 	protected int equilibriumVolume; 	// Theoretical equilibrium volume in the market
 	protected double profitSurplus;		// Profit surplus in the market
 	
-	protected List<Trade> trades; 		// List of trades
+	protected double[] tradePrices;		// Prices of trades this month
+	protected int[] tradeVolumes;		// Volumes of trades this month
+	protected int numTrades;			// Number of trades this month
 	
 	protected double marketMakerRIProb; // Prob of buying RIs by market makers
 	protected int RITermInMonths;		// Length of RI term
 	
 	private MarketLogger() {
 		super("market");
-		trades = new ArrayList<Trade>();
+		tradePrices = new double[64];
+		tradeVolumes = new int[64];
 	}
 	
 	public static MarketLogger getSingleton() {
@@ -93,16 +95,26 @@ public class MarketLogger extends AbstractMarketLogger{
 		equilibriumPrice = 0; 
 		equilibriumVolume = 0;
 		
-		trades.clear();
+		numTrades = 0;
+		MarketTelemetry.getSingleton().resetValues();
 	}
 	
-	public void addTrade(Trade t) {
-		trades.add(t);
+	public synchronized void addTrade(Trade t) {
+		if(numTrades==tradePrices.length) {
+			tradePrices = Arrays.copyOf(tradePrices, numTrades*2);
+			tradeVolumes = Arrays.copyOf(tradeVolumes, numTrades*2);
+		}
+		tradePrices[numTrades] = t.getPrice();
+		tradeVolumes[numTrades] = t.getVolume();
+		numTrades++;
 		numberTraded += t.getVolume();
 		totalTradePrice += t.getPrice();
+		MarketTelemetry.getSingleton().addTrade(t.getPrice(), t.getVolume());
 		
-		logger.info("New trade: " + t);
-		logger.info("#units="+numberTraded + ", totalPrice=" + totalTradePrice);
+		if(logger.isInfoEnabled()) {
+			logger.info("New trade: " + t);
+			logger.info("#units="+numberTraded + ", totalPrice=" + totalTradePrice);
+		}
 	}
 	
 	public void addDemand(int demand) {
@@ -119,6 +131,7 @@ public class MarketLogger extends AbstractMarketLogger{
 	
 	public void setEquilibriumPrice(double price) {
 		equilibriumPrice = price;
+		MarketTelemetry.getSingleton().setEquilibriumPrice(price);
 	}
 	
 	public void setEquilibriumVolume(int volume) {
@@ -163,11 +176,11 @@ public class MarketLogger extends AbstractMarketLogger{
     	log.add(String.valueOf(equilibriumVolume));
     	log.add(String.valueOf(format.format(getMonthlyMeanTraderPrice())));
     	log.add(String.valueOf(profitSurplus));
-    	log.add(String.valueOf(MarketStats.getSmithsAlpha(trades, equilibriumPrice)));
+    	log.add(String.valueOf(MarketStats.getSmithsAlpha(tradePrices, tradeVolumes, numTrades, equilibriumPrice)));
     	log.add(String.valueOf(marketMakerRIProb));
     	log.add(String.valueOf(marketMakerRIProb*RITermInMonths));
-    	for(Trade t: trades) {
-    		log.add(String.valueOf(t.getPrice()));
+    	for(int i=0; i<numTrades; i++) {
+    		log.add(String.valueOf(tradePrices[i]));
     	}
     	
     	LogManager.writeLog(resultsLog,log);
@@ -0,0 +1,266 @@
+/**
+ *   This file is part of CReST: The Cloud Research Simulation Toolkit 
+ *   Copyright (C) 2011, 2012, 2013 John Cartlidge 
+ * 
+ *   For a full list of contributors, refer to file CONTRIBUTORS.txt 
+ *
+ *   CReST was developed at the University of Bristol, UK, using 
+ *   financial support from the UK's Engineering and Physical 
+ *   Sciences Research Council (EPSRC) grant EP/H042644/1 entitled 
+ *   "Cloud Computing for Large-Scale Complex IT Systems". Refer to
+ *   <http://gow.epsrc.ac.uk/NGBOViewGrant.aspx?GrantRef=EP/H042644/1>
+ * 
+ *   CReST is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/gpl.txt>.
+ *
+ *   For further information, contact: 
+ *
+ *   Dr. John Cartlidge: john@john-cartlidge.co.uk
+ *   Department of Computer Science,
+ *   University of Bristol, The Merchant Venturers Building,
+ *   Woodland Road, Bristol, BS8-1UB, United Kingdom.
+ *
+ */
+package sim.market.log;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import sim.market.stats.MarketStats;
+
+/**
+ * Per-round market telemetry: price, volume, spread and Smith's alpha for every trading round.
+ * 
+ * Trades are aggregated as they arrive (no Trade objects are retained). At the end of each round one row 
+ * is appended to primitive column buffers. Full buffers are handed to a background thread, which formats 
+ * and writes them to the "rounds" log file, so no strings are built in the trading loop.
+ * 
+ * Call close() at the end of the run to write any remaining rows.
+ *
+ */
+public class MarketTelemetry extends AbstractMarketLogger{
+
+	public static Logger logger = Logger.getLogger(MarketTelemetry.class);
+	
+	protected static final int BUFFER_SIZE = 1024; // rows buffered before an asynchronous write
+	
+	protected static MarketTelemetry singleton;
+	
+	// Running totals for the current round
+	protected int roundTrades;			// number of trades this round
+	protected int roundVolume;			// volume traded this round
+	protected double roundTotalPrice;	// total price of trades this round
+	protected double roundSquaredDeviation; // volume weighted squared deviation of trade price from equilibrium
+	
+	protected double equilibriumPrice;	// Theoretical equilibrium price for the month
+	
+	protected RoundBuffer buffer = new RoundBuffer(BUFFER_SIZE);
+	protected ExecutorService writer;
+	
+	/**
+	 * Column buffers holding one row per trading round
+	 */
+	protected static class RoundBuffer {
+		
+		protected int size = 0;
+		protected final int[] month;
+		protected final int[] round;
+		protected final int[] trades;
+		protected final int[] volume;
+		protected final double[] meanPrice;
+		protected final double[] bestBid;
+		protected final double[] bestAsk;
+		protected final double[] alpha;
+		protected final int[] demand;
+		protected final int[] supply;
+		
+		protected RoundBuffer(int capacity) {
+			month = new int[capacity];
+			round = new int[capacity];
+			trades = new int[capacity];
+			volume = new int[capacity];
+			meanPrice = new double[capacity];
+			bestBid = new double[capacity];
+			bestAsk = new double[capacity];
+			alpha = new double[capacity];
+			demand = new int[capacity];
+			supply = new int[capacity];
+		}
+		
+		protected boolean isFull() {
+			return size==month.length;
+		}
+		
+		/**
+		 * Append the buffered rows (CSV) to sb
+		 */
+		protected void format(StringBuilder sb) {
+			for(int i=0; i<size; i++) {
+				sb.append(month[i]).append(',');
+				sb.append(round[i]).append(',');
+				sb.append(trades[i]).append(',');
+				sb.append(volume[i]).append(',');
+				appendValue(sb, meanPrice[i]).append(',');
+				appendValue(sb, bestBid[i]).append(',');
+				appendValue(sb, bestAsk[i]).append(',');
+				appendValue(sb, bestAsk[i]-bestBid[i]).append(',');
+				appendValue(sb, alpha[i]).append(',');
+				sb.append(demand[i]).append(',');
+				sb.append(supply[i]).append('\n');
+			}
+		}
+		
+		// do not output NaNs
+		private static StringBuilder appendValue(StringBuilder sb, double value) {
+			if(!Double.isNaN(value)) sb.append(value);
+			return sb;
+		}
+	}
+	
+	private MarketTelemetry() {
+		super("rounds");
+	}
+	
+	public static synchronized MarketTelemetry getSingleton() {
+		if(singleton == null) {
+			singleton = new MarketTelemetry();
+		}
+		return singleton;
+	}
+
+	@Override
+	protected String getLogTitleString() {
+		return "Month, Round, #Trades, Volume, Av Trade Price, Best Bid, Best Ask, Spread, Alpha (%), Demand, Supply";
+	}
+	
+	@Override
+	public void initLogs(String dirName) {
+		super.initLogs(dirName);
+		writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "MarketTelemetry writer");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+	
+	/**
+	 * Reset the running totals for the current round
+	 */
+	@Override
+	public synchronized void resetValues() {
+		roundTrades = 0;
+		roundVolume = 0;
+		roundTotalPrice = 0;
+		roundSquaredDeviation = 0;
+	}
+	
+	public synchronized void setEquilibriumPrice(double price) {
+		equilibriumPrice = price;
+	}
+	
+	/**
+	 * Add a trade to the current round
+	 * @param price - trade price
+	 * @param volume - trade volume
+	 */
+	public synchronized void addTrade(double price, int volume) {
+		roundTrades++;
+		roundVolume += volume;
+		roundTotalPrice += price;
+		roundSquaredDeviation += volume * Math.pow(price - equilibriumPrice, 2);
+	}
+	
+	/**
+	 * Record the current round and start a new one
+	 * 
+	 * @param round - the trading round within the month
+	 * @param bestBid - best bid at the end of the round (NaN if none)
+	 * @param bestAsk - best ask at the end of the round (NaN if none)
+	 * @param demand - market demand
+	 * @param supply - market supply
+	 */
+	public synchronized void endRound(int round, double bestBid, double bestAsk, int demand, int supply) {
+		
+		RoundBuffer b = buffer;
+		int i = b.size++;
+		b.month[i] = month;
+		b.round[i] = round;
+		b.trades[i] = roundTrades;
+		b.volume[i] = roundVolume;
+		b.meanPrice[i] = roundVolume>0 ? roundTotalPrice/roundVolume : Double.NaN;
+		b.bestBid[i] = bestBid;
+		b.bestAsk[i] = bestAsk;
+		b.alpha[i] = roundVolume>0 ? MarketStats.getSmithsAlpha(roundSquaredDeviation, roundVolume, equilibriumPrice) : Double.NaN;
+		b.demand[i] = demand;
+		b.supply[i] = supply;
+		
+		resetValues();
+		if(b.isFull()) writeLog();
+	}
+	
+	/**
+	 * Hand the buffered rows to the writer thread
+	 */
+	@Override
+	public synchronized void writeLog() {
+		
+		if(buffer.size==0) return;
+		final RoundBuffer full = buffer;
+		buffer = new RoundBuffer(BUFFER_SIZE);
+		
+		if(writer==null || resultsLog==null) {
+			logger.warn("Round log not initialised; discarding " + full.size + " rows");
+			return;
+		}
+		writer.execute(new Runnable() {
+			@Override
+			public void run() {
+				StringBuilder sb = new StringBuilder(full.size*64);
+				full.format(sb);
+				try {
+					resultsLog.append(sb);
+					resultsLog.flush();
+				} catch (IOException e) {
+					logger.error("Error writing round log: " + e.getMessage());
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Write any remaining rows, wait for the writer to finish and close the log file
+	 */
+	public void close() {
+		
+		writeLog();
+		if(writer==null) return;
+		writer.shutdown();
+		try {
+			if(!writer.awaitTermination(60, TimeUnit.SECONDS)) logger.warn("Timed out waiting for round log writer");
+			resultsLog.close();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (IOException e) {
+			logger.error("Error closing round log: " + e.getMessage());
+		}
+		writer = null;
+	}
+}
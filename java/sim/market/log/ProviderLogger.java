@@ -98,7 +98,7 @@ public class ProviderLogger extends AbstractMarketLogger{
 		logger.debug("#units="+ RISales + ", totalIncome=" + sales);
 	}
 	
-	public void addCommission(double charge) {
+	public synchronized void addCommission(double charge) {
 		comms += charge;
 		balance += charge;
 	}
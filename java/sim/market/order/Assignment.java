@@ -65,6 +65,7 @@ public class Assignment implements Comparable<Assignment> {
 	protected BaseTrader owner;
 	
 	protected List<Order> orders;
+	protected OrderManagementSystem oms; // the OMS currently holding this assignment (null if none)
 	
 	public Assignment(BaseTrader owner, double limitPrice, int volume, Direction direction, 
 			Commodity commodity, long timestamp, long deadline){
@@ -80,7 +81,7 @@ public class Assignment implements Comparable<Assignment> {
 		this.orders = new ArrayList<Order>();
 	};
 	
-	protected static int getNextID() {
+	protected static synchronized int getNextID() {
 		Assignment.id_counter++;
 		return Assignment.id_counter;
 	}
@@ -147,6 +148,7 @@ public class Assignment implements Comparable<Assignment> {
 	 */
 	public void newOrder(Order o) {
 		orders.add(o);
+		if(oms!=null) oms.orderAdded(o, this);
 	}
 	
 	/**
@@ -159,6 +161,18 @@ public class Assignment implements Comparable<Assignment> {
 
 	public void setOrders(List<Order> orders) {
 		this.orders = orders;
+		if(oms!=null) {
+			for(Order o: orders) oms.orderAdded(o, this);
+		}
+	}
+	
+	/**
+	 * Set the order management system that currently holds this assignment, so that 
+	 * new orders can be indexed against it.
+	 * @param oms - the OMS, or null if the assignment is no longer held
+	 */
+	void setOrderManagementSystem(OrderManagementSystem oms) {
+		this.oms = oms;
 	}
 	
 	public boolean isComplete() {
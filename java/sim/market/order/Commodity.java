@@ -44,7 +44,7 @@ public class Commodity {
 		this.id = getNextID();
 	}
 	
-	protected static int getNextID() {
+	protected static synchronized int getNextID() {
 		Commodity.id_counter++;
 		return Commodity.id_counter;
 	}
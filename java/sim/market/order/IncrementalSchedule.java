@@ -0,0 +1,381 @@
+/**
+ *   This file is part of CReST: The Cloud Research Simulation Toolkit 
+ *   Copyright (C) 2011, 2012, 2013 John Cartlidge 
+ * 
+ *   For a full list of contributors, refer to file CONTRIBUTORS.txt 
+ *
+ *   CReST was developed at the University of Bristol, UK, using 
+ *   financial support from the UK's Engineering and Physical 
+ *   Sciences Research Council (EPSRC) grant EP/H042644/1 entitled 
+ *   "Cloud Computing for Large-Scale Complex IT Systems". Refer to
+ *   <http://gow.epsrc.ac.uk/NGBOViewGrant.aspx?GrantRef=EP/H042644/1>
+ * 
+ *   CReST is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/gpl.txt>.
+ *
+ *   For further information, contact: 
+ *
+ *   Dr. John Cartlidge: john@john-cartlidge.co.uk
+ *   Department of Computer Science,
+ *   University of Bristol, The Merchant Venturers Building,
+ *   Woodland Road, Bristol, BS8-1UB, United Kingdom.
+ *
+ */
+package sim.market.order;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Incrementally maintained demand and supply schedules for a commodity.
+ * 
+ * Volume is held in price buckets (one array for demand, one for supply) and is updated 
+ * by the OrderManagementSystem whenever an assignment is added, executes or is removed. 
+ * The equilibrium price, volume and surplus profit can therefore be queried at any time 
+ * (e.g., after every trading round) without rebuilding a DemandSchedule and SupplySchedule 
+ * from the whole population and expanding them into unit volume lists.
+ * 
+ * Equilibrium logic follows PriceVolumeSchedule.getEquilibrium() (Cliff & Bruten, 1997), 
+ * but walks the cumulative bucket volumes rather than individual units. Each bucket's price is the 
+ * volume weighted mean limit price of the assignments it holds, so results are identical 
+ * to PriceVolumeSchedule whenever all limit prices in a bucket are equal (e.g., integer prices 
+ * with the default tick size of 1).
+ *
+ */
+public class IncrementalSchedule {
+
+	public static Logger logger = Logger.getLogger(IncrementalSchedule.class);
+	
+	/** Default width of a price bucket */
+	public static final double DEFAULT_TICK_SIZE = 1.0;
+	
+	protected static final int INITIAL_BUCKETS = 256;
+	
+	/** Maximum number of price buckets. Prices above the top bucket are held in the top bucket. */
+	protected static final int MAX_BUCKETS = 1<<20;
+	
+	protected static Map<Commodity, IncrementalSchedule> schedules = new HashMap<Commodity, IncrementalSchedule>();
+	
+	protected final Commodity commodity;
+	protected final double tickSize;
+	
+	protected int[] demandVolume;		// volume demanded in each price bucket
+	protected int[] supplyVolume;		// volume supplied in each price bucket
+	protected double[] demandValue;		// sum of (limit price * volume) demanded in each price bucket
+	protected double[] supplyValue;		// sum of (limit price * volume) supplied in each price bucket
+	
+	protected int totalDemand = 0;
+	protected int totalSupply = 0;
+	
+	// cached equilibrium values, recalculated lazily when the schedule changes
+	protected boolean dirty = true;
+	protected PriceVolumeTuple equilibrium;
+	protected double surplusProfit;
+	
+	public IncrementalSchedule(Commodity commodity) {
+		this(commodity, DEFAULT_TICK_SIZE);
+	}
+	
+	public IncrementalSchedule(Commodity commodity, double tickSize) {
+		if(tickSize<=0) {
+			logger.warn("Illegal tick size [" + tickSize + "]. Using default tick size = " + DEFAULT_TICK_SIZE);
+			tickSize = DEFAULT_TICK_SIZE;
+		}
+		this.commodity = commodity;
+		this.tickSize = tickSize;
+		demandVolume = new int[INITIAL_BUCKETS];
+		supplyVolume = new int[INITIAL_BUCKETS];
+		demandValue = new double[INITIAL_BUCKETS];
+		supplyValue = new double[INITIAL_BUCKETS];
+	}
+	
+	/**
+	 * Get the incremental schedule for a commodity. A new schedule is created if none exists.
+	 * @param c - the commodity
+	 * @return the schedule
+	 */
+	public static synchronized IncrementalSchedule getSchedule(Commodity c) {
+		IncrementalSchedule schedule = schedules.get(c);
+		if(schedule==null) {
+			schedule = new IncrementalSchedule(c);
+			schedules.put(c, schedule);
+		}
+		return schedule;
+	}
+	
+	/**
+	 * Remove all schedules (e.g., at the start of a new market simulation)
+	 */
+	public static synchronized void clearSchedules() {
+		schedules.clear();
+	}
+	
+	public Commodity getCommodity() {
+		return commodity;
+	}
+	
+	public double getTickSize() {
+		return tickSize;
+	}
+	
+	/**
+	 * Add volume at a limit price
+	 * @param direction - demand (BUY) or supply (SELL)
+	 * @param limitPrice - the limit price
+	 * @param volume - the volume to add
+	 */
+	public void add(Direction direction, double limitPrice, int volume) {
+		update(direction, limitPrice, volume);
+	}
+	
+	/**
+	 * Remove volume at a limit price (volume has executed or been cancelled)
+	 * @param direction - demand (BUY) or supply (SELL)
+	 * @param limitPrice - the limit price
+	 * @param volume - the volume to remove
+	 */
+	public void remove(Direction direction, double limitPrice, int volume) {
+		update(direction, limitPrice, -volume);
+	}
+	
+	protected void update(Direction direction, double limitPrice, int volume) {
+		
+		if(volume==0) return;
+		if(limitPrice<0) {
+			logger.warn("Illegal limit price [" + limitPrice + "]. Schedule not updated.");
+			return;
+		}
+		
+		int bucket = getBucket(limitPrice);
+		ensureCapacity(bucket);
+		
+		if(direction==Direction.BUY) {
+			demandVolume[bucket] += volume;
+			demandValue[bucket] += limitPrice*volume;
+			totalDemand += volume;
+			if(demandVolume[bucket]==0) demandValue[bucket] = 0; // remove rounding residue
+			else if(demandVolume[bucket]<0) logger.warn("Negative demand volume [" + demandVolume[bucket] + "] at price " + limitPrice);
+		} else {
+			supplyVolume[bucket] += volume;
+			supplyValue[bucket] += limitPrice*volume;
+			totalSupply += volume;
+			if(supplyVolume[bucket]==0) supplyValue[bucket] = 0; // remove rounding residue
+			else if(supplyVolume[bucket]<0) logger.warn("Negative supply volume [" + supplyVolume[bucket] + "] at price " + limitPrice);
+		}
+		dirty = true;
+	}
+	
+	protected int getBucket(double price) {
+		double bucket = Math.floor(price/tickSize);
+		if(bucket>=MAX_BUCKETS) {
+			logger.warn("Price [" + price + "] is above the top price bucket. Using top bucket.");
+			return MAX_BUCKETS-1;
+		}
+		return (int) bucket;
+	}
+	
+	protected void ensureCapacity(int bucket) {
+		if(bucket<demandVolume.length) return;
+		
+		int size = demandVolume.length;
+		while(size<=bucket) size*=2; // bucket < MAX_BUCKETS, a power of 2, so size <= MAX_BUCKETS
+		
+		int[] newDemandVolume = new int[size];
+		int[] newSupplyVolume = new int[size];
+		double[] newDemandValue = new double[size];
+		double[] newSupplyValue = new double[size];
+		System.arraycopy(demandVolume, 0, newDemandVolume, 0, demandVolume.length);
+		System.arraycopy(supplyVolume, 0, newSupplyVolume, 0, supplyVolume.length);
+		System.arraycopy(demandValue, 0, newDemandValue, 0, demandValue.length);
+		System.arraycopy(supplyValue, 0, newSupplyValue, 0, supplyValue.length);
+		demandVolume = newDemandVolume;
+		supplyVolume = newSupplyVolume;
+		demandValue = newDemandValue;
+		supplyValue = newSupplyValue;
+	}
+	
+	/**
+	 * Get the total volume demanded
+	 * @return total demand
+	 */
+	public int getTotalDemand() {
+		return totalDemand;
+	}
+	
+	/**
+	 * Get the total volume supplied
+	 * @return total supply
+	 */
+	public int getTotalSupply() {
+		return totalSupply;
+	}
+	
+	/**
+	 * Get the cumulative volume demanded at or above a price
+	 * @param price - the price
+	 * @return cumulative demand volume
+	 */
+	public int getDemandAtOrAbove(double price) {
+		int vol = 0;
+		int first = Math.max(getBucket(price), 0);
+		for(int i=demandVolume.length-1; i>=first; i--) {
+			vol += demandVolume[i];
+		}
+		return vol;
+	}
+	
+	/**
+	 * Get the cumulative volume supplied at or below a price
+	 * @param price - the price
+	 * @return cumulative supply volume
+	 */
+	public int getSupplyAtOrBelow(double price) {
+		int vol = 0;
+		int last = Math.min(getBucket(price), supplyVolume.length-1);
+		for(int i=0; i<=last; i++) {
+			vol += supplyVolume[i];
+		}
+		return vol;
+	}
+	
+	/**
+	 * Get the equilibrium price and volume of the current demand and supply schedules
+	 * @return equilibrium price and volume (null tuple if no equilibrium exists)
+	 */
+	public PriceVolumeTuple getEquilibrium() {
+		if(dirty) calculateEquilibrium();
+		return equilibrium;
+	}
+	
+	/**
+	 * Get the surplus profit (intramarginal demand - supply) of the current demand and supply schedules
+	 * @return surplus profit
+	 */
+	public double getSurplusProfit() {
+		if(dirty) calculateEquilibrium();
+		return surplusProfit;
+	}
+	
+	protected double getPrice(int[] volume, double[] value, int bucket) {
+		return value[bucket]/volume[bucket];
+	}
+	
+	protected int nextDemandBucket(int bucket) {
+		for(int i=bucket-1; i>=0; i--) {
+			if(demandVolume[i]>0) return i;
+		}
+		return -1;
+	}
+	
+	protected int nextSupplyBucket(int bucket) {
+		for(int i=bucket+1; i<supplyVolume.length; i++) {
+			if(supplyVolume[i]>0) return i;
+		}
+		return -1;
+	}
+	
+	/**
+	 * Walk demand (highest price first) and supply (lowest price first) bucket by bucket, 
+	 * matching as much volume as possible at each step, until the curves cross or one runs out.
+	 */
+	protected void calculateEquilibrium() {
+		
+		dirty = false;
+		equilibrium = new PriceVolumeTuple(); // null Tuple
+		surplusProfit = 0;
+		
+		int d = nextDemandBucket(demandVolume.length);
+		int s = nextSupplyBucket(-1);
+		
+		if(d<0 || s<0) {
+			logger.debug("No equilibrium");
+			return;
+		}
+		
+		double demandPrice = getPrice(demandVolume, demandValue, d);
+		double supplyPrice = getPrice(supplyVolume, supplyValue, s);
+		
+		if(supplyPrice > demandPrice) {
+			logger.debug("Lowest sell limit is higher than highest buy limit. No equilibrium");
+			return;
+		}
+		
+		int demandRemaining = demandVolume[d];
+		int supplyRemaining = supplyVolume[s];
+		int v0 = 0;
+		double p0 = 0;
+		
+		while(true) {
+			
+			// all remaining units in the current buckets have the same prices, so match them together
+			int matched = Math.min(demandRemaining, supplyRemaining);
+			v0 += matched;
+			surplusProfit += matched*(demandPrice - supplyPrice);
+			demandRemaining -= matched;
+			supplyRemaining -= matched;
+			
+			int nextD = (demandRemaining>0)?d:nextDemandBucket(d);
+			int nextS = (supplyRemaining>0)?s:nextSupplyBucket(s);
+			
+			if(nextD<0 && nextS<0) { // last buyer and seller
+				p0 = (supplyPrice + demandPrice) / 2.0;
+				break;
+			} else if(nextS<0) { // last seller, but still some buyers
+				p0 = (demandPrice + getPrice(demandVolume, demandValue, nextD)) / 2.0;
+				break;
+			} else if(nextD<0) { // last buyer, but still some sellers
+				p0 = (supplyPrice + getPrice(supplyVolume, supplyValue, nextS)) / 2.0;
+				break;
+			}
+			
+			double nextDemandPrice = getPrice(demandVolume, demandValue, nextD);
+			double nextSupplyPrice = getPrice(supplyVolume, supplyValue, nextS);
+			
+			if(nextSupplyPrice > nextDemandPrice) { // supply price is greater than demand: simple intersection
+				p0 = (supplyPrice + demandPrice) / 2.0;
+				break;
+			}
+			
+			if(nextD!=d) demandRemaining = demandVolume[nextD];
+			if(nextS!=s) supplyRemaining = supplyVolume[nextS];
+			d = nextD;
+			s = nextS;
+			demandPrice = nextDemandPrice;
+			supplyPrice = nextSupplyPrice;
+		}
+		
+		equilibrium = new PriceVolumeTuple(p0, v0);
+		logger.debug("Equilibrium = [" + equilibrium + "], Total surplus profit = " + surplusProfit);
+	}
+	
+	/**
+	 * Remove all volume from the schedule
+	 */
+	public void clear() {
+		Arrays.fill(demandVolume, 0);
+		Arrays.fill(supplyVolume, 0);
+		Arrays.fill(demandValue, 0);
+		Arrays.fill(supplyValue, 0);
+		totalDemand = 0;
+		totalSupply = 0;
+		dirty = true;
+	}
+	
+	@Override
+	public String toString() {
+		return "IncrementalSchedule [" + commodity.getName() + ", demand=" + totalDemand + ", supply=" + totalSupply + "]";
+	}
+}
@@ -63,7 +63,7 @@ public class Order implements Comparable<Order>{
 		this.id = Order.getNextOrderID();
 	}
 	
-	protected static int getNextOrderID() {
+	protected static synchronized int getNextOrderID() {
 		Order.order_id_counter++;
 		return Order.order_id_counter;
 	}
@@ -117,6 +117,10 @@ public class Order implements Comparable<Order>{
 		return direction;
 	}
 	
+	public int getId() {
+		return id;
+	}
+	
 	/**
 	 * Delete order. Remove order from owner's order list
 	 * @return true if deletion successful, false otherwise
@@ -34,7 +34,12 @@
 package sim.market.order;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.log4j.Logger;
 
@@ -43,6 +48,10 @@ import sim.market.trader.BaseTrader;
 
 /**
  * Used by traders to manage orders and assignments.
+ * 
+ * Current assignments are indexed by commodity and direction (with running volume totals), 
+ * and orders are indexed by ID against the assignment that owns them, so bookkeeping does not 
+ * need to scan every assignment and order held by the trader.
  *
  */
 public class OrderManagementSystem {
@@ -54,6 +63,10 @@ public class OrderManagementSystem {
 	protected List<Assignment> assignments;
 	protected List<Assignment> completedAssignments;	
 	
+	protected Set<Assignment> assignmentSet;						// current assignments, for fast lookup
+	protected Map<Commodity, CommodityAssignments> commodityIndex;	// current assignments by commodity and direction
+	protected Map<Integer, Assignment> orderIndex;					// order ID -> assignment that owns the order
+	
 	protected boolean storeCompletedAssignments = true; // If true, store a record of all completed assignments.
 	
 	protected int totalBuyAssigned;
@@ -61,11 +74,35 @@ public class OrderManagementSystem {
 	
 	protected int monthlySales = 0;
 	
+	/**
+	 * Current BUY and SELL assignments for a single commodity, with total volume remaining on each side
+	 */
+	protected static class CommodityAssignments {
+		
+		protected List<Assignment> assignments = new ArrayList<Assignment>();	// both directions, in the order added
+		protected List<Assignment> demand = new ArrayList<Assignment>();
+		protected List<Assignment> supply = new ArrayList<Assignment>();
+		protected int demandVolume = 0;
+		protected int supplyVolume = 0;
+		
+		protected List<Assignment> get(Direction d) {
+			return (d==Direction.BUY)?demand:supply;
+		}
+		
+		protected void addVolume(Direction d, int volume) {
+			if(d==Direction.BUY) demandVolume += volume;
+			else supplyVolume += volume;
+		}
+	}
+	
 	public OrderManagementSystem(BaseTrader owner) {
 		
 		this.owner = owner;
 		assignments = new ArrayList<Assignment>();
 		completedAssignments = new ArrayList<Assignment>();
+		assignmentSet = new HashSet<Assignment>();
+		commodityIndex = new HashMap<Commodity, CommodityAssignments>();
+		orderIndex = new HashMap<Integer, Assignment>();
 		totalBuyAssigned = 0;
 		totalSellAssigned = 0;
 	}
@@ -107,11 +144,9 @@ public class OrderManagementSystem {
 	 * @return assignments
 	 */
 	public List<Assignment> getDemandAssignments(Commodity c) {
-		List<Assignment> demand = new ArrayList<Assignment>();
-		for(Assignment a: assignments) {
-			if(a.getCommodity()==c && a.isBuy()) demand.add(a);
-		}
-		return demand;
+		CommodityAssignments index = commodityIndex.get(c);
+		if(index==null) return new ArrayList<Assignment>();
+		return new ArrayList<Assignment>(index.demand);
 	}
 	
 	/**
@@ -120,16 +155,9 @@ public class OrderManagementSystem {
 	 * @return the total volume demanded for this commodity
 	 */		
 	public int getDemandVolume(Commodity c) {
-		List<Assignment> demand = getDemandAssignments(c);
-		if(demand!=null && demand.size()>0) {
-			int totalVol = 0;
-			for(Assignment d: demand) {
-				totalVol += d.getVolume();
-			}
-			return totalVol;
-		} else {
-			return 0;
-		}
+		CommodityAssignments index = commodityIndex.get(c);
+		if(index==null) return 0;
+		return index.demandVolume;
 	}
 	
 	/**
@@ -167,16 +195,9 @@ public class OrderManagementSystem {
 	 * @return the total volume supplied for this commodity
 	 */		
 	public int getSupplyVolume(Commodity c) {
-		List<Assignment> supply = getSupplyAssignments(c);
-		if(supply!=null && supply.size()>0) {
-			int totalVol = 0;
-			for(Assignment d: supply) {
-				totalVol += d.getVolume();
-			}
-			return totalVol;
-		} else {
-			return 0;
-		}
+		CommodityAssignments index = commodityIndex.get(c);
+		if(index==null) return 0;
+		return index.supplyVolume;
 	}
 	
 	/**
@@ -190,6 +211,7 @@ public class OrderManagementSystem {
 			for(Assignment d: demand) {
 				d.setCompleted();
 				assignments.remove(d);
+				unindex(d);
 				if(storeCompletedAssignments) completedAssignments.add(d);
 			}
 			return true;
@@ -216,11 +238,20 @@ public class OrderManagementSystem {
 	 * @return assignments
 	 */
 	public List<Assignment> getSupplyAssignments(Commodity c) {
-		List<Assignment> supply = new ArrayList<Assignment>();
-		for(Assignment a: assignments) {
-			if(a.getCommodity()==c && a.isSell()) supply.add(a);
-		}
-		return supply;
+		CommodityAssignments index = commodityIndex.get(c);
+		if(index==null) return new ArrayList<Assignment>();
+		return new ArrayList<Assignment>(index.supply);
+	}
+	
+	/**
+	 * Get the first current assignment (buy or sell) for a specific commodity, in the order assignments were added
+	 * @param c - the commodity
+	 * @return the assignment, or null if there are no current assignments for the commodity
+	 */
+	public Assignment getFirstAssignment(Commodity c) {
+		CommodityAssignments index = commodityIndex.get(c);
+		if(index==null || index.assignments.isEmpty()) return null;
+		return index.assignments.get(0);
 	}
 	
 	public List<Assignment> getCompletedAssignments() {
@@ -233,17 +264,13 @@ public class OrderManagementSystem {
 	 * Move completed assignments to the completed list
 	 */
 	public void performAdmin() {
-		List<Assignment> toRemove = new ArrayList<Assignment>();
-		for(Assignment a: assignments) {
+		Iterator<Assignment> it = assignments.iterator();
+		while(it.hasNext()) {
+			Assignment a = it.next();
 			if(a.isComplete()) {
-				toRemove.add(a);
-			}
-		}
-		for(Assignment a: toRemove) {
-			assignments.remove(a);
-			if(completedAssignments.contains(a)) {
-				logger.warn("completed assignments already contains assignment " + a);
-			} else {
+				it.remove();
+				unindex(a);
+				// assignments are only ever moved once, since they are no longer current once moved
 				if(storeCompletedAssignments) completedAssignments.add(a);
 			}
 		}
@@ -252,11 +279,12 @@ public class OrderManagementSystem {
 	public boolean add(Assignment a) {
 	
 		boolean successful = false;
-		if(assignments.contains(a)) {
+		if(assignmentSet.contains(a)) {
 			successful = false;
 			logger.debug("Can't add assignment: " + a + ". Already exists in oms: " + this);
 		} else {
 			assignments.add(a);
+			index(a);
 			logger.debug("Adding assignment: #" + a.getId() + ". oms is now: " + this);
 			successful = true;
 			if(a.isBuy()) totalBuyAssigned += a.getVolume();
@@ -275,7 +303,7 @@ public class OrderManagementSystem {
 		ArrayList<Order> orders;
 		
 		//check, do we already have this assignment?
-		if(assignments.contains(a)) {
+		if(assignmentSet.contains(a)) {
 			logger.debug("Cancelling assignment: " + a);
 			
 			//We first need to cancel all associated orders from the orderbook
@@ -287,6 +315,7 @@ public class OrderManagementSystem {
 			
 			logger.debug("Orders cancelled");			
 			assignments.remove(a);
+			unindex(a);
 			logger.debug("Assignment removed: " + this);
 			return true;
 		} else {
@@ -297,8 +326,9 @@ public class OrderManagementSystem {
 	
 	public boolean contains(Assignment a) {
 		
-		if(completedAssignments.contains(a)) logger.info("Assignment has been completed.");
-		return assignments.contains(a);
+		boolean current = assignmentSet.contains(a);
+		if(!current && a.isComplete()) logger.info("Assignment has been completed.");
+		return current;
 	}
 	
 	public List<Order> getOrders() {
@@ -320,15 +350,13 @@ public class OrderManagementSystem {
 	
 		boolean successful = false;
 	
-		for(Assignment a: assignments) {
-			if(a.getOrders().contains(order)) {
-				logger.debug("removing order " + order + " from assignment " + a);
-				a.deleteOrder(order);
-				logger.debug("assignment is now: " + a);
-				successful = true;
-			}
-		}
-		if(!successful) {
+		Assignment a = orderIndex.remove(order.getId());
+		if(a!=null) {
+			logger.debug("removing order " + order + " from assignment " + a);
+			a.deleteOrder(order);
+			logger.debug("assignment is now: " + a);
+			successful = true;
+		} else {
 			logger.warn("Order not owned by trader. Cannot delete. Order: " + order );
 		}
 		return successful;
@@ -343,18 +371,21 @@ public class OrderManagementSystem {
 
 		boolean successful = false;
 
-		for(Assignment a: assignments) {
-			if(a.contains(order)) {
-				logger.debug("Order " + order + " has executed from assignment " + a.getId());
-				a.orderExecutes(order);
-				logger.debug("Assignment updated: " + a);
-				successful = true;
+		Assignment a = orderIndex.remove(order.getId());
+		if(a!=null) {
+			logger.debug("Order " + order + " has executed from assignment " + a.getId());
+			if(a.orderExecutes(order)) volumeExecuted(a, order.getVolume());
+			logger.debug("Assignment updated: " + a);
+			successful = true;
+			if(a.isComplete()) {
+				// move the completed assignment to the completed list
+				assignments.remove(a);
+				unindex(a);
+				if(storeCompletedAssignments) completedAssignments.add(a);
 			}
-		}
-		if(!successful) {
+		} else {
 			logger.warn("Order unknown to OMS. Cannot delete. Order: " + order );
 		}
-		performAdmin();
 		return successful;	
 	}
 	
@@ -365,17 +396,80 @@ public class OrderManagementSystem {
 	 */
 	protected Assignment getAssignment(Order order) {
 		
-		Assignment ass = null;
-		boolean success = false;
+		Assignment ass = orderIndex.get(order.getId());
+		if(ass==null) logger.warn("Could not find assignment associated with order " + order + ". Returning null");
+		return ass;
+	}
+	
+	/**
+	 * Add an assignment and its orders to the indexes, and its volume to the 
+	 * commodity's incremental demand/supply schedule
+	 * @param a - the assignment
+	 */
+	protected void index(Assignment a) {
 		
-		for(Assignment a: assignments) {
-			if(a.contains(order)) {
-				ass = a;
-				success = true;
-			}
+		assignmentSet.add(a);
+		
+		CommodityAssignments index = commodityIndex.get(a.getCommodity());
+		if(index==null) {
+			index = new CommodityAssignments();
+			commodityIndex.put(a.getCommodity(), index);
 		}
-		if(!success) logger.warn("Could not find assignment associated with order " + order + ". Returning null");
-		return ass;
+		index.assignments.add(a);
+		index.get(a.getDirection()).add(a);
+		index.addVolume(a.getDirection(), a.getVolume());
+		
+		a.setOrderManagementSystem(this);
+		for(Order o: a.getOrders()) {
+			orderIndex.put(o.getId(), a);
+		}
+		
+		IncrementalSchedule.getSchedule(a.getCommodity()).add(a.getDirection(), a.getLimitPrice(), a.getVolume());
+	}
+	
+	/**
+	 * Remove an assignment and its orders from the indexes, and its remaining volume from the 
+	 * commodity's incremental demand/supply schedule
+	 * @param a - the assignment
+	 */
+	protected void unindex(Assignment a) {
+		
+		assignmentSet.remove(a);
+		
+		CommodityAssignments index = commodityIndex.get(a.getCommodity());
+		if(index!=null && index.get(a.getDirection()).remove(a)) {
+			index.assignments.remove(a);
+			index.addVolume(a.getDirection(), -a.getVolume());
+		}
+		
+		a.setOrderManagementSystem(null);
+		for(Order o: a.getOrders()) {
+			orderIndex.remove(o.getId());
+		}
+		
+		IncrementalSchedule.getSchedule(a.getCommodity()).remove(a.getDirection(), a.getLimitPrice(), a.getVolume());
+	}
+	
+	/**
+	 * Volume of a current assignment has executed
+	 * @param a - the assignment
+	 * @param volume - the volume executed
+	 */
+	protected void volumeExecuted(Assignment a, int volume) {
+		
+		CommodityAssignments index = commodityIndex.get(a.getCommodity());
+		if(index!=null) index.addVolume(a.getDirection(), -volume);
+		
+		IncrementalSchedule.getSchedule(a.getCommodity()).remove(a.getDirection(), a.getLimitPrice(), volume);
+	}
+	
+	/**
+	 * A new order has been added to a current assignment (see Assignment.newOrder())
+	 * @param o - the order
+	 * @param a - the assignment
+	 */
+	void orderAdded(Order o, Assignment a) {
+		orderIndex.put(o.getId(), a);
 	}
 	
 	public void clearCompletedAssignments() {
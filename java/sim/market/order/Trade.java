@@ -58,7 +58,7 @@ public class Trade {
 		trade_id=Trade.getNextTradeID();
 	}
 	
-	protected static int getNextTradeID() {
+	protected static synchronized int getNextTradeID() {
 		Trade.trade_id_counter++;
 		return Trade.trade_id_counter;
 	}
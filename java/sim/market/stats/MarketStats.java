@@ -61,12 +61,48 @@ public class MarketStats {
 			
 			sum += t.getVolume() * Math.pow(t.getPrice() - equilibriumPrice, 2); // volume weighted square of price difference
 		}
-		sum/=totalVolume; // divide by total volume
-		
-		double alpha = 100/equilibriumPrice * Math.sqrt(sum/totalVolume);
+		double alpha = getSmithsAlpha(sum, totalVolume, equilibriumPrice);
 
 		logger.info("P_0 = " + equilibriumPrice + " trades = " + trades);
 		logger.info("Alpha = " + alpha);
 		return alpha;
 	}
+	
+	/**
+	 * Calculate Smith's Alpha metric for the first n trades held in primitive arrays
+	 * 
+	 * @param prices - trade prices
+	 * @param volumes - trade volumes
+	 * @param n - number of trades
+	 * @param equilibriumPrice
+	 * @return Smith's Alpha (as a percentage of equilibrium price)
+	 */
+	public static double getSmithsAlpha(double[] prices, int[] volumes, int n, double equilibriumPrice) {
+		
+		double totalVolume = 0;
+		double sum = 0;
+		
+		for(int i=0; i<n; i++) {
+			totalVolume += volumes[i];
+			sum += volumes[i] * Math.pow(prices[i] - equilibriumPrice, 2);
+		}
+		double alpha = getSmithsAlpha(sum, totalVolume, equilibriumPrice);
+
+		logger.debug("P_0 = " + equilibriumPrice + " #trades = " + n);
+		logger.info("Alpha = " + alpha);
+		return alpha;
+	}
+	
+	/**
+	 * Calculate Smith's Alpha metric from running totals, so it can be maintained as trades arrive
+	 * 
+	 * @param sumSquaredDeviation - sum over trades of volume * (price - equilibriumPrice)^2
+	 * @param totalVolume - total volume traded
+	 * @param equilibriumPrice
+	 * @return Smith's Alpha (as a percentage of equilibrium price)
+	 */
+	public static double getSmithsAlpha(double sumSquaredDeviation, double totalVolume, double equilibriumPrice) {
+		double sum = sumSquaredDeviation/totalVolume; // divide by total volume
+		return 100/equilibriumPrice * Math.sqrt(sum/totalVolume);
+	}
 }
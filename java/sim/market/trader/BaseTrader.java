@@ -91,7 +91,7 @@ public abstract class BaseTrader implements Observer, Comparable<BaseTrader>{
 		this.prng = prng;
 	}
 	
-	protected static int getNextID() {
+	protected static synchronized int getNextID() {
 		BaseTrader.id_counter++;
 		return BaseTrader.id_counter;
 	}
@@ -377,21 +377,47 @@ public abstract class BaseTrader implements Observer, Comparable<BaseTrader>{
 		if(oms.getAssignments().size()>0) {
 			Assignment a = oms.getAssignments().get(0);
 			logger.debug("Attempting to trade first assignment in list: " + a);
-			if(a.isBuy() && retailMarket) {
-				logger.info("Assignment is a buy [limit=" + a.getLimitPrice() +"], Retail Market => keeping quiet, not generating order...");
-			} else {
-				generateOrder(a);
-				
-				if(executeOrKill) {
-					logger.debug("Trader set to 'executeOrKill', so cancelling orders that have not executed.");
-					a.cancelOrders();
-				}
-			}
+			trade(a, retailMarket);
 		} else {
 			logger.debug("Trader has no assignments to trade.");
 		}
 	}
 	
+	/**
+	 * Push the trader to attempt to trade any assignments they have for commodity c. 
+	 * 
+	 * Used when the trader holds orders on several order books: only the book for commodity c is touched.
+	 * 
+	 * @param c - the commodity to trade
+	 * @param retailMarket - if true, buyers do not enter orders into book.
+	 */
+	public void trade(Commodity c, boolean retailMarket) {
+		logger.debug("Trader attempting to trade " + c.getName() + "...");
+		Assignment a = oms.getFirstAssignment(c);
+		if(a!=null) {
+			logger.debug("Attempting to trade first " + c.getName() + " assignment in list: " + a);
+			trade(a, retailMarket);
+		} else {
+			logger.debug("Trader has no " + c.getName() + " assignments to trade.");
+		}
+	}
+	
+	/**
+	 * Generate an order for assignment a (unless a is a buy in a retail market)
+	 */
+	protected void trade(Assignment a, boolean retailMarket) {
+		if(a.isBuy() && retailMarket) {
+			logger.info("Assignment is a buy [limit=" + a.getLimitPrice() +"], Retail Market => keeping quiet, not generating order...");
+		} else {
+			generateOrder(a);
+			
+			if(executeOrKill) {
+				logger.debug("Trader set to 'executeOrKill', so cancelling orders that have not executed.");
+				a.cancelOrders();
+			}
+		}
+	}
+	
 	@Override
 	public String toString() {
 		return "\nTrader [#" + id + ", " + name + ", bought=" + stockBought + ", sold=" + stockSold + ", stock="
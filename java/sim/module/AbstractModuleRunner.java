@@ -35,10 +35,17 @@ package sim.module;
 
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Observable;
 import java.util.Observer;
 
@@ -61,27 +68,40 @@ import sim.physical.World;
 /**
  * WARNING: When creating a concrete sub-class of AbstractModuleRunner, don't forget to
  * add the ConcreteModuleRunner instance to the AbstractModuleRunner.moduleRunners array 
+ * 
+ * ConcreteModuleRunner singletons belong to the current SimulationContext, so getInstance() 
+ * must look up (and register) the instance in SimulationContext.getCurrent()
  */
-public abstract class AbstractModuleRunner implements WorldListener, Observer{
+public abstract class AbstractModuleRunner implements WorldListener, Observer, Serializable{
+
+	private static final long serialVersionUID = 1L;
 
 	//Extend this class for each Module using Singleton ConcreteModuleRunner.
 	
-	private static AbstractModuleRunner[] moduleRunners = new AbstractModuleRunner[] {
+	/**
+	 * @return the module runners of the current simulation context
+	 */
+	private static AbstractModuleRunner[] moduleRunners() {
+		return new AbstractModuleRunner[] {
 		
-		//All Concrete subclasses of AbstractModuleRunner must be added to array, below...
-		FailureModuleRunner.getInstance(),       //Failure
-		SubscriptionsModuleRunner.getInstance(), //Subscriptions
-		ThermalModuleRunner.getInstance(),	     //Thermal
-		ServiceModuleRunner.getInstance(),       //Service
-		CostsModuleRunner.getInstance(),         //Costs
-		BrokerModuleRunner.getInstance(),        //Broker
-		PricingModuleRunner.getInstance(),
-		LogModuleRunner.getInstance(),           //Logging
-		ReplacementsModuleRunner.getInstance()	 //Replacements
-	};
+			//All Concrete subclasses of AbstractModuleRunner must be added to array, below...
+			FailureModuleRunner.getInstance(),       //Failure
+			SubscriptionsModuleRunner.getInstance(), //Subscriptions
+			ThermalModuleRunner.getInstance(),	     //Thermal
+			ServiceModuleRunner.getInstance(),       //Service
+			CostsModuleRunner.getInstance(),         //Costs
+			BrokerModuleRunner.getInstance(),        //Broker
+			PricingModuleRunner.getInstance(),
+			LogModuleRunner.getInstance(),           //Logging
+			ReplacementsModuleRunner.getInstance()	 //Replacements
+		};
+	}
 	
 	/** Results logs for the module*/
-    protected ArrayList<BufferedWriter> resultsLogs;
+    protected transient ArrayList<BufferedWriter> resultsLogs;
+    
+    /** Names of the results log files (used to reopen the logs when a checkpoint is resumed) */
+    protected ArrayList<String> resultsLogFileNames = new ArrayList<String>();
 	
     public static Logger logger = Logger.getLogger(AbstractModuleRunner.class);
  
@@ -97,7 +117,7 @@ public abstract class AbstractModuleRunner implements WorldListener, Observer{
 		
 		List<WorldListener> listeners = new ArrayList<WorldListener>();
 
-		for(WorldListener module: moduleRunners) {
+		for(WorldListener module: moduleRunners()) {
 			listeners.add(module);
 		}
 		return listeners;
@@ -110,7 +130,7 @@ public abstract class AbstractModuleRunner implements WorldListener, Observer{
 	 */
 	public static List<AbstractModuleRunner> getModuleRunners() {
 		List<AbstractModuleRunner> modulesList = new ArrayList<AbstractModuleRunner>();
-		for(AbstractModuleRunner m: moduleRunners) {
+		for(AbstractModuleRunner m: moduleRunners()) {
 			modulesList.add(m);
 		}
 		return modulesList;
@@ -157,6 +177,7 @@ public abstract class AbstractModuleRunner implements WorldListener, Observer{
 	public void initLogs(String dirName) {
 		
 		resultsLogs = new ArrayList<BufferedWriter>();
+		resultsLogFileNames = new ArrayList<String>();
 		
 		try {
 			//Create a log for each datacentre
@@ -169,6 +190,7 @@ public abstract class AbstractModuleRunner implements WorldListener, Observer{
 		        try
 		        {
 		            resultsLogs.add(new BufferedWriter(new FileWriter(file)));
+		            resultsLogFileNames.add(fileName);
 		            writeLogColumnHeaders(resultsLogs.get(i));
 		            logger.info("Created new results log: '" + fileName + "'");
 		        } catch (IOException e)
@@ -181,6 +203,104 @@ public abstract class AbstractModuleRunner implements WorldListener, Observer{
 		}
 	}
 	
+	/**
+	 * @return the names of the results log files of the module (empty if the logs have not been initialised)
+	 */
+	public List<String> getLogFileNames() {
+		return resultsLogFileNames;
+	}
+	
+	/**
+	 * Reopen the results log files after the module has been restored from a checkpoint.
+	 * 
+	 * Each file is cut back to its length when the checkpoint was taken (discarding anything logged
+	 * after it), and further logs are appended.
+	 * 
+	 * @param logLengths - the length of each log file when the checkpoint was taken, by file name
+	 */
+	public void resumeLogs(Map<String, Long> logLengths) throws IOException {
+		
+		resultsLogs = new ArrayList<BufferedWriter>();
+		
+		for(String fileName: resultsLogFileNames) {
+			Long length = logLengths.get(fileName);
+			if(length == null) {
+				throw new IOException("No length recorded for results log '" + fileName + "'");
+			}
+			RandomAccessFile file = new RandomAccessFile(fileName, "rw");
+			try {
+				file.setLength(length);
+			} finally {
+				file.close();
+			}
+			resultsLogs.add(new BufferedWriter(new FileWriter(fileName, true)));
+			logger.info("Reopened results log: '" + fileName + "' at " + length + " bytes");
+		}
+	}
+
+	/**
+	 * Start new results log files for a simulation forked from a checkpoint.
+	 *
+	 * Each log is copied, up to its length when the checkpoint was taken, to a file of the same
+	 * name in the fork's results directory, and further logs are appended to the copy.  The
+	 * original logs are left unchanged, so several forks can be made from the same checkpoint.
+	 *
+	 * @param fromPrefix - the log file prefix of the simulation the checkpoint was taken from
+	 * @param toPrefix - the log file prefix of the fork
+	 * @param logLengths - the length of each log file when the checkpoint was taken, by file name
+	 */
+	public void forkLogs(String fromPrefix, String toPrefix, Map<String, Long> logLengths) throws IOException {
+
+		ArrayList<String> forkedFileNames = new ArrayList<String>();
+		Map<String, Long> forkedLengths = new HashMap<String, Long>();
+
+		for(String fileName: resultsLogFileNames) {
+			Long length = logLengths.get(fileName);
+			if(length == null) {
+				throw new IOException("No length recorded for results log '" + fileName + "'");
+			}
+			if(!fileName.startsWith(fromPrefix)) {
+				throw new IOException("Results log '" + fileName + "' does not start with '" + fromPrefix + "'");
+			}
+			String forkedFileName = toPrefix + fileName.substring(fromPrefix.length());
+
+			FileInputStream in = new FileInputStream(fileName);
+			FileOutputStream out = new FileOutputStream(forkedFileName);
+			try {
+				FileChannel from = in.getChannel();
+				long position = 0;
+				while(position < length) {
+					long copied = from.transferTo(position, length - position, out.getChannel());
+					if(copied <= 0) {
+						throw new IOException("Results log '" + fileName + "' is shorter than " + length + " bytes");
+					}
+					position += copied;
+				}
+			} finally {
+				in.close();
+				out.close();
+			}
+
+			forkedFileNames.add(forkedFileName);
+			forkedLengths.put(forkedFileName, length);
+			logger.info("Forked results log: '" + fileName + "' -> '" + forkedFileName + "'");
+		}
+
+		resultsLogFileNames = forkedFileNames;
+		resumeLogs(forkedLengths);
+	}
+
+	/**
+	 * Called when a simulation is forked from a checkpoint, after its state has been restored
+	 * and the fork's module settings loaded.
+	 *
+	 * Most modules read their settings as they need them, so carry on with the fork's settings
+	 * without further work.  Modules that copy settings when the world is built should override
+	 * this to apply any settings that differ in the fork.  Default: does nothing.
+	 */
+	public void forked() {
+	}
+
 	/** Get the column title string for the log files for this module runner */
 	protected abstract String getLogTitleString();
 	
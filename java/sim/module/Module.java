@@ -39,6 +39,7 @@ import java.util.List;
 import org.apache.log4j.Logger;
 import org.jdom.Element;
 
+import sim.SimulationContext;
 import sim.module.broker.configparams.BrokerModuleConfigParams;
 import sim.module.configparams.ModuleParamsInterface;
 import sim.module.costs.configparams.CostsModuleConfigParams;
@@ -73,18 +74,18 @@ public enum Module {
 	BROKER_MODULE("Broker", "BROKER_MODULE", true, false, BrokerModuleConfigParams.getDefault()),
 	PRICING_MODULE("Pricing", "PRICING_MODULE", true, false, PricingModuleConfigParams.getDefault()),
 	COSTS_MODULE("Costs", "COSTS_MODULE", true, true, CostsModuleConfigParams.getDefault()),
-	DEMAND_MODULE("Demand", "DEMAND_MODULE", false, true, DemandModuleConfigParams.getDefault(), DemandModuleRunner.getInstance()),
+	DEMAND_MODULE("Demand", "DEMAND_MODULE", false, true, DemandModuleConfigParams.getDefault(), DemandModuleRunner.class),
 	EVENTS_MODULE("Events", "EVENTS_MODULE", true, true, EventsModuleConfigParams.getDefault()),
-	FAILURE_MODULE("Failures", "FAILURE_MODULE", true, true, FailureModuleConfigParams.getDefault(), FailureModuleRunner.getInstance()),
+	FAILURE_MODULE("Failures", "FAILURE_MODULE", true, true, FailureModuleConfigParams.getDefault(), FailureModuleRunner.class),
 	GUI_MODULE("GUI", "GUI_MODULE", false, true, "gui"), 
 	LOG_MODULE("Log", "LOG_MODULE", false, true, "log"), 
 //	NETWORK_MODULE("Network Traffic", "NETWORK_MODULE", true, false, "networkTraffic"),
 //	POWER_MODULE("Power Usage", "POWER_MODULE", true, false, "powerUsage"),
 	REPLACEMENTS_MODULE("Replacements", "REPLACEMENTS_MODULE", true, false, ReplacementModuleConfigParams.getDefault()),
-	SERVICE_MODULE("Services", "SERVICE_MODULE", true, true, ServiceModuleConfigParams.getDefault(), ServiceModuleRunner.getInstance()),
+	SERVICE_MODULE("Services", "SERVICE_MODULE", true, true, ServiceModuleConfigParams.getDefault(), ServiceModuleRunner.class),
 	SIM_MODULE("Simulation", "SIM_MODULE", true, true, SimModuleConfigParams.getDefault()),
-	SUBSCRIPTION_MODULE("Subscriptions", "SUBSCRIPTION_MODULE", true, true, SubscriptionsModuleConfigParams.getDefault(), SubscriptionsModuleRunner.getInstance()),
-	THERMAL_MODULE("Thermal", "THERMAL_MODULE", true, true, ThermalModuleConfigParams.getDefault(), ThermalModuleRunner.getInstance()),
+	SUBSCRIPTION_MODULE("Subscriptions", "SUBSCRIPTION_MODULE", true, true, SubscriptionsModuleConfigParams.getDefault(), SubscriptionsModuleRunner.class),
+	THERMAL_MODULE("Thermal", "THERMAL_MODULE", true, true, ThermalModuleConfigParams.getDefault(), ThermalModuleRunner.class),
 	USER_EVENTS_MODULE("User Events", "USER_EVENTS_MODULE", true, true, UserEventsModuleConfigParams.getDefault())
 	; 
 	
@@ -99,7 +100,7 @@ public enum Module {
 	private boolean status; //true = on, false = off
 	
 	private ModuleParamsInterface params = null;
-	private AbstractModuleRunner runner = null; //the module runner associated with the module
+	private Class<? extends AbstractModuleRunner> runnerClass = null; //the module runner associated with the module
 	
 	/**
 	 * Constructor for Enum Class
@@ -153,11 +154,11 @@ public enum Module {
 	 * @param defaultOn - default setting of module. If true, module is set on - if false set off
 	 */
 	private Module(String humanReadableDescription, String nameString, boolean userEditable, 
-			boolean defaultOn, ModuleParamsInterface params, AbstractModuleRunner runner) {
+			boolean defaultOn, ModuleParamsInterface params, Class<? extends AbstractModuleRunner> runnerClass) {
 		this(humanReadableDescription, nameString, userEditable, defaultOn);
 		this.params = params;
 		this.XMLElementNameString = params.getXMLElementNameString();
-		this.runner = runner;
+		this.runnerClass = runnerClass;
 	}
 	
 	/**
@@ -180,9 +181,9 @@ public enum Module {
 				
 				m.setActive(Boolean.parseBoolean(e.getAttribute("on").getValue()));
 				
-				if(m.params!=null) {
+				if(m.getParams()!=null) {
 					Element configElement = e.getChild(ModuleParamsInterface.XML_ELEMENT_NAME_STRING);
-					m.params.updateUsingXML(configElement);
+					m.getParams().updateUsingXML(configElement);
 				} else {
 					//do nothing - there are no more config parameters
 				}
@@ -224,8 +225,9 @@ public enum Module {
 		Element e = new Element(this.XMLElementNameString);
 		
 		//Set "on" attribute (required)
-		e.setAttribute("on", String.valueOf(status));
+		e.setAttribute("on", String.valueOf(isActive()));
 	
+		ModuleParamsInterface params = getParams();
 		if(params!=null) {
 			logger.info("Config params = " + params);
 			Element child = params.getXML();
@@ -264,35 +266,51 @@ public enum Module {
 	}
 
 	public String getFullDescriptionString() {
-		String s = nameString + ": on = " + (status);
-		s+= ", params = " + params;
+		String s = nameString + ": on = " + isActive();
+		s+= ", params = " + getParams();
 		return s;
 	}
 	
+	/**
+	 * Is the module on in the current simulation context?
+	 */
 	public boolean isActive() {
-		return status;
+		Boolean contextStatus = SimulationContext.getCurrent().getModuleStatus(this);
+		return (contextStatus != null) ? contextStatus : status;
 	}
 	
+	/**
+	 * Switch the module on or off in the current simulation context
+	 */
 	public void setActive(boolean status) {
-		this.status = status;
+		if(!SimulationContext.getCurrent().setModuleStatus(this, status)) {
+			this.status = status;
+		}
 	}
 
 	/**
-	 * Get the config params for the module
+	 * Get the config params for the module in the current simulation context
 	 * 
 	 * @return the module params
 	 */
 	public ModuleParamsInterface getParams() {
-		return params;
+		ModuleParamsInterface contextParams = SimulationContext.getCurrent().getModuleParams(this);
+		return (contextParams != null) ? contextParams : params;
 	}
 	
 	/**
-	 * Get the ModuleRunner associated with the Module...
+	 * Get the ModuleRunner associated with the Module (in the current simulation context)...
 	 * 
-	 * @return AbstactModuleRunner
+	 * @return AbstactModuleRunner, or null if the module has no runner
 	 */
 	public AbstractModuleRunner getModuleRunner() {
-		return runner;
+		if(runnerClass == null) return null;
+		try {
+			return (AbstractModuleRunner) runnerClass.getMethod("getInstance").invoke(null);
+		} catch (Exception e) {
+			logger.error("Cannot get module runner " + runnerClass.getSimpleName() + ": " + e);
+			return null;
+		}
 	}
 	
 	/**
@@ -300,7 +318,7 @@ public enum Module {
 	 * @param params - the config parameters
 	 */
 	public void setParams(ModuleParamsInterface params) {
-		this.params.clone(params); //Must clone otherwise parameters are not copied
+		getParams().clone(params); //Must clone otherwise parameters are not copied
 	}
 
 	/**
@@ -34,29 +34,33 @@
 package sim.module.broker;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Observable;
+import java.util.Random;
 
 import org.apache.log4j.Logger;
 
+import sim.SimulationContext;
 import sim.module.AbstractModuleRunner;
 import sim.module.Module;
 import sim.module.broker.bo.BrokerAgent;
 import sim.module.broker.bo.UserAgent;
+import sim.module.broker.bo.UserPopulation;
 import sim.module.broker.configparams.BrokerModuleConfigParams;
 import sim.module.broker.event.MarketShockEvent;
 import sim.module.demand.bo.Demand;
 import sim.module.event.EventQueue;
 import sim.module.service.ServiceModuleRunner;
 import sim.physical.World;
-import sim.probability.RandomSingleton;
+import sim.probability.SamplingService;
 import utility.time.TimeManager;
 
 public class BrokerModuleRunner extends AbstractModuleRunner {
 	
-	private static BrokerModuleRunner instance = null;
 	public static Logger logger = Logger.getLogger(BrokerModuleRunner.class);
+
+	private static final long serialVersionUID = 1L;
 	private static int counter = 0;
 	
 	int NUM_OF_AGENTS;
@@ -66,7 +70,8 @@ public class BrokerModuleRunner extends AbstractModuleRunner {
 	private int totalMonths = 277; //Note: This is number of months (i.e., rows) in the demand file. 
 	private int currentMonth;
 	
-	private List<UserAgent> userAgents;
+	private UserPopulation users;
+	private int[] userPermutation; // reused by chooseUsers()
     private BrokerAgent broker;
     private List<Demand> demandList;
     
@@ -79,8 +84,11 @@ public class BrokerModuleRunner extends AbstractModuleRunner {
 	}
 	
 	public static BrokerModuleRunner getInstance() {
-		if (instance == null) {
+		BrokerModuleRunner instance = SimulationContext.getCurrent().getSingleton(BrokerModuleRunner.class);
+		if (instance == null)
+        {
             instance = new BrokerModuleRunner();
+            SimulationContext.getCurrent().setSingleton(BrokerModuleRunner.class, instance);
         }
         return instance;
 	}
@@ -100,7 +108,7 @@ public class BrokerModuleRunner extends AbstractModuleRunner {
 			logger.info("Broker module is on...");
 			
 			currentMonth = -1;
-		    userAgents = new ArrayList<UserAgent>();
+		    users = null;
 		    demandList = new ArrayList<Demand>();
 		    broker = new BrokerAgent("Broker_1");  
 		    
@@ -123,22 +131,26 @@ public class BrokerModuleRunner extends AbstractModuleRunner {
 		}
 	}
 	
-    public List<UserAgent> getUserAgents() {
-    	if (userAgents==null) {
-    		logger.info("UserAgents List is null, creating new ...");
-    		userAgents = new ArrayList<UserAgent>();
+    /**
+     * Create the population of users: NUM_OF_EACH_USER users for each of NUM_OF_AGENTS demand profiles
+     * @return the new population
+     */
+    public UserPopulation createUserPopulation() {
+    	users = new UserPopulation(NUM_OF_AGENTS, NUM_OF_EACH_USER, getSimulationLength());
+    	return users;
+    }
+    
+    public UserPopulation getUserPopulation() {
+    	if (users==null) {
+    		logger.info("UserPopulation is null, creating new ...");
+    		createUserPopulation();
     	}
     	
-    	return userAgents; 
+    	return users; 
     }
     
     public UserAgent getAgent(int idx) {
-    	if (userAgents==null) {
-    		logger.info("UserAgents List is null, creating new ...");
-    		userAgents = new ArrayList<UserAgent>();
-    	}
-    	
-    	return userAgents.get(idx);
+    	return getUserPopulation().getAgent(idx);
     }
     
     public BrokerAgent getBroker() {
@@ -215,12 +227,37 @@ public class BrokerModuleRunner extends AbstractModuleRunner {
     
 	public List<Integer> getChosen(int numToPick) {
 		List<Integer> userList = new ArrayList<Integer>();
-		for (int i = 0; i < NUM_OF_EACH_USER; i++) {
+		for (int i : chooseUsers(numToPick)) {
 			userList.add(i);
 		}
-		Collections.shuffle(userList, RandomSingleton.getInstance().getJavaUtilRandom());
+		return userList;
+	}
+	
+	/**
+	 * Choose numToPick users (of NUM_OF_EACH_USER) at random, without replacement.
+	 * 
+	 * Uses the same random draws as Collections.shuffle() of the list of users, without boxing.
+	 * 
+	 * @param numToPick - number of users to choose
+	 * @return indices (within a profile) of the chosen users
+	 */
+	public int[] chooseUsers(int numToPick) {
+		if (userPermutation==null || userPermutation.length!=NUM_OF_EACH_USER) {
+			userPermutation = new int[NUM_OF_EACH_USER];
+		}
+		int[] perm = userPermutation;
+		for (int i = 0; i < perm.length; i++) {
+			perm[i] = i;
+		}
+		Random rnd = SamplingService.getInstance().getJavaUtilRandom(Module.BROKER_MODULE);
+		for (int i = perm.length; i > 1; i--) {
+			int j = rnd.nextInt(i);
+			int tmp = perm[i-1];
+			perm[i-1] = perm[j];
+			perm[j] = tmp;
+		}
 		
-		return userList.subList(0, numToPick);
+		return Arrays.copyOf(perm, numToPick);
 	}
 
 	@Override
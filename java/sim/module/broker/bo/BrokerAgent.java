@@ -33,12 +33,12 @@
  */
 package sim.module.broker.bo;
 
+import java.io.Serializable;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
-import org.apache.commons.math3.stat.regression.SimpleRegression;
 import org.apache.log4j.Logger;
 
 import sim.event.StopSimEvent;
@@ -62,9 +62,11 @@ import sim.physical.Datacentre;
 import sim.physical.World;
 import utility.time.TimeManager;
 
-public class BrokerAgent {
+public class BrokerAgent implements Serializable {
 	public static Logger logger = Logger.getLogger(BrokerAgent.class);
 	
+	private static final long serialVersionUID = 1L;
+	
 	DecimalFormat format = new DecimalFormat("#.###");
 	boolean firstReservation = true; 
 	
@@ -95,9 +97,10 @@ public class BrokerAgent {
 	//private int reservationMonths; //reserved instance length in months
 	private ReservationPeriod reservationPeriod; //reserved instance reservation period
 	
-	private List<Double> previousDemand;
-	private List<Integer> futureCapacity;
-	private List<Integer> freeReservations;
+	/** Demand history and forecasting */
+	private DemandForecastEngine forecastEngine;
+	private int[] futureCapacity;
+	private int[] freeReservations;
 	/**
 	 * Purchase history (per month) of reservations
 	 */
@@ -105,6 +108,8 @@ public class BrokerAgent {
 	
 	private double yearlyProbability;
 	private int yearlyReservationsMade;
+	/** Reservations each forecaster would have made this year (at the same thresholds), indexed by DemandForecaster ordinal */
+	private int[] yearlyReservationsByForecaster;
 	private int yearlyReservationsRequired;
 	private int yearlyOnDemand;
 	
@@ -261,9 +266,6 @@ public class BrokerAgent {
 		this.delta = 0.0;
 		this.previousThresholds = new ArrayList<Double>();
 		previousThresholds.add(mruThreshold);
-		this.previousDemand = new ArrayList<Double>();
-		this.futureCapacity = new ArrayList<Integer>();
-		this.freeReservations = new ArrayList<Integer>();
 		this.reservationPurchases = new ArrayList<Integer>(); // history of reservation purchases
 		this.yearlyReservationsRequired = 0;
 		this.yearlyOnDemand = 0;
@@ -271,10 +273,14 @@ public class BrokerAgent {
 		this.demandCounter = 0;
 		this.reservationPeriod = ((BrokerModuleConfigParams) Module.BROKER_MODULE.getParams()).getReservationPeriod();
 		this.learningPeriod = reservationPeriod.getMonths();
-		for (int i = 0; i < BrokerModuleRunner.getInstance().getSimulationLength() + learningPeriod; i++) {
-			previousDemand.add(0.0);
-			futureCapacity.add(0);
-			freeReservations.add(0);
+		int historyLength = BrokerModuleRunner.getInstance().getSimulationLength() + learningPeriod;
+		// every forecaster is evaluated each month, each on its own thread
+		this.forecastEngine = new DemandForecastEngine(historyLength, learningPeriod, BrokerModuleRunner.getInstance().getNumEachAgent(), 
+				DemandForecaster.values().length);
+		this.yearlyReservationsByForecaster = new int[DemandForecaster.values().length];
+		this.futureCapacity = new int[historyLength];
+		this.freeReservations = new int[historyLength];
+		for (int i = 0; i < historyLength; i++) {
 			reservationPurchases.add(0);
 		}
 		
@@ -328,182 +334,59 @@ public class BrokerAgent {
 		
 //		int numEachAgent = BrokerModuleRunner.getInstance().getNumEachAgent();
 		totalProbability = 0.0;
-		for (UserAgent user: BrokerModuleRunner.getInstance().getUserAgents()) {
-			double p = user.getReservation();
-			double fee = costFactor * (k * Math.pow(p, 2) / 2);
-			user.debit(fee);
-			balance += fee;
-			totalProbability += p;
+		UserPopulation users = BrokerModuleRunner.getInstance().getUserPopulation();
+		double[] probabilities = new double[users.getNumEachUser()];
+		for (int profile = 0; profile < users.getNumProfiles(); profile++) {
+			users.getReservations(profile, month, probabilities);
+			for (int i = 0; i < probabilities.length; i++) {
+				double p = probabilities[i];
+				double fee = costFactor * (k * Math.pow(p, 2) / 2);
+				users.debit(users.getUserIndex(profile, i), fee);
+				balance += fee;
+				totalProbability += p;
+			}
 		}
 		yearlyProbability += totalProbability;
 		
 		int numHedge = (int)Math.round(totalProbability);
-		int reservationsMade = 0;
 		
 		if (ADAPT && month >= learningPeriod) {
 			determineAggressiveness(month, numHedge);
-			adaptThreshold(numHedge, freeReservations.get(month + 1));
+			adaptThreshold(numHedge, freeReservations[month + 1]);
 			previousThresholds.add(mruThreshold);
 		}
 		
-		// Calculate future demand forecasts...
-		List<Double> forecastDemand = new ArrayList<Double>();
-		if(month >= learningPeriod-1) { 
-			//Get forecast of future demand...
-			
-			// get recent historic demand (last 36 months, including this month) subList(from index inclusive, to index exclusive)
-			List<Double> historicDemand = previousDemand.subList(month-learningPeriod+1, month+1); //NOTE: The PLUS 1 is very important!!!
-			
-			// Now forecast future demand using historic demand data...
-			switch(demandForecaster) {
-
-			case REGRESSION_DEMAND_FORECASTER:
-			{
-				// TODO WARNING: REGRESSION_DEMAND_FORECASTER currently only allows 36 months historic demand, so hard code this value
-				historicDemand = previousDemand.subList(month-36+1, month+1); //NOTE: The PLUS 1 is very important!!!
-				forecastDemand = getForecastDemandUsingLinearRegression(historicDemand);
-				break;
-			}
-			case ROGERS_AND_CLIFF_2012_DEMAND_FORECASTER:
-			{
-				forecastDemand = getForecastDemandUsingRogersAndCliff2012(historicDemand);
-				break;
-			}
-			default:
-			{
-				// we should *never* get here, unless there are demand forecasters in the enumeration that we haven't caught in the switch statement
-				logger.fatal("We have an unknown Demand Forecaster: " + demandForecaster + ". Exiting system.");
-				System.exit(-1);
-				break; //redundant
-			}
-			}
-
-			logger.debug("Future capacity = " + futureCapacity.subList(month+1, month+1+learningPeriod));
+		if(month >= learningPeriod-1 && logger.isDebugEnabled()) {
+			logger.debug("Future capacity = " + Arrays.toString(Arrays.copyOfRange(futureCapacity, month+1, month+1+learningPeriod)));
 		}
 		
 		/**
 		 * This is the implementation of the Reservations Hedging algorithm 2, presented in:
 		 *  P J Clamp (2013) "Pricing the cloud", masters thesis, page 26.
+		 *  
+		 * If implement_deficit_bug, 'deficit' is calculated using future capacity (i.e., reservations already owned), 
+		 * otherwise using freeReservations (i.e., including reservations that we intend to purchase).
+		 * 
+		 * If implement_reservations_bug, buying a reservation increments *next* month's free reservations, 
+		 * which will be 'swallowed' by the next unit of demand (and hence we 'allocate it twice'). Phil Clamp's 
+		 * (2013, page 33) masters thesis suggests this is a bug in Rogers & Cliff (2012) implementation. The correct 
+		 * way only adds to free reservations from 2 months time, since we already know next month's will be used.
+		 * 
+		 * Demand is forecast from recent historic demand (including this month). Every forecaster is evaluated 
+		 * (in parallel) at the current threshold, for comparison; the broker hedges using its own forecaster.
 		 */
 		logger.info("Total number to hedge = " + numHedge);
+		logger.info("Free reservations next month = " + freeReservations[month + 1]);
 		
-	
-		// Do we have enough free reservations to cover demand?
-		if(numHedge <= freeReservations.get(month + 1)) {
-			// we have enough free reservations to cover demand, do nothing...
-			logger.info("NumHedge = " + numHedge + " can be covered by free reservations = " + freeReservations.get(month + 1) + " so not reserving any more...");
-		} else {
-			// we do not have enough free reservations to cover demand, so decide whether we need to reserve new instances...
-			
-			//firstly, fill up all free reservations...
-			logger.info("Free reservations next month = " + freeReservations.get(month + 1) + ", using these for hedging...");
-			numHedge -= freeReservations.get(month + 1);
-			freeReservations.set(month + 1, 0);
-			
-			for (int i = 0; i < numHedge; i++) {
-				logger.debug("Hedging " + i + "/" + numHedge);
-				logger.debug("Free reservations \t= " + freeReservations.subList(month+1, month+1+learningPeriod));
-				logger.debug("Future capacity   \t= " + futureCapacity.subList(month+1, month+1+learningPeriod));
-				if (freeReservations.get(month + 1) >= 1) {
-					logger.debug("Free reservations next month = " + freeReservations.get(month + 1));
-					freeReservations.set(month + 1, freeReservations.get(month + 1) - 1);
-					logger.debug("Using one of next months free reservations for current demand unit. Now free reservations next month = " + freeReservations.get(month + 1));
-				} else {
-					logger.debug("Free reservations next month = " + freeReservations.get(month + 1));
-					double mru = 0.0;
-					if (month >= learningPeriod-1) {
-						
-						// Calculate expected monthly deficits using a demand forecast... 
-						
-						int monthsDeficit = 0;
-						
-						if(implement_deficit_bug) {
-							
-							// Rogers & Cliff (2012) Calculate 'deficit' using future capacity (i.e., reservations already owned)...
-							monthsDeficit = this.getMonthsWithForecastDeficit(forecastDemand, futureCapacity.subList(month+1, month+1+learningPeriod));						
-							logger.debug("MRU using capacity (the 'deficit bug') = " + monthsDeficit/(double)learningPeriod);
-						} else {
-	
-							// The new way - calculate 'deficit' using freeReservations array rather than capacity, (i.e., include reservations that we intend to purchase)...
-							monthsDeficit = this.getMonthsWithForecastDeficit(forecastDemand, freeReservations.subList(month+1, month+1+learningPeriod));
-							logger.debug("MRU using freeReservations      = " + monthsDeficit / (double)learningPeriod);
-						}
-	
-						mru = monthsDeficit / (double)learningPeriod;
-						
-	
-	//					//THE OLD LOGIC -- TODO REMOVE
-	//					int monthsDeficit = 0;
-	//					if (use_RC_2012_demand_forecast) {
-	//
-	//						// Use Rogers & Cliff (2012) method, such that: 
-	//						// Forecast_demand(month t) - Actual_demand(month t-36)
-	//						for (int j = month - learningPeriod + 1; j < month + 1; j++) {
-	//							int deficit = (int)(numEachAgent * previousDemand.get(j)) - futureCapacity.get(j + learningPeriod);
-	//							if (deficit > 0) {
-	//								monthsDeficit++;
-	//							}
-	//						}
-	//						logger.info("Old way: deficit = " + monthsDeficit);
-	//						
-	//						if(monthsDeficit != this.getMonthsWithForecastDefecit(forecastDemand, futureCapacity.subList(month+1, month+1+learningPeriod))) {
-	//							logger.error("Old way different answer to new way!");
-	//							logger.error("New way answer = " + this.getMonthsWithForecastDefecit(forecastDemand, futureCapacity.subList(month+1, month+1+learningPeriod)));
-	//							System.exit(-1);
-	//						}
-	//						monthsDeficit = this.getMonthsWithForecastDefecit(forecastDemand, futureCapacity.subList(month+1, month+1+learningPeriod));
-	//						logger.info("New way: deficit = " + monthsDeficit);
-	//						
-	//						
-	//						mru = monthsDeficit / (double)learningPeriod;
-	//						
-	//					} else {
-	//						// Use linear regression for trend forecast...
-	//						//TODO monthsDeficit = getForecastDeficitUsingLinearRegression();
-	//					}
-					}
-					if (mru > mruThreshold) {
-						reservationsMade += 1;
-						logger.debug("Reservations made is now = " + reservationsMade);
-						
-						if(implement_reservations_bug) { //the 'buggy' implementation of Rogers & CLiff (2012)
-							for (int k = month + 1; k < month + learningPeriod + 1; k++) { 
-								//This is the bug... since k = month + 1, we increment *next* month's free reservations, 
-								//which will be 'swallowed' by the next unit of demand (and hence we 'allocate it twice')
-								freeReservations.set(k, freeReservations.get(k) + 1);   
-								
-								// Phil Clamp's (2013, page 33) masters thesis suggests this is a bug in Rogers & Cliff (2012) implementation
-								// "adding a 'free' reservation upon the purchase of a reservation. However,
-								// the model suggests that the free reservation being purchased would simply be added to the total capacity 
-								// and would not be 'free' as suggested. While this may indeed be a 'bug', it does not necessarily invalidate the results 
-								// as it simply means that the number of reservations purchased is just a function of the number of instances to hedge, most 
-								// likely off-setting the time at which instances are purchased. "
-							}
-							logger.debug("Next month's free reservations incremented. (the 'reservations bug')");
-							
-						} else { //the *correct way* Do not increment 'free' reservation for *next* month since we are going to purchase this for the demand unit we expect...
-							
-							/** 
-							 * alternative method, to fix the original 'bug'
-							 * 
-							 * only add to free reservations in 2 months time (i.e., we do not increment next month's free reservations since 
-							 * we already know it will be used.) Actually, what are these 'free reservations'? Shouldn't we instead be incrementing capacity?
-							 * 
-							 * */
-							for (int k = month + 2; k < month + learningPeriod + 1; k++) { //k = month + 2 (i.e., do *not* increment a freeReservation for *next* month
-								freeReservations.set(k, freeReservations.get(k) + 1);   	
-							}
-						}
-	
-						logger.debug("Free reservations have been incremented...");
-	
-					} else {
-						logger.info("MRU = " + mru + " is <= mruThreshold = " + mruThreshold + ", so *no longer reserving more instances*");
-						break;
-					}
-				}
-			}
+		DemandForecaster[] forecasters = DemandForecaster.values();
+		DemandForecastEngine.Hedge[][] hedges = forecastEngine.evaluate(forecasters, new double[] {mruThreshold}, freeReservations, 
+				futureCapacity, month, numHedge, implement_deficit_bug, implement_reservations_bug);
+		for(int f=0; f<forecasters.length; f++) {
+			yearlyReservationsByForecaster[f] += hedges[f][0].reservationsMade;
 		}
+		DemandForecastEngine.Hedge hedge = hedges[demandForecaster.ordinal()][0];
+		System.arraycopy(hedge.freeReservations, 0, freeReservations, 0, freeReservations.length);
+		int reservationsMade = hedge.reservationsMade;
 		yearlyReservationsMade += reservationsMade;
 		
 		if (reservationsMade > 0) {
@@ -527,6 +410,13 @@ public class BrokerAgent {
 				+ "reservations="+this.yearlyReservationsMade + ", "
 				+ "reservationsRequired="+this.yearlyReservationsRequired + ", "
 				+ "onDemand="+this.yearlyOnDemand +"}");
+		if(logger.isInfoEnabled()) {
+			StringBuilder byForecaster = new StringBuilder();
+			for(DemandForecaster f: DemandForecaster.values()) {
+				byForecaster.append(" ").append(f.getName()).append("=").append(yearlyReservationsByForecaster[f.ordinal()]);
+			}
+			logger.info("Month #" + month + " Reservations each forecaster would have made this year:" + byForecaster);
+		}
 		
 		if ((month+1) % 12 == 0 ) {
 
@@ -537,6 +427,7 @@ public class BrokerAgent {
 			this.balance = 0.0;
 			this.yearlySummedCapacity = 0;
 			this.yearlyReservationsMade = 0;	
+			Arrays.fill(yearlyReservationsByForecaster, 0);
 			this.yearlyProbability = 0.0;
 			this.yearlyReservationsRequired = 0;
 			this.yearlyOnDemand = 0;
@@ -550,162 +441,6 @@ public class BrokerAgent {
 		}		
 	}
 	
-	/**
-	 * Forecast future demand using the method in Rogers & Cliff (2012): 
-	 * 
-	 * For each month, t, do: Forecast(t) = Demand(t-36)
-	 * 
-	 * i.e., forecast demand = actual demand lagged 36 months.
-	 *
-	 * @param - recent historical demand over the last 36 months (inclusive of *this* month)
-	 * @return  demand forecast list for the next [learning period = 36] months 
-	 */
-	public List<Double> getForecastDemandUsingRogersAndCliff2012(List<Double> historicDemand) {
-		
-		List<Double> forecastDemand = new ArrayList<Double>();
-		
-		if(historicDemand.size()!=learningPeriod) {
-			logger.warn("*** Historic data list is incorrect size. Returning zero forecast list. *** Size = " + historicDemand.size() + ", Size should be = " + learningPeriod + ", historicData: " + historicDemand);
-			for(int i=0; i<learningPeriod; i++) {
-				forecastDemand.add(0.0);
-			}
-			return forecastDemand;
-		} else {		
-			for (double d: historicDemand) {
-				//forecast demand is equal to historic demand (1 or 3 years lag)
-				forecastDemand.add(d*BrokerModuleRunner.getInstance().getNumEachAgent());
-			}
-
-			logger.debug("Forecast demand: " + forecastDemand);
-			logger.debug("Previous demand: " + historicDemand);
-
-			return forecastDemand;
-		}
-	}
-	
-	/**
-	 * Forecast future deficit using linear regression forecast.
-	 * 
-	 * Forecast: Using the last 3 years data (36 months):
-	 * 	1. Use linear regression to estimate linear trend line.
-	 *  2. Calculate seasonal index (monthly residual from trend line) 
-	 *  3. Use trend line to produce linear forecast
-	 *  4. Add seasonal (monthly) effects to forecast demand for each future month, t: forecast(t).
-	 *  
-	 * @param - recent historical demand over the last 36 months (inclusive of *this* month)
-	 * @return demand forecast list for the next [learning period = 36] months 
-	 */
-	public List<Double> getForecastDemandUsingLinearRegression(List<Double> historicDemand) {
-		
-		List<Double> forecastDemand = new ArrayList<Double>();
-		List<Double> trendLine = new ArrayList<Double>();
-		List<Double> residuals = new ArrayList<Double>();
-		List<Double> monthlyResiduals = new ArrayList<Double>();
-		
-		if(historicDemand.size()!=learningPeriod) {
-			logger.warn("*** Historic data list is incorrect size. Returning zero forecast list. *** Size = " + historicDemand.size() + ", Size should be = " + learningPeriod + ", historicData: " + historicDemand);
-			for(int i=0; i<learningPeriod; i++) {
-				forecastDemand.add(0.0);
-			}
-			return forecastDemand;
-		} else {		
-			
-			//convert List into 2d array
-			double[][] historicDataArray = new double[historicDemand.size()][2];
-			int index = 0;
-			for (double h: historicDemand) {
-				historicDataArray[index][0] = index;
-				historicDataArray[index][1] = h;
-				index++;
-			}
-			
-			logger.debug("Historic array: " + Arrays.deepToString(historicDataArray));
-			
-			// now do the regression...
-			SimpleRegression regression = new SimpleRegression();
-			regression.addData(historicDataArray);
-			logger.debug("Regression: m=" + regression.getSlope() + ", c=" + regression.getIntercept() + ", cStdErr=" + regression.getInterceptStdErr());
-			
-			// now get the trend line & residuals
-			for (int i=0; i<historicDemand.size(); i++) {
-				trendLine.add( (i*regression.getSlope()) + regression.getIntercept());
-				residuals.add (historicDemand.get(i) - trendLine.get(i));
-			}
-			logger.debug("Trend line = " + trendLine);
-			logger.debug("Residuals = " + residuals);
-			
-			// get mean residuals per month
-			for (int i=0; i<12; i++) {
-				logger.debug("We are assuming that learning period is 36 months. Make this generic code!!!");
-				//TODO use %12 and iterate through to make this generic
-				monthlyResiduals.add( (residuals.get(i)+residuals.get(i+12)+residuals.get(i+24)) / 3 );
-			}
-		
-			logger.debug("mean monthly residuals: " + monthlyResiduals);
-			
-			// now forecast using monthly residuals and trend line
-			// first set forecast using trendline
-			for(double t: trendLine) {
-				forecastDemand.add(t);
-			}
-			
-			// forecast using trend line plus monthly adjustment
-			for(int i=0; i<12; i++) {
-				//TODO: Make this code generic not fixed to 36 months
-				forecastDemand.set(i, trendLine.get(i) + monthlyResiduals.get(i));
-				forecastDemand.set(i+12, trendLine.get(i+12) + monthlyResiduals.get(i));
-				forecastDemand.set(i+24, trendLine.get(i+24) + monthlyResiduals.get(i));
-			}
-
-			// finally, multiply normalised demand by number of agents
-			
-			for(int i=0; i< forecastDemand.size(); i++) {
-				forecastDemand.set(i, Math.floor(forecastDemand.get(i)*BrokerModuleRunner.getInstance().getNumEachAgent()));
-			}
-			
-			logger.debug("final forecast with seasonal adjustment: " + forecastDemand);
-		
-			logger.debug("RForecastDemand: " + forecastDemand);
-			logger.debug("Previous demand: " + historicDemand);
-
-			return forecastDemand;
-		}
-	}
-
-	
-	/**
-	 * Get the number of months that have a forecast deficit, i.e., SUM_{t=1 to learningPeriod}: forecast(t) < capacity(t)
-	 *
-	 * @param forecastDemand - the demand forecast for each future month
-	 * @param futureCapacity - the capacity available for each future month 
-	 * 							[NOTE: It is better to use freeReservations rather than future capacity, since this includes
-	 * 									reservations that the Broker does not *yet* own, but has already decided to reserve]
-	 * 
-	 * @return the number of months with an estimated deficit
-	 */
-	public int getMonthsWithForecastDeficit(List<Double> forecastDemand, List<Integer> futureCapacity) {
-		
-		//logger.debug(forecastDemand);
-		//logger.debug(futureCapacity);
-		
-		int monthsDeficit = 0;
-		//check array lengths equal (and equal to learning period)
-		if(forecastDemand.size()==futureCapacity.size() && futureCapacity.size()==learningPeriod) {
-			
-			for(int i=0; i<learningPeriod; i++) {
-				int deficit = (int)(forecastDemand.get(i) - futureCapacity.get(i));
-				if(deficit > 0) {
-					monthsDeficit++;
-				}
-			}
-			
-			return monthsDeficit;
-		} else {
-			logger.error("Array sizes unequal: forecastDemand.size()=" + forecastDemand.size() + ", futureCapacity.size()=" + futureCapacity.size() + ", learningPeriod=" + learningPeriod);
-			return -1;
-		}
-	}
-		
 	/**
 	 * Get the value of assets owned by the BrokerAgent
 	 * 
@@ -784,14 +519,12 @@ public class BrokerAgent {
 			updateDemand(demand);
 			int numToPick = (int)(demand * numEachAgent);
 
-			List<Integer> chosen = new ArrayList<Integer>();
-			chosen.addAll(BrokerModuleRunner.getInstance().getChosen(numToPick));
-			
-			for (Integer i : chosen) {
-				UserAgent user = BrokerModuleRunner.getInstance().getAgent((profile * numEachAgent) + i);
-				double p = user.getOrder();
+			UserPopulation users = BrokerModuleRunner.getInstance().getUserPopulation();
+			for (int i : BrokerModuleRunner.getInstance().chooseUsers(numToPick)) {
+				int user = users.getUserIndex(profile, i);
+				double p = users.getOrder(user, month);
 				fee = costFactor * (1 + (k / 2) - (k * p));
-				user.debit(fee);
+				users.debit(user, fee);
 				balance += fee;
 				reservationsRequired++;
 				//TODO JPC Jul 2013: we need to start a one month instance for each user requiring it...
@@ -801,12 +534,12 @@ public class BrokerAgent {
 		}
 		yearlyReservationsRequired += reservationsRequired;
 		
-		int surplusReservations = futureCapacity.get(month + 1) - reservationsRequired;
+		int surplusReservations = futureCapacity[month + 1] - reservationsRequired;
 		onDemandRequired = (surplusReservations < 0)? -surplusReservations : 0;
 		yearlyOnDemand += onDemandRequired;
 		
 		if (onDemandRequired > 0) {
-			logger.info("Month #" + month + ": Next months capacity = " + futureCapacity.get(month + 1) + ", Next month demand = " + reservationsRequired + ", Creating " + onDemandRequired + " on-demand Price Requests");
+			logger.info("Month #" + month + ": Next months capacity = " + futureCapacity[month + 1] + ", Next month demand = " + reservationsRequired + ", Creating " + onDemandRequired + " on-demand Price Requests");
 			//get a quote price for each on-demand instance required
 			EventQueue.getInstance().addEvent(new QuoteRequestEvent(World.getInstance().getTime() + TimeManager.millisecondsToSimulationTime(1), onDemandRequired, PriceType.ONDEMAND));
 		}
@@ -815,18 +548,18 @@ public class BrokerAgent {
 		
 		// Implement the 'payment bug' of Rogers & Cliff (2012). Used for replication experiments. Otherwise, switch off!
 		if(implement_payment_bug) {
-	        if (reservationsRequired <= futureCapacity.get(month + 1)) {
+	        if (reservationsRequired <= futureCapacity[month + 1]) {
 	        	balance -= (reservationsRequired * reserveMonthlyCost);
 	        } else {
 	        	//do nothing:- We *should* be charging for all the reserved instances used this month, but 'payment bug' in Rogers & Cliff (2012) doesn't do this.
 	        	logger.debug("Not charging for reserved instances used this month (the 'payment bug')");
 	        }			
-	        yearlySummedCapacity += futureCapacity.get(month + 1);
+	        yearlySummedCapacity += futureCapacity[month + 1];
 		} else {
 			// This is the 'Fix' of the 'payment bug' - charge for all reservations used.
 			// This is what we *should* be doing
 	        balance -= (reservationsRequired - onDemandRequired) * reserveMonthlyCost;
-			yearlySummedCapacity += futureCapacity.get(month + 1);
+			yearlySummedCapacity += futureCapacity[month + 1];
 		}
 		
 		long executeTime = World.getInstance().getTime() + TimeManager.daysToSimulationTime(1);
@@ -871,11 +604,11 @@ public class BrokerAgent {
 				// Update Future Capacity.
 				int month = BrokerModuleRunner.getInstance().getCurrentMonth();
 				logger.debug("Going to update future capacity with the newly reserved instances = " + totalReserved);
-				logger.debug("Original capacity: " + futureCapacity);
+				if(logger.isDebugEnabled()) logger.debug("Original capacity: " + Arrays.toString(futureCapacity));
 				for (int i = month + 1; i <= month + learningPeriod; i++) {
-					futureCapacity.set(i, futureCapacity.get(i) + totalReserved);
+					futureCapacity[i] += totalReserved;
 				}
-				logger.debug("New capacity: " + futureCapacity);
+				if(logger.isDebugEnabled()) logger.debug("New capacity: " + Arrays.toString(futureCapacity));
 				// Update reservation purchases
 				reservationPurchases.set(month+1, reservationPurchases.get(month+1) + totalReserved);
 				logger.debug("Month #" + month + " - Reservations purchased history: " + reservationPurchases);
@@ -935,7 +668,7 @@ public class BrokerAgent {
 		double priorMonth = Double.MAX_VALUE;
 		double yearAgoDemand = 0;
 		for (int i = month - 11; i <= month; i++) {
-			double currentMonth = previousDemand.get(i);
+			double currentMonth = forecastEngine.getDemand(i);
 			if (currentMonth > priorMonth) {
 				growthMonths++;
 			}
@@ -999,7 +732,11 @@ public class BrokerAgent {
 	}
 	
 	public void updateDemand(double demand) {
-		previousDemand.set(demandCounter, demand);
+		forecastEngine.recordDemand(demand);
 		demandCounter++;
 	}
+	
+	public DemandForecastEngine getForecastEngine() {
+		return forecastEngine;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,424 @@
+/**
+ *   This file is part of CReST: The Cloud Research Simulation Toolkit 
+ *   Copyright (C) 2011, 2012 John Cartlidge 
+ * 
+ *   For a full list of contributors, refer to file CONTRIBUTORS.txt 
+ *
+ *   CReST was developed at the University of Bristol, UK, using 
+ *   financial support from the UK's Engineering and Physical 
+ *   Sciences Research Council (EPSRC) grant EP/H042644/1 entitled 
+ *   "Cloud Computing for Large-Scale Complex IT Systems". Refer to
+ *   <http://gow.epsrc.ac.uk/NGBOViewGrant.aspx?GrantRef=EP/H042644/1>
+ * 
+ *   CReST is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/gpl.txt>.
+ *
+ *   For further information, contact: 
+ *
+ *   Dr. John Cartlidge: john@john-cartlidge.co.uk
+ *   Department of Computer Science,
+ *   University of Bristol, The Merchant Venturers Building,
+ *   Woodland Road, Bristol, BS8-1UB, United Kingdom.
+ *
+ */
+package sim.module.broker.bo;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.log4j.Logger;
+
+import sim.module.broker.configparams.BrokerModuleConfigParams.DemandForecaster;
+
+/**
+ * Demand forecasting and reservation hedging for the BrokerAgent, working on primitive arrays.
+ * 
+ * The engine holds the broker's (normalised) demand history. Each call to recordDemand() appends one
+ * value and updates running sums of y and x*y over the most recent regression window, so the linear 
+ * regression forecast for the latest month is O(1) to fit rather than a pass over the whole window. 
+ * The running sums are re-summed exactly once per window to stop rounding errors accumulating.
+ * 
+ * Candidate (forecaster, threshold) pairs are evaluated against the same hedging problem using 
+ * evaluate(), which runs each forecaster on its own thread when the engine is created with numThreads > 1.
+ * Evaluation always works on copies of the reservation arrays, so results do not depend on the number of threads. 
+ * The worker threads are daemon threads, created on first use (and again after a checkpoint is restored).
+ *
+ */
+public class DemandForecastEngine implements Serializable {
+
+	public static Logger logger = Logger.getLogger(DemandForecastEngine.class);
+	
+	private static final long serialVersionUID = 1L;
+	
+	/** Number of historic months used by the linear regression forecaster */
+	public static final int REGRESSION_WINDOW = 36;
+	
+	/** Seasonal period (months) used for the regression residuals */
+	public static final int SEASON = 12;
+	
+	protected final int learningPeriod;
+	protected final double numEachAgent;
+	protected final double[] demand;
+	protected int count = 0;
+	
+	// running regression sums over demand[count-REGRESSION_WINDOW .. count-1], with x = 0 .. REGRESSION_WINDOW-1
+	protected double sumY = 0;
+	protected double sumXY = 0;
+	protected int sinceResync = 0;
+	
+	protected final int numThreads;
+	protected transient ExecutorService executor;
+	
+	/**
+	 * The result of hedging with one (forecaster, threshold) pair
+	 */
+	public static final class Hedge {
+		
+		/** Number of new reservations to make */
+		public final int reservationsMade;
+		/** Free reservations indexed by month, after hedging */
+		public final int[] freeReservations;
+		
+		protected Hedge(int reservationsMade, int[] freeReservations) {
+			this.reservationsMade = reservationsMade;
+			this.freeReservations = freeReservations;
+		}
+	}
+	
+	/**
+	 * Create a sequential forecasting engine
+	 * 
+	 * @param historyLength - maximum number of months of demand history
+	 * @param learningPeriod - forecast horizon (months)
+	 * @param numEachAgent - number of users per demand profile (normalised demand is scaled by this value)
+	 */
+	public DemandForecastEngine(int historyLength, int learningPeriod, int numEachAgent) {
+		this(historyLength, learningPeriod, numEachAgent, 1);
+	}
+	
+	/**
+	 * Create a forecasting engine that evaluates forecasters using up to numThreads threads
+	 * 
+	 * @param historyLength - maximum number of months of demand history
+	 * @param learningPeriod - forecast horizon (months)
+	 * @param numEachAgent - number of users per demand profile (normalised demand is scaled by this value)
+	 * @param numThreads - number of threads (1 => sequential)
+	 */
+	public DemandForecastEngine(int historyLength, int learningPeriod, int numEachAgent, int numThreads) {
+		this.demand = new double[historyLength];
+		this.learningPeriod = learningPeriod;
+		this.numEachAgent = numEachAgent;
+		this.numThreads = Math.max(1, numThreads);
+	}
+	
+	/**
+	 * @return the worker threads, creating them if necessary (null if the engine is sequential)
+	 */
+	protected synchronized ExecutorService getExecutor() {
+		if(executor==null && numThreads>1) {
+			executor = Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "DemandForecastEngine worker");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+		return executor;
+	}
+	
+	public int getLearningPeriod() {
+		return learningPeriod;
+	}
+	
+	public int getNumThreads() {
+		return numThreads;
+	}
+	
+	/**
+	 * @return number of months of demand recorded
+	 */
+	public int size() {
+		return count;
+	}
+	
+	public double getDemand(int month) {
+		return demand[month];
+	}
+	
+	/**
+	 * Append the next month's demand and update the running regression sums
+	 */
+	public void recordDemand(double d) {
+		if(count >= REGRESSION_WINDOW) {
+			double oldest = demand[count - REGRESSION_WINDOW];
+			// slide the window: every remaining x drops by one, the new value enters at x = REGRESSION_WINDOW-1
+			sumXY = sumXY - (sumY - oldest) + (REGRESSION_WINDOW - 1) * d;
+			sumY = sumY - oldest + d;
+		} else {
+			sumXY += count * d;
+			sumY += d;
+		}
+		demand[count++] = d;
+		
+		if(++sinceResync >= REGRESSION_WINDOW) {
+			resync();
+		}
+	}
+	
+	/**
+	 * Recompute the running sums exactly from the demand history
+	 */
+	protected void resync() {
+		int from = Math.max(0, count - REGRESSION_WINDOW);
+		sumY = 0;
+		sumXY = 0;
+		for(int i=from; i<count; i++) {
+			sumY += demand[i];
+			sumXY += (i - from) * demand[i];
+		}
+		sinceResync = 0;
+	}
+	
+	/**
+	 * Forecast demand for the next learningPeriod months using the given forecaster
+	 * 
+	 * @param forecaster - the forecasting method
+	 * @param month - the current month (forecast is based on demand up to and including this month)
+	 * @return scaled demand forecast, one value per future month
+	 */
+	public double[] forecast(DemandForecaster forecaster, int month) {
+		switch(forecaster) {
+		case REGRESSION_DEMAND_FORECASTER:
+			return forecastLinearRegression(month);
+		case ROGERS_AND_CLIFF_2012_DEMAND_FORECASTER:
+			return forecastRogersAndCliff2012(month);
+		default:
+			throw new IllegalArgumentException("Unknown demand forecaster: " + forecaster);
+		}
+	}
+	
+	/**
+	 * Rogers & Cliff (2012) forecast: demand lagged by learningPeriod months, 
+	 * i.e., for each month, t: Forecast(t) = Demand(t - learningPeriod)
+	 */
+	public double[] forecastRogersAndCliff2012(int month) {
+		double[] forecast = new double[learningPeriod];
+		int from = month - learningPeriod + 1;
+		if(from < 0 || month >= count) {
+			logger.warn("*** Not enough historic demand for month " + month + ". Returning zero forecast. ***");
+			return forecast;
+		}
+		for(int i=0; i<learningPeriod; i++) {
+			forecast[i] = demand[from + i] * numEachAgent;
+		}
+		return forecast;
+	}
+	
+	/**
+	 * Linear trend plus mean monthly residual forecast over the last REGRESSION_WINDOW months:
+	 * 	1. Use linear regression to estimate the linear trend line.
+	 *  2. Calculate the seasonal index (mean monthly residual from the trend line).
+	 *  3. Forecast each future month as the trend plus its seasonal index.
+	 * 
+	 * When month is the latest recorded month, the trend line is fitted from the running sums; 
+	 * otherwise the sums are computed over the requested window.
+	 */
+	public double[] forecastLinearRegression(int month) {
+		double[] forecast = new double[learningPeriod];
+		int from = month - REGRESSION_WINDOW + 1;
+		if(learningPeriod != REGRESSION_WINDOW || from < 0 || month >= count) {
+			logger.warn("*** Historic data is incorrect size. Returning zero forecast. *** Learning period = " + learningPeriod + ", regression window = " + REGRESSION_WINDOW + ", month = " + month);
+			return forecast;
+		}
+		
+		double sy = sumY;
+		double sxy = sumXY;
+		if(month != count - 1) {
+			sy = 0;
+			sxy = 0;
+			for(int i=0; i<REGRESSION_WINDOW; i++) {
+				sy += demand[from + i];
+				sxy += i * demand[from + i];
+			}
+		}
+		
+		// x = 0..n-1 so sum(x) and sum((x - xbar)^2) are constants
+		double n = REGRESSION_WINDOW;
+		double sumX = n * (n - 1) / 2.0;
+		double xBar = sumX / n;
+		double sxx = n * (n * n - 1) / 12.0;
+		double slope = (sxy - xBar * sy) / sxx;
+		double intercept = (sy - slope * sumX) / n;
+		
+		int cycles = REGRESSION_WINDOW / SEASON;
+		double[] monthlyResiduals = new double[SEASON];
+		for(int i=0; i<REGRESSION_WINDOW; i++) {
+			double trend = i * slope + intercept;
+			forecast[i] = trend;
+			monthlyResiduals[i % SEASON] += demand[from + i] - trend;
+		}
+		for(int i=0; i<REGRESSION_WINDOW; i++) {
+			forecast[i] = Math.floor((forecast[i] + monthlyResiduals[i % SEASON] / cycles) * numEachAgent);
+		}
+		
+		if(logger.isDebugEnabled()) logger.debug("Regression: m=" + slope + ", c=" + intercept + ", forecast=" + Arrays.toString(forecast));
+		return forecast;
+	}
+	
+	/**
+	 * Count months where forecast demand exceeds available capacity, i.e., (int)(forecast[i] - capacity[from+i]) > 0
+	 * 
+	 * @param forecast - forecast demand for each of the next forecast.length months
+	 * @param capacity - capacity (or free reservations) indexed by month
+	 * @param from - month index into capacity corresponding to forecast[0]
+	 * @return the number of months with a forecast deficit
+	 */
+	public static int monthsWithDeficit(double[] forecast, int[] capacity, int from) {
+		int monthsDeficit = 0;
+		for(int i=0; i<forecast.length; i++) {
+			if((int)(forecast[i] - capacity[from + i]) > 0) {
+				monthsDeficit++;
+			}
+		}
+		return monthsDeficit;
+	}
+	
+	/**
+	 * Reservations hedging (Clamp 2013, algorithm 2): decide how many of numHedge units of demand 
+	 * next month to cover by buying new reservations.
+	 * 
+	 * freeReservations is updated in place, exactly as BrokerAgent.chargeReservations() does.
+	 * 
+	 * @param forecast - demand forecast for months (month+1 .. month+learningPeriod), or null if no forecast is available yet
+	 * @param freeReservations - free reservations indexed by month (modified)
+	 * @param futureCapacity - reserved capacity indexed by month
+	 * @param month - current month
+	 * @param numHedge - number of units to hedge
+	 * @param threshold - MRU threshold: reserve while the fraction of months in deficit is above this
+	 * @param deficitBug - use capacity rather than free reservations to calculate deficit (Rogers & Cliff 2012)
+	 * @param reservationsBug - increment next month's free reservations on purchase (Rogers & Cliff 2012)
+	 * @return number of new reservations to make
+	 */
+	public int hedge(double[] forecast, int[] freeReservations, int[] futureCapacity, int month, int numHedge, 
+			double threshold, boolean deficitBug, boolean reservationsBug) {
+		
+		int next = month + 1;
+		if(numHedge <= freeReservations[next]) {
+			return 0;
+		}
+		numHedge -= freeReservations[next];
+		freeReservations[next] = 0;
+		
+		int reservationsMade = 0;
+		for (int i = 0; i < numHedge; i++) {
+			if (freeReservations[next] >= 1) {
+				freeReservations[next]--;
+				continue;
+			}
+			double mru = 0.0;
+			if (forecast != null) {
+				int monthsDeficit = monthsWithDeficit(forecast, deficitBug ? futureCapacity : freeReservations, next);
+				mru = monthsDeficit / (double)learningPeriod;
+			}
+			if (mru > threshold) {
+				reservationsMade++;
+				// see BrokerAgent for a discussion of the 'reservations bug'
+				for (int k = reservationsBug ? next : month + 2; k < month + learningPeriod + 1; k++) {
+					freeReservations[k]++;
+				}
+			} else {
+				if(logger.isDebugEnabled()) logger.debug("MRU = " + mru + " is <= threshold = " + threshold + ", so no longer reserving more instances");
+				break;
+			}
+		}
+		return reservationsMade;
+	}
+	
+	/**
+	 * Evaluate candidate forecasters and MRU thresholds against the same hedging problem.
+	 * 
+	 * Each forecaster is run as a separate task (in parallel if numThreads > 1), and every threshold 
+	 * is hedged against a private copy of freeReservations, so the inputs are not modified.
+	 * 
+	 * @return the hedge of each pair, indexed [forecaster][threshold]
+	 */
+	public Hedge[][] evaluate(final DemandForecaster[] forecasters, final double[] thresholds, final int[] freeReservations, 
+			final int[] futureCapacity, final int month, final int numHedge, final boolean deficitBug, final boolean reservationsBug) {
+		
+		final Hedge[][] result = new Hedge[forecasters.length][];
+		ExecutorService workers = (forecasters.length<2) ? null : getExecutor();
+		if(workers==null) {
+			for(int f=0; f<forecasters.length; f++) {
+				result[f] = evaluate(forecasters[f], thresholds, freeReservations, futureCapacity, month, numHedge, deficitBug, reservationsBug);
+			}
+			return result;
+		}
+		
+		List<Future<Hedge[]>> futures = new ArrayList<Future<Hedge[]>>();
+		for(final DemandForecaster forecaster: forecasters) {
+			futures.add(workers.submit(new Callable<Hedge[]>() {
+				@Override
+				public Hedge[] call() {
+					return evaluate(forecaster, thresholds, freeReservations, futureCapacity, month, numHedge, deficitBug, reservationsBug);
+				}
+			}));
+		}
+		for(int f=0; f<forecasters.length; f++) {
+			try {
+				result[f] = futures.get(f).get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while evaluating forecasters", e);
+			} catch (ExecutionException e) {
+				logger.error("Forecaster evaluation failed: " + e.getCause());
+				throw new IllegalStateException("Forecaster evaluation failed", e.getCause());
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Evaluate a single forecaster against each candidate threshold
+	 */
+	protected Hedge[] evaluate(DemandForecaster forecaster, double[] thresholds, int[] freeReservations, 
+			int[] futureCapacity, int month, int numHedge, boolean deficitBug, boolean reservationsBug) {
+		
+		// no forecast until there is a learning period of demand history (including this month)
+		double[] forecast = (month >= learningPeriod - 1) ? forecast(forecaster, month) : null;
+		Hedge[] hedges = new Hedge[thresholds.length];
+		for(int t=0; t<thresholds.length; t++) {
+			int[] free = Arrays.copyOf(freeReservations, freeReservations.length);
+			int made = hedge(forecast, free, futureCapacity, month, numHedge, thresholds[t], deficitBug, reservationsBug);
+			hedges[t] = new Hedge(made, free);
+		}
+		return hedges;
+	}
+	
+	/**
+	 * Stop the worker threads (if any). They are created again if needed.
+	 */
+	public synchronized void shutdown() {
+		if(executor!=null) executor.shutdown();
+		executor = null;
+	}
+}
@@ -33,35 +33,38 @@
  */
 package sim.module.broker.bo;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.Serializable;
 
 import org.apache.log4j.Logger;
 
 import sim.module.broker.BrokerModuleRunner;
 
-public class UserAgent {
+/**
+ * A broker user. 
+ * 
+ * A UserAgent is a view of a single user in a UserPopulation, which holds the user's execution history and balance.
+ */
+public class UserAgent implements Serializable {
 	public static Logger logger = Logger.getLogger(UserAgent.class);
 	
-	private List<Integer> executionHistory;
+	private static final long serialVersionUID = 1L;
 	
-	private double balance;
-	private double newOrder;
+	private final UserPopulation population;
+	private final int index;
 
 	/**
-	 * Create a new user agent
+	 * Create a view of a user agent in a population
 	 * 
-	 * @param demandProfile
-	 * 			Index of the demand profile in the World arrayList
+	 * @param population - the population holding the user's state
+	 * @param index - index of the user in the population
 	 */
-	public UserAgent(int demandProfile) {
-		this.executionHistory = new ArrayList<Integer>();
-		this.balance = 0;
-		this.newOrder = 0.0;
-		
-		for (int i = 0; i < BrokerModuleRunner.getInstance().getSimulationLength(); i++) {
-			executionHistory.add(0);
-		}
+	public UserAgent(UserPopulation population, int index) {
+		this.population = population;
+		this.index = index;
+	}
+	
+	public int getIndex() {
+		return index;
 	}
 	
 	/**
@@ -69,28 +72,14 @@ public class UserAgent {
 	 * This gives user chance to learn before submitting probabilities.
 	 */
 	public void learn() {
-		executionHistory.set(BrokerModuleRunner.getInstance().getCurrentMonth(), 1);
+		population.setExecuted(index, BrokerModuleRunner.getInstance().getCurrentMonth());
 	}
 
 	/**
 	 * Fetch list of reservations (ie probabilities of option requirement)
 	 */
 	public double getReservation() {
-		List<Integer> tempList = new ArrayList<Integer>();
-                
-        //Look through demand history and store in tempList
-		//Starting from now to 0, move back in 12month increments until no longer possible
-		for (int p = BrokerModuleRunner.getInstance().getCurrentMonth(); p > 0; p -= 12) {
-        	tempList.add(executionHistory.get(p));
-        }
-        
-    	double avg = 0.0;
-    	for (Integer i : tempList) {
-    		avg += i;
-    	}
-    	newOrder = avg / (double)tempList.size();
-        
-		return newOrder;
+		return population.getReservation(index, BrokerModuleRunner.getInstance().getCurrentMonth());
 	}
 	
 	/**
@@ -98,22 +87,18 @@ public class UserAgent {
 	 * @return List<Double>
 	 */
 	public double getOrder() {
-		executionHistory.set(BrokerModuleRunner.getInstance().getCurrentMonth() + 1, 1);
-		return newOrder;
+		return population.getOrder(index, BrokerModuleRunner.getInstance().getCurrentMonth());
 	}
 	
 	public double debit(double fee) {
-		balance -= fee;
-		return balance;
+		return population.debit(index, fee);
 	}
 	
 	public double credit(double fee) {
-		balance += fee;
-		return balance;
+		return population.credit(index, fee);
 	}
 
 	public int getLatestExecution() {
-		return executionHistory.get(BrokerModuleRunner.getInstance().getCurrentMonth());
+		return population.getExecution(index, BrokerModuleRunner.getInstance().getCurrentMonth());
 	}
 }
-
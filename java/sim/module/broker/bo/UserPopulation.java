@@ -0,0 +1,258 @@
+/**
+ *   This file is part of CReST: The Cloud Research Simulation Toolkit 
+ *   Copyright (C) 2011, 2012 John Cartlidge 
+ * 
+ *   For a full list of contributors, refer to file CONTRIBUTORS.txt 
+ *
+ *   CReST was developed at the University of Bristol, UK, using 
+ *   financial support from the UK's Engineering and Physical 
+ *   Sciences Research Council (EPSRC) grant EP/H042644/1 entitled 
+ *   "Cloud Computing for Large-Scale Complex IT Systems". Refer to
+ *   <http://gow.epsrc.ac.uk/NGBOViewGrant.aspx?GrantRef=EP/H042644/1>
+ * 
+ *   CReST is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/gpl.txt>.
+ *
+ *   For further information, contact: 
+ *
+ *   Dr. John Cartlidge: john@john-cartlidge.co.uk
+ *   Department of Computer Science,
+ *   University of Bristol, The Merchant Venturers Building,
+ *   Woodland Road, Bristol, BS8-1UB, United Kingdom.
+ *
+ */
+package sim.module.broker.bo;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Compact store for the broker's population of user agents.
+ * 
+ * Users are indexed profile-major: user (profile * numEachUser + i) is the i'th user of a demand profile.
+ * Execution history is held as one BitSet per month (bit = user), and balances and latest orders in 
+ * primitive arrays, so a population of millions of users needs a few bytes per user per month.
+ * 
+ * Reservation probabilities are computed for all users of a profile at once (see getReservations).
+ * 
+ * UserAgent objects are light-weight views of a single user in this store.
+ *
+ */
+public class UserPopulation implements Serializable {
+
+	public static Logger logger = Logger.getLogger(UserPopulation.class);
+	
+	private static final long serialVersionUID = 1L;
+	
+	protected final int numProfiles;
+	protected final int numEachUser;
+	protected final int numUsers;
+	protected final int simulationLength;
+	
+	protected final BitSet[] executionHistory; // [month] -> users that executed in month
+	protected final double[] balance;
+	protected final double[] newOrder;
+	
+	/**
+	 * Create a population of numProfiles x numEachUser users, with no execution history
+	 * 
+	 * @param numProfiles - number of demand profiles
+	 * @param numEachUser - number of users of each profile
+	 * @param simulationLength - number of months of execution history
+	 */
+	public UserPopulation(int numProfiles, int numEachUser, int simulationLength) {
+		this.numProfiles = numProfiles;
+		this.numEachUser = numEachUser;
+		this.numUsers = numProfiles * numEachUser;
+		this.simulationLength = simulationLength;
+		
+		executionHistory = new BitSet[simulationLength];
+		balance = new double[numUsers];
+		newOrder = new double[numUsers];
+		
+		logger.info("Created population of " + numUsers + " users (" + numProfiles + " profiles x " + numEachUser + ")");
+	}
+	
+	public int getNumProfiles() {
+		return numProfiles;
+	}
+	
+	public int getNumEachUser() {
+		return numEachUser;
+	}
+	
+	public int size() {
+		return numUsers;
+	}
+	
+	/**
+	 * Get the index of the i'th user of a profile
+	 */
+	public int getUserIndex(int profile, int i) {
+		return profile * numEachUser + i;
+	}
+	
+	/**
+	 * Get a view of a user
+	 * @param user - user index
+	 * @return UserAgent view
+	 */
+	public UserAgent getAgent(int user) {
+		if(user<0 || user>=numUsers) throw new IndexOutOfBoundsException("User " + user + " not in population of " + numUsers);
+		return new UserAgent(this, user);
+	}
+	
+	/**
+	 * Get the users that executed in a month
+	 * @return bits of executing users (shared, do not modify)
+	 */
+	protected BitSet getHistory(int month) {
+		BitSet executed = executionHistory[month];
+		if(executed==null) {
+			executed = new BitSet(numUsers);
+			executionHistory[month] = executed;
+		}
+		return executed;
+	}
+	
+	/**
+	 * Record that a user executed in a month
+	 */
+	public void setExecuted(int user, int month) {
+		getHistory(month).set(user);
+	}
+	
+	/**
+	 * Did a user execute in a month?
+	 * @return 1 if executed, 0 otherwise
+	 */
+	public int getExecution(int user, int month) {
+		BitSet executed = executionHistory[month];
+		return (executed!=null && executed.get(user)) ? 1 : 0;
+	}
+	
+	/**
+	 * Compute the reservation probability of every user of a profile in a month, 
+	 * and store it as each user's latest order.
+	 * 
+	 * A user's probability is the proportion of months (month, month-12, month-24, ... > 0) in which they executed.
+	 * 
+	 * @param profile - the demand profile
+	 * @param month - the current month
+	 * @param out - probabilities of the profile's users (length >= numEachUser), or null
+	 * @return the sum of probabilities over the profile's users
+	 */
+	public double getReservations(int profile, int month, double[] out) {
+		
+		int from = profile * numEachUser;
+		int to = from + numEachUser;
+		
+		int[] counts = new int[numEachUser];
+		int numMonths = 0;
+		for (int p = month; p > 0; p -= 12) {
+			numMonths++;
+			BitSet executed = executionHistory[p];
+			if(executed==null) continue;
+			for (int u = executed.nextSetBit(from); u >= 0 && u < to; u = executed.nextSetBit(u+1)) {
+				counts[u-from]++;
+			}
+		}
+		
+		double sum = 0;
+		for (int i = 0; i < numEachUser; i++) {
+			double prob = counts[i] / (double) numMonths; // NaN if there are no months of history
+			newOrder[from+i] = prob;
+			if(out!=null) out[i] = prob;
+			sum += prob;
+		}
+		return sum;
+	}
+	
+	/**
+	 * Compute the reservation probabilities of all users in a month (see getReservations(int, int, double[]))
+	 * 
+	 * @param month - the current month
+	 * @return probabilities, indexed by user
+	 */
+	public double[] getReservations(int month) {
+		double[] out = new double[numUsers];
+		double[] profileOut = new double[numEachUser];
+		for (int profile = 0; profile < numProfiles; profile++) {
+			getReservations(profile, month, profileOut);
+			System.arraycopy(profileOut, 0, out, profile * numEachUser, numEachUser);
+		}
+		return out;
+	}
+	
+	/**
+	 * Get the reservation probability of a single user (and store it as the user's latest order)
+	 */
+	public double getReservation(int user, int month) {
+		int numMonths = 0;
+		int count = 0;
+		for (int p = month; p > 0; p -= 12) {
+			numMonths++;
+			count += getExecution(user, p);
+		}
+		newOrder[user] = count / (double) numMonths;
+		return newOrder[user];
+	}
+	
+	/**
+	 * Get a user's latest order (reservation probability), and record that the user executes next month
+	 */
+	public double getOrder(int user, int month) {
+		setExecuted(user, month + 1);
+		return newOrder[user];
+	}
+	
+	public double debit(int user, double fee) {
+		balance[user] -= fee;
+		return balance[user];
+	}
+	
+	public double credit(int user, double fee) {
+		balance[user] += fee;
+		return balance[user];
+	}
+	
+	public double getBalance(int user) {
+		return balance[user];
+	}
+	
+	/**
+	 * Get the total balance of all users
+	 */
+	public double getTotalBalance() {
+		double total = 0;
+		for (double b : balance) total += b;
+		return total;
+	}
+	
+	/**
+	 * Clear execution history, balances and orders
+	 */
+	public void reset() {
+		Arrays.fill(executionHistory, null);
+		Arrays.fill(balance, 0);
+		Arrays.fill(newOrder, 0);
+	}
+	
+	@Override
+	public String toString() {
+		return "UserPopulation [profiles=" + numProfiles + ", usersPerProfile=" + numEachUser + ", months=" + simulationLength + "]";
+	}
+}
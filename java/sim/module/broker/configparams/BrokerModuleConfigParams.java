@@ -489,6 +489,10 @@ public class BrokerModuleConfigParams implements ModuleParamsInterface {
 			
 			this.demandForecaster = ((BrokerModuleConfigParams) params).demandForecaster;
 			this.reservationPeriod = ((BrokerModuleConfigParams) params).reservationPeriod;
+			
+			this.rc_payment_bug = ((BrokerModuleConfigParams) params).rc_payment_bug;
+			this.rc_reservations_bug = ((BrokerModuleConfigParams) params).rc_reservations_bug;
+			this.rc_deficit_bug = ((BrokerModuleConfigParams) params).rc_deficit_bug;
 		} else {
 			logger.warn("Ignoring changes: Attempting to clone parameters of incorrect class: " + params.getClass());
 		}	
@@ -43,6 +43,8 @@ import sim.module.event.Event;
  */
 public class BrokerExecuteEvent extends Event {
 
+	private static final long serialVersionUID = 1L;
+
 	public BrokerExecuteEvent(long pStartTime) {
 		super(pStartTime, -1);
 	}
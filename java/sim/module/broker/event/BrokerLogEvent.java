@@ -40,6 +40,8 @@ import sim.module.event.Event;
 
 
 public class BrokerLogEvent extends Event {
+	private static final long serialVersionUID = 1L;
+
 	public BrokerLogEvent(long pStartTime) {
 		super(pStartTime, -1);
 	}
@@ -37,7 +37,6 @@ import org.apache.log4j.Logger;
 
 import sim.module.Module;
 import sim.module.broker.BrokerModuleRunner;
-import sim.module.broker.bo.UserAgent;
 import sim.module.broker.configparams.BrokerModuleConfigParams;
 import sim.module.demand.bo.Demand;
 import sim.module.demand.configparams.DemandModuleConfigParams;
@@ -62,7 +61,6 @@ public class BrokerModuleEventThread extends AbstractBrokerDemandModuleEventThre
     	int newEventsGenerated = 0;
     	
     	int NUM_OF_AGENTS = ((BrokerModuleConfigParams) Module.BROKER_MODULE.getParams()).getNumAgents();
-        int NUM_OF_EACH_USER = ((BrokerModuleConfigParams) Module.BROKER_MODULE.getParams()).getNumEachUser();
         int LEARNING_PERIOD = ((BrokerModuleConfigParams) Module.BROKER_MODULE.getParams()).getReservationPeriod().getMonths();
         int DEMAND_PROFILE = ((BrokerModuleConfigParams) Module.BROKER_MODULE.getParams()).getDemandProfile();
          
@@ -75,11 +73,7 @@ public class BrokerModuleEventThread extends AbstractBrokerDemandModuleEventThre
     	}
     	
     	// Create NUM_OF_EACH_USER users for each profile
-		for (int i = 0; i < NUM_OF_EACH_USER; i++) {
-			for (int j = 0; j < NUM_OF_AGENTS; j++) {
-				BrokerModuleRunner.getInstance().getUserAgents().add(new UserAgent(DEMAND_PROFILE));
-			}
-        }
+		BrokerModuleRunner.getInstance().createUserPopulation();
         
 		//1. INITIAL LEARNING PERIOD.  (JC May 2012. Code modified to have initial learning periods of 1ms each, originally 28 days each.)
 		long learnEventPeriod = TimeManager.secondsToSimulationTime(1);
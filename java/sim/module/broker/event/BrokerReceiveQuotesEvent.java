@@ -45,6 +45,8 @@ import sim.module.pricing.bo.Quote;
 public class BrokerReceiveQuotesEvent extends Event {
 	public static Logger logger = Logger.getLogger(BrokerReceiveQuotesEvent.class);
 	
+	private static final long serialVersionUID = 1L;
+	
 	private PriceType priceType;
 	
 	private List<Quote> quotes;
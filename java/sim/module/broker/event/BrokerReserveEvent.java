@@ -46,6 +46,8 @@ public class BrokerReserveEvent extends Event {
 
 	public static Logger logger = Logger.getLogger(BrokerReserveEvent.class);
 	
+	private static final long serialVersionUID = 1L;
+	
 	public BrokerReserveEvent(long pStartTime) {
 		// Separate from Datacentres.
 		super(pStartTime, -1);
@@ -44,6 +44,8 @@ import utility.time.TimeManager;
 
 public class MarketShockEvent extends Event {
 	
+	private static final long serialVersionUID = 1L;
+	
 	private int newProfile;
 	
 	public MarketShockEvent(long pStartTime, int newProfile) {
@@ -33,13 +33,10 @@
  */
 package sim.module.broker.event;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import org.apache.log4j.Logger;
 
 import sim.module.broker.BrokerModuleRunner;
-import sim.module.broker.bo.UserAgent;
+import sim.module.broker.bo.UserPopulation;
 import sim.module.event.Event;
 
 /**
@@ -50,6 +47,8 @@ public class UserLearnEvent extends Event {
 
 	public static Logger logger = Logger.getLogger(UserLearnEvent.class);
 	
+	private static final long serialVersionUID = 1L;
+	
 	private int numAgents;
 	private int numEachAgent;
 	
@@ -72,11 +71,10 @@ public class UserLearnEvent extends Event {
 			BrokerModuleRunner.getInstance().getBroker().updateDemand(demand);
 			
 			int numToPick = (int)Math.ceil(demand * numEachAgent);
-			List<Integer> chosen = new ArrayList<Integer>();
-			chosen.addAll(BrokerModuleRunner.getInstance().getChosen(numToPick));
-			for (Integer i : chosen) {
-				UserAgent user = BrokerModuleRunner.getInstance().getAgent((profile * numEachAgent) + i);
-				user.learn();
+			UserPopulation users = BrokerModuleRunner.getInstance().getUserPopulation();
+			int month = BrokerModuleRunner.getInstance().getCurrentMonth();
+			for (int i : BrokerModuleRunner.getInstance().chooseUsers(numToPick)) {
+				users.setExecuted(users.getUserIndex(profile, i), month);
 			}
 		}
 		return true;
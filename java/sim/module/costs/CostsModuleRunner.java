@@ -39,6 +39,7 @@ import java.util.Observable;
 
 import org.apache.log4j.Logger;
 
+import sim.SimulationContext;
 import sim.module.AbstractModuleRunner;
 import sim.module.Module;
 import sim.module.costs.bo.Costs;
@@ -50,11 +51,12 @@ import utility.time.LengthOfTime;
 
 public class CostsModuleRunner extends AbstractModuleRunner{
 	
+	private static final long serialVersionUID = 1L;
+	
 	private static int counter = 0;
 	
 	public static Logger logger = Logger.getLogger(CostsModuleRunner.class);
 	
-	private static CostsModuleRunner instance = null;
 	
 	/** Costs.  One for each Datacentre. */
 	private ArrayList<Costs> costsManager;
@@ -64,9 +66,11 @@ public class CostsModuleRunner extends AbstractModuleRunner{
 	}
 	
 	public static CostsModuleRunner getInstance() {
+		CostsModuleRunner instance = SimulationContext.getCurrent().getSingleton(CostsModuleRunner.class);
 		if (instance == null)
         {
             instance = new CostsModuleRunner();
+            SimulationContext.getCurrent().setSingleton(CostsModuleRunner.class, instance);
         }
         return instance;
 	}
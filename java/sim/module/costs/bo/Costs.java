@@ -38,16 +38,20 @@
 
 package sim.module.costs.bo;
 
+import java.io.Serializable;
+
 import org.apache.log4j.Logger;
 
 import sim.physical.Datacentre;
 import utility.time.LengthOfTime;
 import utility.time.TimeManager;
 
-public class Costs
+public class Costs implements Serializable
 {
 	public static Logger logger = Logger.getLogger(Costs.class);
 	
+	private static final long serialVersionUID = 1L;
+	
 	private Datacentre mDatacentre;
 
 	private double mSuppliedPower; // Power supplied to the datacenter (Watts)
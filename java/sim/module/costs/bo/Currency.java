@@ -39,11 +39,14 @@
 
 package sim.module.costs.bo;
 
+import java.io.Serializable;
 import java.text.NumberFormat;
 import java.util.Locale;
 
-public class Currency
+public class Currency implements Serializable
 {	
+	private static final long serialVersionUID = 1L;
+
 	private static Locale getCurrency()
 	{
 		String currency = "GBP"; //TODO: get from config
@@ -38,6 +38,7 @@ import java.util.Observable;
 
 import org.apache.log4j.Logger;
 
+import sim.SimulationContext;
 import sim.module.AbstractModuleRunner;
 import sim.module.Module;
 import sim.module.event.EventQueue;
@@ -56,6 +57,8 @@ import utility.time.TimeManager;
 
 public class DemandModuleRunner extends AbstractModuleRunner{
 
+	private static final long serialVersionUID = 1L;
+
 //	public static boolean NEW_WAY = false;
 	public static final long TIME_BETWEEN_LOGS = TimeManager.hoursToSimulationTime(1);
 	
@@ -66,16 +69,17 @@ public class DemandModuleRunner extends AbstractModuleRunner{
 	/** ServiceManagers.  One for each Datacentre. */
 	private ArrayList<ServiceManager> serviceManagerList;
 	
-	private static DemandModuleRunner instance = null;
 	
 	protected DemandModuleRunner () {
 		logger.info("Constructing " + this.getClass().getSimpleName());
 	}
 	
 	public static DemandModuleRunner getInstance() {
+		DemandModuleRunner instance = SimulationContext.getCurrent().getSingleton(DemandModuleRunner.class);
 		if (instance == null)
         {
             instance = new DemandModuleRunner();
+            SimulationContext.getCurrent().setSingleton(DemandModuleRunner.class, instance);
         }
         return instance;
 	}
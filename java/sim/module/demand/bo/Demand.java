@@ -36,24 +36,28 @@ package sim.module.demand.bo;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.StringTokenizer;
 
 import org.apache.log4j.Logger;
 
-import sim.probability.RandomSingleton;
+import sim.module.Module;
+import sim.probability.SamplingService;
 
 /**
  * Class to manage the input of previous demand data and return whether a
  * higher/lower price should be given depending on demand
  * 
  */
-public class Demand {
+public class Demand implements Serializable {
 	public static Logger logger = Logger.getLogger(Demand.class);
 
-	//Read demand from CSV file every time value is required, or use stored value
-	//Useful if using multiple demand profiles, or a very large file, otherwise inefficient
+	private static final long serialVersionUID = 1L;
+
+	//Check the CSV file for changes every time a value is required, and reload it if changed
+	//Useful if the demand file is edited during a run. Demand profiles are shared by all readers (see DemandProfileStore)
 	protected static boolean READ_DEMAND_FROM_FILE_EVERY_TIME = false;
 	
 	private String mDataFile; //Demand data file
@@ -61,9 +65,8 @@ public class Demand {
 	private int requiredCategory = 39; // Default column
 	
 	
-	public List<String> csvHeader; //TODO JPC Jul 2013 We don't need to save the whole list - just the title of the one we want
-	private List<String> csvData;  //TODO JPC Jul 2013 This should be a list of doubles, surely?
-	private List<String> csvDates;
+	public List<String> csvHeader; //Profile names (shared, read only)
+	private DemandProfileStore store; //Demand values (shared by all Demand readers of the file)
 
 	public Demand(String dataFile) {
 		mDataFile = dataFile;
@@ -75,7 +78,7 @@ public class Demand {
 	 * @return number of months (rows)
 	 */
 	public int getMaxDemandMonths() {
-		return csvData.size();
+		return store.getNumMonths();
 	}
 	
 	/**
@@ -92,7 +95,6 @@ public class Demand {
 
 		logger.info("Reading Demand from data file: '" + mDataFile + "', demand profile column #"+requiredCategory);
 		readHeaderCSV();
-		readACategoryCSV(requiredCategory);
 		logger.info("Demand profile header: " + csvHeader.get(requiredCategory));
 	}
 
@@ -105,21 +107,16 @@ public class Demand {
 	public double getDemand(int mon) {
 		
 		if (READ_DEMAND_FROM_FILE_EVERY_TIME)
-			readACategoryCSV(requiredCategory);
+			store.refresh();
 
-		double actualDemand = 0;
-		try {
-			if (counter >= csvData.size()) {
-				return -1;
-			}
-			String out = csvData.get(mon);
-			actualDemand = Double.parseDouble(out);
-			return actualDemand;
-
-		} catch (ArrayIndexOutOfBoundsException e) {
-			logger.error("Month not found " + e);
+		if (counter >= store.getNumMonths()) {
+			return -1;
+		}
+		if (!store.contains(requiredCategory, mon)) {
+			logger.error("Month not found: " + mon);
 			return -1;
 		}
+		return store.getDemand(requiredCategory, mon);
 	}
 
 	/**
@@ -135,7 +132,7 @@ public class Demand {
 		
 		logger.debug("Demand: " + actualDemand);
 
-		double newDemand = (lower + RandomSingleton.getInstance().randomDouble() * range);
+		double newDemand = (lower + SamplingService.getInstance().uniform(Module.DEMAND_MODULE) * range);
 		if (newDemand > 1) {
 			newDemand = 1.0;
 		}
@@ -153,31 +150,27 @@ public class Demand {
 	 */
 	public void advanceDemand() {
 		
-		//TODO: JPC Jul 2013 - the only thing this appears to do, is increment counter!
-		// Let's just do that instead!
 		if (READ_DEMAND_FROM_FILE_EVERY_TIME)
-			readACategoryCSV(requiredCategory);
+			store.refresh();
 		
-		double actualDemand = 0;
-		try {
-			String out = csvData.get(counter);
-			counter++; 
-			actualDemand = Double.parseDouble(out); //TODO: JPC Jul 2013 - Clean up, this is never used!
-
-			logger.info(csvDates.get(counter) + " Demand = " + actualDemand);
-		} catch (ArrayIndexOutOfBoundsException e) {
-			logger.error("Month not found " + e);
+		if (!store.contains(requiredCategory, counter)) {
+			logger.error("Month not found: " + counter);
+			return;
+		}
+		counter++;
+		if (logger.isInfoEnabled() && store.contains(requiredCategory, counter)) {
+			logger.info(store.getDate(counter) + " Demand = " + store.getDemand(requiredCategory, counter-1));
 		}
 	}
 	
 	public List<Double> getDemandList() {
 		
 		if (READ_DEMAND_FROM_FILE_EVERY_TIME)
-			readACategoryCSV(requiredCategory);
+			store.refresh();
 		
 		List<Double> convertedDemand = new ArrayList<Double>();
-		for (String st : csvData) {
-			convertedDemand.add(Double.parseDouble(st));
+		for (double d : store.getProfile(requiredCategory)) {
+			convertedDemand.add(d);
 		}
 		
 		return convertedDemand;
@@ -186,20 +179,16 @@ public class Demand {
 	public void reverseDemand(int months) {
 		
 		if (READ_DEMAND_FROM_FILE_EVERY_TIME)
-			readACategoryCSV(requiredCategory);
+			store.refresh();
 
 		counter -= months;
 		
-		double actualDemand = 0;
-		try {
-			String out = csvData.get(counter);
-			counter++;
-			actualDemand = Double.parseDouble(out);
-
-			logger.info("Demand: " + actualDemand);
-		} catch (ArrayIndexOutOfBoundsException e) {
-			logger.error("Month not found " + e);
+		if (!store.contains(requiredCategory, counter)) {
+			logger.error("Month not found: " + counter);
+			return;
 		}
+		counter++;
+		logger.info("Demand: " + store.getDemand(requiredCategory, counter-1));
 	}
 
 	/**
@@ -208,25 +197,22 @@ public class Demand {
 	 * @return current demand, -1 if end of demand file
 	 */
 	public double getCurrentDemand() {
-		try {
-			logger.debug("Getting current demand from file: " + mDataFile + ". Row counter = " + counter);
-			String out = csvData.get(counter);
-			logger.debug("Row counter = " + counter+ ". Returning current demand: " + out);
-			return (Double.parseDouble(out));
-		} catch (Exception e) {
+		logger.debug("Getting current demand from file: " + mDataFile + ". Row counter = " + counter);
+		if (!store.contains(requiredCategory, counter)) {
 			logger.warn("Demand data, end of file.  Not returning new demand.");
 			return -1;
 		}
+		double out = store.getDemand(requiredCategory, counter);
+		logger.debug("Row counter = " + counter+ ". Returning current demand: " + out);
+		return out;
 	}
 	
 	public String getCurrentDate() {
-		try {
-			String date = csvDates.get(counter);
-			return date;
-		} catch (Exception e) {
+		if (counter < 0 || counter >= store.getNumMonths()) {
 			logger.info("Demand data, end of file.  Not returning Date.");
 			return "";
 		}
+		return store.getDate(counter);
 	}
 
 	/**
@@ -235,34 +221,25 @@ public class Demand {
 	public double nextD() {
 		
 		if (READ_DEMAND_FROM_FILE_EVERY_TIME)
-			readACategoryCSV(requiredCategory);
+			store.refresh();
 		
-		logger.info(csvData.size() + " Data items in Category "
-				+ requiredCategory + "- " + csvHeader.get(requiredCategory) /*
-																			 * ":\n"
-																			 * +
-																			 * csvData
-																			 */);
-
-		double actualDemand = 0;
-		try {
-			if (counter >= csvData.size()) {
-				return -1;
-			}
-
-			String out = csvData.get(counter);
-			counter++;
-			actualDemand = Double.parseDouble(out);
+		logger.info(store.getNumMonths() + " Data items in Category "
+				+ requiredCategory + "- " + csvHeader.get(requiredCategory));
 
-			logger.debug("Demand: " + actualDemand);
-
-			return (actualDemand);
-
-		} catch (ArrayIndexOutOfBoundsException e) {
-			logger.error("Month not found " + e);
+		if (counter >= store.getNumMonths()) {
 			return -1;
 		}
+		if (!store.contains(requiredCategory, counter)) {
+			logger.error("Month not found: " + counter);
+			return -1;
+		}
+
+		double actualDemand = store.getDemand(requiredCategory, counter);
+		counter++;
 
+		logger.debug("Demand: " + actualDemand);
+
+		return (actualDemand);
 	}
 
 	/**
@@ -273,104 +250,21 @@ public class Demand {
 	}
 
 	/**
-	 * Reads the first row of the CSV file containing the categories
-	 * 
-	 * @author Alex Sheppard
-	 * @param name
-	 *            CSV filename
-	 * @return Arraylist containing the row category names
+	 * Get the shared store of demand profiles for the CSV file, which is read (once) if necessary, 
+	 * and set the header (the profile names).
 	 */
 	private void readHeaderCSV() {
-		try {
-			// Set up to read a file
-			File file = new File(mDataFile);
-			BufferedReader reader = new BufferedReader(new FileReader(file));
-
-			String line = "";
-			StringTokenizer stringtoken = null;
-			@SuppressWarnings("unused")
-			int tokenNumber = 0;
-
-			if ((line = reader.readLine()) != null) {
-				// arraylist to hold the strings in this line of the file
-				csvHeader = new ArrayList<String>();
-
-				// look through the line, and split up strings by ','
-				stringtoken = new StringTokenizer(line, ",");
-				stringtoken.nextToken();
-				tokenNumber++;
-
-				while (stringtoken.hasMoreTokens()) {
-					tokenNumber++;
-
-					String temp = stringtoken.nextToken();
-					temp = temp.replace("\\c", ",");
-					temp = temp.replace("\\n", "\n");
-					csvHeader.add(temp);
-					logger.debug("Demand header: " + temp);
-					// if (CloudSimApp.debugSatsuma)
-					// System.out.println("Token # " + tokenNumber +
-					// ", Token : "+ csvHeader.get(tokenNumber-1));
-				}
-
-				// if (CloudSimApp.debugSatsuma) System.out.println(csvHeader);
-			}
-			logger.info("Demand profile headers: " + csvHeader);
-			reader.close();
-
-		} catch (Exception e) {
-			logger.error("Error reading headers in file: " + e);
-		}
+		store = DemandProfileStore.getStore(mDataFile);
+		csvHeader = store.getProfileNames();
+		logger.info("Demand profile headers: " + csvHeader);
 	}
-
-	//TODO: Can't we save this to memory?
+	
 	/**
-	 * Reads the demand data for the given category
-	 * 
-	 * @author Alex Sheppard
-	 * @param requiredCategory
-	 *            category to read data from
+	 * Get the shared store of demand profiles
+	 * @return the store
 	 */
-	private void readACategoryCSV(int requiredCategory) {
-		try {
-			File file = new File(mDataFile);
-			BufferedReader reader = new BufferedReader(new FileReader(file));
-			
-			logger.info("Reading demand profile #" + requiredCategory + " from: " + mDataFile);
-			
-			String line = "";
-			StringTokenizer stringtoken = null;
-			int tokenNumber = 0;
-
-			csvData = new ArrayList<String>();
-			csvDates = new ArrayList<String>();
-			
-			reader.readLine();
-			while ((line = reader.readLine()) != null) {
-				stringtoken = new StringTokenizer(line, ",");
-				csvDates.add(stringtoken.nextToken());
-				
-				while (tokenNumber < requiredCategory) { //BUG Fixed 03/07/2013 JPC! Was originally <=, should be strictly less than!
-					stringtoken.nextToken();
-					tokenNumber++;
-				}
-
-				String temp = stringtoken.nextToken();
-				temp = temp.replace("\\c", ",");
-				temp = temp.replace("\\n", "\n");
-
-				csvData.add(temp);
-
-				tokenNumber = 0;
-			}
-			reader.close();
-			
-			logger.debug("Demand for profile: " + csvHeader.get(requiredCategory));
-			logger.debug(csvData);
-			
-		} catch (Exception e) {
-			logger.error("Error reading data from file: " + e);
-		}
+	public DemandProfileStore getStore() {
+		return store;
 	}
 	
 	public void reset() {
@@ -444,6 +338,6 @@ public class Demand {
 
 	@Override
 	public String toString() {
-		return "Demand [csvData=" + csvData + ", csvDates=" + csvDates + "]";
+		return "Demand [file=" + mDataFile + ", profile=" + requiredCategory + ", month=" + counter + ", store=" + store + "]";
 	}
 }	
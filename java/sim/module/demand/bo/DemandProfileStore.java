@@ -0,0 +1,461 @@
+/**
+ *   This file is part of CReST: The Cloud Research Simulation Toolkit 
+ *   Copyright (C) 2011, 2012 John Cartlidge 
+ * 
+ *   For a full list of contributors, refer to file CONTRIBUTORS.txt 
+ *
+ *   CReST was developed at the University of Bristol, UK, using 
+ *   financial support from the UK's Engineering and Physical 
+ *   Sciences Research Council (EPSRC) grant EP/H042644/1 entitled 
+ *   "Cloud Computing for Large-Scale Complex IT Systems". Refer to
+ *   <http://gow.epsrc.ac.uk/NGBOViewGrant.aspx?GrantRef=EP/H042644/1>
+ * 
+ *   CReST is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/gpl.txt>.
+ *
+ *   For further information, contact: 
+ *
+ *   Dr. John Cartlidge: john@john-cartlidge.co.uk
+ *   Department of Computer Science,
+ *   University of Bristol, The Merchant Venturers Building,
+ *   Woodland Road, Bristol, BS8-1UB, United Kingdom.
+ *
+ */
+package sim.module.demand.bo;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringTokenizer;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Demand profiles from a demand CSV file, parsed once and shared by all readers of the file.
+ * 
+ * The CSV has a header row of profile names (the first column is the date) and one row per month. 
+ * Values are held in a primitive matrix (profiles x months), so a profile can be read without parsing.
+ * 
+ * If binary sidecars are enabled, the parsed matrix is also written to "[file].bin" and, on later runs, 
+ * memory-mapped from there instead of parsing the CSV. The sidecar is rebuilt whenever the CSV changes.
+ * 
+ * Stores are shared by every simulation context in the process.  The parsed profiles are published 
+ * as a single immutable snapshot, so a reader never sees the matrix of one load with the size of 
+ * another, even while the store is being reloaded.
+ * 
+ * A store is serialized as the name of its file, so a simulation restored from a checkpoint shares the 
+ * store of the current process.
+ *
+ */
+public class DemandProfileStore implements Serializable {
+
+	public static Logger logger = Logger.getLogger(DemandProfileStore.class);
+	
+	private static final long serialVersionUID = 1L;
+	
+	public static final String SIDECAR_EXTENSION = ".bin";
+	
+	protected static final int SIDECAR_MAGIC = 0x43445046; // "CDPF"
+	protected static final int SIDECAR_VERSION = 1;
+	
+	// Write and memory-map binary sidecars next to demand CSV files
+	protected static boolean useBinarySidecar = false;
+	
+	protected static Map<String, DemandProfileStore> stores = new HashMap<String, DemandProfileStore>();
+	
+	protected final File file;
+	
+	// The profiles of the last load, replaced (never modified) when the file is reloaded
+	protected volatile Profiles profiles;
+	
+	/**
+	 * The parsed contents of a demand file, as loaded at one time (immutable)
+	 */
+	protected static final class Profiles {
+		
+		protected final long fileLastModified;
+		protected final long fileLength;
+		protected final List<String> profileNames;
+		protected final List<String> dates;
+		protected final int numProfiles;
+		protected final int numMonths;
+		protected final DoubleBuffer values; // profile-major: value(p,m) = values[p*numMonths + m]. Only read by index.
+		
+		protected Profiles(long fileLastModified, long fileLength, List<String> profileNames, List<String> dates, 
+				int numMonths, DoubleBuffer values) {
+			this.fileLastModified = fileLastModified;
+			this.fileLength = fileLength;
+			this.profileNames = Collections.unmodifiableList(profileNames);
+			this.dates = Collections.unmodifiableList(dates);
+			this.numProfiles = profileNames.size();
+			this.numMonths = numMonths;
+			this.values = values;
+		}
+		
+		protected boolean contains(int profile, int month) {
+			return profile>=0 && profile<numProfiles && month>=0 && month<numMonths;
+		}
+	}
+	
+	/**
+	 * Get the (shared) store for a demand file, loading it if necessary
+	 * @param dataFile - demand CSV filename
+	 * @return the store
+	 */
+	public static synchronized DemandProfileStore getStore(String dataFile) {
+		
+		File file = new File(dataFile);
+		String key;
+		try {
+			key = file.getCanonicalPath();
+		} catch (IOException e) {
+			key = file.getAbsolutePath();
+		}
+		DemandProfileStore store = stores.get(key);
+		if(store==null) {
+			store = new DemandProfileStore(file);
+			stores.put(key, store);
+		}
+		return store;
+	}
+	
+	/**
+	 * Remove all stores, so that files are loaded again on next use
+	 */
+	public static synchronized void clearStores() {
+		stores.clear();
+	}
+	
+	/**
+	 * Serialize the store as a reference to its file
+	 */
+	protected Object writeReplace() {
+		return new StoreReference(file.getPath());
+	}
+	
+	/**
+	 * Serialized form of a store: resolves to the shared store for the file
+	 */
+	protected static class StoreReference implements Serializable {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final String dataFile;
+		
+		protected StoreReference(String dataFile) {
+			this.dataFile = dataFile;
+		}
+		
+		protected Object readResolve() {
+			return getStore(dataFile);
+		}
+	}
+	
+	public static void setUseBinarySidecar(boolean useSidecar) {
+		useBinarySidecar = useSidecar;
+	}
+	
+	public static boolean isUseBinarySidecar() {
+		return useBinarySidecar;
+	}
+	
+	protected DemandProfileStore(File file) {
+		this.file = file;
+		load();
+	}
+	
+	/**
+	 * Reload the store if the demand file has changed since it was loaded
+	 * @return true if reloaded, false otherwise
+	 */
+	public synchronized boolean refresh() {
+		Profiles current = profiles;
+		if(file.lastModified()==current.fileLastModified && file.length()==current.fileLength) return false;
+		logger.info("Demand file has changed, reloading: " + file);
+		load();
+		return true;
+	}
+	
+	protected synchronized void load() {
+		
+		long lastModified = file.lastModified();
+		long length = file.length();
+		
+		File sidecar = getSidecarFile();
+		if(useBinarySidecar && sidecar.exists()) {
+			Profiles mapped = readSidecar(sidecar, lastModified, length);
+			if(mapped!=null) {
+				profiles = mapped;
+				logger.info("Mapped " + mapped.numProfiles + " demand profiles x " + mapped.numMonths + " months from: " + sidecar);
+				return;
+			}
+		}
+		
+		Profiles parsed = readCSV(lastModified, length);
+		profiles = parsed;
+		logger.info("Read " + parsed.numProfiles + " demand profiles x " + parsed.numMonths + " months from: " + file);
+		
+		if(useBinarySidecar) writeSidecar(sidecar, parsed);
+	}
+	
+	protected File getSidecarFile() {
+		return new File(file.getPath() + SIDECAR_EXTENSION);
+	}
+	
+	/**
+	 * Parse the CSV file into the value matrix.
+	 * 
+	 * Values that are missing or not numbers are stored as NaN.
+	 */
+	protected Profiles readCSV(long lastModified, long length) {
+		
+		List<String> profileNames = new ArrayList<String>();
+		List<String> dates = new ArrayList<String>();
+		List<double[]> rows = new ArrayList<double[]>();
+		
+		try {
+			BufferedReader reader = new BufferedReader(new FileReader(file));
+			try {
+				String line = reader.readLine();
+				if(line!=null) {
+					StringTokenizer stringtoken = new StringTokenizer(line, ",");
+					if(stringtoken.hasMoreTokens()) stringtoken.nextToken(); // date column
+					while (stringtoken.hasMoreTokens()) {
+						profileNames.add(unescape(stringtoken.nextToken()));
+					}
+				}
+				
+				int invalid = 0;
+				while ((line = reader.readLine()) != null) {
+					StringTokenizer stringtoken = new StringTokenizer(line, ",");
+					dates.add(stringtoken.hasMoreTokens() ? stringtoken.nextToken() : "");
+					double[] row = new double[profileNames.size()];
+					for(int p=0; p<row.length; p++) {
+						if(stringtoken.hasMoreTokens()) {
+							try {
+								row[p] = Double.parseDouble(stringtoken.nextToken());
+							} catch (NumberFormatException e) {
+								row[p] = Double.NaN;
+								invalid++;
+							}
+						} else {
+							row[p] = Double.NaN;
+							invalid++;
+						}
+					}
+					rows.add(row);
+				}
+				if(invalid>0) logger.warn(invalid + " missing or invalid demand values in " + file + ", set to NaN");
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			logger.error("Error reading demand file: " + e);
+		}
+		
+		int numProfiles = profileNames.size();
+		int numMonths = rows.size();
+		double[] matrix = new double[numProfiles*numMonths];
+		for(int m=0; m<numMonths; m++) {
+			double[] row = rows.get(m);
+			for(int p=0; p<numProfiles; p++) {
+				matrix[p*numMonths + m] = row[p];
+			}
+		}
+		return new Profiles(lastModified, length, profileNames, dates, numMonths, DoubleBuffer.wrap(matrix));
+	}
+	
+	private static String unescape(String token) {
+		return token.replace("\\c", ",").replace("\\n", "\n");
+	}
+	
+	/**
+	 * Write the value matrix to a binary sidecar file
+	 * 
+	 * Format: magic, version, CSV last modified & length, #profiles, #months, profile names, dates, 
+	 * padding to an 8 byte boundary, then the matrix (big-endian doubles).
+	 * 
+	 * The sidecar may be memory-mapped by a store in use elsewhere, so it is never written in place: 
+	 * a temporary file in the same directory is written, then renamed over the sidecar.
+	 */
+	protected void writeSidecar(File sidecar, Profiles p) {
+		
+		File temp = null;
+		try {
+			temp = File.createTempFile(sidecar.getName(), ".tmp", sidecar.getAbsoluteFile().getParentFile());
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+			try {
+				out.writeInt(SIDECAR_MAGIC);
+				out.writeInt(SIDECAR_VERSION);
+				out.writeLong(p.fileLastModified);
+				out.writeLong(p.fileLength);
+				out.writeInt(p.numProfiles);
+				out.writeInt(p.numMonths);
+				for(String name: p.profileNames) out.writeUTF(name);
+				for(String date: p.dates) out.writeUTF(date);
+				while(out.size()%8!=0) out.writeByte(0);
+				for(int i=0; i<p.values.capacity(); i++) out.writeDouble(p.values.get(i));
+			} finally {
+				out.close();
+			}
+			try {
+				Files.move(temp.toPath(), sidecar.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp.toPath(), sidecar.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			logger.info("Wrote demand profile sidecar: " + sidecar);
+		} catch (IOException e) {
+			logger.warn("Could not write demand profile sidecar " + sidecar + ": " + e.getMessage());
+			if(temp!=null) temp.delete();
+		}
+	}
+	
+	/**
+	 * Memory-map the value matrix from a binary sidecar file
+	 * @param lastModified - last modified time of the CSV file
+	 * @param length - length of the CSV file
+	 * @return the profiles, or null if the sidecar is unreadable or out of date
+	 */
+	protected Profiles readSidecar(File sidecar, long lastModified, long length) {
+		
+		try {
+			RandomAccessFile raf = new RandomAccessFile(sidecar, "r");
+			try {
+				if(raf.readInt()!=SIDECAR_MAGIC || raf.readInt()!=SIDECAR_VERSION) {
+					logger.warn("Unknown demand profile sidecar format: " + sidecar);
+					return null;
+				}
+				if(raf.readLong()!=lastModified || raf.readLong()!=length) {
+					logger.info("Demand profile sidecar is out of date: " + sidecar);
+					return null;
+				}
+				int numProfiles = raf.readInt();
+				int numMonths = raf.readInt();
+				String[] names = new String[numProfiles];
+				String[] rowDates = new String[numMonths];
+				for(int p=0; p<numProfiles; p++) names[p] = raf.readUTF();
+				for(int m=0; m<numMonths; m++) rowDates[m] = raf.readUTF();
+				long offset = (raf.getFilePointer()+7)/8*8;
+				long size = 8L*numProfiles*numMonths;
+				if(offset+size!=raf.length()) {
+					logger.warn("Truncated demand profile sidecar: " + sidecar);
+					return null;
+				}
+				
+				MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, offset, size);
+				buffer.order(ByteOrder.BIG_ENDIAN);
+				
+				return new Profiles(lastModified, length, new ArrayList<String>(Arrays.asList(names)), 
+						new ArrayList<String>(Arrays.asList(rowDates)), numMonths, buffer.asDoubleBuffer());
+			} finally {
+				raf.close(); // the mapping remains valid after the file is closed
+			}
+		} catch (IOException e) {
+			logger.warn("Could not read demand profile sidecar " + sidecar + ": " + e.getMessage());
+			return null;
+		}
+	}
+	
+	public File getFile() {
+		return file;
+	}
+	
+	/**
+	 * @return profile names (CSV header, excluding the date column)
+	 */
+	public List<String> getProfileNames() {
+		return profiles.profileNames;
+	}
+	
+	public String getProfileName(int profile) {
+		return profiles.profileNames.get(profile);
+	}
+	
+	public int getNumProfiles() {
+		return profiles.numProfiles;
+	}
+	
+	public int getNumMonths() {
+		return profiles.numMonths;
+	}
+	
+	/**
+	 * @return the date of a month (row), or "" if out of range
+	 */
+	public String getDate(int month) {
+		Profiles p = profiles;
+		if(month<0 || month>=p.numMonths) return "";
+		return p.dates.get(month);
+	}
+	
+	/**
+	 * Is (profile, month) a position in the matrix?
+	 */
+	public boolean contains(int profile, int month) {
+		return profiles.contains(profile, month);
+	}
+	
+	/**
+	 * Get the demand of a profile in a month
+	 * @throws IndexOutOfBoundsException if (profile, month) is not in the matrix
+	 */
+	public double getDemand(int profile, int month) {
+		Profiles p = profiles;
+		if(!p.contains(profile, month)) {
+			throw new IndexOutOfBoundsException("Demand profile #" + profile + ", month " + month + 
+					" not in [" + p.numProfiles + " x " + p.numMonths + "]");
+		}
+		return p.values.get(profile*p.numMonths + month);
+	}
+	
+	/**
+	 * Get all months of a demand profile
+	 * @return a copy of the profile
+	 */
+	public double[] getProfile(int profile) {
+		Profiles p = profiles;
+		if(profile<0 || profile>=p.numProfiles) {
+			throw new IndexOutOfBoundsException("Demand profile #" + profile + " not in [" + p.numProfiles + " x " + p.numMonths + "]");
+		}
+		double[] profileValues = new double[p.numMonths];
+		for(int m=0; m<p.numMonths; m++) {
+			profileValues[m] = p.values.get(profile*p.numMonths + m);
+		}
+		return profileValues;
+	}
+	
+	@Override
+	public String toString() {
+		Profiles p = profiles;
+		return "DemandProfileStore [file=" + file + ", profiles=" + p.numProfiles + ", months=" + p.numMonths + "]";
+	}
+}
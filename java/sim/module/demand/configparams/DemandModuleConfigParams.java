@@ -36,6 +36,7 @@ package sim.module.demand.configparams;
 import org.jdom.Element;
 
 import sim.module.configparams.ModuleParamsInterface;
+import sim.module.demand.bo.DemandProfileStore;
 
 
 public class DemandModuleConfigParams implements ModuleParamsInterface {
@@ -43,12 +44,15 @@ public class DemandModuleConfigParams implements ModuleParamsInterface {
 	public static final String XML_ELEMENT_NAME = "demand";
 	public static final String FILENAME_XML_TAG = "file";
 	public static final String BROKER_XML_TAG = "usebroker";
+	public static final String SIDECAR_XML_TAG = "binarycache";
 
 	private static String DEFAULT_FILENAME = "etc/demanddata.csv";
 	private static boolean DEFAULT_BROKER = false;
+	private static boolean DEFAULT_SIDECAR = false;
 	
 	protected String filename = DEFAULT_FILENAME;
 	protected boolean brokerOn = DEFAULT_BROKER;
+	protected boolean useBinarySidecar = DEFAULT_SIDECAR; // cache parsed demand profiles in a memory-mapped binary file
 	
 	public DemandModuleConfigParams(String filename, boolean brokerStatus) {
 		this.filename = filename;
@@ -72,6 +76,15 @@ public class DemandModuleConfigParams implements ModuleParamsInterface {
 		brokerOn = brokerIsActive;
 	}
 	
+	public boolean isUseBinarySidecar() {
+		return useBinarySidecar;
+	}
+	
+	public void setUseBinarySidecar(boolean useSidecar) {
+		useBinarySidecar = useSidecar;
+		DemandProfileStore.setUseBinarySidecar(useSidecar);
+	}
+	
 	public static DemandModuleConfigParams getDefault() {
 		return new DemandModuleConfigParams(DEFAULT_FILENAME, DEFAULT_BROKER);
 	}
@@ -82,6 +95,7 @@ public class DemandModuleConfigParams implements ModuleParamsInterface {
 		Element e = new Element(ModuleParamsInterface.XML_ELEMENT_NAME_STRING);		
 		e.setAttribute(FILENAME_XML_TAG, filename);		
 		e.setAttribute(BROKER_XML_TAG, String.valueOf(brokerOn));
+		e.setAttribute(SIDECAR_XML_TAG, String.valueOf(useBinarySidecar));
 		return e;
 	}
 
@@ -89,12 +103,15 @@ public class DemandModuleConfigParams implements ModuleParamsInterface {
 	public void updateUsingXML(Element e) {		
 		filename = e.getAttributeValue(FILENAME_XML_TAG);
 		brokerOn = Boolean.parseBoolean(e.getAttributeValue(BROKER_XML_TAG));
+		String sidecar = e.getAttributeValue(SIDECAR_XML_TAG); // optional
+		setUseBinarySidecar(sidecar!=null && Boolean.parseBoolean(sidecar));
 	}
 	
 	public String toString() {
 		String s = "DemandModuleConfigParams [";
 		s+= FILENAME_XML_TAG+"='" + filename + ", " +
-		    BROKER_XML_TAG+"=" + brokerOn +
+		    BROKER_XML_TAG+"=" + brokerOn + ", " +
+		    SIDECAR_XML_TAG+"=" + useBinarySidecar +
 				"']";
 		return s;
 	}
@@ -104,6 +121,7 @@ public class DemandModuleConfigParams implements ModuleParamsInterface {
 		if(params.getClass().equals(this.getClass())) {
 			this.filename = ((DemandModuleConfigParams) params).filename;
 			this.brokerOn = ((DemandModuleConfigParams) params).brokerOn;
+			setUseBinarySidecar(((DemandModuleConfigParams) params).useBinarySidecar);
 		} else {
 			logger.warn("Ignoring changes: Attempting to clone parameters of incorrect class: " + params.getClass());
 		}	
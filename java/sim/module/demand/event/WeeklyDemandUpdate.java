@@ -49,6 +49,8 @@ public class WeeklyDemandUpdate extends Event
 {
 	public static Logger logger = Logger.getLogger(WeeklyDemandUpdate.class);
 	
+	private static final long serialVersionUID = 1L;
+	
 	public static final long FIRST_UPDATE_DEMAND_EVENT = TimeManager.minutesToSimulationTime(0);
     public static final long SERVICE_RUN_DURATION = TimeManager.minutesToSimulationTime(59) + TimeManager.secondsToSimulationTime(59);
 //    public static final long SERVICE_RUN_DURATION = TimeManager.hoursToSimulationTime(23) + TimeManager.minutesToSimulationTime(59) + TimeManager.secondsToSimulationTime(59);
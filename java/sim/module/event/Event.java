@@ -37,6 +37,8 @@
  */
 package sim.module.event;
 
+import java.io.Serializable;
+
 import org.apache.log4j.Logger;
 
 import sim.module.Module;
@@ -51,13 +53,15 @@ import sim.physical.World;
  * create events that must occur as a direct consequence of the current event
  * happening, e.g. a fix event must be generated by a failure event.
  */
-public abstract class Event implements Comparable<Event>
+public abstract class Event implements Comparable<Event>, Serializable
 {
 	
 	public static Logger logger = Logger.getLogger(Event.class);
 	
+	private static final long serialVersionUID = 1L;
+	
 //    protected static final long START_TIME_DISTRIBUTION = 1000000;
-    protected final long        mStartTime;
+    protected long              mStartTime;
     protected int               numEventsGenerated     = 0;
     protected boolean 			ignore = false; //ignore this event
     protected int 				datacentre_index = -1; //the datacentre this event is associated with (-1 if non-dc specific)
@@ -105,6 +109,35 @@ public abstract class Event implements Comparable<Event>
     	ignore = true;
     }
 
+    /**
+     * Reset this event to happen at a new time, so that the same instance can
+     * be added to the event queue again rather than a new event created.
+     * 
+     * WARNING Only call this when the event is not in the EventQueue (e.g.,
+     *          while it is being performed), since the queue is ordered by time.
+     * 
+     * @param pStartTime
+     *            The time that this event should next happen.
+     */
+    protected void reschedule(final long pStartTime)
+    {
+        mStartTime = pStartTime;
+        numEventsGenerated = 0;
+        ignore = false;
+    }
+    
+    /**
+     * Called by the simulation once this event has been performed and is no
+     * longer referenced by the event queue.
+     * 
+     * Pooled event types override this to return the instance to their pool. 
+     * Does nothing by default.
+     */
+    public void release()
+    {
+    	
+    }
+
     /**
      * Return the time that this event will happen at.
      * 
@@ -0,0 +1,129 @@
+/**
+ *   This file is part of CReST: The Cloud Research Simulation Toolkit 
+ *   Copyright (C) 2011, 2012 John Cartlidge 
+ * 
+ *   For a full list of contributors, refer to file CONTRIBUTORS.txt 
+ *
+ *   CReST was developed at the University of Bristol, UK, using 
+ *   financial support from the UK's Engineering and Physical 
+ *   Sciences Research Council (EPSRC) grant EP/H042644/1 entitled 
+ *   "Cloud Computing for Large-Scale Complex IT Systems". Refer to
+ *   <http://gow.epsrc.ac.uk/NGBOViewGrant.aspx?GrantRef=EP/H042644/1>
+ * 
+ *   CReST is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/gpl.txt>.
+ *
+ *   For further information, contact: 
+ *
+ *   Dr. John Cartlidge: john@john-cartlidge.co.uk
+ *   Department of Computer Science,
+ *   University of Bristol, The Merchant Venturers Building,
+ *   Woodland Road, Bristol, BS8-1UB, United Kingdom.
+ *
+ */
+package sim.module.event;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+
+/**
+ * A pool of performed events that can be reinitialised and queued again, 
+ * rather than allocating a new event each time.
+ * 
+ * Pooled event types get instances from their pool in their create() methods,
+ * and return them in release(), which the simulation calls once the event has
+ * been performed. A pool belongs to a single simulation (SimulationContext).
+ *
+ * @param <E> the type of event pooled
+ */
+public class EventPool<E extends Event> implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    public static final int DEFAULT_MAX_SIZE = 1024;
+
+    private final ArrayDeque<E> mFree = new ArrayDeque<E>();
+    private final int           mMaxSize;
+
+    private long                mNumReused = 0;
+    private long                mNumReleased = 0;
+
+    public EventPool()
+    {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param pMaxSize
+     *            the maximum number of free events to hold.
+     */
+    public EventPool(int pMaxSize)
+    {
+        mMaxSize = pMaxSize;
+    }
+
+    /**
+     * Take a free event from the pool.
+     * 
+     * @return a performed event to be reinitialised, or null if the pool is empty.
+     */
+    public E obtain()
+    {
+        E event = mFree.poll();
+        if (event != null)
+        {
+            mNumReused++;
+        }
+        return event;
+    }
+
+    /**
+     * Return a performed event to the pool. The event must not be referenced
+     * elsewhere.
+     * 
+     * @param pEvent
+     *            the event to return.
+     */
+    public void release(E pEvent)
+    {
+        mNumReleased++;
+        if (mFree.size() < mMaxSize)
+        {
+            mFree.push(pEvent);
+        }
+    }
+
+    /**
+     * Get the number of free events in the pool.
+     */
+    public int size()
+    {
+        return mFree.size();
+    }
+
+    /**
+     * Get the number of events that have been reused from the pool.
+     */
+    public long getNumReused()
+    {
+        return mNumReused;
+    }
+
+    /**
+     * Get the number of events that have been returned to the pool.
+     */
+    public long getNumReleased()
+    {
+        return mNumReleased;
+    }
+}
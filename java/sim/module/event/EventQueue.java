@@ -33,12 +33,20 @@
  */
 package sim.module.event;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Observable;
+import java.util.Observer;
 
 import org.apache.log4j.Logger;
 
+import sim.SimulationContext;
 import sim.event.StartSimEvent;
 import sim.event.StopSimEvent;
 
@@ -52,26 +60,40 @@ import sim.event.StopSimEvent;
  * number of events upon a maximum which are to be executed soonest. The
  * secondary queue holds all other event and is only sorted which more events
  * need to be pulled out for the active queue.
+ * 
+ * Recurring events are held separately in a TimerWheel, which avoids 
+ * re-ordering the queues every time one of them reschedules itself. The next
+ * event is whichever of the two is earliest; on a tie, the event in the queues
+ * goes first.
+ * 
+ * The queue is saved with simulation checkpoints (see SimulationCheckpoint), 
+ * together with those observers which are themselves serializable (the module
+ * runners). Other observers, such as the GUI, are not part of the checkpoint.
  */
-public class EventQueue extends Observable
+public class EventQueue extends Observable implements Serializable
 {
 	public static Logger logger = Logger.getLogger(EventQueue.class);
 	
+	private static final long serialVersionUID = 1L;
+	
     // Debug
     public static final boolean USE_DOUBLE_QUEUE   = true;
+    public static final boolean USE_TIMER_WHEEL    = true;
 
     // Constants
     private static final double ACTIVE_LOWER_BOUND = 0.1;
     private static final double ACTIVE_UPPER_BOUND = 0.4;
     private static final int    MIN_NUM_EVENTS     = 10;
 
-    // Singleton instance
-    private static EventQueue   instance           = null;
 
     // Member variables
     private ArrayList<Event>    mEvents            = new ArrayList<Event>();
     private ArrayList<Event>    mActiveEvents      = new ArrayList<Event>();
     private ArrayList<Event>    mRestEvents        = new ArrayList<Event>();
+    private TimerWheel          mRecurringEvents   = new TimerWheel();
+
+    // Observable does not give access to its observers, so keep a copy
+    private transient List<Observer> mObservers    = new ArrayList<Observer>();
 
     private boolean             mIsSorted          = false;
     private int                 mNumTimesSorted    = 0;
@@ -92,10 +114,12 @@ public class EventQueue extends Observable
      */
     public static EventQueue getInstance()
     {
+        EventQueue instance = SimulationContext.getCurrent().getSingleton(EventQueue.class);
         if (instance == null)
         {
         	logger.debug("Creating new EventQueue() object");
             instance = new EventQueue();
+            SimulationContext.getCurrent().setSingleton(EventQueue.class, instance);
         }
 
         return instance;
@@ -110,16 +134,17 @@ public class EventQueue extends Observable
      */
     public boolean destroy(){
  
-    	if(instance != null) {
+    	if(SimulationContext.getCurrent().getSingleton(EventQueue.class) != null) {
     		logger.debug("Clearing event queue...");
     	    mEvents.clear();
     	    mActiveEvents.clear(); 
     	    mRestEvents.clear();
+    	    mRecurringEvents.clear();
     	    mIsSorted = false;
     	    mNumTimesSorted = 0;
     	    logger.debug("Size is now " + size());
     	    
-    		instance = null; //does this do anything?
+    		SimulationContext.getCurrent().setSingleton(EventQueue.class, null);
     		
     		//notify observers of simulation end
     		setChanged();
@@ -132,12 +157,72 @@ public class EventQueue extends Observable
     	} 		
     }
 
+    @Override
+    public synchronized void addObserver(Observer o)
+    {
+        super.addObserver(o);
+        if (o != null && !mObservers.contains(o))
+        {
+            mObservers.add(o);
+        }
+    }
+
+    @Override
+    public synchronized void deleteObserver(Observer o)
+    {
+        super.deleteObserver(o);
+        mObservers.remove(o);
+    }
+
+    @Override
+    public synchronized void deleteObservers()
+    {
+        super.deleteObservers();
+        mObservers.clear();
+    }
+
+    /**
+     * Save the queue with its serializable observers, in the order they were
+     * added (the order in which they are notified).
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException
+    {
+        out.defaultWriteObject();
+
+        ArrayList<Observer> observers = new ArrayList<Observer>();
+        for (Observer o : mObservers)
+        {
+            if (o instanceof Serializable)
+            {
+                observers.add(o);
+            }
+            else
+            {
+                logger.debug("Not saving event queue observer " + o);
+            }
+        }
+        out.writeObject(observers);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+    {
+        in.defaultReadObject();
+
+        mObservers = new ArrayList<Observer>();
+        for (Observer o : (List<Observer>) in.readObject())
+        {
+            addObserver(o);
+        }
+    }
+
     /**
      * Clears the queue and pushes an initial event to it.
      */
     public void reset(final long pSpawnerPeriod)
     {
         mEvents.clear();
+        mRecurringEvents.clear();
         addEvent(EventSpawner.create(0, true, pSpawnerPeriod));
     }
 
@@ -175,7 +260,11 @@ public class EventQueue extends Observable
         Event event;
 
         // TODO: Complete the double queue implementation.
-        if (USE_DOUBLE_QUEUE)
+        if (USE_TIMER_WHEEL && isRecurringEventNext())
+        {
+            event = mRecurringEvents.poll();
+        }
+        else if (USE_DOUBLE_QUEUE)
         {
             // Double event queue code.
             event = mActiveEvents.get(0);
@@ -200,6 +289,31 @@ public class EventQueue extends Observable
         return event;
     }
 
+    /**
+     * Check whether the next event is the earliest recurring event, rather 
+     * than the event at the front of the queue.
+     * 
+     * @return true if the next event should be taken from the timer wheel.
+     */
+    private boolean isRecurringEventNext()
+    {
+        final Event recurring = mRecurringEvents.peek();
+        final ArrayList<Event> queue = USE_DOUBLE_QUEUE ? mActiveEvents : mEvents;
+
+        if (recurring == null)
+        {
+            return false;
+        }
+        else if (queue.isEmpty())
+        {
+            return true;
+        }
+        else
+        {
+            return recurring.time() < queue.get(0).time();
+        }
+    }
+
     /**
      * Add an event to the queue.
      * 
@@ -208,7 +322,11 @@ public class EventQueue extends Observable
      */
     private void push(final Event pEvent)
     {
-        if (USE_DOUBLE_QUEUE)
+        if (USE_TIMER_WHEEL && pEvent instanceof RecurringEvent)
+        {
+            mRecurringEvents.add((RecurringEvent) pEvent);
+        }
+        else if (USE_DOUBLE_QUEUE)
         {
             // Double event queue code.
             final int numEvents = mActiveEvents.size() + mRestEvents.size();
@@ -271,12 +389,12 @@ public class EventQueue extends Observable
         if (USE_DOUBLE_QUEUE)
         {
             // Double queue code.
-            return mActiveEvents.size() + mRestEvents.size();
+            return mActiveEvents.size() + mRestEvents.size() + mRecurringEvents.size();
         }
         else
         {
             // Single queue code.
-            return mEvents.size();
+            return mEvents.size() + mRecurringEvents.size();
         }
     }
 
@@ -378,6 +496,47 @@ public class EventQueue extends Observable
         }
     }
 
+    /**
+     * Removes the stop events for the configured end time of the run (see 
+     * StopSimEvent.createEndOfRun()) from the queue, so the run can be given a 
+     * different end time.  Other stop events (e.g., user events) are kept.
+     * 
+     * @return the number of events removed.
+     */
+    public int removeEndOfRunStops()
+    {
+        final int numRemoved = removeEndOfRunStops(mActiveEvents) + removeEndOfRunStops(mRestEvents) + removeEndOfRunStops(mEvents);
+
+        if (USE_DOUBLE_QUEUE)
+        {
+            balanceQueues();
+        }
+
+        return numRemoved;
+    }
+
+    /**
+     * Removes the end of run stop events from one of the queues, keeping the 
+     * order of the other events.
+     * 
+     * @return the number of events removed.
+     */
+    private int removeEndOfRunStops(ArrayList<Event> pEvents)
+    {
+        int numRemoved = 0;
+        final Iterator<Event> it = pEvents.iterator();
+        while (it.hasNext())
+        {
+            final Event event = it.next();
+            if (event instanceof StopSimEvent && ((StopSimEvent) event).isEndOfRun())
+            {
+                it.remove();
+                numRemoved++;
+            }
+        }
+        return numRemoved;
+    }
+
     /**
      * Check if the queue is currently sorted.
      * 
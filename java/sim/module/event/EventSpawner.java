@@ -49,6 +49,8 @@ import sim.module.log.Log;
 import sim.module.sim.configparams.SimModuleConfigParams;
 import sim.module.userevents.bo.EventFileReader;
 import sim.module.userevents.configparams.UserEventsModuleConfigParams;
+import utility.logging.LazyLog;
+import utility.logging.LogSwitch;
 import utility.time.TimeManager;
 
 /**
@@ -61,6 +63,8 @@ public class EventSpawner extends Event
 	
 	public static Logger logger = Logger.getLogger(EventSpawner.class);
 	
+	private static final long serialVersionUID = 1L;
+	
     // Member variables
     private final boolean    isInitialEvent;
     private final long       mSpawnerPeriod;
@@ -84,7 +88,7 @@ public class EventSpawner extends Event
         mSpawnerPeriod = pSpawnerPeriod;
         isInitialEvent = pIsInitialEvent;
         
-        logger.info(TimeManager.log("New EventSpawner Event"));
+        if(LogSwitch.EVENTS) LazyLog.infoAt(logger, "New EventSpawner Event");
     }
 
     /**
@@ -129,7 +133,7 @@ public class EventSpawner extends Event
        
                 if (endTime != 0)
                 {
-                    queue.addEvent(StopSimEvent.create(endTime));
+                    queue.addEvent(StopSimEvent.createEndOfRun(endTime));
                     numEventsGenerated++;
                 }
             }
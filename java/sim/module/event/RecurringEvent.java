@@ -0,0 +1,76 @@
+/**
+ *   This file is part of CReST: The Cloud Research Simulation Toolkit 
+ *   Copyright (C) 2011, 2012 John Cartlidge 
+ * 
+ *   For a full list of contributors, refer to file CONTRIBUTORS.txt 
+ *
+ *   CReST was developed at the University of Bristol, UK, using 
+ *   financial support from the UK's Engineering and Physical 
+ *   Sciences Research Council (EPSRC) grant EP/H042644/1 entitled 
+ *   "Cloud Computing for Large-Scale Complex IT Systems". Refer to
+ *   <http://gow.epsrc.ac.uk/NGBOViewGrant.aspx?GrantRef=EP/H042644/1>
+ * 
+ *   CReST is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/gpl.txt>.
+ *
+ *   For further information, contact: 
+ *
+ *   Dr. John Cartlidge: john@john-cartlidge.co.uk
+ *   Department of Computer Science,
+ *   University of Bristol, The Merchant Venturers Building,
+ *   Woodland Road, Bristol, BS8-1UB, United Kingdom.
+ *
+ */
+package sim.module.event;
+
+/**
+ * An event that happens repeatedly, e.g., logging or periodic updates.
+ * 
+ * Rather than creating a new event for its next occurrence, a recurring event
+ * reschedules itself and goes back into the event queue, so a single instance
+ * serves the whole simulation. Subclasses call repeatAt() from generateEvents()
+ * where they used to add a new instance of themselves to the queue.
+ * 
+ * Anything that depends only on configuration (such as the period) can be 
+ * read once in the constructor, rather than for every occurrence.
+ */
+public abstract class RecurringEvent extends Event
+{
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * @param pStartTime
+     *            The time of the first occurrence.
+     * @param dcID
+     *            The datacentre associated with this event (-1 for non-specific event)
+     */
+    protected RecurringEvent(final long pStartTime, int dcID)
+    {
+        super(pStartTime, dcID);
+    }
+
+    /**
+     * Reschedule this event to happen again, and add it back to the event queue.
+     * 
+     * Must only be called while the event is being performed.
+     * 
+     * @param pStartTime
+     *            The time of the next occurrence.
+     */
+    protected void repeatAt(final long pStartTime)
+    {
+        reschedule(pStartTime);
+        EventQueue.getInstance().addEvent(this);
+    }
+}
@@ -0,0 +1,234 @@
+/**
+ *   This file is part of CReST: The Cloud Research Simulation Toolkit 
+ *   Copyright (C) 2011, 2012 John Cartlidge 
+ * 
+ *   For a full list of contributors, refer to file CONTRIBUTORS.txt 
+ *
+ *   CReST was developed at the University of Bristol, UK, using 
+ *   financial support from the UK's Engineering and Physical 
+ *   Sciences Research Council (EPSRC) grant EP/H042644/1 entitled 
+ *   "Cloud Computing for Large-Scale Complex IT Systems". Refer to
+ *   <http://gow.epsrc.ac.uk/NGBOViewGrant.aspx?GrantRef=EP/H042644/1>
+ * 
+ *   CReST is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/gpl.txt>.
+ *
+ *   For further information, contact: 
+ *
+ *   Dr. John Cartlidge: john@john-cartlidge.co.uk
+ *   Department of Computer Science,
+ *   University of Bristol, The Merchant Venturers Building,
+ *   Woodland Road, Bristol, BS8-1UB, United Kingdom.
+ *
+ */
+package sim.module.event;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+
+import org.apache.log4j.Logger;
+
+import utility.time.TimeManager;
+
+/**
+ * Hashed timer wheel holding the recurring events of a simulation (thermal 
+ * updates, logging, GUI updates, subscription polling, etc.).
+ * 
+ * Recurring events make up most of the events in a simulation and each one
+ * reschedules itself every time it happens. Rather than inserting them into
+ * the ordered EventQueue, they are dropped into the slot of the wheel that
+ * covers their time, which costs O(1) when (as is usual) the event is the 
+ * latest in its slot. 
+ * 
+ * Each slot covers one tick of simulation time and the wheel is pre-sized
+ * with a fixed number of slots, so a slot holds events from every 
+ * revolution of the wheel, ordered by time. Events with equal times are 
+ * ordered by when they were scheduled.
+ * 
+ * The EventQueue merges the wheel with its other events by time.
+ */
+public class TimerWheel implements Serializable
+{
+	public static Logger logger = Logger.getLogger(TimerWheel.class);
+
+	private static final long serialVersionUID = 1L;
+
+    public static final int  DEFAULT_NUM_SLOTS  = 1024;
+    public static final long DEFAULT_TICK       = TimeManager.secondsToSimulationTime(1);
+
+    private final ArrayList<RecurringEvent>[] mSlots;
+    private final int                         mMask;
+    private final long                        mTick;
+
+    private long                              mCurrentTick  = 0;  // tick of the last event removed
+    private int                               mSize         = 0;
+    private RecurringEvent                    mNext         = null; // cached result of peek()
+
+    public TimerWheel()
+    {
+        this(DEFAULT_NUM_SLOTS, DEFAULT_TICK);
+    }
+
+    /**
+     * @param pNumSlots
+     *            the number of slots in the wheel (rounded up to a power of 2).
+     * @param pTick
+     *            the length of simulation time covered by each slot.
+     */
+    public TimerWheel(int pNumSlots, long pTick)
+    {
+        int numSlots = Integer.highestOneBit(Math.max(1, pNumSlots - 1)) << 1;
+        mSlots = newSlots(numSlots);
+        for (int i = 0; i < numSlots; i++)
+        {
+            mSlots[i] = new ArrayList<RecurringEvent>(2);
+        }
+        mMask = numSlots - 1;
+        mTick = Math.max(1, pTick);
+    }
+
+    /**
+     * Generic arrays can't be created directly. The array is private to the wheel and only ever
+     * holds lists of events, so the cast is safe.
+     */
+    @SuppressWarnings("unchecked")
+    private static ArrayList<RecurringEvent>[] newSlots(int pNumSlots)
+    {
+        return (ArrayList<RecurringEvent>[]) new ArrayList<?>[pNumSlots];
+    }
+
+    /**
+     * Add an event to the wheel at its time.
+     * 
+     * @param pEvent
+     *            the event to schedule.
+     */
+    public void add(final RecurringEvent pEvent)
+    {
+        // An event in the past is kept in the current slot, where it sorts first
+        final long tick = Math.max(tickOf(pEvent.time()), mCurrentTick);
+        final ArrayList<RecurringEvent> slot = mSlots[(int) (tick & mMask)];
+
+        // Usually the event is the latest in its slot, so search from the end
+        int i = slot.size();
+        while (i > 0 && slot.get(i - 1).time() > pEvent.time())
+        {
+            i--;
+        }
+        slot.add(i, pEvent);
+        mSize++;
+
+        if (mNext != null && pEvent.time() < mNext.time())
+        {
+            mNext = pEvent;
+        }
+    }
+
+    /**
+     * Get the earliest event in the wheel without removing it.
+     * 
+     * @return the earliest event, or null if the wheel is empty.
+     */
+    public RecurringEvent peek()
+    {
+        if (mNext == null && mSize > 0)
+        {
+            mNext = mSlots[findSlot()].get(0);
+        }
+        return mNext;
+    }
+
+    /**
+     * Remove and return the earliest event in the wheel.
+     * 
+     * @return the earliest event, or null if the wheel is empty.
+     */
+    public RecurringEvent poll()
+    {
+        if (mSize == 0)
+        {
+            return null;
+        }
+
+        final int index = findSlot();
+        final RecurringEvent event = mSlots[index].remove(0);
+        mSize--;
+        mNext = null;
+        mCurrentTick = Math.max(mCurrentTick, tickOf(event.time()));
+
+        return event;
+    }
+
+    /**
+     * @return the number of events in the wheel.
+     */
+    public int size()
+    {
+        return mSize;
+    }
+
+    /**
+     * Remove all events from the wheel.
+     */
+    public void clear()
+    {
+        for (ArrayList<RecurringEvent> slot : mSlots)
+        {
+            slot.clear();
+        }
+        mSize = 0;
+        mCurrentTick = 0;
+        mNext = null;
+    }
+
+    /**
+     * Find the slot whose first event is the earliest in the wheel. Assumes
+     * the wheel is not empty.
+     * 
+     * Slots are checked in order from the current tick, so the first one 
+     * holding an event for the tick being checked has the earliest event. If
+     * no event is due within one revolution of the wheel, fall back to 
+     * searching every slot and move the current tick on to the event found.
+     * 
+     * @return the index of the slot.
+     */
+    private int findSlot()
+    {
+        for (long tick = mCurrentTick; tick <= mCurrentTick + mMask; tick++)
+        {
+            final ArrayList<RecurringEvent> slot = mSlots[(int) (tick & mMask)];
+            if (!slot.isEmpty() && tickOf(slot.get(0).time()) <= tick)
+            {
+                return (int) (tick & mMask);
+            }
+        }
+
+        int earliest = -1;
+        for (int i = 0; i < mSlots.length; i++)
+        {
+            if (!mSlots[i].isEmpty() && (earliest < 0 || mSlots[i].get(0).time() < mSlots[earliest].get(0).time()))
+            {
+                earliest = i;
+            }
+        }
+        logger.debug("No event due within one revolution of the wheel. Skipping ahead to the event at time " + mSlots[earliest].get(0).time());
+        mCurrentTick = tickOf(mSlots[earliest].get(0).time());
+
+        return earliest;
+    }
+
+    private long tickOf(final long pTime)
+    {
+        return pTime / mTick;
+    }
+}
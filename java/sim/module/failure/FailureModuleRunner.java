@@ -37,6 +37,7 @@ import java.util.Observable;
 
 import org.apache.log4j.Logger;
 
+import sim.SimulationContext;
 import sim.module.AbstractModuleRunner;
 import sim.module.Module;
 import sim.module.event.EventQueue;
@@ -45,27 +46,30 @@ import sim.module.failure.event.FailureLogEvent;
 import sim.module.failure.event.FailureThreads;
 import sim.module.thermal.event.ThermalGridEvent;
 import sim.physical.World;
-import sim.probability.RandomSingleton;
+import sim.probability.SamplingService;
 import utility.time.TimeManager;
 
 public class FailureModuleRunner extends AbstractModuleRunner{
 	
+	private static final long serialVersionUID = 1L;
+	
 	public static final long TIME_BETWEEN_LOGS = TimeManager.daysToSimulationTime(1);
 
 	private static int counter = 0;
 	
 	public static Logger logger = Logger.getLogger(FailureModuleRunner.class);
 	
-	private static FailureModuleRunner instance = null;
 	
 	protected FailureModuleRunner () {
 		logger.info("Constructing " + this.getClass().getSimpleName());
 	}
 	
 	public static FailureModuleRunner getInstance() {
+		FailureModuleRunner instance = SimulationContext.getCurrent().getSingleton(FailureModuleRunner.class);
 		if (instance == null)
         {
             instance = new FailureModuleRunner();
+            SimulationContext.getCurrent().setSingleton(FailureModuleRunner.class, instance);
         }
         return instance;
 	}
@@ -143,7 +147,7 @@ public class FailureModuleRunner extends AbstractModuleRunner{
 			
 			logger.debug("Creating Failure Threads...");
 			//Create the failure threads used to simulate server failures
-			FailureThreads.create(RandomSingleton.getInstance(), this.createFailureGroups());
+			FailureThreads.create(SamplingService.getInstance(), this.createFailureGroups());
 			
 		} else {
 			//do nothing - module not on
@@ -36,6 +36,7 @@
  */
 package sim.module.failure.bo;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
 
@@ -52,8 +53,10 @@ import sim.physical.Server;
  * A FailureGroups object can be used to create the failure threads associated
  * with a simulation.
  */
-public class FailureGroups
+public class FailureGroups implements Serializable
 {
+    private static final long serialVersionUID = 1L;
+
     private int                                mNumGroups = 0;
     private HashMap<Long, ArrayList<Failable>> mGroups    = new HashMap<Long, ArrayList<Failable>>();
     private ArrayList<Long>                    mMeans     = new ArrayList<Long>();
@@ -39,16 +39,19 @@ package sim.module.failure.event;
 
 import org.apache.log4j.Logger;
 
+import sim.SimulationContext;
 import sim.module.Module;
 import sim.module.event.Event;
+import sim.module.event.EventPool;
 import sim.module.event.EventQueue;
 import sim.module.failure.bo.Failable;
 import sim.module.failure.configparams.FailureModuleConfigParams;
 import sim.module.log.Log;
 import sim.physical.World;
-import sim.probability.RandomSingleton;
+import sim.probability.SamplingService;
+import utility.logging.LazyLog;
+import utility.logging.LogSwitch;
 import utility.time.TimeManager;
-import cern.jet.random.Normal;
 
 /**
  * Event to model a failure within the simulation. Could be a hard or soft
@@ -58,6 +61,8 @@ public class FailureEvent extends Event
 {
 	public static Logger logger = Logger.getLogger(FailureEvent.class);
 	
+	private static final long serialVersionUID = 1L;
+	
     // Type of failures that could occur.
     public enum FailType
     {
@@ -70,10 +75,32 @@ public class FailureEvent extends Event
         server, aircon
     }
 
-    private final int         mObjectID;
-    private final FailType    mFailType;
-    private final int         mThread;
-    private final ObjectType  mObjectType;
+    private int               mObjectID;
+    private FailType          mFailType;
+    private int               mThread;
+    private ObjectType        mObjectType;
+
+    /**
+     * The pool of performed failure events of a simulation
+     */
+    public static final class Pool extends EventPool<FailureEvent>
+    {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Get the failure event pool of the current simulation
+         */
+        public static Pool getInstance()
+        {
+            Pool instance = SimulationContext.getCurrent().getSingleton(Pool.class);
+            if (instance == null)
+            {
+                instance = new Pool();
+                SimulationContext.getCurrent().setSingleton(Pool.class, instance);
+            }
+            return instance;
+        }
+    }
 
 	/**
 	 * Constructor for making a failure event of type 'fix'
@@ -88,12 +115,8 @@ public class FailureEvent extends Event
     private FailureEvent(int dc_id, final long pStartTime, final int pObjectID, final ObjectType pObjectType)
     {
     	//get the ID of the datacentre associated with this event.  
-    	//TODO JC: Dec 2011 - would it not be cleaner to pass the DC_id externally, rather than calculate each time?
-        super(pStartTime, World.getInstance().getDatacentre(World.getInstance().getServer(pObjectID).getIP()).getID());
-        mFailType = FailType.fix;
-        mObjectID = pObjectID;
-        mThread = -1;
-        mObjectType = pObjectType;
+        super(pStartTime, fixDatacentreID(pObjectID));
+        set(datacentre_index, FailType.fix, pStartTime, pObjectID, pObjectType, -1);
     }
     
     /**
@@ -109,10 +132,32 @@ public class FailureEvent extends Event
     private FailureEvent(final int dc_id, final FailType pType, final long pStartTime, final int pObjectID, final ObjectType pObjectType, final int pThread)
     {
     	super(pStartTime, dc_id); 
+        set(dc_id, pType, pStartTime, pObjectID, pObjectType, pThread);
+    }
+
+    /**
+     * (Re)initialise this event.
+     * 
+     * @return this event
+     */
+    private FailureEvent set(final int dc_id, final FailType pType, final long pStartTime, final int pObjectID, final ObjectType pObjectType, final int pThread)
+    {
+        reschedule(pStartTime);
+        datacentre_index = dc_id;
         mFailType = pType;
         mObjectID = pObjectID;
         mThread = pThread;
         mObjectType = pObjectType;
+        return this;
+    }
+
+    /**
+     * Get the ID of the datacentre containing a server, for fix events
+     */
+    private static int fixDatacentreID(final int pObjectID)
+    {
+    	//TODO JC: Dec 2011 - would it not be cleaner to pass the DC_id externally, rather than calculate each time?
+        return World.getInstance().getDatacentre(World.getInstance().getServer(pObjectID).getIP()).getID();
     }
 
     /**
@@ -129,7 +174,12 @@ public class FailureEvent extends Event
      */
     public static Event create(int dc_id, final FailType pType, final long pStartTime, final int pObjectID, final ObjectType pObjectType, final int pThread)
     {
-		return new FailureEvent(dc_id, pType, pStartTime, pObjectID, pObjectType, pThread);
+    	FailureEvent event = Pool.getInstance().obtain();
+    	if (event == null)
+    	{
+    		return new FailureEvent(dc_id, pType, pStartTime, pObjectID, pObjectType, pThread);
+    	}
+		return event.set(dc_id, pType, pStartTime, pObjectID, pObjectType, pThread);
     }
 
     /**
@@ -147,7 +197,21 @@ public class FailureEvent extends Event
      */
     public static Event create(final int dc_id, final long startTime, final int serverID, final ObjectType objectType)
     {
-        return new FailureEvent(dc_id, startTime, serverID, objectType);
+    	FailureEvent event = Pool.getInstance().obtain();
+    	if (event == null)
+    	{
+    		return new FailureEvent(dc_id, startTime, serverID, objectType);
+    	}
+        return event.set(fixDatacentreID(serverID), FailType.fix, startTime, serverID, objectType, -1);
+    }
+
+    /**
+     * Return this event to the failure event pool, once performed.
+     */
+    @Override
+    public void release()
+    {
+        Pool.getInstance().release(this);
     }
 
     /*
@@ -189,24 +253,27 @@ public class FailureEvent extends Event
     private long genFixTime()
     {
         long fixTime = -1;
-        Normal norm;
         FailureModuleConfigParams params = ((FailureModuleConfigParams) Module.FAILURE_MODULE.getParams());
         
         if(mFailType == FailType.hard) {
         	//hardfix
-        	norm = new Normal(params.getMeanHardFixTime(), params.getStdDevHardFixTime(), RandomSingleton.getInstance().getEngine());	
-        	double days_until_fix = norm.nextDouble();
+        	double days_until_fix = SamplingService.getInstance().getNormal(Module.FAILURE_MODULE, 
+        			params.getMeanHardFixTime(), params.getStdDevHardFixTime()).nextDouble();
         	
         	fixTime = mStartTime + TimeManager.daysToSimulationTime(days_until_fix);
-        	logger.debug(TimeManager.log(days_until_fix + " days until fixtime"));
-        	logger.debug(TimeManager.log("Hard FixTime will be " + TimeManager.getTimeString(fixTime) ));
+        	if(LogSwitch.EVENTS && logger.isDebugEnabled()) {
+        		logger.debug(TimeManager.log(days_until_fix + " days until fixtime"));
+        		logger.debug(TimeManager.log("Hard FixTime will be " + TimeManager.getTimeString(fixTime) ));
+        	}
         } else if(mFailType == FailType.soft) {
         	//softfix
-        	norm = new Normal(params.getMeanSoftFixTime()*60, params.getStdDevSoftFixTime(), RandomSingleton.getInstance().getEngine());
-        	double seconds_until_fix = norm.nextDouble();
+        	double seconds_until_fix = SamplingService.getInstance().getNormal(Module.FAILURE_MODULE, 
+        			params.getMeanSoftFixTime()*60, params.getStdDevSoftFixTime()).nextDouble();
         	fixTime = mStartTime + TimeManager.secondsToSimulationTime(seconds_until_fix);
-        	logger.debug(TimeManager.log("Fail , " + mObjectType + " " + mObjectID + ", " + seconds_until_fix + " seconds until fixtime"));
-        	logger.debug(TimeManager.log("Soft FixTime will be " + TimeManager.getTimeString(fixTime) ));
+        	if(LogSwitch.EVENTS && logger.isDebugEnabled()) {
+        		logger.debug(TimeManager.log("Fail , " + mObjectType + " " + mObjectID + ", " + seconds_until_fix + " seconds until fixtime"));
+        		logger.debug(TimeManager.log("Soft FixTime will be " + TimeManager.getTimeString(fixTime) ));
+        	}
         } else {
         	//warning - no other type of fix
         	logger.fatal("No fix type available for FailType=" + mFailType + " Exiting system...");
@@ -240,13 +307,13 @@ public class FailureEvent extends Event
                 queue.addEvent(event);
                 numEventsGenerated++;
                 
-                logger.info("New failure event generated: " + event);
+                if(LogSwitch.EVENTS) LazyLog.info(logger, "New failure event generated: {}", event);
                 break;
             }
             default:
             {
             	//do nothing on a fix event
-            	logger.info("This fix event does not generate any new failure events...");
+            	if(LogSwitch.EVENTS) logger.info("This fix event does not generate any new failure events...");
                 break;
             }
         }
@@ -258,7 +325,7 @@ public class FailureEvent extends Event
         	Event e = FailureThreads.getInstance().nextFailure(mThread);
             queue.addEvent(e);
             numEventsGenerated++;
-            logger.info("New failure thread event generated: " + e);
+            if(LogSwitch.EVENTS) LazyLog.info(logger, "New failure thread event generated: {}", e);
         }
     }
 
@@ -271,7 +338,7 @@ public class FailureEvent extends Event
     protected boolean performEvent()
     {
     	
-    	logger.info(TimeManager.log(this.toString()));
+    	if(LogSwitch.EVENTS) LazyLog.infoAt(logger, "{}", this);
     	
         boolean continueSimulation = true;
         // Server server = World.getInstance().getServer(mObjectID);
@@ -302,19 +369,19 @@ public class FailureEvent extends Event
         {
             case soft:
             {
-            	logger.info("Performing a soft fail event for object: " + object);
+            	if(LogSwitch.EVENTS) LazyLog.info(logger, "Performing a soft fail event for object: {}", object);
                 object.performFailure(FailType.soft);
                 break;
             }
             case hard:
             {
-            	logger.info("Performing a hard fail event for object: " + object);
+            	if(LogSwitch.EVENTS) LazyLog.info(logger, "Performing a hard fail event for object: {}", object);
                 object.performFailure(FailType.hard);
                 break;
             }
             case fix:
             {
-            	logger.info("Performing a fix event for object: " + object);
+            	if(LogSwitch.EVENTS) LazyLog.info(logger, "Performing a fix event for object: {}", object);
                 object.performFix();
                 break;
             }
@@ -2,7 +2,6 @@ package sim.module.failure.event;
 
 import org.apache.log4j.Logger;
 
-import sim.module.event.EventQueue;
 import sim.module.failure.FailureModuleRunner;
 import sim.module.log.Log;
 import sim.module.log.LogManager;
@@ -15,6 +14,8 @@ public class FailureLogEvent extends LogEvent {
 	
 	public static Logger logger = Logger.getLogger(FailureLogEvent.class);
 
+	private static final long serialVersionUID = 1L;
+
     // Member variables.
     private final long mLogPeriod;
 
@@ -52,7 +53,7 @@ public class FailureLogEvent extends LogEvent {
     @Override
     protected void generateEvents()
     {
-        EventQueue.getInstance().addEvent(new FailureLogEvent(mStartTime + mLogPeriod));
+        repeatAt(mStartTime + mLogPeriod);
     }
 
     /*
@@ -37,11 +37,14 @@
  */
 package sim.module.failure.event;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 
 import org.apache.log4j.Logger;
 
+import sim.SimulationContext;
+import sim.module.Module;
 import sim.module.event.Event;
 import sim.module.event.EventQueue;
 import sim.module.failure.bo.FailureGroups;
@@ -49,10 +52,9 @@ import sim.module.failure.event.FailureEvent.ObjectType;
 import sim.physical.Server;
 import sim.physical.World;
 import sim.physical.network.IP;
-import sim.probability.RandomSingleton;
+import sim.probability.SamplingService;
+import sim.probability.VariateBuffer;
 import utility.time.TimeManager;
-import cern.jet.random.Exponential;
-import cern.jet.random.engine.MersenneTwister;
 
 /**
  * Class to allow generation of new failure events based on the idea of
@@ -64,21 +66,21 @@ import cern.jet.random.engine.MersenneTwister;
  * warning This class assumes that a World singleton has already been
  *          instantiated.
  */
-public class FailureThreads
+public class FailureThreads implements Serializable
 {
 	public static Logger logger = Logger.getLogger(FailureThreads.class);
 	
+	private static final long serialVersionUID = 1L;
+	
     // Constants.
     private final int                    NUMBER_INITIAL_FAILURE_MONTHS = 12;
     private final int                    TOTAL_INITIAL_FAILURE_CHANCE  = 10;
 
-    // Singleton instance.
-    private static FailureThreads        instance                      = null;
 
     // Member variables.
-    private final RandomSingleton        mRandomGenerator;
+    private final SamplingService        mRandomGenerator;
     private final FailureGroups          mFailureGroups;
-    private final ArrayList<Exponential> mThreads                      = new ArrayList<Exponential>();
+    private final ArrayList<VariateBuffer> mThreads                    = new ArrayList<VariateBuffer>();
     private double[]                     mInitialFailureMonths;
 
     private boolean initialFailuresGenerated = false; //TODO: DEC2011: JC - this is a bit of a hack, look into this
@@ -90,15 +92,14 @@ public class FailureThreads
      *          FailureThreads.create() to instantiated the singleton object.
      * 
      * @param pGen
-     *            The underlying RandomSingleton to use for probability
+     *            The SamplingService to use for probability
      *            distribution calculations.
      * @param pFailureGroups
      *            the FailureGroups from which to create the FailureThreads.
      */
-    private FailureThreads(RandomSingleton pGen, FailureGroups pFailureGroups)
+    private FailureThreads(SamplingService pGen, FailureGroups pFailureGroups)
     {
         mRandomGenerator = pGen;
-        final MersenneTwister engine = mRandomGenerator.getEngine();
 
         mFailureGroups = pFailureGroups;
 
@@ -111,7 +112,7 @@ public class FailureThreads
             final double chance = groupSize / mean;
 
             logger.info("Creating failure thread with: groupSize="+groupSize+", mean="+mean+", chance="+chance);
-            mThreads.add(new Exponential(chance, engine));
+            mThreads.add(mRandomGenerator.getExponential(Module.FAILURE_MODULE, chance));
         }
     }
 
@@ -126,16 +127,17 @@ public class FailureThreads
      *          calling create().
      * 
      * @param pGen
-     *            The underlying RandomSingleton to use for probability
+     *            The SamplingService to use for probability
      *            distribution calculations.
      * @param pFailureGroups
      *            the FailureGroups from which to create the FailureThreads.
      * @return the singleton FailureThread object.
      */
-    public static FailureThreads create(RandomSingleton pGen, FailureGroups pFailureGroups)
+    public static FailureThreads create(SamplingService pGen, FailureGroups pFailureGroups)
     {
     	logger.info("Creating new FailureThreads Object...");
-        instance = new FailureThreads(pGen, pFailureGroups);
+        FailureThreads instance = new FailureThreads(pGen, pFailureGroups);
+        SimulationContext.getCurrent().setSingleton(FailureThreads.class, instance);
 
         logger.info("Instance is now: " + instance);
         return instance;
@@ -149,6 +151,7 @@ public class FailureThreads
     public static FailureThreads getInstance()
     {
     	logger.debug("Getting FailureThreads instance...");
+    	FailureThreads instance = SimulationContext.getCurrent().getSingleton(FailureThreads.class);
     	if(instance==null) logger.error("Instance is null!");
         return instance;
     }
@@ -181,7 +184,7 @@ public class FailureThreads
         }
 
         // Choose a time, server and failure type at random.
-        final long randomTime = (long) Math.abs(mThreads.get(pThread).nextDouble());
+        final long randomTime = (long) mThreads.get(pThread).nextDouble();
         final long startTime = World.getInstance().getTime() + randomTime;
         final int serverIndex = getRandomServer(pThread);
         final FailureEvent.FailType failureType = randomFailureType();
@@ -264,11 +267,11 @@ public class FailureThreads
         // Add a new failure thread if a failure group was also added.
         if (groupIndex >= mThreads.size())
         {
-            mThreads.add(new Exponential(chance, mRandomGenerator.getEngine()));
+            mThreads.add(mRandomGenerator.getExponential(Module.FAILURE_MODULE, chance));
         }
         else
         {
-            mThreads.get(groupIndex).setState(chance);
+            mThreads.set(groupIndex, mRandomGenerator.getExponential(Module.FAILURE_MODULE, chance));
         }
     }
 
@@ -288,7 +291,7 @@ public class FailureThreads
         // Choose a random server ID from the failure group.
         if (servers.size() > 0)
         {
-            final int randomServerGroupIndex = mRandomGenerator.randomInt() % servers.size();
+            final int randomServerGroupIndex = mRandomGenerator.randomInt(Module.FAILURE_MODULE) % servers.size();
             randomServerIndex = servers.get(randomServerGroupIndex).getID();
         }
 
@@ -304,7 +307,7 @@ public class FailureThreads
     {
         final FailureEvent.FailType failureType;
 
-        if ((RandomSingleton.getInstance().randomInt() % 2) == 0)
+        if ((SamplingService.getInstance().randomInt(Module.FAILURE_MODULE) % 2) == 0)
         {
             failureType = FailureEvent.FailType.soft;
         }
@@ -371,7 +374,7 @@ public class FailureThreads
     public boolean spawnInitialFailure(final int pServerID)
     {
         boolean hasFailed = false;
-        final double chanceFail = mRandomGenerator.randomDouble() * 100.0;
+        final double chanceFail = mRandomGenerator.uniform(Module.FAILURE_MODULE) * 100.0;
         int failureMonth = -1;
 
         if(!initialFailuresGenerated) generateFailureMonths(); //JC, Dec2011, a bit of a hack to fix a bug
@@ -396,7 +399,7 @@ public class FailureThreads
         	//get datacentre ID - will throw exceptions if objectID does not exist
         	final int dc_id = World.getInstance().getDatacentreID(ObjectType.server, pServerID);
         	
-            final long dayOfMonth = mRandomGenerator.randomLong() % TimeManager.monthsToSimulationTime(1);
+            final long dayOfMonth = mRandomGenerator.randomLong(Module.FAILURE_MODULE) % TimeManager.monthsToSimulationTime(1);
             final long monthOffset = TimeManager.monthsToSimulationTime(failureMonth);
             final long failureTime = dayOfMonth + monthOffset;
 
@@ -35,8 +35,7 @@ package sim.module.gui.event;
 
 import org.apache.log4j.Logger;
 
-import sim.module.event.Event;
-import sim.module.event.EventQueue;
+import sim.module.event.RecurringEvent;
 import sim.module.log.Log;
 import utility.time.TimeManager;
 import config.SettingsManager;
@@ -44,10 +43,12 @@ import config.SettingsManager;
 /**
  * Event to update the Graphical User Interface
  */
-public class UpdateGUIEvent extends Event
+public class UpdateGUIEvent extends RecurringEvent
 {
 	public static Logger logger = Logger.getLogger(UpdateGUIEvent.class);
 
+	private static final long serialVersionUID = 1L;
+
     // Member variables.
     private final long period;
 
@@ -90,7 +91,7 @@ public class UpdateGUIEvent extends Event
     @Override
     protected void generateEvents()
     {
-        EventQueue.getInstance().addEvent(new UpdateGUIEvent(mStartTime+period));
+        repeatAt(mStartTime+period);
     }
 
     /*
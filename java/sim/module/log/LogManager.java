@@ -37,6 +37,7 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Serializable;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 
@@ -49,8 +50,10 @@ import sim.physical.World;
 /**
  * Singleton manager class which will handle all printing of logs.
  */
-public class LogManager
+public class LogManager implements Serializable
 {
+	private static final long serialVersionUID = 1L;
+
 	//public static final long FIRST_LOG_EVENT_TIME = TimeManager.secondsToSimulationTime(1); //do the first log after 1 minute
 	//public static final long TIME_BETWEEN_LOGS = TimeManager.daysToSimulationTime(28); //every hour
 	
@@ -59,15 +62,11 @@ public class LogManager
 	//log4j logger
 	public static Logger logger = Logger.getLogger(LogManager.class);
 	
-    // Singleton instance.
-    @SuppressWarnings("unused")
-	private static LogManager instance = null;
-
     protected String logDirName = "";
 
     // Member variables.
 //    private BufferedWriter    mFileLog;
-    private ArrayList<BufferedWriter> resultsLogs;
+    private transient ArrayList<BufferedWriter> resultsLogs;
 
     protected int dirIterator = 1;
     
@@ -148,24 +147,16 @@ public class LogManager
     {
     	logger.info("Preparing log files...");
     	
-    	final String dirPrefix = "log/results";
-		dirIterator = 1;
-    	
     	try {
     		//create results directory	
-    		while (( new File(dirPrefix+df.format(dirIterator)) ).mkdir() != true) {
-    			dirIterator++;
-    		}
-    		logger.info("Created new results directory: '" + dirPrefix+df.format(dirIterator) + "'");
+    		createResultsDir();
 
     		//create log files for each ModuleRunner...
-    		logDirName = dirPrefix+df.format(dirIterator);
-    		
     		//For each Module, if Module is active, initialise the Module log.
     		for(AbstractModuleRunner moduleRunner: AbstractModuleRunner.getModuleRunners()) {
     			if(moduleRunner.isActive()) {
     				logger.info(moduleRunner + " is active.  Initialising Logs...");
-    				moduleRunner.initLogs(logDirName+"/run"+df.format(dirIterator));
+    				moduleRunner.initLogs(getLogFilePrefix());
     			}
     		}
     		
@@ -176,6 +167,36 @@ public class LogManager
     	}
     }
 
+    /**
+     * Create a new, numbered results directory (log/resultsNNN) for this run, creating the log 
+     * directory if it does not exist.  Log files are not created.
+     */
+    public void createResultsDir()
+    {
+    	final String dirPrefix = "log/results";
+		dirIterator = 1;
+		
+		new File("log").mkdirs();
+		File dir;
+		while ((dir = new File(dirPrefix+df.format(dirIterator))).mkdir() != true) {
+			if(!dir.exists()) {
+				throw new IllegalStateException("Unable to create results directory: '" + dir + "'");
+			}
+			dirIterator++;
+		}
+		logDirName = dirPrefix+df.format(dirIterator);
+		logger.info("Created new results directory: '" + logDirName + "'");
+    }
+    
+    /**
+     * @return the prefix of the results log file names in the current results directory 
+     * (e.g., "log/results001/run001")
+     */
+    public String getLogFilePrefix()
+    {
+    	return logDirName+"/run"+df.format(dirIterator);
+    }
+
     /**
      * Write the given log to file.
      * @param dc_number - the number of the datacentre we are logging
@@ -37,6 +37,7 @@ import java.util.Observable;
 
 import org.apache.log4j.Logger;
 
+import sim.SimulationContext;
 import sim.module.AbstractModuleRunner;
 import sim.module.Module;
 import sim.physical.World;
@@ -44,22 +45,25 @@ import utility.time.TimeManager;
 
 public class LogModuleRunner extends AbstractModuleRunner{
 	
+	private static final long serialVersionUID = 1L;
+	
 	public static final long TIME_BETWEEN_LOGS = TimeManager.daysToSimulationTime(1);
 
 	private static int counter = 0;
 	
 	public static Logger logger = Logger.getLogger(LogModuleRunner.class);
 	
-	private static LogModuleRunner instance = null;
 	
 	protected LogModuleRunner () {
 		logger.info("Constructing " + this.getClass().getSimpleName());
 	}
 	
 	public static LogModuleRunner getInstance() {
+		LogModuleRunner instance = SimulationContext.getCurrent().getSingleton(LogModuleRunner.class);
 		if (instance == null)
         {
             instance = new LogModuleRunner();
+            SimulationContext.getCurrent().setSingleton(LogModuleRunner.class, instance);
         }
         return instance;
 	}
@@ -43,8 +43,8 @@ import org.apache.log4j.Logger;
 
 import sim.module.Module;
 import sim.module.costs.CostsModuleRunner;
-import sim.module.event.Event;
 import sim.module.event.EventQueue;
+import sim.module.event.RecurringEvent;
 import sim.module.log.Log;
 import sim.module.service.ServiceModuleRunner;
 import sim.module.service.bo.ServiceManager;
@@ -54,6 +54,8 @@ import sim.module.thermal.bo.ThermalGrid;
 import sim.physical.Datacentre;
 import sim.physical.World;
 import utility.Debug;
+import utility.logging.LazyLog;
+import utility.logging.LogSwitch;
 import utility.time.LengthOfTime;
 import utility.time.TimeManager;
 import config.SettingsManager;
@@ -61,10 +63,12 @@ import config.SettingsManager;
 /**
  * Event to print current statistics to a log file.
  */
-public class LogEvent extends Event
+public class LogEvent extends RecurringEvent
 {
 	public static Logger logger = Logger.getLogger(LogEvent.class);
 
+	private static final long serialVersionUID = 1L;
+
     // Member variables.
     private final long mLogPeriod;
 
@@ -128,7 +132,7 @@ public class LogEvent extends Event
     @Override
     protected void generateEvents()
     {
-        EventQueue.getInstance().addEvent(new LogEvent(mStartTime + mLogPeriod));
+        repeatAt(mStartTime + mLogPeriod);
     }
 
     /*
@@ -142,7 +146,7 @@ public class LogEvent extends Event
         boolean continueSimulation = true;
 
         
-        logger.info(TimeManager.log("Performing log event for each datacentre..." + this.getClass()));
+        if(LogSwitch.EVENTS) LazyLog.infoAt(logger, "Performing log event for each datacentre...{}", this.getClass());
         
         // Create a log and print it to file via the log manager.
         for(int i=0; i<World.getInstance().getNumberOfDatacentres(); i++) {
@@ -162,8 +166,10 @@ public class LogEvent extends Event
         Log log = new Log();
 
         //the datacentre to log
-        logger.info("Logging results for dc_number="+dc_id);
-        logger.info(Debug.getMemoryUsage());
+        if(LogSwitch.EVENTS) {
+        	LazyLog.info(logger, "Logging results for dc_number={}", dc_id);
+        	LazyLog.info(logger, "{}", LazyLog.MEMORY_USAGE);
+        }
         
         // Fetch all the values for the various modules we want to log.
         final String timeString = "\""+TimeManager.getTimeString(mStartTime)+"\"";
@@ -247,7 +253,7 @@ public class LogEvent extends Event
      */
     protected String getPercentInconsistent(int dcNumber)
     {
-    	logger.info(TimeManager.log("Calc inconsistent (1) " + Debug.getMemoryUsage()));
+    	if(LogSwitch.EVENTS) LazyLog.infoAt(logger, "Calc inconsistent (1) {}", LazyLog.MEMORY_USAGE);
     	
     	if(Module.SUBSCRIPTION_MODULE.isActive()) {
 	    	DecimalFormat df = new DecimalFormat("###.000");
@@ -266,7 +272,7 @@ public class LogEvent extends Event
      */
     protected  String getNetworkLoad(int dcNumber)
     {
-    	logger.info(TimeManager.log("Get network load " + Debug.getMemoryUsage()));
+    	if(LogSwitch.EVENTS) LazyLog.infoAt(logger, "Get network load {}", LazyLog.MEMORY_USAGE);
     	
     	int networkLoad = 0;
     	
@@ -301,10 +307,9 @@ public class LogEvent extends Event
         services[3] = sm.getCompletedServices(); //completed services
         services[4] = sm.getTotalServices(); //total services
 
-        logger.info(TimeManager.log("Logging services: DC#=" + dcNumber+ " [total=" + services[0] + ", failed=" + services[1] + ", complete=" + services[2] + ", running=" + services[3] + ", queued=" + services[4] +"]"));
-        
-        if(logger.isInfoEnabled()) {
+        if(LogSwitch.EVENTS && logger.isInfoEnabled()) {
 
+	        logger.info(TimeManager.log("Logging services: DC#=" + dcNumber+ " [total=" + services[0] + ", failed=" + services[1] + ", complete=" + services[2] + ", running=" + services[3] + ", queued=" + services[4] +"]"));
 	        logger.info(TimeManager.log(Debug.getMemoryUsage()));
 	        
 	        //lets output some data on subscriptions
@@ -334,7 +339,7 @@ public class LogEvent extends Event
 
         double numFailed = World.getInstance().getDatacentre(dcNumber).getNumFailedServers();
         double numServers = World.getInstance().getDatacentre(dcNumber).getNumServers();
-        logger.info(TimeManager.log("Calc alive servers (2) " + Debug.getMemoryUsage()));
+        if(LogSwitch.EVENTS) LazyLog.infoAt(logger, "Calc alive servers (2) {}", LazyLog.MEMORY_USAGE);
         return (1.0 - ((numFailed) / numServers)) * 100;
     }
     
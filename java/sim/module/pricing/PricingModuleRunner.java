@@ -39,6 +39,7 @@ import java.util.Observable;
 
 import org.apache.log4j.Logger;
 
+import sim.SimulationContext;
 import sim.module.AbstractModuleRunner;
 import sim.module.Module;
 import sim.module.event.EventQueue;
@@ -49,7 +50,8 @@ import sim.physical.World;
 import utility.time.TimeManager;
 
 public class PricingModuleRunner extends AbstractModuleRunner {
-	private static PricingModuleRunner instance = null;
+	
+	private static final long serialVersionUID = 1L;
 	
 	protected static final long TIME_BETWEEN_LOGS = TimeManager.hoursToSimulationTime(1);
 	
@@ -66,10 +68,12 @@ public class PricingModuleRunner extends AbstractModuleRunner {
 	}
 	
 	public static PricingModuleRunner getInstance() {
-		if (instance == null) {
+		PricingModuleRunner instance = SimulationContext.getCurrent().getSingleton(PricingModuleRunner.class);
+		if (instance == null)
+        {
             instance = new PricingModuleRunner();
+            SimulationContext.getCurrent().setSingleton(PricingModuleRunner.class, instance);
         }
-		
         return instance;
 	}
 	
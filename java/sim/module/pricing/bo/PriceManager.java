@@ -33,16 +33,20 @@
  */
 package sim.module.pricing.bo;
 
+import java.io.Serializable;
+
 import org.apache.log4j.Logger;
 
 import sim.module.Module;
 import sim.module.pricing.configparams.PricingModuleConfigParams;
 import sim.physical.Datacentre;
 
-public class PriceManager {
+public class PriceManager implements Serializable {
 
 	public static Logger logger = Logger.getLogger(PriceManager.class);
 	
+	private static final long serialVersionUID = 1L;
+	
 	private Datacentre dc;
 	
 	private double onDemandUpFront;
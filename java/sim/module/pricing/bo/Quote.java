@@ -33,7 +33,11 @@
  */
 package sim.module.pricing.bo;
 
-public class Quote {
+import java.io.Serializable;
+
+public class Quote implements Serializable {
+	private static final long serialVersionUID = 1L;
+
 	private int dcID;
 	private int instances;
 	
@@ -53,6 +53,8 @@ import utility.time.TimeManager;
 public class QuoteRequestEvent extends Event {
 	public static Logger logger = Logger.getLogger(QuoteRequestEvent.class);
 	
+	private static final long serialVersionUID = 1L;
+	
 	private long pStartTime;
 	private int instances;
 	private PriceType priceType;
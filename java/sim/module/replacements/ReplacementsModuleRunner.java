@@ -58,13 +58,16 @@ import sim.physical.Server;
 import sim.physical.World;
 import utility.time.TimeManager;
 
+import sim.SimulationContext;
+
 public class ReplacementsModuleRunner extends AbstractModuleRunner
 {
 	public static Logger logger = Logger.getLogger(ReplacementsModuleRunner.class);
 	
-	private static ReplacementsModuleRunner instance = null;
+	private static final long serialVersionUID = 1L;
+	
 	private static int counter = 0;
-    static ArrayList<ServerType> REPLACEMENT_SERVERS  = new ArrayList<ServerType>();
+    private final ArrayList<ServerType> replacementServers = new ArrayList<ServerType>();
 	
 	protected ReplacementsModuleRunner()
 	{
@@ -72,9 +75,11 @@ public class ReplacementsModuleRunner extends AbstractModuleRunner
 	}
 
 	public static ReplacementsModuleRunner getInstance() {
+		ReplacementsModuleRunner instance = SimulationContext.getCurrent().getSingleton(ReplacementsModuleRunner.class);
 		if (instance == null)
         {
             instance = new ReplacementsModuleRunner();
+            SimulationContext.getCurrent().setSingleton(ReplacementsModuleRunner.class, instance);
         }
         return instance;
 	}
@@ -261,11 +266,11 @@ public class ReplacementsModuleRunner extends AbstractModuleRunner
         if (((ReplacementModuleConfigParams) Module.REPLACEMENTS_MODULE.getParams()).isReplacementViaPresetTypes()
         		&& !areReplacementsObsolete(pTime))
         {
-            if (REPLACEMENT_SERVERS.size() > 0)
+            if (getServerTypes().size() > 0)
             {
-                for (int i = REPLACEMENT_SERVERS.size() - 1; i >= 0; i--)
+                for (int i = getServerTypes().size() - 1; i >= 0; i--)
                 {
-                    ServerType server = REPLACEMENT_SERVERS.get(i);
+                    ServerType server = getServerTypes().get(i);
 
                     if (server.isAvailable(pTime))
                     {
@@ -319,8 +324,24 @@ public class ReplacementsModuleRunner extends AbstractModuleRunner
      */
     public static void addServerType(final ServerType pNewType)
     {
-        REPLACEMENT_SERVERS.add(pNewType);
-        Collections.sort(REPLACEMENT_SERVERS);
+        getServerTypes().add(pNewType);
+        Collections.sort(getServerTypes());
+    }
+    
+    /**
+     * Get the replacement server types of the current simulation
+     */
+    private static ArrayList<ServerType> getServerTypes()
+    {
+        return getInstance().replacementServers;
+    }
+    
+    /**
+     * Remove all server types from the current collection.
+     */
+    public static void clearServerTypes()
+    {
+        getServerTypes().clear();
     }
     
     /**
@@ -340,14 +361,14 @@ public class ReplacementsModuleRunner extends AbstractModuleRunner
         {
             long sumDifference = 0;
 
-            for (int i = 1; i < REPLACEMENT_SERVERS.size(); i++)
+            for (int i = 1; i < getServerTypes().size(); i++)
             {
-                sumDifference += (REPLACEMENT_SERVERS.get(i).getTimeAvailable() - REPLACEMENT_SERVERS.get(i - 1).getTimeAvailable());
+                sumDifference += (getServerTypes().get(i).getTimeAvailable() - getServerTypes().get(i - 1).getTimeAvailable());
             }
 
-            final long averageDifference = sumDifference / REPLACEMENT_SERVERS.size();
+            final long averageDifference = sumDifference / getServerTypes().size();
 
-            if (pTime > averageDifference + REPLACEMENT_SERVERS.get(REPLACEMENT_SERVERS.size() - 1).getTimeAvailable())
+            if (pTime > averageDifference + getServerTypes().get(getServerTypes().size() - 1).getTimeAvailable())
             {
                 areObsolete = true;
             }
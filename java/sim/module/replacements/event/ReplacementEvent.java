@@ -38,6 +38,8 @@ import sim.module.failure.event.FailureEvent.ObjectType;
 
 public class ReplacementEvent extends Event
 {
+    private static final long serialVersionUID = 1L;
+
     private final int         mObjectID;
     private final ObjectType  mObjectType;
     
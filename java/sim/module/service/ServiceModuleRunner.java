@@ -38,6 +38,7 @@ import java.util.Observable;
 
 import org.apache.log4j.Logger;
 
+import sim.SimulationContext;
 import sim.module.AbstractModuleRunner;
 import sim.module.Module;
 import sim.module.event.EventQueue;
@@ -56,6 +57,8 @@ import utility.time.TimeManager;
 
 public class ServiceModuleRunner extends AbstractModuleRunner{
 
+	private static final long serialVersionUID = 1L;
+
 	protected static final long TIME_BETWEEN_LOGS = TimeManager.hoursToSimulationTime(1);
 	
 	protected long logPeriod = ServiceModuleRunner.TIME_BETWEEN_LOGS;
@@ -67,16 +70,17 @@ public class ServiceModuleRunner extends AbstractModuleRunner{
 	/** ServiceManagers.  One for each Datacentre. */
 	private ArrayList<ServiceManager> serviceManagerList;
 	
-	private static ServiceModuleRunner instance = null;
 	
 	protected ServiceModuleRunner () {
 		logger.info("Constructing " + this.getClass().getSimpleName());
 	}
 	
 	public static ServiceModuleRunner getInstance() {
+		ServiceModuleRunner instance = SimulationContext.getCurrent().getSingleton(ServiceModuleRunner.class);
 		if (instance == null)
         {
             instance = new ServiceModuleRunner();
+            SimulationContext.getCurrent().setSingleton(ServiceModuleRunner.class, instance);
         }
         return instance;
 	}
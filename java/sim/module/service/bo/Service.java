@@ -33,6 +33,9 @@
  */
 package sim.module.service.bo;
 
+import java.io.Serializable;
+
+import sim.SimulationContext;
 import sim.module.service.bo.ServiceManager.TaskAllocationMethod;
 import sim.physical.World;
 import sim.physical.network.IP;
@@ -40,10 +43,11 @@ import sim.physical.network.IP;
 /**
  * Class to represent a service that will be run within a datacentre.
  */
-public class Service
+public class Service implements Serializable
 {
 	
-	private static int service_id = -1; //increment
+    private static final long serialVersionUID = 1L;
+	
 	
     /**
      * The current running status of a service.
@@ -87,7 +91,7 @@ public class Service
 
     /** Get the next service ID **/
     public static int getNextServiceID() {
-    	return ++service_id;
+    	return SimulationContext.getCurrent().nextServiceID();
     }
     
     /** 
@@ -99,7 +103,7 @@ public class Service
      * 
      **/
     public static void resetNextServiceIDToZero() {
-    	service_id=-1;
+    	SimulationContext.getCurrent().resetServiceID();
     }
     
     /**
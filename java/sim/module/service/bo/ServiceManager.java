@@ -33,6 +33,7 @@
  */
 package sim.module.service.bo;
 
+import java.io.Serializable;
 import java.util.HashMap;
 
 import org.apache.log4j.Logger;
@@ -48,10 +49,12 @@ import utility.time.TimeManager;
 /**
  * Manages the distribution of service tasks to servers
  */
-public class ServiceManager
+public class ServiceManager implements Serializable
 {	
 	public static Logger logger = Logger.getLogger(ServiceManager.class);
 	
+	private static final long serialVersionUID = 1L;
+	
 	public enum TaskAllocationMethod
 	{
 		FromLeft, Random, NearestNeighbour
@@ -470,11 +473,11 @@ public class ServiceManager
  			{
  				int runningInstances = s.getNumInstances();
  				IP ip = s.getServerID();	 				
- 				mDatacentre.getServer(ip).getCPUs()[s.getCPU()].adjustUtilisation(-(s.getUtilisation() * runningInstances));
+ 				mDatacentre.getServer(ip).adjustCPUUtilisation(s.getCPU(), -(s.getUtilisation() * runningInstances));
  				
- 				if (mDatacentre.getServer(ip).getCPUs()[s.getCPU()].getCPUUtilisation() < 0)
+ 				if (mDatacentre.getServer(ip).getCPUUtilisation(s.getCPU()) < 0)
  				{
- 					logger.debug("util < 0. " + mDatacentre.getServer(ip).getCPUs()[s.getCPU()].getCPUUtilisation());
+ 					logger.debug("util < 0. " + mDatacentre.getServer(ip).getCPUUtilisation(s.getCPU()));
  				}
 
  				s.setState(Status.complete);
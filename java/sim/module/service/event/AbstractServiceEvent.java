@@ -42,6 +42,8 @@ public abstract class AbstractServiceEvent extends Event {
 	
 	public static Logger logger = Logger.getLogger(AbstractServiceEvent.class);
 	
+	private static final long serialVersionUID = 1L;
+	
 
     protected int mServiceID;  	      //ID of service 
     protected int issueNumber = -1;   //Issue number of the service
@@ -2,7 +2,6 @@ package sim.module.service.event;
 
 import org.apache.log4j.Logger;
 
-import sim.module.event.EventQueue;
 import sim.module.log.Log;
 import sim.module.log.LogManager;
 import sim.module.log.event.LogEvent;
@@ -15,6 +14,8 @@ public class ServiceLogEvent extends LogEvent {
 	
 	public static Logger logger = Logger.getLogger(ServiceLogEvent.class);
 
+	private static final long serialVersionUID = 1L;
+
     // Member variables.
     private final long mLogPeriod;
 
@@ -60,7 +61,7 @@ public class ServiceLogEvent extends LogEvent {
     @Override
     protected void generateEvents()
     {
-        EventQueue.getInstance().addEvent(new ServiceLogEvent(mStartTime + mLogPeriod));
+        repeatAt(mStartTime + mLogPeriod);
     }
 
     /*
@@ -53,6 +53,8 @@ public class ServiceStartEvent extends AbstractServiceEvent
 {
 
 	public static Logger logger = Logger.getLogger(ServiceStartEvent.class);
+
+	private static final long serialVersionUID = 1L;
     protected long duration;       //service run duration
 
     
@@ -52,7 +52,9 @@ import utility.time.TimeManager;
 public class ServiceStopEvent extends AbstractServiceEvent
 {
 	
-	public Logger logger = Logger.getLogger(ServiceStopEvent.class);
+	public static Logger logger = Logger.getLogger(ServiceStopEvent.class);
+    
+	private static final long serialVersionUID = 1L;
     
     /**
      * Basic constructor. Creates an empty event with start time initialised to
@@ -51,6 +51,7 @@ public class SimModuleConfigParams implements ModuleParamsInterface{
 	public static final String END_TIME_XML_TAG = "endTime";
 	public static final String END_TIME_UNIT_XML_TAG = "endUnit";
 	public static final String MAX_EVENTS_XML_TAG = "maxEvents";
+	public static final String INDEPENDENT_STREAMS_XML_TAG = "independentStreams";
 	
 	//HUMAN READABLE STRINGS FOR GUI LABALS
 	public static final String SEED_GUI_LABEL = "Random Seed";
@@ -59,6 +60,7 @@ public class SimModuleConfigParams implements ModuleParamsInterface{
 	public static final String END_TIME_GUI_LABEL = "End Time";
 	public static final String END_TIME_UNIT_GUI_LABEL = "endUnit";
 	public static final String MAX_EVENTS_GUI_LABEL = "Maximum Events";
+	public static final String INDEPENDENT_STREAMS_GUI_LABEL = "Independent Random Streams";
 	
     protected long prngSeed;
     protected boolean waitForSteadyState;
@@ -66,6 +68,7 @@ public class SimModuleConfigParams implements ModuleParamsInterface{
     protected long endTime = 1;
     protected LengthOfTime endTimeUnit = LengthOfTime.HOUR;
     protected int maxNumberOfEvents;
+    protected boolean independentStreams = DEFAULT_INDEPENDENT_STREAMS;
     
     public static final long DEFAULT_PRNG_SEED = -1;
     public static final boolean DEFAULT_WAIT_FOR_STEADY_STATE = false;
@@ -73,6 +76,7 @@ public class SimModuleConfigParams implements ModuleParamsInterface{
     public static final long DEFAULT_END_TIME = 1;
     public static final LengthOfTime DEFAULT_END_TIME_UNIT = LengthOfTime.HOUR;
     public static final int DEFAULT_MAX_NUMBER_EVENTS = 1000000;
+    public static final boolean DEFAULT_INDEPENDENT_STREAMS = false;
 	
 	public SimModuleConfigParams(long seed, boolean waitForSteadyState,
 			long startTime, long endTime, LengthOfTime endTimeUnits,
@@ -102,6 +106,7 @@ public class SimModuleConfigParams implements ModuleParamsInterface{
 		e.setAttribute(END_TIME_XML_TAG, String.valueOf(endTime));
 		e.setAttribute(END_TIME_UNIT_XML_TAG, String.valueOf(endTimeUnit.name()));
 		e.setAttribute(MAX_EVENTS_XML_TAG, String.valueOf(maxNumberOfEvents));
+		e.setAttribute(INDEPENDENT_STREAMS_XML_TAG, String.valueOf(independentStreams));
 		
 		return e;
 	}
@@ -118,7 +123,8 @@ public class SimModuleConfigParams implements ModuleParamsInterface{
 			logger.warn("No attribute: '" + LengthOfTime.END_TIME_UNIT_XML_TAG + "'.  Defaulting to value = " + endTimeUnit);
 		}
 		maxNumberOfEvents = Integer.parseInt(e.getAttributeValue(MAX_EVENTS_XML_TAG));
-		
+		String streams = e.getAttributeValue(INDEPENDENT_STREAMS_XML_TAG);
+		independentStreams = (streams == null) ? DEFAULT_INDEPENDENT_STREAMS : Boolean.parseBoolean(streams);
 	}
 
 	@Override
@@ -129,6 +135,7 @@ public class SimModuleConfigParams implements ModuleParamsInterface{
 		this.endTime = ((SimModuleConfigParams) params).endTime;
 		this.endTimeUnit = ((SimModuleConfigParams) params).endTimeUnit;
 		this.maxNumberOfEvents = ((SimModuleConfigParams) params).maxNumberOfEvents;
+		this.independentStreams = ((SimModuleConfigParams) params).independentStreams;
 	}
 
 	@Override
@@ -144,7 +151,8 @@ public class SimModuleConfigParams implements ModuleParamsInterface{
 				"', startTime='"+ this.startTime +
 				"', endTime='"+ this.endTime+
 				"', endTimeUnit='"+ this.endTimeUnit.toString()+
-				"', maxEvents='" + this.maxNumberOfEvents + "']";
+				"', maxEvents='" + this.maxNumberOfEvents + 
+				"', independentStreams='" + this.independentStreams + "']";
 		return s;
 	}
 	
@@ -224,5 +232,17 @@ public class SimModuleConfigParams implements ModuleParamsInterface{
 	public void setMaxNumEvents(int max) {
 		this.maxNumberOfEvents = max;
 	}
+	
+	/**
+	 * Does each module draw from its own random stream? 
+	 * @see sim.probability.SamplingService
+	 */
+	public boolean isIndependentStreams() {
+		return this.independentStreams;
+	}
+	
+	public void setIndependentStreams(boolean independentStreams) {
+		this.independentStreams = independentStreams;
+	}
 
 }
@@ -38,6 +38,7 @@ import java.util.Observable;
 
 import org.apache.log4j.Logger;
 
+import sim.SimulationContext;
 import sim.module.AbstractModuleRunner;
 import sim.module.Module;
 import sim.module.event.EventQueue;
@@ -47,6 +48,7 @@ import sim.module.failure.event.FailureEvent.ObjectType;
 import sim.module.subscriptions.bo.SubscriptionNetworkManager;
 import sim.module.subscriptions.configparams.SubscriptionsModuleConfigParams;
 import sim.module.subscriptions.event.SubsLogEvent;
+import sim.module.subscriptions.protocol.UpdateProtocolFactory.Protocol;
 import sim.physical.Datacentre;
 import sim.physical.World;
 import utility.time.TimeManager;
@@ -59,7 +61,8 @@ public class SubscriptionsModuleRunner extends AbstractModuleRunner
 {
 	public static Logger logger = Logger.getLogger(SubscriptionsModuleRunner.class);	
 
-	private static SubscriptionsModuleRunner instance = null;
+	private static final long serialVersionUID = 1L;
+
 	public static final long TIME_BETWEEN_LOGS = TimeManager.secondsToSimulationTime(1);
 	private ArrayList<SubscriptionNetworkManager> datacentreNetworkManager; //Subscription network managers. One for each datacentre
 	private long timeOfLastUpdate = 0; //simulation time of last subscription update
@@ -71,9 +74,11 @@ public class SubscriptionsModuleRunner extends AbstractModuleRunner
 	}
 	
 	public static SubscriptionsModuleRunner getInstance() {
+		SubscriptionsModuleRunner instance = SimulationContext.getCurrent().getSingleton(SubscriptionsModuleRunner.class);
 		if (instance == null)
         {
             instance = new SubscriptionsModuleRunner();
+            SimulationContext.getCurrent().setSingleton(SubscriptionsModuleRunner.class, instance);
         }
         return instance;
 	}
@@ -94,6 +99,8 @@ public class SubscriptionsModuleRunner extends AbstractModuleRunner
 			
 			//it is important that this is cleared/reset each time world is updated
 			datacentreNetworkManager = new ArrayList<SubscriptionNetworkManager>(); 
+			timeOfLastUpdate = 0;
+			timeOfLastFailOrFix = 0;
 			
 			//for each datacentre, generate a subscription network manager
 			for(Datacentre dc: World.getInstance().getDatacentres()) {
@@ -109,6 +116,20 @@ public class SubscriptionsModuleRunner extends AbstractModuleRunner
 		}
 	}
 	
+	/**
+	 * Apply the update protocol of the fork's settings, if it differs from the protocol in use
+	 * (e.g., to compare P2P with TP2P from the same branch point)
+	 */
+	@Override
+	public void forked() {
+		if(!Module.SUBSCRIPTION_MODULE.isActive() || datacentreNetworkManager == null) return;
+		
+		Protocol protocol = ((SubscriptionsModuleConfigParams) Module.SUBSCRIPTION_MODULE.getParams()).getProtocolType();
+		for(SubscriptionNetworkManager subsNetwork: datacentreNetworkManager) {
+			subsNetwork.changeProtocol(protocol);
+		}
+	}
+	
 	public SubscriptionNetworkManager getSubscriptionNetwork(int datacentre_index) {
 		if(datacentre_index>=0 && datacentre_index<datacentreNetworkManager.size()) {
 			return datacentreNetworkManager.get(datacentre_index);
@@ -33,6 +33,8 @@
  */
 package sim.module.subscriptions.bo;
 
+import java.io.Serializable;
+
 import org.apache.log4j.Logger;
 
 import sim.module.subscriptions.SubscriptionsModuleRunner;
@@ -44,10 +46,12 @@ import sim.module.subscriptions.SubscriptionsModuleRunner;
  * 
  * @author cm9757
  * */
-public class Subscription implements Cloneable
+public class Subscription implements Cloneable, Serializable
 {
 	public static Logger logger = Logger.getLogger(Subscription.class);
 	
+	private static final long serialVersionUID = 1L;
+	
 	/**
 	 * status of subscription.  
 	 * If true then the subscription is valid (i.e., neither nodes have failed) 
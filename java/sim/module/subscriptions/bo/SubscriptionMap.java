@@ -33,6 +33,7 @@
  */
 package sim.module.subscriptions.bo;
 
+import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Iterator;
 
@@ -46,11 +47,13 @@ import utility.time.TimeManager;
  * 
  * Contains a mapping of all subscriptions of n
  */
-public class SubscriptionMap
+public class SubscriptionMap implements Serializable
 {
 	
 	public static Logger logger = Logger.getLogger(SubscriptionMap.class);
 	
+	private static final long serialVersionUID = 1L;
+	
 	/**
 	 * PhysicalID is the ID of the node
 	 */
@@ -34,6 +34,7 @@
 package sim.module.subscriptions.bo;
 
 import java.io.PrintWriter;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -57,10 +58,12 @@ import cern.jet.random.Uniform;
 /**
  * SubscriptionNetworkManager: Manages the subscription network for a Datacentre
  */
-public class  SubscriptionNetworkManager 
+public class SubscriptionNetworkManager implements Serializable 
 {
 	public static Logger logger = Logger.getLogger(SubscriptionNetworkManager.class);
 	
+	private static final long serialVersionUID = 1L;
+	
 	/**
 	 * Array of SubscriptionMaps, one for each node
 	 */
@@ -143,6 +146,30 @@ public class  SubscriptionNetworkManager
 		allNodes = updateProtocol.updateAllNodes(allNodes);
 	}
 	
+	/**
+	 * Change the update protocol part way through a run (e.g., in a forked simulation).  
+	 * 
+	 * Only the peer-to-peer protocols can be swapped: the central protocol relies on a poller 
+	 * (and PollerUpdateEvents) set up when the world is built.  The network load counted so far 
+	 * is carried over to the new protocol.
+	 * 
+	 * @param protocolType - the new protocol
+	 * @return true if the protocol is now protocolType, false if it cannot be changed
+	 */
+	public boolean changeProtocol(Protocol protocolType)
+	{
+		if(updateProtocol.getProtocolType().equals(protocolType)) return true;
+		if(updateProtocol.getProtocolType().equals(Protocol.CENTRAL) || protocolType.equals(Protocol.CENTRAL)) {
+			logger.warn(TimeManager.log("Cannot change update protocol for dcID=" + dcID + " from " + updateProtocol.getProtocolType() + " to " + protocolType + " part way through a run"));
+			return false;
+		}
+		logger.info(TimeManager.log("Changing update protocol for dcID=" + dcID + " from " + updateProtocol.getProtocolType() + " to " + protocolType));
+		AbstractUpdateProtocol newProtocol = UpdateProtocolFactory.getProtocol(protocolType, dcID);
+		newProtocol.addNetworkLoad(updateProtocol.getNetworkLoad());
+		updateProtocol = newProtocol;
+		return true;
+	}
+	
 	/**
 	 * Get subscriptions for all nodes
 	 * 
@@ -33,13 +33,16 @@
  */
 package sim.module.subscriptions.event;
 
-import sim.module.event.Event;
+import sim.module.Module;
+import sim.module.event.RecurringEvent;
 import sim.module.log.Log;
-import sim.probability.RandomSingleton;
+import sim.probability.SamplingService;
 import utility.time.TimeManager;
 
-public abstract class AbstractSubscriptionsEvent extends Event
+public abstract class AbstractSubscriptionsEvent extends RecurringEvent
 {
+	private static final long serialVersionUID = 1L;
+
 	protected long PERIOD_MEAN_MILLISECONDS;
 	protected int PERIOD_MAX_VARIANCE; // % variance of mean 
 	
@@ -66,8 +69,8 @@ public abstract class AbstractSubscriptionsEvent extends Event
      */
     public long getNextUpdatePeriod()
     {
-    	double variance = RandomSingleton.getInstance().randomDouble() * (PERIOD_MEAN_MILLISECONDS * PERIOD_MAX_VARIANCE / 100);
-    	if(RandomSingleton.getInstance().randomDouble() < 0.5) {
+    	double variance = SamplingService.getInstance().uniform(Module.SUBSCRIPTION_MODULE) * (PERIOD_MEAN_MILLISECONDS * PERIOD_MAX_VARIANCE / 100);
+    	if(SamplingService.getInstance().uniform(Module.SUBSCRIPTION_MODULE) < 0.5) {
     		variance = -variance;
     	}
     	return TimeManager.millisecondsToSimulationTime(PERIOD_MEAN_MILLISECONDS + (long) variance);
@@ -38,18 +38,19 @@ package sim.module.subscriptions.event;
 
 import org.apache.log4j.Logger;
 
-import sim.module.event.Event;
-import sim.module.event.EventQueue;
+import sim.module.event.RecurringEvent;
 import utility.time.TimeManager;
 
 /**
  * @author Callum
  *
  */
-public class InconsistencyUpdateEvent extends Event
+public class InconsistencyUpdateEvent extends RecurringEvent
 {
 	public static Logger logger = Logger.getLogger(InconsistencyUpdateEvent.class);
 	
+	private static final long serialVersionUID = 1L;
+	
 	private final static long UPDATE_PERIOD = TimeManager.secondsToSimulationTime(100);
 	
 	final long mUpdatePeriod;
@@ -99,7 +100,7 @@ public class InconsistencyUpdateEvent extends Event
 	 */
 	@Override
 	protected void generateEvents() {
-        EventQueue.getInstance().addEvent(InconsistencyUpdateEvent.create(mStartTime + mUpdatePeriod));
+        repeatAt(mStartTime + mUpdatePeriod);
         numEventsGenerated++;
 	}
 }
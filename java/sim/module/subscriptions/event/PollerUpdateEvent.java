@@ -35,18 +35,20 @@ package sim.module.subscriptions.event;
 
 import org.apache.log4j.Logger;
 
-import sim.module.event.Event;
-import sim.module.event.EventQueue;
+import sim.module.Module;
+import sim.module.event.RecurringEvent;
 import sim.module.log.Log;
 import sim.module.subscriptions.SubscriptionsModuleRunner;
-import sim.probability.RandomSingleton;
+import sim.probability.SamplingService;
 import utility.time.TimeManager;
 
 
-public class PollerUpdateEvent extends Event {
+public class PollerUpdateEvent extends RecurringEvent {
 
 	public static Logger logger = Logger.getLogger(PollerUpdateEvent.class);
 	
+	private static final long serialVersionUID = 1L;
+	
 	private final static long PERIOD_MEAN_MILLISECONDS = 10000;
 	private final static int PERIOD_MAX_VARIANCE = 10; // % variance of mean 
 	
@@ -77,8 +79,8 @@ public class PollerUpdateEvent extends Event {
      * @return time in simulation time
      */
     public long getNextUpdatePeriod() {
-    	double variance = RandomSingleton.getInstance().randomDouble() * (PERIOD_MEAN_MILLISECONDS * PERIOD_MAX_VARIANCE / 100);
-    	if(RandomSingleton.getInstance().randomDouble() < 0.5) {
+    	double variance = SamplingService.getInstance().uniform(Module.SUBSCRIPTION_MODULE) * (PERIOD_MEAN_MILLISECONDS * PERIOD_MAX_VARIANCE / 100);
+    	if(SamplingService.getInstance().uniform(Module.SUBSCRIPTION_MODULE) < 0.5) {
     		variance = -variance;
     	}
     	return TimeManager.millisecondsToSimulationTime(PERIOD_MEAN_MILLISECONDS + (long) variance);
@@ -90,7 +92,7 @@ public class PollerUpdateEvent extends Event {
     @Override
     protected void generateEvents()
     {
-        EventQueue.getInstance().addEvent(PollerUpdateEvent.create(mStartTime + this.getNextUpdatePeriod(), datacentre_index));
+        repeatAt(mStartTime + this.getNextUpdatePeriod());
         numEventsGenerated++;
     }
  
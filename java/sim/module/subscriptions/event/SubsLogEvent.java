@@ -39,7 +39,6 @@ package sim.module.subscriptions.event;
 
 import org.apache.log4j.Logger;
 
-import sim.module.event.EventQueue;
 import sim.module.log.Log;
 import sim.module.log.LogManager;
 import sim.module.log.event.LogEvent;
@@ -55,6 +54,8 @@ public class SubsLogEvent extends LogEvent
 {
 	public static Logger logger = Logger.getLogger(SubsLogEvent.class);
 
+	private static final long serialVersionUID = 1L;
+
     // Member variables.
     private final long mLogPeriod;
 
@@ -100,7 +101,7 @@ public class SubsLogEvent extends LogEvent
     @Override
     protected void generateEvents()
     {
-        EventQueue.getInstance().addEvent(new SubsLogEvent(mStartTime + mLogPeriod));
+        repeatAt(mStartTime + mLogPeriod);
     }
 
     /*
@@ -39,7 +39,6 @@ package sim.module.subscriptions.event;
 
 import org.apache.log4j.Logger;
 
-import sim.module.event.EventQueue;
 import sim.module.subscriptions.SubscriptionsModuleRunner;
 import sim.physical.Datacentre;
 import sim.physical.World;
@@ -49,6 +48,8 @@ public class SubscriptionUpdateAllEvent extends AbstractSubscriptionsEvent
 {
 	public static Logger logger = Logger.getLogger(SubscriptionUpdateAllEvent.class);
 
+	private static final long serialVersionUID = 1L;
+
 	private SubscriptionUpdateAllEvent(long pStartTime)
 	{
 		// TODO - JC: Dec 2011. Passing non-dc-specific -1, This is a hack. Fix this.
@@ -75,7 +76,7 @@ public class SubscriptionUpdateAllEvent extends AbstractSubscriptionsEvent
 	@Override
 	protected void generateEvents()
 	{
-		EventQueue.getInstance().addEvent(SubscriptionUpdateAllEvent.create(mStartTime + this.getNextUpdatePeriod()));
+		repeatAt(mStartTime + this.getNextUpdatePeriod());
 		numEventsGenerated++;
 	}
 
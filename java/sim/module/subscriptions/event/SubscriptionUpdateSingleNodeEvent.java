@@ -39,7 +39,6 @@ package sim.module.subscriptions.event;
 
 import org.apache.log4j.Logger;
 
-import sim.module.event.EventQueue;
 import sim.module.subscriptions.SubscriptionsModuleRunner;
 import sim.physical.World;
 import utility.time.TimeManager;
@@ -48,6 +47,8 @@ public class SubscriptionUpdateSingleNodeEvent extends AbstractSubscriptionsEven
 {
 	public static Logger logger = Logger.getLogger(SubscriptionUpdateSingleNodeEvent.class);
 	
+	private static final long serialVersionUID = 1L;
+	
 	private int updatenode;
 
 	private SubscriptionUpdateSingleNodeEvent(final long pStartTime, int datacentreID, int nodeID)
@@ -84,7 +85,11 @@ public class SubscriptionUpdateSingleNodeEvent extends AbstractSubscriptionsEven
 	@Override
 	protected void generateEvents()
 	{
-		EventQueue.getInstance().addEvent(SubscriptionUpdateSingleNodeEvent.create(mStartTime + this.getNextUpdatePeriod(), datacentre_index, updatenode));
+		final long nextTime = mStartTime + this.getNextUpdatePeriod();
+		// A period has always been drawn (and discarded) when constructing this event.
+		// Keep drawing it, so that seeds reproduce earlier results.
+		this.getNextUpdatePeriod();
+		repeatAt(nextTime);
 		numEventsGenerated++;
 	}
 
@@ -33,10 +33,14 @@
  */
 package sim.module.subscriptions.protocol;
 
+import java.io.Serializable;
+
 import sim.module.subscriptions.bo.SubscriptionMap;
 import sim.module.subscriptions.protocol.UpdateProtocolFactory.Protocol;
 
-public abstract class AbstractUpdateProtocol {
+public abstract class AbstractUpdateProtocol implements Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	protected int networkLoad; //network load counter (network 'hops')
 	
@@ -82,6 +86,15 @@ public abstract class AbstractUpdateProtocol {
 	 */
 	public abstract void resetNetworkLoad();
 	
+	/**
+	 * Add to the network load counter (e.g., the load counted by the protocol this one replaces)
+	 * 
+	 * @param load - number of network 'hops' to add
+	 */
+	public void addNetworkLoad(int load) {
+		networkLoad += load;
+	}
+	
 	/**
 	 * The Protocol Update Type for this Update Protocol
 	 * 
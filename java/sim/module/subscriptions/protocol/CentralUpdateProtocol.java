@@ -44,11 +44,15 @@ import sim.module.subscriptions.protocol.UpdateProtocolFactory.Protocol;
 import sim.module.subscriptions.protocol.poll.DatacentrePoller;
 import sim.physical.World;
 import sim.physical.network.PartialIP;
+import utility.logging.LazyLog;
+import utility.logging.LogSwitch;
 
 public class CentralUpdateProtocol extends AbstractUpdateProtocol {
 
 	public static Logger logger = Logger.getLogger(CentralUpdateProtocol.class);
 	
+	private static final long serialVersionUID = 1L;
+	
 	protected int dcID = -1; //ID of thie datacentre
 	
 	protected DatacentrePoller statusPoller; //status poller for central controller
@@ -79,7 +83,7 @@ public class CentralUpdateProtocol extends AbstractUpdateProtocol {
 		//(since nodeNumbers are unique across the world and nodeIndex starts from 0 for each datacentre)
 		int nodeIndex = nodeID - allNodes[0].getmyphysicalID();
 				
-		logger.debug("Updating node " + nodeIndex + " using centralised DC protocol...");
+		if(LogSwitch.PROTOCOLS) LazyLog.debug(logger, "Updating node {} using centralised DC protocol...", nodeIndex);
 		
 		HashMap<Integer, Subscription> subscriptionMap = allNodes[nodeIndex].getSubscriptions(); //subscription map for this node
 		boolean statusOfThisNode = allNodes[nodeIndex].getMyStatus(); //status of this node
@@ -98,8 +102,8 @@ public class CentralUpdateProtocol extends AbstractUpdateProtocol {
 				entry.getValue().update(statusPoller.requestNodeStatus(entry.getKey()), timeNow);
 				
 				//increment the network routing load for update request and reply
-				PartialIP origin = new PartialIP(allNodes[nodeIndex].getmyIP());
-				PartialIP destination = statusPoller.getLocation();
+				long origin = allNodes[nodeIndex].getmyIP().getAddress();
+				long destination = statusPoller.getLocation().getAddress();
 				networkLoad += 2 * PartialIP.navigatePointToPoint(origin, destination); //round-trip is 2*one-way
 			}
 		}
@@ -116,7 +120,7 @@ public class CentralUpdateProtocol extends AbstractUpdateProtocol {
 	@Override
 	public SubscriptionMap[] updateAllNodes(SubscriptionMap[] allNodes) {
 		
-		logger.info("Updating subscriptions of all nodes using Central-DC Protocol...");
+		if(LogSwitch.PROTOCOLS) logger.info("Updating subscriptions of all nodes using Central-DC Protocol...");
 		
 		int lowestNodeID = allNodes[0].getmyphysicalID(); //necessary to begin from the lowest node ID in this datacentre
 		
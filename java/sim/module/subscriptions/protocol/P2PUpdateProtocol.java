@@ -43,11 +43,15 @@ import sim.module.subscriptions.bo.SubscriptionMap;
 import sim.module.subscriptions.protocol.UpdateProtocolFactory.Protocol;
 import sim.physical.World;
 import sim.physical.network.IP;
+import utility.logging.LazyLog;
+import utility.logging.LogSwitch;
 
 public class P2PUpdateProtocol extends AbstractUpdateProtocol {
 
 	public static Logger logger = Logger.getLogger(P2PUpdateProtocol.class);
 	
+	private static final long serialVersionUID = 1L;
+	
 	public P2PUpdateProtocol() {
 		super(Protocol.P2P);
 	}
@@ -70,7 +74,7 @@ public class P2PUpdateProtocol extends AbstractUpdateProtocol {
 		//(since nodeNumbers are unique across the world and nodeIndex starts from 0 for each datacentre)
 		int nodeIndex = nodeID - allNodes[0].getmyphysicalID();
 				
-		logger.debug("Updating node " + nodeIndex + " using simple p2p protocol...");
+		if(LogSwitch.PROTOCOLS) LazyLog.debug(logger, "Updating node {} using simple p2p protocol...", nodeIndex);
 
 		HashMap<Integer, Subscription> subscriptionMap = allNodes[nodeIndex].getSubscriptions(); //subscription map for this node
 		boolean statusOfThisNode = allNodes[nodeIndex].getMyStatus(); //status of this node
@@ -104,7 +108,7 @@ public class P2PUpdateProtocol extends AbstractUpdateProtocol {
 	@Override
 	public SubscriptionMap[] updateAllNodes(SubscriptionMap[] allNodes) {
 		
-		logger.info("Updating subscriptions of all nodes using Simple P2P Protocol...");
+		if(LogSwitch.PROTOCOLS) logger.info("Updating subscriptions of all nodes using Simple P2P Protocol...");
 		
 		int lowestNodeID = allNodes[0].getmyphysicalID(); //necessary to begin from the lowest node ID in this datacentre
 		
@@ -44,11 +44,14 @@ import sim.module.subscriptions.bo.SubscriptionMap;
 import sim.module.subscriptions.protocol.UpdateProtocolFactory.Protocol;
 import sim.physical.World;
 import sim.physical.network.IP;
+import utility.logging.LogSwitch;
 
 public class TP2PUpdateProtocol extends AbstractUpdateProtocol {
 
 	public static Logger logger = Logger.getLogger(TP2PUpdateProtocol.class);
 	
+	private static final long serialVersionUID = 1L;
+	
 	public TP2PUpdateProtocol() {
 		super(Protocol.TP2P);
 	}
@@ -165,7 +168,7 @@ public class TP2PUpdateProtocol extends AbstractUpdateProtocol {
 	@Override
 	public SubscriptionMap[] updateAllNodes(SubscriptionMap[] allNodes) {
 		
-		logger.info("Updating subscriptions of all nodes using Transitive P2P Protocol...");
+		if(LogSwitch.PROTOCOLS) logger.info("Updating subscriptions of all nodes using Transitive P2P Protocol...");
 
 		int lowestNodeID = allNodes[0].getmyphysicalID(); //necessary to begin from the lowest node ID in this datacentre
 		
@@ -34,20 +34,23 @@
 package sim.module.subscriptions.protocol.poll;
 
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
 
 import org.apache.log4j.Logger;
 
 import sim.physical.Datacentre;
+import sim.physical.Server;
 import sim.physical.World;
 import sim.physical.network.PartialIP;
+import utility.logging.LazyLog;
+import utility.logging.LogSwitch;
 
 public class DatacentrePoller extends AbstractStatusPoller {
 	
 	public static Logger logger = Logger.getLogger(DatacentrePoller.class);
 	
-	HashMap<Integer, Boolean> subNodesStatusMap;
+	// Recorded status and packed IP address of each sub-node, by node index
+	boolean[] subNodesStatus;
+	long[] subNodesAddress;
 	
 	/**
 	 * DatacentrePoller periodically polls and records the status of all nodes in the network,
@@ -58,64 +61,59 @@ public class DatacentrePoller extends AbstractStatusPoller {
 	public DatacentrePoller(PartialIP location) {
 		super(location);
 		
-		logger.info("Constructing new DCPoller, IP(" + location + ")");
+		if(LogSwitch.PROTOCOLS) LazyLog.info(logger, "Constructing new DCPoller, IP({})", location);
 		
 		Datacentre dc = World.getInstance().getDatacentre(location.dc());
 		int[] serverIDs = dc.getServerIDs();
 		
-		subNodesStatusMap = new HashMap<Integer,Boolean>();
-		
-		logger.debug("ServerIDs: " + Arrays.toString(serverIDs));
+		if(LogSwitch.PROTOCOLS && logger.isDebugEnabled()) logger.debug("ServerIDs: " + Arrays.toString(serverIDs));
 		
 		
 		int firstNodeID = serverIDs[0];
 		
 		int nodeIndex;
 		
-		//initial set up of subNodesMap
+		subNodesStatus = new boolean[serverIDs.length];
+		subNodesAddress = new long[serverIDs.length];
+		
+		//initial set up of sub-node records
 		for(int i=0; i<serverIDs.length; i++) {
 			
 			nodeIndex = serverIDs[i] - firstNodeID;
 			
-			subNodesStatusMap.put(nodeIndex, dc.getServer(nodeIndex).isAlive());
-			
-			PartialIP node_ip = new PartialIP(dc.getServer(nodeIndex).getIP());
+			Server server = dc.getServer(nodeIndex);
+			subNodesStatus[nodeIndex] = server.isAlive();
+			subNodesAddress[nodeIndex] = server.getIP().getAddress();
 			
-			int hops = 2 * PartialIP.navigatePointToPoint(location, node_ip); // x2 for round trip (request/response)
+			int hops = 2 * PartialIP.navigatePointToPoint(location.getAddress(), subNodesAddress[nodeIndex]); // x2 for round trip (request/response)
 			
 			networkLoad += hops; 
 		}
 			
-		logger.info("Load=" + networkLoad + "hops, Created new DCPoller with subNodeStatusMap: " + subNodesStatusMap.entrySet().toString());
+		if(LogSwitch.PROTOCOLS && logger.isInfoEnabled()) logger.info("Load=" + networkLoad + "hops, Created new DCPoller with subNodeStatus: " + Arrays.toString(subNodesStatus));
 		
 	}
 
 	@Override
 	public void pollSubNodes() {
 		
-//		System.out.println("Before SubNodesPolled: Load=" + networkLoad + "hops, subNodeStatusMap: " + subNodesStatusMap.entrySet().toString());
-		
 		Datacentre dc = World.getInstance().getDatacentre(location.dc());
+		long locationAddress = location.getAddress();
 	
 		//poll each sub-node for latest status
-		for(Map.Entry<Integer,Boolean> entry: subNodesStatusMap.entrySet()) {
+		for(int nodeIndex=0; nodeIndex<subNodesStatus.length; nodeIndex++) {
 			
-//			Server s = dc.getServer(entry.getKey());
-//			System.out.println(s.getStatus());
-			entry.setValue(dc.getServer(entry.getKey()).isAlive()); //poll current server status
+			subNodesStatus[nodeIndex] = dc.getServer(nodeIndex).isAlive(); //poll current server status
 			
-			PartialIP node_ip = new PartialIP(dc.getServer(entry.getKey()).getIP());
-			int hops = 2 * PartialIP.navigatePointToPoint(location, node_ip); // x2 for round trip (request/response)
+			int hops = 2 * PartialIP.navigatePointToPoint(locationAddress, subNodesAddress[nodeIndex]); // x2 for round trip (request/response)
 			networkLoad += hops; 
 		}
-		
-//		System.out.println("After SubNodesPolled: Load=" + networkLoad + "hops, subNodeStatusMap: " + subNodesStatusMap.entrySet().toString());
 	}
 
 	@Override
 	public boolean requestNodeStatus(int nodeIndex) {
 		
 //		logger.warn("DC" + location.dc() + "NodeStatusRequest: nodeID " + nodeID);
-		return subNodesStatusMap.get(nodeIndex);
+		return subNodesStatus[nodeIndex];
 	}
 }
@@ -0,0 +1,207 @@
+/**
+ *   This file is part of CReST: The Cloud Research Simulation Toolkit 
+ *   Copyright (C) 2011, 2012 John Cartlidge 
+ * 
+ *   For a full list of contributors, refer to file CONTRIBUTORS.txt 
+ *
+ *   CReST was developed at the University of Bristol, UK, using 
+ *   financial support from the UK's Engineering and Physical 
+ *   Sciences Research Council (EPSRC) grant EP/H042644/1 entitled 
+ *   "Cloud Computing for Large-Scale Complex IT Systems". Refer to
+ *   <http://gow.epsrc.ac.uk/NGBOViewGrant.aspx?GrantRef=EP/H042644/1>
+ * 
+ *   CReST is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/gpl.txt>.
+ *
+ *   For further information, contact: 
+ *
+ *   Dr. John Cartlidge: john@john-cartlidge.co.uk
+ *   Department of Computer Science,
+ *   University of Bristol, The Merchant Venturers Building,
+ *   Woodland Road, Bristol, BS8-1UB, United Kingdom.
+ *
+ */
+package sim.module.thermal;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.apache.log4j.BasicConfigurator;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.PropertyConfigurator;
+
+import sim.SimulationContext;
+import sim.module.Module;
+import sim.module.thermal.bo.ThermalGrid;
+import sim.module.thermal.configParams.ThermalModuleConfigParams;
+import sim.module.thermal.model.ThermalModelFactory.ThermModel;
+import sim.physical.Datacentre;
+import sim.physical.Server;
+import sim.physical.World;
+import utility.benchmark.Benchmark;
+import utility.benchmark.BenchmarkRunner;
+import utility.time.TimeManager;
+import builder.datacentre.layout.LongAislesLayoutPattern;
+import config.DatacentreGenerator;
+import config.SettingsManager;
+import config.XMLLoader;
+import config.physical.ConfigAisle;
+import config.physical.ConfigDatacentre;
+import config.physical.ConfigRack;
+import config.physical.ConfigServerType;
+import config.physical.ConfigWorld;
+
+/**
+ * Benchmarks for the thermal models: ThermalGrid.update() with each model, over generated 
+ * datacentres of increasing floor size.
+ * 
+ * Each datacentre is generated with the long aisles layout (air con on every other aisle), using 
+ * a fixed seed for the choice of racks and for the CPU utilisation of each server, so every run 
+ * measures the same datacentres.  Each operation is one thermal iteration (one simulated second) 
+ * of the whole grid, and the number of iterations per invocation falls as the floor size grows.  
+ * The failure module is off, so servers that overheat do not fail.
+ * 
+ * For the accuracy of a model, rather than its speed, see ThermalRegression.
+ * 
+ * Usage: ThermalBenchmark [log4j properties file]
+ * 
+ * If no log4j properties file is given, logging is switched off.
+ *
+ */
+public class ThermalBenchmark {
+
+	public static Logger logger = Logger.getLogger(ThermalBenchmark.class);
+	
+	public static final long SEED = 1;
+	
+	/** Width and length of the datacentre floors, in grid squares */
+	public static final int[] FLOOR_SIZES = {20, 50, 100, 200};
+	
+	// Cells x thermal iterations per invocation of a benchmark, so larger floors run fewer iterations. 
+	// The convection model costs several hundred times as much per cell as the diffusion model.
+	protected static final int DIFF_CELL_ITERATIONS = 1000000;
+	protected static final int DIFF_ADV_CELL_ITERATIONS = 25000;
+	
+	/**
+	 * Generate a datacentre with the long aisles layout and build a World containing it, in the 
+	 * current simulation context (replacing any existing World).
+	 * 
+	 * @param width - width of the floor, in grid squares
+	 * @param length - length of the floor, in grid squares
+	 * @param seed - seed for the layout and the CPU utilisation of the servers
+	 * @return the datacentre
+	 */
+	public static Datacentre createDatacentre(int width, int length, long seed) {
+		
+		LongAislesLayoutPattern layout = new LongAislesLayoutPattern();
+		layout.setSeed(seed);
+		
+		DatacentreGenerator generator = new DatacentreGenerator(width, length, true, layout, 
+				new int[] {ConfigDatacentre.DEFAULT_NETWORK_DISTANCE, ConfigAisle.DEFAULT_NETWORK_DISTANCE, ConfigRack.DEFAULT_NETWORK_DISTANCE}, 
+				"Generated " + width + "x" + length, 0);
+		generator.run(); // generate in this thread
+		
+		ConfigWorld confWorld = new ConfigWorld();
+		confWorld.addDatacentre(generator.getGeneratedDatacentre());
+		World world = XMLLoader.loadWorld(confWorld, new SettingsManager(), new ArrayList<ConfigServerType>());
+		world.distributeIPs();
+		
+		Datacentre dc = world.getDatacentre(0);
+		Random prng = new Random(seed);
+		for(Server s: dc.getHeatSources()) {
+			for(int cpu=0; cpu<s.getSpec().getNumCPUs(); cpu++) {
+				s.adjustCPUUtilisation(cpu, prng.nextDouble());
+			}
+		}
+		logger.info("Generated datacentre " + dc.getName() + " with " + dc.getServers().size() + " servers");
+		return dc;
+	}
+	
+	/**
+	 * Create a thermal grid for a datacentre, as ThermalModuleRunner does, using the given model
+	 * 
+	 * @param dc - the datacentre
+	 * @param model - the thermal model
+	 * @return the grid, filled with the servers and air cons of the datacentre
+	 */
+	public static ThermalGrid createGrid(Datacentre dc, ThermModel model) {
+		ThermalGrid grid = new ThermalGrid(
+				new ThermalModuleConfigParams(model, ThermalModuleConfigParams.DEFAULT_PERIOD),
+				new int[] { dc.getGridWidth(), dc.getGridHeight() }, 
+				new double[] { Datacentre.GRID_SQUARE_LENGTH, Datacentre.GRID_SQUARE_LENGTH },
+				2);
+		grid.fill(dc);
+		return grid;
+	}
+	
+	/**
+	 * Update the thermal grid of a generated datacentre by a number of thermal iterations
+	 */
+	protected static class GridUpdateBenchmark extends Benchmark {
+		
+		protected final ThermModel model;
+		protected final int size;
+		protected final int iterations;
+		protected ThermalGrid grid;
+		protected long time;
+		
+		public GridUpdateBenchmark(ThermModel model, int size) {
+			super("ThermalGrid.update() [model=" + model.getNameString() + ", floor=" + size + "x" + size + "]");
+			this.model = model;
+			this.size = size;
+			int cellIterations = (model == ThermModel.DIFF_ADV) ? DIFF_ADV_CELL_ITERATIONS : DIFF_CELL_ITERATIONS;
+			this.iterations = Math.max(cellIterations/(size*size), 1);
+		}
+		
+		@Override
+		public void setUp() {
+			if(grid!=null) return; // the grid carries on from where the last invocation left it, so build once
+			
+			grid = createGrid(createDatacentre(size, size, SEED), model);
+			time = 0;
+		}
+		
+		@Override
+		public int run() {
+			time += TimeManager.secondsToSimulationTime(iterations);
+			grid.update(time);
+			consume(grid.getCell(size/2, size/2).getTemperature());
+			return iterations;
+		}
+	}
+	
+	public static void main(String[] args) {
+		
+		if(args.length>0) {
+			PropertyConfigurator.configure(args[0]);
+		} else {
+			BasicConfigurator.configure();
+			Logger.getRootLogger().setLevel(Level.OFF);
+		}
+		
+		SimulationContext context = new SimulationContext("thermal benchmark");
+		context.enter();
+		Module.FAILURE_MODULE.setActive(false);
+		
+		BenchmarkRunner runner = new BenchmarkRunner();
+		
+		for(ThermModel model: ThermModel.values()) {
+			for(int size: FLOOR_SIZES) {
+				runner.run(new GridUpdateBenchmark(model, size));
+			}
+		}
+		
+		runner.printResults();
+	}
+}
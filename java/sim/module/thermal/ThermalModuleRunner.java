@@ -38,6 +38,7 @@ import java.util.Observable;
 
 import org.apache.log4j.Logger;
 
+import sim.SimulationContext;
 import sim.module.AbstractModuleRunner;
 import sim.module.Module;
 import sim.module.event.EventQueue;
@@ -50,13 +51,14 @@ import utility.time.TimeManager;
 
 public class ThermalModuleRunner extends AbstractModuleRunner{
 
+	private static final long serialVersionUID = 1L;
+
 	public static final long TIME_BETWEEN_LOGS = TimeManager.secondsToSimulationTime(1);
 	
 	private static int counter = 0;
 	
 	public static Logger logger = Logger.getLogger(ThermalModuleRunner.class);
 	
-	private static ThermalModuleRunner instance = null;
 	
 	/** Thermal grids.  One for each datacentre. */
 	private ArrayList<ThermalGrid> thermalGridManager;
@@ -66,9 +68,11 @@ public class ThermalModuleRunner extends AbstractModuleRunner{
 	}
 	
 	public static ThermalModuleRunner getInstance() {
+		ThermalModuleRunner instance = SimulationContext.getCurrent().getSingleton(ThermalModuleRunner.class);
 		if (instance == null)
         {
             instance = new ThermalModuleRunner();
+            SimulationContext.getCurrent().setSingleton(ThermalModuleRunner.class, instance);
         }
         return instance;
 	}
@@ -0,0 +1,372 @@
+/**
+ *   This file is part of CReST: The Cloud Research Simulation Toolkit 
+ *   Copyright (C) 2011, 2012 John Cartlidge 
+ * 
+ *   For a full list of contributors, refer to file CONTRIBUTORS.txt 
+ *
+ *   CReST was developed at the University of Bristol, UK, using 
+ *   financial support from the UK's Engineering and Physical 
+ *   Sciences Research Council (EPSRC) grant EP/H042644/1 entitled 
+ *   "Cloud Computing for Large-Scale Complex IT Systems". Refer to
+ *   <http://gow.epsrc.ac.uk/NGBOViewGrant.aspx?GrantRef=EP/H042644/1>
+ * 
+ *   CReST is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/gpl.txt>.
+ *
+ *   For further information, contact: 
+ *
+ *   Dr. John Cartlidge: john@john-cartlidge.co.uk
+ *   Department of Computer Science,
+ *   University of Bristol, The Merchant Venturers Building,
+ *   Woodland Road, Bristol, BS8-1UB, United Kingdom.
+ *
+ */
+package sim.module.thermal;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.log4j.BasicConfigurator;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.PropertyConfigurator;
+
+import sim.RegressionScenario;
+import sim.SimulationContext;
+import sim.SimulationRunner;
+import sim.module.Module;
+import sim.module.sim.configparams.SimModuleConfigParams;
+import sim.module.thermal.bo.ThermalCell;
+import sim.module.thermal.bo.ThermalGrid;
+import sim.module.thermal.configParams.ThermalModuleConfigParams;
+import sim.module.thermal.model.ThermalModelFactory.ThermModel;
+import utility.time.TimeManager;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.ParameterException;
+
+import config.EditorConfiguration;
+import config.XMLLoader;
+
+/**
+ * Golden output regression check for the thermal models.
+ * 
+ * Runs a configuration with a fixed seed for a number of simulated minutes, then either records 
+ * the temperature of every thermal grid cell to a golden file, or compares the temperatures with 
+ * those in a golden file recorded earlier.  The check fails if any cell differs by more than the 
+ * tolerance (or the grids differ in size).  Statistics of the differences are reported either way, 
+ * so an alternative thermal model (or an optimisation of one) can be compared for accuracy with the 
+ * model the golden file was recorded with.  For speed, see ThermalBenchmark.
+ * 
+ * The run stops at the first event at or after the given time (see SimulationRunner.setBranchTime()), 
+ * and temperatures are those of the last thermal update before then.  The thermal module must be on 
+ * in the configuration.  Results logs are written as for any other run.
+ * 
+ * Without a configuration file, the built-in RegressionScenario is run, and (with the default seed, 
+ * minutes and model) compared with the golden temperatures recorded from it in ThermalRegressionGolden.
+ * 
+ * Usage: ThermalRegression [-c config.xml.gz -golden golden.csv] [-record] [-seed 1] [-minutes 60] 
+ * 			[-tolerance 1e-6] [-model DIFF|DIFF_ADV] [-p params.txt] [-log4j log4j.properties]
+ * 
+ * Exits with status 0 if the check passes (or the golden file was recorded), 1 if it fails and 2 on error.
+ *
+ */
+public class ThermalRegression {
+
+	public static Logger logger = Logger.getLogger(ThermalRegression.class);
+	
+	public static final String COLUMN_TITLE_STRING = "dc,x,y,temperature";
+	
+	public static final long DEFAULT_MINUTES = 60;
+	
+	/**
+	 * Command line options
+	 */
+	public static class Options {
+		
+		@Parameter(names = {"--config", "-config", "-c"}, description = "Configuration filename (default: the built-in RegressionScenario)")
+		public String configFileName = null;
+		
+		@Parameter(names = {"--golden", "-golden", "-g"}, description = "Golden filename: per-cell temperatures to compare with (or to record).  Required with a configuration file, or to record")
+		public String goldenFileName = null;
+		
+		@Parameter(names = {"--record", "-record"}, description = "Record the golden file, rather than compare with it")
+		public boolean record = false;
+		
+		@Parameter(names = {"--seed", "-seed"}, description = "Seed (default: the seed in the configuration)")
+		public Long seed = null;
+		
+		@Parameter(names = {"--minutes", "-minutes"}, description = "Simulated minutes to run for")
+		public long minutes = DEFAULT_MINUTES;
+		
+		@Parameter(names = {"--tolerance", "-tolerance"}, description = "Largest difference in the temperature of a cell that passes")
+		public double tolerance = 1e-6;
+		
+		@Parameter(names = {"--model", "-model"}, description = "Thermal model, DIFF or DIFF_ADV (default: the model in the configuration)")
+		public String model = null;
+		
+		@Parameter(names = {"--params", "-params", "-p"}, description = "Parameters filename")
+		public String paramsFileName = null;
+		
+		@Parameter(names = {"--log4j", "-log4j"}, description = "log4j properties filename (default: logging off)")
+		public String log4jFileName = null;
+		
+		@Parameter(names = {"--help", "-help", "-h"}, description = "Help", help = true)
+		public boolean help = false;
+	}
+	
+	/**
+	 * The temperature of a thermal grid cell
+	 */
+	protected static class CellTemperature {
+		
+		protected final int dc;
+		protected final int x;
+		protected final int y;
+		protected final double temperature;
+		
+		public CellTemperature(int dc, int x, int y, double temperature) {
+			this.dc = dc;
+			this.x = x;
+			this.y = y;
+			this.temperature = temperature;
+		}
+		
+		public boolean isSameCell(CellTemperature other) {
+			return dc == other.dc && x == other.x && y == other.y;
+		}
+		
+		public String toString() {
+			return dc + "," + x + "," + y + "," + temperature;
+		}
+	}
+	
+	/**
+	 * Run the simulation and return the temperature of every thermal grid cell
+	 * 
+	 * @param options - the command line options
+	 * @param configFile - the configuration file
+	 * @return the cell temperatures, by datacentre, then x, then y
+	 */
+	protected static List<CellTemperature> run(Options options, File configFile) throws IOException {
+		
+		logger.info("Loading configuration file: '" + configFile + "'");
+		EditorConfiguration config = XMLLoader.loadConfig(configFile);
+		
+		SimulationContext context = new SimulationContext("thermal regression");
+		SimulationContext previous = context.enter();
+		try {
+			if(!Module.THERMAL_MODULE.isActive()) {
+				throw new IllegalStateException("The thermal module is off in '" + configFile + "'");
+			}
+			if(options.model != null) {
+				ThermalModuleConfigParams params = (ThermalModuleConfigParams) Module.THERMAL_MODULE.getParams();
+				Module.THERMAL_MODULE.setParams(new ThermalModuleConfigParams(ThermModel.valueOf(options.model), params.getEventPeriod()));
+			}
+			
+			SimulationRunner runner = new SimulationRunner(config, context);
+			if(options.paramsFileName != null) runner.setParamsFileName(options.paramsFileName);
+			if(options.seed != null) {
+				Properties overrides = new Properties();
+				overrides.setProperty(SimModuleConfigParams.SEED_XML_TAG, String.valueOf(options.seed));
+				runner.setParameterOverrides(overrides);
+			}
+			runner.setBranchTime(TimeManager.minutesToSimulationTime(options.minutes));
+			runner.run();
+			
+			if(runner.getBranchCheckpoint() == null) {
+				throw new IllegalStateException("Simulation ended before " + options.minutes + " minutes (is it after the configured end time?)");
+			}
+			
+			// The World is destroyed at the end of the run, but the thermal module keeps its grids
+			List<CellTemperature> temperatures = new ArrayList<CellTemperature>();
+			ThermalGrid[] grids = ThermalModuleRunner.getInstance().getThermalGrids();
+			for(int dc=0; dc<grids.length; dc++) {
+				ThermalCell[][] cells = grids[dc].getGrid();
+				for(int x=0; x<cells.length; x++) {
+					for(int y=0; y<cells[x].length; y++) {
+						temperatures.add(new CellTemperature(dc, x, y, cells[x][y].getTemperature()));
+					}
+				}
+			}
+			return temperatures;
+		} finally {
+			context.exit(previous);
+		}
+	}
+	
+	/**
+	 * Write the cell temperatures to a golden file
+	 */
+	protected static void record(File file, String description, List<CellTemperature> temperatures) throws IOException {
+		BufferedWriter out = new BufferedWriter(new FileWriter(file));
+		try {
+			out.append("# " + description + "\n");
+			out.append(COLUMN_TITLE_STRING + "\n");
+			for(CellTemperature t: temperatures) {
+				out.append(t.toString() + "\n");
+			}
+		} finally {
+			out.close();
+		}
+	}
+	
+	/**
+	 * Read the cell temperatures from a golden file (logging its description)
+	 * 
+	 * @param in - the golden file contents (closed after reading)
+	 * @param file - the golden file name, for error messages
+	 */
+	protected static List<CellTemperature> read(BufferedReader in, String file) throws IOException {
+		List<CellTemperature> temperatures = new ArrayList<CellTemperature>();
+		try {
+			String line;
+			while((line = in.readLine()) != null) {
+				if(line.startsWith("#")) {
+					logger.info("Golden file: " + line.substring(1).trim());
+				} else if(!line.isEmpty() && !line.equals(COLUMN_TITLE_STRING)) {
+					String[] fields = line.split(",");
+					if(fields.length != 4) {
+						throw new IOException("Badly formed line in golden file '" + file + "': " + line);
+					}
+					temperatures.add(new CellTemperature(Integer.parseInt(fields[0]), Integer.parseInt(fields[1]), 
+							Integer.parseInt(fields[2]), Double.parseDouble(fields[3])));
+				}
+			}
+		} finally {
+			in.close();
+		}
+		return temperatures;
+	}
+	
+	/**
+	 * Compare cell temperatures with the golden temperatures, and print statistics of the differences
+	 * 
+	 * @return true if every cell is within the tolerance of the golden temperature
+	 */
+	protected static boolean compare(List<CellTemperature> golden, List<CellTemperature> temperatures, double tolerance) {
+		
+		if(golden.size() != temperatures.size()) {
+			System.out.println("FAIL: golden file has " + golden.size() + " cells, simulation has " + temperatures.size());
+			return false;
+		}
+		
+		double maxDifference = 0;
+		double totalDifference = 0;
+		CellTemperature worst = null;
+		int numOutside = 0;
+		for(int i=0; i<golden.size(); i++) {
+			CellTemperature g = golden.get(i);
+			CellTemperature t = temperatures.get(i);
+			if(!g.isSameCell(t)) {
+				System.out.println("FAIL: golden cell (" + g + ") does not match simulation cell (" + t + ")");
+				return false;
+			}
+			double difference = Math.abs(t.temperature - g.temperature);
+			if(Double.isNaN(difference) || difference > tolerance) numOutside++;
+			if(worst == null || difference > maxDifference) {
+				maxDifference = difference;
+				worst = g;
+			}
+			totalDifference += difference;
+		}
+		
+		System.out.println("Cells compared: " + golden.size());
+		System.out.println("Mean absolute difference: " + totalDifference/golden.size());
+		System.out.println("Max absolute difference: " + maxDifference + " (dc,x,y = " + worst.dc + "," + worst.x + "," + worst.y + ")");
+		System.out.println("Cells outside tolerance (" + tolerance + "): " + numOutside);
+		System.out.println((numOutside == 0) ? "PASS" : "FAIL");
+		return numOutside == 0;
+	}
+	
+	public static void main(String[] args) {
+		
+		Options options = new Options();
+		try {
+			new JCommander(options, args);
+		} catch (ParameterException e) {
+			System.err.println("ThermalRegression: " + e.getMessage() + "\n");
+			new JCommander(options).usage();
+			System.exit(2);
+		}
+		if(options.help) {
+			new JCommander(options).usage();
+			System.exit(0);
+		}
+		
+		if(options.log4jFileName != null) {
+			PropertyConfigurator.configure(options.log4jFileName);
+		} else {
+			BasicConfigurator.configure();
+			Logger.getRootLogger().setLevel(Level.OFF);
+		}
+		
+		boolean builtInGolden = (options.goldenFileName == null);
+		if(builtInGolden && (options.record || options.configFileName != null)) {
+			System.err.println("ThermalRegression: a golden file (-golden) is required to record, or with a configuration file\n");
+			new JCommander(options).usage();
+			System.exit(2);
+		}
+		if(builtInGolden && (options.seed != null || options.minutes != DEFAULT_MINUTES || options.model != null)) {
+			System.err.println("ThermalRegression: the built-in golden temperatures are for the default seed, minutes and model; " + 
+					"give a golden file (-golden) recorded with the same options\n");
+			System.exit(2);
+		}
+		
+		File scenarioDir = null;
+		try {
+			File configFile;
+			if(options.configFileName != null) {
+				configFile = new File(options.configFileName);
+			} else {
+				scenarioDir = RegressionScenario.createDirectory();
+				configFile = RegressionScenario.write(scenarioDir);
+			}
+			List<CellTemperature> temperatures = run(options, configFile);
+			
+			if(options.record) {
+				File golden = new File(options.goldenFileName);
+				String description = "config=" + ((options.configFileName != null) ? options.configFileName : RegressionScenario.NAME) + ", seed=" + ((options.seed != null) ? options.seed : "config") + 
+						", minutes=" + options.minutes + ", model=" + ((options.model != null) ? options.model : "config");
+				record(golden, description, temperatures);
+				System.out.println("Recorded " + temperatures.size() + " cell temperatures to '" + golden + "'");
+				if(scenarioDir != null) RegressionScenario.delete(scenarioDir);
+				System.exit(0);
+			}
+			
+			List<CellTemperature> golden;
+			if(builtInGolden) {
+				golden = read(new BufferedReader(new StringReader(ThermalRegressionGolden.CSV)), "built-in");
+			} else {
+				golden = read(new BufferedReader(new FileReader(options.goldenFileName)), options.goldenFileName);
+			}
+			boolean pass = compare(golden, temperatures, options.tolerance);
+			if(scenarioDir != null) RegressionScenario.delete(scenarioDir);
+			System.exit(pass ? 0 : 1);
+		} catch (Exception e) {
+			logger.error("Thermal regression check failed to run: " + e, e);
+			System.err.println("ThermalRegression: " + e);
+			if(scenarioDir != null) RegressionScenario.delete(scenarioDir);
+			System.exit(2);
+		}
+	}
+}
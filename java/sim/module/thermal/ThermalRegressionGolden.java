@@ -0,0 +1,94 @@
+/**
+ *   This file is part of CReST: The Cloud Research Simulation Toolkit 
+ *   Copyright (C) 2011, 2012 John Cartlidge 
+ * 
+ *   For a full list of contributors, refer to file CONTRIBUTORS.txt 
+ *
+ *   CReST was developed at the University of Bristol, UK, using 
+ *   financial support from the UK's Engineering and Physical 
+ *   Sciences Research Council (EPSRC) grant EP/H042644/1 entitled 
+ *   "Cloud Computing for Large-Scale Complex IT Systems". Refer to
+ *   <http://gow.epsrc.ac.uk/NGBOViewGrant.aspx?GrantRef=EP/H042644/1>
+ * 
+ *   CReST is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/gpl.txt>.
+ *
+ *   For further information, contact: 
+ *
+ *   Dr. John Cartlidge: john@john-cartlidge.co.uk
+ *   Department of Computer Science,
+ *   University of Bristol, The Merchant Venturers Building,
+ *   Woodland Road, Bristol, BS8-1UB, United Kingdom.
+ *
+ */
+package sim.module.thermal;
+
+/**
+ * Golden cell temperatures of the built-in RegressionScenario, with the default seed, minutes and 
+ * model, in the ThermalRegression golden file format.  ThermalRegression compares with these when 
+ * it is run without a configuration file.
+ * 
+ * To re-record (only after a deliberate change to the thermal model or the scenario): 
+ * ThermalRegression -record -golden golden.csv, then replace the lines below with the file's lines.
+ *
+ */
+final class ThermalRegressionGolden {
+
+	static final String CSV = 
+			"# config=built-in regression scenario, seed=config, minutes=60, model=config\n" +
+			"dc,x,y,temperature\n" +
+			"0,0,0,40.74290527875932\n" +
+			"0,0,1,31.536824947153406\n" +
+			"0,0,2,29.600702648117302\n" +
+			"0,0,3,28.913371414482608\n" +
+			"0,0,4,30.811212407067885\n" +
+			"0,0,5,28.415836804512796\n" +
+			"0,0,6,28.080570776368575\n" +
+			"0,1,0,50.38353548915643\n" +
+			"0,1,1,20.0\n" +
+			"0,1,2,29.706455466796804\n" +
+			"0,1,3,20.0\n" +
+			"0,1,4,40.95669396773906\n" +
+			"0,1,5,20.0\n" +
+			"0,1,6,28.107928463649174\n" +
+			"0,2,0,58.445175068760705\n" +
+			"0,2,1,20.0\n" +
+			"0,2,2,29.60899500308527\n" +
+			"0,2,3,20.0\n" +
+			"0,2,4,58.56928870563061\n" +
+			"0,2,5,20.0\n" +
+			"0,2,6,28.108104634742205\n" +
+			"0,3,0,57.61841026286241\n" +
+			"0,3,1,20.0\n" +
+			"0,3,2,29.517040689784785\n" +
+			"0,3,3,20.0\n" +
+			"0,3,4,58.33720530619549\n" +
+			"0,3,5,20.0\n" +
+			"0,3,6,28.110461198720536\n" +
+			"0,4,0,47.93834482542662\n" +
+			"0,4,1,20.0\n" +
+			"0,4,2,29.42513303298267\n" +
+			"0,4,3,20.0\n" +
+			"0,4,4,40.253895820951655\n" +
+			"0,4,5,20.0\n" +
+			"0,4,6,28.112855355682402\n" +
+			"0,5,0,39.31014872989758\n" +
+			"0,5,1,31.043854853466385\n" +
+			"0,5,2,29.538055016057264\n" +
+			"0,5,3,28.80204880469139\n" +
+			"0,5,4,30.709379075180653\n" +
+			"0,5,5,28.35815002827617\n" +
+			"0,5,6,28.1659687202617\n";
+	
+	private ThermalRegressionGolden() {}
+}
@@ -36,7 +36,9 @@
  */
 package sim.module.thermal.bo;
 
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import org.apache.log4j.Logger;
 
@@ -53,15 +55,21 @@ import utility.physics.Velocity;
  * number of servers which are used to periodically update the temperature of the
  * cell, based on their heat output.
  */
-public class ThermalCell
+public class ThermalCell implements Serializable
 {
 
 	public static Logger logger = Logger.getLogger(ThermalCell.class);
 	
+	private static final long serialVersionUID = 1L;
+	
+	/** Proportion of the temperature difference between cells transferred per iteration */
+	public static final double TRANSFER_RATIO = 1.0 / 60.0;
+	
     double         mTemperature;
     Velocity velocity;  
     
     ArrayList<IP>  mIPs    = new ArrayList<IP>();
+    Server[]       mHeatSources = new Server[0]; //the servers of mIPs, resolved when the grid is filled
     AirConditioner mAirCon = null;
 
     boolean rackWall = false; //If true, cell contains a rack and acts as a wall.
@@ -112,7 +120,31 @@ public class ThermalCell
      */
     public void addIP(final IP pIP)
     {
-        mIPs.add(pIP);
+        addHeatSource(World.getInstance().getServer(pIP));
+    }
+    
+    /**
+     * Add a server to this cell. The output temperature of the server will 
+     * then be used to update the temperature of this cell.
+     * 
+     * @param pServer
+     *            the server being added to this cell.
+     */
+    public void addHeatSource(final Server pServer)
+    {
+        mIPs.add(pServer.getIP());
+        mHeatSources = Arrays.copyOf(mHeatSources, mHeatSources.length + 1);
+        mHeatSources[mHeatSources.length - 1] = pServer;
+    }
+
+    /**
+     * Does this thermal cell contain the exhaust of any servers?
+     * 
+     * @return true if it does, false otherwise
+     */
+    public boolean hasHeatSources()
+    {
+        return mHeatSources.length > 0;
     }
 
     /**
@@ -205,24 +237,24 @@ public class ThermalCell
      * @param pDuration
      *            the duration of time that has passed since the last update.
      */
-    private void doHeatGeneration()
+    void doHeatGeneration()
     {
-        final int numServers = mIPs.size();
+        final Server[] servers = mHeatSources;
+        final int numServers = servers.length;
 
         if (numServers > 0)
         {
-            World world = World.getInstance();
             double oldTotal = 0;
             double newTotal = 0;
 
-            for (IP ip : mIPs)
+            for (int i = 0; i < numServers; i++)
             {
-                Server server = world.getServer(ip);
+                final Server server = servers[i];
                 oldTotal += server.getTemperature();
                 newTotal += server.updateTemperature();
             }
 
-            final double averageServerTemp = (oldTotal + newTotal) / (2 * mIPs.size());
+            final double averageServerTemp = (oldTotal + newTotal) / (2 * numServers);
 
             // System.out.println("--TemperatureCell: doHeatGeneration()");
             // System.out.println("Old Temp: " + oldTotal);
@@ -245,12 +277,13 @@ public class ThermalCell
 
             mTemperature += transfer;
 
-            for (IP ip : mIPs)
+            final boolean isFailureModuleActive = Module.FAILURE_MODULE.isActive();
+            for (int i = 0; i < numServers; i++)
             {
-                Server server = world.getServer(ip);
+                final Server server = servers[i];
                 server.incrementTemperature(-transfer);
 
-                if (mTemperature > server.getFailureTemperature() && Module.FAILURE_MODULE.isActive())
+                if (mTemperature > server.getFailureTemperature() && isFailureModuleActive)
                 {
                     server.spawnFailureEvent();
                 }
@@ -264,7 +297,7 @@ public class ThermalCell
      * @param pDuration
      *            the duration of time that has passed since the last update.
      */
-    private void doExhaustVents()
+    void doExhaustVents()
     {
         if (this.hasAirCon())
         {
@@ -379,7 +412,7 @@ public class ThermalCell
         // final double ratio = (0.1 / TimeManager.secondsToSimulationTime(1)) *
         // TimeManager.simulationTimeToSeconds(pDuration);
         // final double ratio = 1.0 / TimeManager.secondsToSimulationTime(1);
-        final double ratio = 1.0 / 60.0;
+        final double ratio = TRANSFER_RATIO;
         final double difference = pAdjacentTemp - pLocalTemp;
         final double transfer = ratio * difference;
 
@@ -37,7 +37,10 @@
 package sim.module.thermal.bo;
 
 import java.awt.Point;
+import java.io.Serializable;
 import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.BitSet;
 
 import org.apache.log4j.Logger;
 
@@ -57,9 +60,11 @@ import utility.time.TimeManager;
  * 
  * Each cell will hold series of servers which will output heat into the cells.
  */
-public class ThermalGrid
+public class ThermalGrid implements Serializable
 {
 	public static Logger logger = Logger.getLogger(ThermalGrid.class);
+
+	private static final long serialVersionUID = 1L;
 	private DecimalFormat df = new DecimalFormat("##.00");
 	
     private static final long ITERATION_PERIOD = TimeManager.secondsToSimulationTime(1);
@@ -83,6 +88,13 @@ public class ThermalGrid
 
     protected int 				resolution = 1; //TODO - so we dont have a 1-1 mapping.
     
+    // Sparse index of the grid (see buildIndex()).  Cell indices are x * height + y, i.e., the 
+    // order in which the models visit the cells.  Null until built, and reset when the grid changes.
+    private ThermalCell[]       mHeatSourceCells = null; //cells containing server exhausts
+    private ThermalCell[]       mAirConCells     = null; //cells containing air con vents
+    private BitSet              mRackWalls       = null; //rack-wall cells
+    private double[]            mOpenMask        = null; //0 for rack-wall cells, 1 otherwise
+    
     /**
      * Constructor for creating a server-less temperature grid.
      * 
@@ -135,6 +147,143 @@ public class ThermalGrid
 
     public void setGrid(ThermalCell[][] grid) {
     	mGrid = grid;
+    	mHeatSourceCells = null;
+    }
+    
+    /**
+     * Build the sparse index of the grid: the cells that contain heat sources or air con vents, 
+     * and the rack-wall mask.  Servers and air cons are only placed when the grid is filled, 
+     * so the index is built once, on first use after the grid is filled.
+     */
+    private void buildIndex()
+    {
+    	final int height = getHeight();
+    	ArrayList<ThermalCell> heatSourceCells = new ArrayList<ThermalCell>();
+    	ArrayList<ThermalCell> airConCells = new ArrayList<ThermalCell>();
+    	BitSet rackWalls = new BitSet(mGrid.length * height);
+    	double[] openMask = new double[mGrid.length * height];
+    	
+    	for (int x = 0; x < mGrid.length; x++)
+    	{
+    		for (int y = 0; y < height; y++)
+    		{
+    			final ThermalCell cell = mGrid[x][y];
+    			if (cell.hasHeatSources()) heatSourceCells.add(cell);
+    			if (cell.hasAirCon()) airConCells.add(cell);
+    			if (cell.isRackWall()) 
+    			{
+    				rackWalls.set(x * height + y);
+    			}
+    			else
+    			{
+    				openMask[x * height + y] = 1;
+    			}
+    		}
+    	}
+    	
+    	mAirConCells = airConCells.toArray(new ThermalCell[airConCells.size()]);
+    	mRackWalls = rackWalls;
+    	mOpenMask = openMask;
+    	mHeatSourceCells = heatSourceCells.toArray(new ThermalCell[heatSourceCells.size()]);
+    	
+    	logger.info("Indexed thermal grid: " + mHeatSourceCells.length + " heat source cells, " + 
+    			mAirConCells.length + " air con cells, " + mRackWalls.cardinality() + " rack-wall cells");
+    }
+    
+    /**
+     * Gather the heat generated by the servers into the cells containing their exhausts, 
+     * then extract heat through the air con vents.  Only the cells containing heat sources 
+     * or vents are visited.
+     */
+    public void gatherHeatOutput()
+    {
+    	if (mHeatSourceCells == null) buildIndex();
+    	
+    	final ThermalCell[] cells = mHeatSourceCells;
+    	for (int i = 0; i < cells.length; i++)
+    	{
+    		cells[i].doHeatGeneration();
+    	}
+    	performExtraction();
+    }
+    
+    /**
+     * Extract heat through all the air con vents of the grid (the vents of any switched-on 
+     * air cons cool their cells towards the extraction temperature).
+     */
+    public void performExtraction()
+    {
+    	if (mHeatSourceCells == null) buildIndex();
+    	
+    	final ThermalCell[] cells = mAirConCells;
+    	for (int i = 0; i < cells.length; i++)
+    	{
+    		cells[i].doExhaustVents();
+    	}
+    }
+    
+    /**
+     * @return the rack-wall cells of the grid, by cell index (x * height + y)
+     */
+    public BitSet getRackWalls()
+    {
+    	if (mHeatSourceCells == null) buildIndex();
+    	return mRackWalls;
+    }
+    
+    /**
+     * Get the rack-wall mask of the grid, for branch-free heat transfer: no heat is transferred 
+     * to or from a rack wall, so the transfer between two cells is multiplied by the product of 
+     * their masks.  Do not modify.
+     * 
+     * @return 0 for each rack-wall cell and 1 otherwise, by cell index (x * height + y)
+     */
+    public double[] getOpenMask()
+    {
+    	if (mHeatSourceCells == null) buildIndex();
+    	return mOpenMask;
+    }
+    
+    /**
+     * Copy the cell temperatures into an array
+     * 
+     * @param pTemperatures - array to copy into (reused if it is the right size, may be null)
+     * @return the temperature of each cell, by cell index (x * height + y)
+     */
+    public double[] getTemperatures(double[] pTemperatures)
+    {
+    	final int height = getHeight();
+    	if (pTemperatures == null || pTemperatures.length != mGrid.length * height)
+    	{
+    		pTemperatures = new double[mGrid.length * height];
+    	}
+    	for (int x = 0; x < mGrid.length; x++)
+    	{
+    		final ThermalCell[] column = mGrid[x];
+    		for (int y = 0; y < height; y++)
+    		{
+    			pTemperatures[x * height + y] = column[y].mTemperature;
+    		}
+    	}
+    	return pTemperatures;
+    }
+    
+    /**
+     * Set the cell temperatures from an array
+     * 
+     * @param pTemperatures - the temperature of each cell, by cell index (x * height + y)
+     */
+    public void setTemperatures(final double[] pTemperatures)
+    {
+    	final int height = getHeight();
+    	for (int x = 0; x < mGrid.length; x++)
+    	{
+    		final ThermalCell[] column = mGrid[x];
+    		for (int y = 0; y < height; y++)
+    		{
+    			column[y].mTemperature = pTemperatures[x * height + y];
+    		}
+    	}
     }
     
     /**
@@ -226,6 +375,7 @@ public class ThermalGrid
     {
         fillWithServers(pDC);
         fillWithAirCons(pDC);
+        mHeatSourceCells = null;
     }
 
     /**
@@ -236,11 +386,11 @@ public class ThermalGrid
      */
     void fillWithServers(Datacentre pDC)
     {
-        final int numServers = pDC.getNumServers();
+        final Server[] heatSources = pDC.getHeatSources();
 
-        for (int i = 0; i < numServers; i++)
+        for (int i = 0; i < heatSources.length; i++)
         {
-            addServerToGrid(pDC.getServer(i));
+            addServerToGrid(heatSources[i]);
         }
     }
 
@@ -289,7 +439,7 @@ public class ThermalGrid
         // add the IPs to the thermal cell at the REAR of the rack
         CompassDirection rear = pServer.getDirection().getOpposite();       
         final Point exhaustCellID = getNeighbouringCellID(cellID, rear);
-        mGrid[exhaustCellID.x][exhaustCellID.y].addIP(ip);
+        mGrid[exhaustCellID.x][exhaustCellID.y].addHeatSource(pServer);
         
         logger.info("Server cell location is; " + cellID + ", Server faces: " + pServer.getDirection() +
         		", Server exhaust: " + rear + ", Server exhaust cell is: " + exhaustCellID);
@@ -39,18 +39,19 @@ package sim.module.thermal.event;
 
 import org.apache.log4j.Logger;
 
-import sim.module.event.Event;
-import sim.module.event.EventQueue;
+import sim.module.event.RecurringEvent;
 import sim.module.thermal.ThermalModuleRunner;
 import utility.time.TimeManager;
 
 /**
  * Event to update the temperature of all the datacentres.
  */
-public class ThermalEvent extends Event
+public class ThermalEvent extends RecurringEvent
 {
 	public static Logger logger = Logger.getLogger(ThermalEvent.class);
 	
+	private static final long serialVersionUID = 1L;
+	
 	 // TODO: Updates are fixed to be at every simulated second. This makes
     // the simulation very slow so a better solution is needed.
 	public static final long TIME_TO_NEXT_EVENT = TimeManager.secondsToSimulationTime(1);
@@ -91,7 +92,7 @@ public class ThermalEvent extends Event
        	//logger.info("Adding Thermal Grid update Event to the event queue...");
         //EventQueue.getInstance().addEvent(ThermalGridEvent.create(mStartTime));
         
-        EventQueue.getInstance().addEvent(ThermalEvent.create(mStartTime + ThermalEvent.TIME_TO_NEXT_EVENT));
+        repeatAt(mStartTime + ThermalEvent.TIME_TO_NEXT_EVENT);
     }
 
     /*
@@ -41,6 +41,8 @@ public class ThermalGridEvent extends Event
 {
 	public static Logger logger = Logger.getLogger(ThermalGridEvent.class);
 
+	private static final long serialVersionUID = 1L;
+
     /**
      * Constructor
      * 
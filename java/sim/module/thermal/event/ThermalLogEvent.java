@@ -2,7 +2,6 @@ package sim.module.thermal.event;
 
 import org.apache.log4j.Logger;
 
-import sim.module.event.EventQueue;
 import sim.module.log.Log;
 import sim.module.log.LogManager;
 import sim.module.log.event.LogEvent;
@@ -15,6 +14,8 @@ public class ThermalLogEvent extends LogEvent {
 	
 	public static Logger logger = Logger.getLogger(ThermalLogEvent.class);
 
+	private static final long serialVersionUID = 1L;
+
     // Member variables.
     private final long mLogPeriod;
 
@@ -53,7 +54,7 @@ public class ThermalLogEvent extends LogEvent {
     @Override
     protected void generateEvents()
     {
-        EventQueue.getInstance().addEvent(new ThermalLogEvent(mStartTime + mLogPeriod));
+        repeatAt(mStartTime + mLogPeriod);
     }
 
     /*
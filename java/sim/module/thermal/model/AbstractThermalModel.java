@@ -33,10 +33,14 @@
  */
 package sim.module.thermal.model;
 
+import java.io.Serializable;
+
 import sim.module.thermal.bo.ThermalGrid;
 
 
-public abstract class AbstractThermalModel {
+public abstract class AbstractThermalModel implements Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	public String name = "Abstract Thermal Model";
 
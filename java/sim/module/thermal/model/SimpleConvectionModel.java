@@ -50,6 +50,8 @@ public class SimpleConvectionModel extends SimpleDiffusionModel {
 
 	public static Logger logger = Logger.getLogger(SimpleConvectionModel.class);
 	
+	private static final long serialVersionUID = 1L;
+	
 	public SimpleConvectionModel(String name) { super(name); }
 	
 	@Override
@@ -69,6 +71,7 @@ public class SimpleConvectionModel extends SimpleDiffusionModel {
 		logger.debug(grid);
 		
 		mGrid = grid.getGrid();
+		mThermalGrid = grid;
         gatherHeatOutput();
         propagateTemperature();
 	}
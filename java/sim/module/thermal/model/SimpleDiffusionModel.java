@@ -49,7 +49,13 @@ public class SimpleDiffusionModel extends AbstractThermalModel {
 
 	public static Logger logger = Logger.getLogger(SimpleDiffusionModel.class);
 	
+	private static final long serialVersionUID = 1L;
+	
 	ThermalCell[][] mGrid;
+	ThermalGrid mThermalGrid;
+	
+	// cell temperatures, by cell index (x * height + y), for the diffusion sweep
+	private transient double[] mTemperatures;
 
 	public SimpleDiffusionModel(String name) { super(name); }
 	
@@ -63,37 +69,103 @@ public class SimpleDiffusionModel extends AbstractThermalModel {
 	public void update(ThermalGrid grid) {
 		
 		mGrid = grid.getGrid();
+		mThermalGrid = grid;
         gatherHeatOutput();
         propagateTemperature();
 	}
 
     /**
      * Gather the heat generated in each cell of the grid by the servers present
-     * in each of the cells.
+     * in each of the cells, and extract heat through the air con vents.
      * 
-     * @param pDuration
-     *            the duration of time that has passed since the last update.
+     * Only the cells containing servers or vents are visited (see ThermalGrid.gatherHeatOutput()).
      */
     protected void gatherHeatOutput()
     {
-        for (int x = 0; x < mGrid.length; x++)
+        mThermalGrid.gatherHeatOutput();
+    }
+    
+    /**
+     * Perform a propagation step to distribute existing heat across the grid.
+     * 
+     * The sweep runs over an array of the cell temperatures, with the rack walls as a mask 
+     * rather than branches.  Cells are updated in place, in the same order (and with the 
+     * same arithmetic) as propagateTemperatureByCell(), so the results are identical.
+     * 
+     * @TODO Only does 2D propagation.
+     */
+    protected void propagateTemperature()
+    {
+        final int width = mThermalGrid.getWidth();
+        final int height = mThermalGrid.getHeight();
+        final double[] t = mTemperatures = mThermalGrid.getTemperatures(mTemperatures);
+        final double[] open = mThermalGrid.getOpenMask();
+        final double ratio = ThermalCell.TRANSFER_RATIO;
+        
+        for (int x = 0; x < width; x++)
         {
-            for (int y = 0; y < mGrid[x].length; y++)
+            // neighbouring columns (clamped to the grid, see wrapToGrid())
+            final int east = (x + 1 < width ? x + 1 : width - 1) * height;
+            final int west = (x > 0 ? x - 1 : 0) * height;
+            final int here = x * height;
+            
+            for (int y = 0; y < height; y++)
             {
-                mGrid[x][y].updateTemperature();
+                final int yNorth = y + 1 < height ? y + 1 : height - 1;
+                final int ySouth = y > 0 ? y - 1 : 0;
+                
+                final int i = here + y;
+                final int iN = here + yNorth;
+                final int iE = east + y;
+                final int iS = here + ySouth;
+                final int iW = west + y;
+                final int iNE = east + yNorth;
+                final int iSE = east + ySouth;
+                final int iSW = west + ySouth;
+                final int iNW = west + yNorth;
+                
+                final double local = t[i];
+                final double open_i = open[i];
+                
+                final double changeN = ratio * (t[iN] - local) * (open_i * open[iN]);
+                final double changeE = ratio * (t[iE] - local) * (open_i * open[iE]);
+                final double changeS = ratio * (t[iS] - local) * (open_i * open[iS]);
+                final double changeW = ratio * (t[iW] - local) * (open_i * open[iW]);
+                final double changeNE = ratio * (t[iNE] - local) * (open_i * open[iNE]);
+                final double changeSE = ratio * (t[iSE] - local) * (open_i * open[iSE]);
+                final double changeSW = ratio * (t[iSW] - local) * (open_i * open[iSW]);
+                final double changeNW = ratio * (t[iNW] - local) * (open_i * open[iNW]);
+                
+                t[i] += changeN;
+                t[i] += changeE;
+                t[i] += changeS;
+                t[i] += changeW;
+                t[i] += changeNE;
+                t[i] += changeSE;
+                t[i] += changeSW;
+                t[i] += changeNW;
+                
+                t[iN] -= changeN;
+                t[iE] -= changeE;
+                t[iS] -= changeS;
+                t[iW] -= changeW;
+                t[iNE] -= changeNE;
+                t[iSE] -= changeSE;
+                t[iSW] -= changeSW;
+                t[iNW] -= changeNW;
             }
         }
+        
+        mThermalGrid.setTemperatures(t);
     }
     
     /**
-     * Perform a propagation step to distribute existing heat across the grid.
+     * Perform a propagation step cell by cell (the original implementation of 
+     * propagateTemperature(), kept for reference and comparison).
      * 
      * @TODO Only does 2D propagation.
-     * 
-     * @param pDuration
-     *            the duration of time that has passed since the last update.
      */
-    protected void propagateTemperature()
+    protected void propagateTemperatureByCell()
     {
         final ThermalCell[][] newGrid = mGrid.clone();
         
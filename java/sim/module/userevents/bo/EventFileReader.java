@@ -68,6 +68,8 @@ public class EventFileReader extends Event
 	
 	public static Logger logger = Logger.getLogger(EventFileReader.class);
 	
+	private static final long serialVersionUID = 1L;
+	
     private final String mFilename;
 
     //TODO - JC Jan 2012, Make Enumeration
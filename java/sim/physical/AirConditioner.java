@@ -53,6 +53,8 @@ public class AirConditioner extends Block implements Failable
 {
 	private static Logger logger = Logger.getLogger(AirConditioner.class);
 	
+	private static final long serialVersionUID = 1L;
+	
     // Constants //
     private static final double DESIRED_TEMPERATURE   = 25.0;
     private static final double TEMPERATURE_POTENTIAL = -500.0;
@@ -49,6 +49,8 @@ public class Aisle extends Block
 {
 	public static Logger logger = Logger.getLogger(Aisle.class);
 	
+	private static final long serialVersionUID = 1L;
+	
     // Constants.
     //private static final int INTRA_AISLE_NETWORK_DISTANCE = 10;
 
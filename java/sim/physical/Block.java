@@ -37,6 +37,7 @@
 package sim.physical;
 
 import java.awt.Point;
+import java.io.Serializable;
 import java.util.ArrayList;
 
 import org.apache.log4j.Logger;
@@ -53,8 +54,10 @@ import utility.direction.CompassDirection;
  * 
  * These blocks could be a single rack/air-con or a selection of them.
  */
-public abstract class Block
+public abstract class Block implements Serializable
 {
+    private static final long serialVersionUID = 1L;
+
     public enum Type
     {
         container, aisle, rack, aircon
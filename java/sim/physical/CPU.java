@@ -36,15 +36,21 @@
  */
 package sim.physical;
 
+import java.io.Serializable;
+
 /**
- * Class representing a CPU.
+ * Class representing a CPU specification.  
+ * 
+ * CPUs are immutable, so they can be shared between servers of the same specification 
+ * (see ServerSpec).  The utilisation of each of a server's CPUs is held by the Server.
  */
-public class CPU
+public class CPU implements Serializable
 {
+    private static final long serialVersionUID = 1L;
+
     private final String mModel;
     private final int    mSpeed;       // MHz
     private final int    mNumCores;
-    private double       mUtilisation; // between 0-1
 
     /**
      * Default constructor to create a new preset CPU.
@@ -54,7 +60,6 @@ public class CPU
         mModel = "default";
         mSpeed = 2000;
         mNumCores = 4;
-        mUtilisation = 0;
     }
 
     /**
@@ -72,7 +77,6 @@ public class CPU
         mModel = pModel;
         mSpeed = pSpeed;
         mNumCores = pCores;
-        mUtilisation = 0;
     }
 
     /**
@@ -84,7 +88,7 @@ public class CPU
     {
         String string;
 
-        string = "Model: " + mModel + ", Speed: " + mSpeed + " MHz, Cores: " + mNumCores + ", Utilisation: " + mUtilisation;
+        string = "Model: " + mModel + ", Speed: " + mSpeed + " MHz, Cores: " + mNumCores;
 
         return string;
     }
@@ -100,71 +104,30 @@ public class CPU
     }
         
     /**
-	 * Checks whether the service can run on this CPU or not. Returns true if it
-	 * can or returns false if the CPU is at full utilisation already
-	 * 
-	 * @param utilIncrease
-	 *            the percentage CPU utilisation for this service
-	 * @return whether the service will run on this CPU
-	 */
-    public boolean serviceWillRun(double utilIncrease)
-    {
-    	 if (mUtilisation + utilIncrease > 1)
-         {
-             return false;
-         }
-    	 else if (mUtilisation + utilIncrease < 0)
-         {
-             return false;
-         }
-    	 else
-    	 {
-    		 return true;
-    	 }
-    }
-    
-    /**
-     * Adjusts the CPU utilisation when a service is started or stopped
+     * Returns the number of cores in this CPU
      * 
-     * @param change
-     *            the percentage CPU utilisation for this service
+     * @return the number of cores in this CPU
      */
-    public void adjustUtilisation(double change)
+    public int getNumCores()
     {
-        mUtilisation += change;
+        return mNumCores;
     }
 
-	/**
-	 * Sets the CPU utilisation to a specific value
-	 * NOTE: you will normally require the method adjustUtilisation()
-	 * This method s only used when a server dies and everything must be stopped.
-	 * 
-	 * see adjustUtilisation
-	 * 
-	 * @param value the value to set the CPU utilisation at
-	 */
-    public void setUtilisation(double value)
+    @Override
+    public boolean equals(Object o)
     {
-    	mUtilisation = value;
+        if (this == o) return true;
+        if (!(o instanceof CPU)) return false;
+        CPU other = (CPU) o;
+        return mSpeed == other.mSpeed && mNumCores == other.mNumCores 
+        		&& (mModel == null ? other.mModel == null : mModel.equals(other.mModel));
     }
 
-    /**
-     * Returns the number of cores in this CPU
-     * 
-     * @return the number of cores in this CPU
-     */
-    public int getNumCores()
+    @Override
+    public int hashCode()
     {
-        return mNumCores;
+        int hash = (mModel == null) ? 0 : mModel.hashCode();
+        hash = 31 * hash + mSpeed;
+        return 31 * hash + mNumCores;
     }
-
-	/**
-	 * Returns the CPU Utilisation
-	 * 
-	 * @return the CPU Utilisation
-	 */
-	public double getCPUUtilisation()
-	{
-		return mUtilisation;
-	}
 }
@@ -50,6 +50,8 @@ public class Container extends Block
 {
 	public static Logger logger = Logger.getLogger(Container.class);
 	
+	private static final long serialVersionUID = 1L;
+	
     // Member variables.
     ArrayList<IP>        mDeadServerList       = new ArrayList<IP>();
 
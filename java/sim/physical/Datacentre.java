@@ -37,21 +37,25 @@
 package sim.physical;
 
 import java.awt.Point;
+import java.io.Serializable;
 import java.util.ArrayList;
 
 import org.apache.log4j.Logger;
 
 import sim.module.costs.bo.Costs;
 import sim.physical.network.IP;
+import cern.colt.map.OpenLongObjectHashMap;
 
 /**
  * Class representing a physical datacentre within the simulator.
  */
-public class Datacentre
+public class Datacentre implements Serializable
 {
 	
 	public static Logger logger = Logger.getLogger(Datacentre.class);
 	
+	private static final long serialVersionUID = 1L;
+	
     /**
      * The default setup to initialise the datacentre with.
      */
@@ -81,6 +85,12 @@ public class Datacentre
     private int                mNumFailedServers         = 0;
     private final int          mIntraDCNetworkDistance;
     
+    // Server lookup tables, built by distributeIPs(): local server index -> server,
+    // and packed IP address -> server
+    private Server[]           mServerIndex              = null;
+    private OpenLongObjectHashMap mServerByAddress       = null;
+    private int                mFirstServerID            = 0;
+    
     /**
      * Constructor for creating a new custom datacentre.
      * 
@@ -314,6 +324,7 @@ public class Datacentre
     protected void clear()
     {
         mBlocks.clear();
+        clearServerIndex();
     }
 
     /**
@@ -325,6 +336,7 @@ public class Datacentre
     protected void add(Aisle pAisle)
     {
         mBlocks.add(pAisle);
+        clearServerIndex();
     }
 
     /**
@@ -336,6 +348,7 @@ public class Datacentre
     protected void remove(Aisle pAisle)
     {
         mBlocks.remove(pAisle);
+        clearServerIndex();
     }
 
     /**
@@ -553,6 +566,11 @@ public class Datacentre
     {
     	logger.debug("DC" + this.id + ": Getting server with id: " + serverIndex);
     	
+    	if (mServerIndex != null && serverIndex >= 0 && serverIndex < mServerIndex.length)
+    	{
+    		return mServerIndex[serverIndex];
+    	}
+    	
         Server server = null;
         int seenServers = 0;
 
@@ -582,14 +600,102 @@ public class Datacentre
      */
     public int distributeIPs(final int pDC, int pNumServersSeen)
     {
+        final int firstID = pNumServersSeen;
+        
         for (int i = 0; i < mBlocks.size(); i++)
         {
             pNumServersSeen = mBlocks.get(i).distributeIPs(i, pDC, pNumServersSeen);
         }
 
+        buildServerIndex(firstID);
+        
         return pNumServersSeen;
     }
     
+    /**
+     * Build the server lookup tables once IPs and IDs have been distributed.
+     * Server IDs in a datacentre are consecutive, so the local index of a 
+     * server is its ID less the ID of the first server.
+     */
+    private void buildServerIndex(final int pFirstID)
+    {
+        ArrayList<Server> servers = getServers();
+        Server[] index = new Server[servers.size()];
+        OpenLongObjectHashMap byAddress = new OpenLongObjectHashMap(servers.size());
+        
+        for (Server server : servers)
+        {
+            final int i = server.getID() - pFirstID;
+            if (i < 0 || i >= index.length || index[i] != null)
+            {
+                logger.warn("DC" + id + ": server IDs are not consecutive, server lookups will not be indexed");
+                clearServerIndex();
+                return;
+            }
+            index[i] = server;
+            byAddress.put(server.getIP().getAddress(), server);
+        }
+        
+        mServerIndex = index;
+        mServerByAddress = byAddress;
+        mFirstServerID = pFirstID;
+    }
+    
+    /**
+     * Get the servers of this datacentre as an array of heat sources, in local server index 
+     * order (as for getServer(int)), for the thermal grid to gather heat from in bulk.
+     * 
+     * Replacement servers take over the existing Server objects (see 
+     * Server.replaceMemberVariables()), so the array stays valid until the layout changes.
+     * 
+     * @return the servers of this datacentre.
+     */
+    public Server[] getHeatSources()
+    {
+        if (mServerIndex != null)
+        {
+            return mServerIndex.clone();
+        }
+        return getServers().toArray(new Server[0]);
+    }
+    
+    /**
+     * Discard the server lookup tables (after the layout changes)
+     */
+    private void clearServerIndex()
+    {
+        mServerIndex = null;
+        mServerByAddress = null;
+    }
+    
+    /**
+     * Get the local index (0 for the first server of this datacentre) of the 
+     * server with a given packed IP address.
+     * 
+     * @param pAddress
+     *            the packed address (see IP.getAddress())
+     * @return the local server index, or -1 if there is no such server (or IPs
+     *         have not been distributed).
+     */
+    public int getServerIndex(final long pAddress)
+    {
+        final Server server = getServerByAddress(pAddress);
+        return server == null ? -1 : server.getID() - mFirstServerID;
+    }
+    
+    /**
+     * Get the server with a given packed IP address.
+     * 
+     * @param pAddress
+     *            the packed address (see IP.getAddress())
+     * @return the server, or null if there is no such server (or IPs have not
+     *         been distributed).
+     */
+    public Server getServerByAddress(final long pAddress)
+    {
+        return mServerByAddress == null ? null : (Server) mServerByAddress.get(pAddress);
+    }
+    
     /**
      * Gets the server from the datacentre with the given IP.
      * 
@@ -599,6 +705,11 @@ public class Datacentre
      */
     public Server getServer(final IP pIP)
     {
+        final Server server = getServerByAddress(pIP.getAddress());
+        if (server != null)
+        {
+            return server;
+        }
         return mBlocks.get(pIP.block()).getServer(pIP);
     }
 
@@ -36,11 +36,15 @@
  */
 package sim.physical;
 
+import java.io.Serializable;
+
 /**
  * Class representing a physical harddisk.
  */
-public class Harddisk
+public class Harddisk implements Serializable
 {
+    private static final long serialVersionUID = 1L;
+
     private final int    mMaxSpace;               // GB
     private int          mFreeSpace;              // GB
     private final double mReadSpeed;              // MB/s
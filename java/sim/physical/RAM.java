@@ -37,11 +37,15 @@
  */
 package sim.physical;
 
+import java.io.Serializable;
+
 /**
  * Class representing physical RAM within a server.
  */
-public class RAM
+public class RAM implements Serializable
 {
+	private static final long serialVersionUID = 1L;
+
 	private final String mModel;
 	private final double mSpeed; // MHz
 	private final int mSize; // MB
@@ -92,4 +96,23 @@ public class RAM
 
 		return string;
 	}
+
+	@Override
+	public boolean equals(Object o)
+	{
+		if (this == o) return true;
+		if (!(o instanceof RAM)) return false;
+		RAM other = (RAM) o;
+		return Double.compare(mSpeed, other.mSpeed) == 0 && mSize == other.mSize 
+				&& (mModel == null ? other.mModel == null : mModel.equals(other.mModel));
+	}
+
+	@Override
+	public int hashCode()
+	{
+		int hash = (mModel == null) ? 0 : mModel.hashCode();
+		long speed = Double.doubleToLongBits(mSpeed);
+		hash = 31 * hash + (int) (speed ^ (speed >>> 32));
+		return 31 * hash + mSize;
+	}
 }
@@ -51,6 +51,8 @@ public class Rack extends Block
 {
 	public static Logger logger = Logger.getLogger(Rack.class);
 	
+	private static final long serialVersionUID = 1L;
+	
     // Constants.
 	//private static final int INTRA_RACK_NETWORK_DISTANCE = 1;
 
@@ -38,10 +38,15 @@
 package sim.physical;
 
 import java.awt.Point;
+import java.io.Serializable;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import org.apache.log4j.Logger;
 
+import sim.SimulationContext;
 import sim.module.event.Event;
 import sim.module.event.EventQueue;
 import sim.module.failure.bo.Failable;
@@ -61,11 +66,17 @@ import config.physical.ServerType;
 
 /**
  * Class representing a physical server.
+ * 
+ * The server's hardware specification (CPUs, RAM, model, power, cost, etc.) is a ServerSpec 
+ * that is shared by all servers of the same specification.  The server itself only holds 
+ * its own state: CPU utilisation, power consumption, temperature, failure state and IP.
  */
-public class Server implements Failable
+public class Server implements Failable, Serializable
 {
 	public static Logger logger = Logger.getLogger(Server.class);
 
+	private static final long serialVersionUID = 1L;
+
     // ///**** Constants ****\\\\\
     private static final long    MINUTES_TO_TEMPERATURE_FROM_ZERO = 10;
     private static final long    TIME_TO_TEMPERATURE_FROM_ZERO    = TimeManager.minutesToSimulationTime(MINUTES_TO_TEMPERATURE_FROM_ZERO);
@@ -75,40 +86,42 @@ public class Server implements Failable
     public static final double   DEFAULT_MAX_POWER_CONSUMED       = 1000;
     public static final double   DEFAULT_PURCHASE_COST            = 1000;
 
+    private static final double  TEMP_GEN_PER_TIME_UNIT           = (8.0 * TimeManager.secondsToSimulationTime(1) * FAILURE_TEMPERATURE) / TIME_TO_TEMPERATURE_FROM_ZERO;
+
     // ///**** Member variables ****\\\\\
     // Temperature.
-    private final double         mTempGenPerTimeUnit              = (8.0 * TimeManager.secondsToSimulationTime(1) * FAILURE_TEMPERATURE) / TIME_TO_TEMPERATURE_FROM_ZERO;
     private double               mTemp                            = DEFAULT_TEMPERATURE;
     private boolean              mHasOverHeated                   = false;
+    
+    // Heat generated per thermal iteration, cached until the utilisation, alive state or 
+    // hardware changes (see getHeatOutput()).  Not saved in checkpoints: recalculated on resume.
+    private transient double     mHeatOutput;
+    private transient boolean    mHeatOutputValid                 = false;
 
     // Physical.
     private final int            mHeight;
     private final CompassDirection		 mDirection;
     private final Point          mRelativePosition;
 
-    // Components.
-    private CPU[]                mCPUs;
-    private RAM                  mRAM;
-    private Harddisk             mDisk;
+    // Hardware specification (shared).
+    private ServerSpec           mSpec;
+
+    // Utilisation (between 0-1) of each of the specification's CPUs.
+    private double[]             mCPUUtilisation;
 
     // Failure.
     private boolean              mIsAlive                         = true;
     private FailType             mFailureType                     = FailType.fix;
-    private long                 mMeanFailTime;
 
-    // Cost & power.
-    private double               mDefaultPowerConsumed;
-    private double               mMaxPowerConsumed;
+    // Power.
     private double               mCurrentPowerConsumed;
-    private double               mPurchaseCost;
-    private Software             mSoftware                        = new Software();
 
     // Identification.
-    private String               mModel;
     private IP                   mIP;
     private int                  mID;
 
     private ArrayList<Service> servicesRunning; //TODO: JC, Oct 2011. Do i need this?  it holds lots of data, remove. Its also not updating correctly! (Maybe it is)
+    											//created when the first service is started
     
     /**
      * Create a new custom server from the specified parameters.
@@ -127,27 +140,18 @@ public class Server implements Failable
      */
     public Server(Point pRelativePosition, CPU[] cpus, RAM memory, int pHeight, CompassDirection pDirection, String pModel, final long pMeanFailTime)
     {
-        mCPUs = cpus;
-        mDefaultPowerConsumed = DEFAULT_DEFAULT_POWER_CONSUMPTION;
-        mDisk = new Harddisk();
-        mMaxPowerConsumed = DEFAULT_MAX_POWER_CONSUMED;
-        mMeanFailTime = pMeanFailTime;
-        mModel = pModel;
-        mPurchaseCost = DEFAULT_PURCHASE_COST;
-        mRAM = memory;
+        mSpec = ServerSpec.get(cpus, memory, null, pModel, pMeanFailTime,
+        		DEFAULT_DEFAULT_POWER_CONSUMPTION, DEFAULT_MAX_POWER_CONSUMED, DEFAULT_PURCHASE_COST);
+        mCPUUtilisation = new double[mSpec.getNumCPUs()];
 
         mHeight = pHeight;
         mDirection = pDirection;
         mRelativePosition = pRelativePosition;
-        mCurrentPowerConsumed = mDefaultPowerConsumed;
+        mCurrentPowerConsumed = mSpec.getDefaultPowerConsumed();
 
         mIP = IP.create("127.0.0.1");
-        addSoftware("some os", 0.0);
-        addSoftware("mysql", 0.0);
-        
-        //logger.debug("New server.  Mean fail time = " + mMeanFailTime);
         
-        servicesRunning = new ArrayList<Service>();
+        //logger.debug("New server.  Mean fail time = " + getMeanFailTime());
     }
 
     /**
@@ -158,25 +162,15 @@ public class Server implements Failable
      */
     public Server(final ServerType pNewServer, final Point pRelativePosition, final int pHeight, final CompassDirection pDirection)
     {
-        mCPUs = pNewServer.getCPUs();
-        mDefaultPowerConsumed = pNewServer.getDefaultPowerCunsumption();
-        mDisk = pNewServer.getHarddisk();
-        mMaxPowerConsumed = pNewServer.getMaxPowerConsumption();
-        mMeanFailTime = pNewServer.getMeanFailTime();
-        mModel = pNewServer.getModelName();
-        mPurchaseCost = pNewServer.getPurchaseCost();
-        mRAM = pNewServer.getRAM();
+        mSpec = ServerSpec.get(pNewServer);
+        mCPUUtilisation = new double[mSpec.getNumCPUs()];
 
         mHeight = pHeight;
         mDirection = pDirection;
         mRelativePosition = pRelativePosition;
-        mCurrentPowerConsumed = mDefaultPowerConsumed;
+        mCurrentPowerConsumed = mSpec.getDefaultPowerConsumed();
 
         mIP = IP.create("127.0.0.1");
-        addSoftware("some os", 0.0);
-        addSoftware("mysql", 0.0);
-        
-        servicesRunning = new ArrayList<Service>();
     }
 
     public String toStringLong()
@@ -189,18 +183,19 @@ public class Server implements Failable
         string += "Current temperature: " + mTemp + "C\nPosition: " + mRelativePosition.toString();
         string += "\nHeight: " + mHeight;
         string += "\nCPUs - ";
-        for (CPU c : mCPUs)
+        CPU[] cpus = mSpec.getCPUs();
+        for (int i = 0; i < cpus.length; i++)
         {
-            string += c.toString() + ", ";
+            string += cpus[i].toString() + ", Utilisation: " + mCPUUtilisation[i] + ", ";
         }
-        string += "\nRAM - " + mRAM.toString();
-        string += "\nHarddisk - " + mDisk.toString();
-        string += "\nMax Power Usage - " + mMaxPowerConsumed + " Watts";
-        string += "\nPurchase Cost - £ " + mPurchaseCost;
-        string += "\nSoftware Installed - " + mSoftware.toString();
+        string += "\nRAM - " + mSpec.getRAM().toString();
+        string += "\nHarddisk - " + mSpec.getHarddisk().toString();
+        string += "\nMax Power Usage - " + mSpec.getMaxPowerConsumed() + " Watts";
+        string += "\nPurchase Cost - £ " + mSpec.getPurchaseCost();
+        string += "\nSoftware Installed - " + mSpec.getSoftware().toString();
         string += "\nSoftware Cost - £" + getSoftwareCost();
 
-        string += "\nServices Running: " + servicesRunning;
+        string += "\nServices Running: " + getServicesRunning();
         return string;
     }
     
@@ -242,13 +237,63 @@ public class Server implements Failable
     }
 
     /**
-     * Returns the CPU of this server.
+     * Returns the CPUs of this server. The array is shared with other servers of 
+     * the same specification, so must not be modified.
      * 
-     * @return The CPU of this server.
+     * @return The CPUs of this server.
      */
     public CPU[] getCPUs()
     {
-        return mCPUs;
+        return mSpec.getCPUs();
+    }
+
+    /**
+     * Returns the hardware specification of this server (shared with other 
+     * servers of the same specification).
+     * 
+     * @return The specification of this server.
+     */
+    public ServerSpec getSpec()
+    {
+        return mSpec;
+    }
+
+    /**
+     * Returns the utilisation (0-1) of one of this server's CPUs.
+     * 
+     * @param pCPU the index of the CPU
+     * @return the utilisation of the CPU
+     */
+    public double getCPUUtilisation(final int pCPU)
+    {
+        return mCPUUtilisation[pCPU];
+    }
+
+    /**
+     * Adjusts the utilisation of one of this server's CPUs when a service is 
+     * started or stopped
+     * 
+     * @param pCPU the index of the CPU
+     * @param change the change in utilisation
+     */
+    public void adjustCPUUtilisation(final int pCPU, final double change)
+    {
+        mCPUUtilisation[pCPU] += change;
+        mHeatOutputValid = false;
+    }
+
+    /**
+	 * Checks whether a service can run on one of this server's CPUs. Returns false 
+	 * if the CPU is at full utilisation already
+	 * 
+	 * @param pCPU the index of the CPU
+	 * @param utilIncrease the CPU utilisation for this service
+	 * @return whether the service will run on the CPU
+	 */
+    private boolean serviceWillRun(final int pCPU, final double utilIncrease)
+    {
+        final double utilisation = mCPUUtilisation[pCPU] + utilIncrease;
+        return !(utilisation > 1) && !(utilisation < 0);
     }
 
     /**
@@ -258,14 +303,14 @@ public class Server implements Failable
      */
     public double getCPUUtilisation()
     {
-    	int numCPUs =  mCPUs.length;
+    	int numCPUs =  mCPUUtilisation.length;
     	
     	if (numCPUs == 0) return 0;
     	
         double total = 0;
         for (int i = 0; i < numCPUs; i++)
         {
-            total += this.getCPUs()[i].getCPUUtilisation();
+            total += mCPUUtilisation[i];
         }
         total /= numCPUs;
 
@@ -283,7 +328,7 @@ public class Server implements Failable
      */
     public RAM getRAM()
     {
-        return mRAM;
+        return mSpec.getRAM();
     }
 
     /**
@@ -293,7 +338,7 @@ public class Server implements Failable
      */
     Harddisk getDisk()
     {
-        return mDisk;
+        return mSpec.getHarddisk();
     }
 
     /**
@@ -316,6 +361,7 @@ public class Server implements Failable
     public void setIsAlive(boolean state)
     {
         mIsAlive = state;
+        mHeatOutputValid = false;
     }
 
     /**
@@ -326,21 +372,7 @@ public class Server implements Failable
      */
     String getSoftware()
     {
-        return mSoftware.toString();
-    }
-
-    /**
-     * Adds software to the server
-     * 
-     * @author Alex Sheppard
-     * @param softwareName
-     *            Name of the piece of software
-     * @param softwarePrice
-     *            Price of the software
-     */
-    void addSoftware(String softwareName, Double softwarePrice)
-    {
-        mSoftware.addSoftware(softwareName, softwarePrice);
+        return mSpec.getSoftware().toString();
     }
 
     /**
@@ -372,13 +404,19 @@ public class Server implements Failable
      */
     public boolean startService(Service s) {
     	
+    	if(servicesRunning == null) servicesRunning = new ArrayList<Service>();
     	servicesRunning.add(s);
 //    	printServicesRunning("Server.startService()");
     	return true;
     }
     
     public String printServicesRunning(String initialMessage) {
-    	return initialMessage + " Server" + this.getID() + " running services " + servicesRunning;
+    	return initialMessage + " Server" + this.getID() + " running services " + getServicesRunning();
+    }
+    
+    private List<Service> getServicesRunning() {
+    	if(servicesRunning == null) return Collections.emptyList();
+    	return servicesRunning;
     }
     
      /**
@@ -408,13 +446,14 @@ public class Server implements Failable
         // Looks for a CPU with spare utilisation in this server and returns
         // true
         Boolean CPUUtilisation = false;
-        lookforacore: for (int i = 0; i < mCPUs.length; i++)
+        lookforacore: for (int i = 0; i < mCPUUtilisation.length; i++)
         {
-            // for (int j = 0; j < mCPUs[i].getNumCores(); j++)
+            // for (int j = 0; j < getCPUs()[i].getNumCores(); j++)
             {
-                if (mCPUs[i].serviceWillRun(s.getUtilisation()))
+                if (serviceWillRun(i, s.getUtilisation()))
                 {
-                    mCPUs[i].adjustUtilisation(s.getUtilisation());
+                    mCPUUtilisation[i] += s.getUtilisation();
+                    mHeatOutputValid = false;
                     CPUUtilisation = true;
 
                     s.setCPU(i);
@@ -432,7 +471,7 @@ public class Server implements Failable
         
 
         canHandleService = CPUUtilisation && 
-        	setServerPower((mMaxPowerConsumed - mCurrentPowerConsumed) 
+        	setServerPower((mSpec.getMaxPowerConsumed() - mCurrentPowerConsumed) 
         			* s.getUtilisation()); // adjust power usage 
         
         return canHandleService;
@@ -457,6 +496,7 @@ public class Server implements Failable
     	logger.info("Server is currently alive. Performing failure...");
     	
         mIsAlive = false;
+        mHeatOutputValid = false;
 
         performServerFailure(pFailureType);
         performUtilisationFailure(); 
@@ -489,11 +529,12 @@ public class Server implements Failable
     	//TODO JC: May 2012 - this looks a bit dubious.
     	
         // Set CPU utilisation and power usage to defaults
-        for (int i = 0; i < mCPUs.length; i++)
+        for (int i = 0; i < mCPUUtilisation.length; i++)
         {
-            mCPUs[i].setUtilisation(0);
+            mCPUUtilisation[i] = 0;
         }
-        setServerPower(-mCurrentPowerConsumed + mDefaultPowerConsumed);
+        mHeatOutputValid = false;
+        setServerPower(-mCurrentPowerConsumed + mSpec.getDefaultPowerConsumed());
     }
 
     /**
@@ -506,6 +547,7 @@ public class Server implements Failable
         if (isBroken() && (mFailureType == FailType.soft))
         {
     		mIsAlive = true;
+    		mHeatOutputValid = false;
 			mFailureType = FailType.fix;
             logger.info("Server fixed: " + this);
         } else {
@@ -543,6 +585,7 @@ public class Server implements Failable
     private void performServerFix()
     {
         mHasOverHeated = false;
+        mHeatOutputValid = false;
 
         // TODO
         switch (mFailureType)
@@ -596,15 +639,16 @@ public class Server implements Failable
 
                     // Set CPU utilisation and power usage
                     boolean found = false;
-                    for (int i = 0; i < mCPUs.length; i++)
+                    for (int i = 0; i < mCPUUtilisation.length; i++)
                     {
-                        if (mCPUs[i].serviceWillRun(service.getUtilisation()))
+                        if (serviceWillRun(i, service.getUtilisation()))
                         {
-                            mCPUs[i].adjustUtilisation(service.getUtilisation());
+                            mCPUUtilisation[i] += service.getUtilisation();
+                            mHeatOutputValid = false;
 
                             found = true;
                             service.setCPU(i);
-                            setServerPower((mMaxPowerConsumed - mCurrentPowerConsumed) * service.getUtilisation());
+                            setServerPower((mSpec.getMaxPowerConsumed() - mCurrentPowerConsumed) * service.getUtilisation());
                             break;
                         }
                     }
@@ -638,7 +682,7 @@ public class Server implements Failable
      */
     double getMaxServerPower()
     {
-        return mMaxPowerConsumed;
+        return mSpec.getMaxPowerConsumed();
     }
 
     /**
@@ -652,16 +696,18 @@ public class Server implements Failable
      */
     boolean setServerPower(double powerChange)
     {
-        if (mCurrentPowerConsumed + powerChange < mDefaultPowerConsumed)
+        final double defaultPowerConsumed = mSpec.getDefaultPowerConsumed();
+        final double maxPowerConsumed = mSpec.getMaxPowerConsumed();
+        if (mCurrentPowerConsumed + powerChange < defaultPowerConsumed)
         {
             logger.error("Something has gone wrong, you've removed a service and you are using less power than the idle power for the server");
-            mCurrentPowerConsumed = mDefaultPowerConsumed;
+            mCurrentPowerConsumed = defaultPowerConsumed;
             return false;
         }
-        else if (mCurrentPowerConsumed + powerChange > mMaxPowerConsumed)
+        else if (mCurrentPowerConsumed + powerChange > maxPowerConsumed)
         {
             logger.error("Something has gone wrong, you've added a service and you are using more power than the max power of the server at full load");
-            mCurrentPowerConsumed = mMaxPowerConsumed;
+            mCurrentPowerConsumed = maxPowerConsumed;
             return false;
         }
         else
@@ -679,7 +725,7 @@ public class Server implements Failable
      */
     double getPurchaseCost()
     {
-        return mPurchaseCost;
+        return mSpec.getPurchaseCost();
     }
 
     /**
@@ -690,7 +736,7 @@ public class Server implements Failable
      */
     double getSoftwareCost()
     {
-        return mSoftware.getCost();
+        return mSpec.getSoftware().getCost();
     }
 
     /**
@@ -766,6 +812,7 @@ public class Server implements Failable
             if (mTemp <= FAILURE_TEMPERATURE) //TODO AS 5.9.12- is failure temp a good idea? as soon as temp < 90, server restarts then instantly overheats again.
             {
                 mHasOverHeated = false;
+                mHeatOutputValid = false;
             }
         }
 
@@ -780,14 +827,39 @@ public class Server implements Failable
      */
     private void generateHeat()
     {
-        double ratio = getCPUUtilisation();
-        
-        if (ratio < 0.5)
+        incrementTemperature(getHeatOutput());
+    }
+    
+    /**
+     * Get the heat this server generates per thermal iteration: in proportion to its CPU 
+     * utilisation (with a minimum of half load) while it is alive, and none when it is not.
+     * 
+     * The value is cached, and only recalculated after the utilisation, alive state or hardware 
+     * of the server changes.
+     * 
+     * @return the heat output (temperature increase) per iteration.
+     */
+    public double getHeatOutput()
+    {
+        if (!mHeatOutputValid)
         {
-            ratio = 0.5;
+            if (isAlive())
+            {
+                double ratio = getCPUUtilisation();
+                
+                if (ratio < 0.5)
+                {
+                    ratio = 0.5;
+                }
+                mHeatOutput = ratio * TEMP_GEN_PER_TIME_UNIT;
+            }
+            else
+            {
+                mHeatOutput = 0;
+            }
+            mHeatOutputValid = true;
         }
-        
-        incrementTemperature(ratio * mTempGenPerTimeUnit);
+        return mHeatOutput;
     }
 
     /**
@@ -809,7 +881,7 @@ public class Server implements Failable
      */
     public long getMeanFailTime()
     {
-        return mMeanFailTime;
+        return mSpec.getMeanFailTime();
     }
 
     /**
@@ -819,6 +891,7 @@ public class Server implements Failable
     {
         // TODO: Actually create a failure event instead of killing it manually.
         mHasOverHeated = true;
+        mHeatOutputValid = false;
     }
 
     /**
@@ -884,7 +957,7 @@ public class Server implements Failable
      */
     public String getmModel()
     {
-        return mModel;
+        return mSpec.getModel();
     }
 
     /**
@@ -895,7 +968,7 @@ public class Server implements Failable
      */
     public void setmModel(String mModel)
     {
-        this.mModel = mModel;
+        mSpec = mSpec.withModel(mModel);
     }
 
     /**
@@ -942,31 +1015,27 @@ public class Server implements Failable
      */
     public void replaceMemberVariables(final ServerType pNewServer)
     {
-        CPU[] newCPUs = pNewServer.getCPUs();
+        ServerSpec newSpec = ServerSpec.get(pNewServer);
+        double[] newUtilisation = new double[newSpec.getNumCPUs()];
   
-        for (int i = 0; i < mCPUs.length; i++)
+        for (int i = 0; i < mCPUUtilisation.length; i++)
         {
-        	try
+        	if (i < newUtilisation.length)
         	{
 	        	//TODO AS 7.9.12- surely getting the utilisation of the server you are replacing will always be 0, seeing as it has failed?
-	            newCPUs[i].setUtilisation(mCPUs[i].getCPUUtilisation());
+	            newUtilisation[i] = mCPUUtilisation[i];
         	}
-        	catch(ArrayIndexOutOfBoundsException e)
+        	else
         	{
         		logger.error("CPU " + i + " does not exist in new server- ignoring");
         	}
         }
 
-        mCPUs = newCPUs;
-        mDefaultPowerConsumed = pNewServer.getDefaultPowerCunsumption();
-        mDisk = pNewServer.getHarddisk();
-        mMaxPowerConsumed = pNewServer.getMaxPowerConsumption();
-        mMeanFailTime = pNewServer.getMeanFailTime();
-        mModel = pNewServer.getModelName();
-        mPurchaseCost = pNewServer.getPurchaseCost();
-        mRAM = pNewServer.getRAM();
+        mSpec = newSpec;
+        mCPUUtilisation = newUtilisation;
+        mHeatOutputValid = false;
 
-        mCurrentPowerConsumed = mDefaultPowerConsumed;
+        mCurrentPowerConsumed = mSpec.getDefaultPowerConsumed();
     }
 
     /**
@@ -1070,19 +1139,17 @@ public class Server implements Failable
     	return s;
     }
     
-    private static int nextServerID = 0; 
-    
     /**
      * Get the next server ID for the Server class.  Used for testing.
      */
     public static int getNextServerID() {
-    	return Server.nextServerID++;
+    	return SimulationContext.getCurrent().nextServerID();
     }
     
     /**
      * Reset next server ID for the Server class to 0.  Used for testing.
      */
     public static void resetNextServerID() {
-    	Server.nextServerID=0;
+    	SimulationContext.getCurrent().resetServerID();
     }
 }
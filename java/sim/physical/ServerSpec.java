@@ -0,0 +1,267 @@
+/**
+ *   This file is part of CReST: The Cloud Research Simulation Toolkit 
+ *   Copyright (C) 2011, 2012 John Cartlidge 
+ * 
+ *   For a full list of contributors, refer to file CONTRIBUTORS.txt 
+ *
+ *   CReST was developed at the University of Bristol, UK, using 
+ *   financial support from the UK's Engineering and Physical 
+ *   Sciences Research Council (EPSRC) grant EP/H042644/1 entitled 
+ *   "Cloud Computing for Large-Scale Complex IT Systems". Refer to
+ *   <http://gow.epsrc.ac.uk/NGBOViewGrant.aspx?GrantRef=EP/H042644/1>
+ * 
+ *   CReST is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/gpl.txt>.
+ *
+ *   For further information, contact: 
+ *
+ *   Dr. John Cartlidge: john@john-cartlidge.co.uk
+ *   Department of Computer Science,
+ *   University of Bristol, The Merchant Venturers Building,
+ *   Woodland Road, Bristol, BS8-1UB, United Kingdom.
+ *
+ */
+package sim.physical;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.log4j.Logger;
+
+import config.physical.ServerType;
+
+/**
+ * The immutable hardware specification of a server: CPUs, RAM, harddisk, installed software, 
+ * model name, mean failure time, power consumption and purchase cost.
+ * 
+ * Specifications are interned, so all servers of the same specification share one instance 
+ * (a datacentre typically has only a handful of distinct models).  The mutable state of each 
+ * server (CPU utilisation, power, temperature, failure state, IP) is held by the Server.
+ * 
+ * Specifications are compared by value.  The harddisk is not compared (all harddisks are 
+ * currently created with the default constructor).
+ */
+public final class ServerSpec implements Serializable
+{
+	public static Logger logger = Logger.getLogger(ServerSpec.class);
+	
+	private static final long serialVersionUID = 1L;
+	
+	/** Software installed on every server */
+	private static final Software DEFAULT_SOFTWARE = new Software();
+	static
+	{
+		DEFAULT_SOFTWARE.addSoftware("some os", 0.0);
+		DEFAULT_SOFTWARE.addSoftware("mysql", 0.0);
+	}
+	
+	/** Interned specifications. Specifications are immutable, so are shared by all simulation contexts */
+	private static final ConcurrentMap<ServerSpec, ServerSpec> specs = new ConcurrentHashMap<ServerSpec, ServerSpec>();
+	
+	private final CPU[] mCPUs;
+	private final RAM mRAM;
+	private final Harddisk mDisk;
+	private final String mModel;
+	private final long mMeanFailTime;
+	private final double mDefaultPowerConsumed;
+	private final double mMaxPowerConsumed;
+	private final double mPurchaseCost;
+	private final int hash;
+	
+	private ServerSpec(CPU[] cpus, RAM ram, Harddisk disk, String model, long meanFailTime, double defaultPowerConsumed, double maxPowerConsumed, double purchaseCost)
+	{
+		mCPUs = cpus;
+		mRAM = ram;
+		mDisk = disk;
+		mModel = model;
+		mMeanFailTime = meanFailTime;
+		mDefaultPowerConsumed = defaultPowerConsumed;
+		mMaxPowerConsumed = maxPowerConsumed;
+		mPurchaseCost = purchaseCost;
+		hash = computeHash();
+	}
+	
+	/**
+	 * Get the (shared) specification with the given values.
+	 * 
+	 * The given arrays and objects are not retained unless this is the first server of this specification.
+	 * 
+	 * @param cpus - the server's CPUs
+	 * @param ram - the server's RAM
+	 * @param disk - the server's harddisk, or null for a default harddisk
+	 * @param model - model name
+	 * @param meanFailTime - mean failure time (simulation time)
+	 * @param defaultPowerConsumed - idle power consumption
+	 * @param maxPowerConsumed - power consumption at full load
+	 * @param purchaseCost - purchase cost
+	 * @return the interned specification
+	 */
+	public static ServerSpec get(CPU[] cpus, RAM ram, Harddisk disk, String model, long meanFailTime, double defaultPowerConsumed, double maxPowerConsumed, double purchaseCost)
+	{
+		ServerSpec spec = specs.get(new ServerSpec(cpus, ram, disk, model, meanFailTime, defaultPowerConsumed, maxPowerConsumed, purchaseCost));
+		if(spec == null)
+		{
+			// first server of this specification: keep a private copy of the CPU array
+			ServerSpec candidate = new ServerSpec(cpus.clone(), ram, (disk == null) ? new Harddisk() : disk, model, meanFailTime, defaultPowerConsumed, maxPowerConsumed, purchaseCost);
+			spec = intern(candidate);
+		}
+		return spec;
+	}
+	
+	/**
+	 * @return the shared specification equal to the candidate, adding the candidate if there is none
+	 */
+	private static ServerSpec intern(ServerSpec candidate)
+	{
+		ServerSpec spec = specs.putIfAbsent(candidate, candidate);
+		if(spec == null)
+		{
+			logger.debug("New server specification: " + candidate);
+			spec = candidate;
+		}
+		return spec;
+	}
+	
+	/**
+	 * Deserialized specifications are replaced by the shared instance, so servers restored from a 
+	 * checkpoint share specifications with each other and with servers created in this process.
+	 */
+	private Object readResolve()
+	{
+		return intern(this);
+	}
+	
+	/**
+	 * @return the (shared) specification of a server type
+	 */
+	public static ServerSpec get(ServerType type)
+	{
+		return get(type.getCPUs(), type.getRAM(), type.getHarddisk(), type.getModelName(), type.getMeanFailTime(),
+				type.getDefaultPowerCunsumption(), type.getMaxPowerConsumption(), type.getPurchaseCost());
+	}
+	
+	/**
+	 * @return the (shared) specification that is the same as this one, but with a different model name
+	 */
+	public ServerSpec withModel(String model)
+	{
+		return get(mCPUs, mRAM, mDisk, model, mMeanFailTime, mDefaultPowerConsumed, mMaxPowerConsumed, mPurchaseCost);
+	}
+	
+	/**
+	 * @return the number of distinct specifications created so far
+	 */
+	public static int getNumSpecs()
+	{
+		return specs.size();
+	}
+	
+	/**
+	 * The CPUs of this specification. The array is shared, so must not be modified.
+	 */
+	public CPU[] getCPUs()
+	{
+		return mCPUs;
+	}
+	
+	public int getNumCPUs()
+	{
+		return mCPUs.length;
+	}
+	
+	public RAM getRAM()
+	{
+		return mRAM;
+	}
+	
+	public Harddisk getHarddisk()
+	{
+		return mDisk;
+	}
+	
+	public Software getSoftware()
+	{
+		return DEFAULT_SOFTWARE;
+	}
+	
+	public String getModel()
+	{
+		return mModel;
+	}
+	
+	public long getMeanFailTime()
+	{
+		return mMeanFailTime;
+	}
+	
+	public double getDefaultPowerConsumed()
+	{
+		return mDefaultPowerConsumed;
+	}
+	
+	public double getMaxPowerConsumed()
+	{
+		return mMaxPowerConsumed;
+	}
+	
+	public double getPurchaseCost()
+	{
+		return mPurchaseCost;
+	}
+	
+	private int computeHash()
+	{
+		int h = Arrays.hashCode(mCPUs);
+		h = 31 * h + ((mRAM == null) ? 0 : mRAM.hashCode());
+		h = 31 * h + ((mModel == null) ? 0 : mModel.hashCode());
+		h = 31 * h + (int) (mMeanFailTime ^ (mMeanFailTime >>> 32));
+		long bits = Double.doubleToLongBits(mDefaultPowerConsumed);
+		h = 31 * h + (int) (bits ^ (bits >>> 32));
+		bits = Double.doubleToLongBits(mMaxPowerConsumed);
+		h = 31 * h + (int) (bits ^ (bits >>> 32));
+		bits = Double.doubleToLongBits(mPurchaseCost);
+		return 31 * h + (int) (bits ^ (bits >>> 32));
+	}
+	
+	@Override
+	public int hashCode()
+	{
+		return hash;
+	}
+	
+	@Override
+	public boolean equals(Object o)
+	{
+		if (this == o) return true;
+		if (!(o instanceof ServerSpec)) return false;
+		ServerSpec other = (ServerSpec) o;
+		return hash == other.hash
+				&& mMeanFailTime == other.mMeanFailTime
+				&& Double.compare(mDefaultPowerConsumed, other.mDefaultPowerConsumed) == 0
+				&& Double.compare(mMaxPowerConsumed, other.mMaxPowerConsumed) == 0
+				&& Double.compare(mPurchaseCost, other.mPurchaseCost) == 0
+				&& (mModel == null ? other.mModel == null : mModel.equals(other.mModel))
+				&& (mRAM == null ? other.mRAM == null : mRAM.equals(other.mRAM))
+				&& Arrays.equals(mCPUs, other.mCPUs);
+	}
+	
+	@Override
+	public String toString()
+	{
+		return "ServerSpec [model=" + mModel + ", cpus=" + Arrays.toString(mCPUs) + ", ram=" + mRAM 
+				+ ", meanFailTime=" + mMeanFailTime + ", power=" + mDefaultPowerConsumed + "-" + mMaxPowerConsumed 
+				+ ", purchaseCost=" + mPurchaseCost + "]";
+	}
+}
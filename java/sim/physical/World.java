@@ -36,11 +36,13 @@
  */
 package sim.physical;
 
+import java.io.Serializable;
 import java.sql.Time;
 import java.util.ArrayList;
 
 import org.apache.log4j.Logger;
 
+import sim.SimulationContext;
 import sim.module.failure.event.FailureEvent.ObjectType;
 import sim.module.log.LogManager;
 import sim.physical.network.IP;
@@ -51,20 +53,22 @@ import utility.time.TimeManager;
  * 
  * Singleton class. There should only be one world instantiated at any point in time.
  */
-public class World
+public class World implements Serializable
 {
 	static Logger logger = Logger.getLogger(World.class);
 	
+	private static final long serialVersionUID = 1L;
+	
     private static final int     INTRA_WORLD_NETWORK_DISTANCE = 1000;
 
-    // Singleton.
-    private static World         instance                     = null;
-
     // Member variables.
     public ArrayList<Datacentre> mDatacentres                 = new ArrayList<Datacentre>();
     private int                  mIntraWorldNetworkDistance;
     private long                 mTime = 0;
     
+    // Server ID -> server, built by distributeIPs()
+    private Server[]             mServersByID                 = null;
+    
     private LogManager			 logManager;
 
     /**
@@ -89,7 +93,8 @@ public class World
     protected static World create(int pNetDistance)
     {
     	logger.info("Creating world...");
-        instance = new World(pNetDistance);
+    	World instance = new World(pNetDistance);
+    	SimulationContext.getCurrent().setSingleton(World.class, instance);
         logger.info("New world created");
         return instance;
     }
@@ -103,10 +108,11 @@ public class World
      */
     public static World getInstance()
     {
+        World instance = SimulationContext.getCurrent().getSingleton(World.class);
         if (instance == null)
         {
         	logger.info("World instance is null.  Creating new world...");
-            create(INTRA_WORLD_NETWORK_DISTANCE);
+            instance = create(INTRA_WORLD_NETWORK_DISTANCE);
         }
 
         return instance;
@@ -122,9 +128,10 @@ public class World
     public boolean destroy()
     {
     	logger.debug("Destroying world object!");
-    	if(instance != null) {
+    	if(SimulationContext.getCurrent().getSingleton(World.class) != null) {
     		logger.debug("Removing datacentres...");
     		mDatacentres.clear();
+    		mServersByID = null;
     	    logger.debug("Listing Datacentres...");
     	    for(int i=0; i<World.getInstance().getNumberOfDatacentres(); i++) {
     	    	logger.info(World.getInstance().getDatacentre(i));
@@ -133,7 +140,7 @@ public class World
     	    mTime = 0;
     	    logger.debug("Time is now: " + TimeManager.getTimeString());
     	    
-    		instance = null;
+    		SimulationContext.getCurrent().setSingleton(World.class, null);
     		return true;   		
     	} else {
     		logger.info("No world object exists to destroy...");
@@ -149,9 +156,10 @@ public class World
     public boolean clear()
     {
     	logger.debug("Clearing world object!");
-    	if(instance != null) {
+    	if(SimulationContext.getCurrent().getSingleton(World.class) != null) {
     		logger.debug("Removing datacentres...");
     		mDatacentres.clear();
+    		mServersByID = null;
     	    logger.debug("Listing Datacentres...");
     	    for(int i=0; i<World.getInstance().getNumberOfDatacentres(); i++) {
     	    	logger.info(World.getInstance().getDatacentre(i));
@@ -172,10 +180,11 @@ public class World
      */
     public static World getInstance(int pNetDistance)
     {
+        World instance = SimulationContext.getCurrent().getSingleton(World.class);
         if (instance == null)
         {
         	logger.warn("World instance is null.  Creating new world...");
-            create(pNetDistance);
+            instance = create(pNetDistance);
         }
 
         return instance;
@@ -243,6 +252,7 @@ public class World
     public void addDatacentre(Datacentre pDC)
     {
         this.mDatacentres.add(pDC);
+        mServersByID = null;
     }
 
     /**
@@ -253,6 +263,7 @@ public class World
     public void removeDatacentre(Datacentre pDC)
     {
         this.mDatacentres.remove(pDC);
+        mServersByID = null;
     }
 
     /**
@@ -267,6 +278,11 @@ public class World
      */
     public Server getServer(final int pID)
     {
+    	if (mServersByID != null && pID >= 0 && pID < mServersByID.length)
+    	{
+    		return mServersByID[pID];
+    	}
+    	
         Server server = null;
         int seenServers = 0;
 
@@ -509,6 +525,7 @@ public class World
     public void distributeIPs()
     {
         int numServersSeen = 0;
+        mServersByID = null;
         
         logger.info("Distributing IPs...");
         
@@ -522,6 +539,19 @@ public class World
 //            logger.warn(mDatacentres.get(i).getName() + ": IDs of servers..." + Arrays.toString(mDatacentres.get(i).getServerIDs()));
             
         }
+        
+        // Index servers by ID, using the tables each datacentre has just built
+        Server[] byID = new Server[numServersSeen];
+        int id = 0;
+        for (Datacentre dc : mDatacentres)
+        {
+        	final int numServers = dc.getNumServers();
+        	for (int i = 0; i < numServers; i++)
+        	{
+        		byID[id++] = dc.getServer(i);
+        	}
+        }
+        mServersByID = byID;
     }
     
     /**
@@ -36,18 +36,40 @@
  */
 package sim.physical.network;
 
+import java.io.Serializable;
+
 /**
  * A class to represent a physical IP of a server. Can be used to find a server
  * in a World, Datacentre, Aisle or Rack.
+ * 
+ * Each IP also has a packed form: a long holding the four fields in 16 bits
+ * each (DC, block, sub-block, server from most to least significant), with 
+ * 0xFFFF standing for an unknown (-1) field.  Packed addresses can be used as
+ * primitive map keys and compared with the static helpers in this class and
+ * PartialIP without creating IP objects.
  */
-public class IP
+public class IP implements Serializable
 {
+	private static final long serialVersionUID = 1L;
+
 	protected enum AddressType{SERVER, RACK, AISLE, DC};
 	
+	/** Number of bits used by each field of a packed address */
+	public static final int FIELD_BITS = 16;
+	/** Largest field value a packed address can hold */
+	public static final int MAX_FIELD = (1 << FIELD_BITS) - 2;
+	
+	protected static final long FIELD_MASK = (1L << FIELD_BITS) - 1;
+	protected static final int SERVER_SHIFT = 0;
+	protected static final int SUB_BLOCK_SHIFT = FIELD_BITS;
+	protected static final int BLOCK_SHIFT = 2 * FIELD_BITS;
+	protected static final int DC_SHIFT = 3 * FIELD_BITS;
+	
     protected final int mServer;
     protected final int mSubBlock;
     protected final int mBlock;
     protected final int mDC;
+    protected final long mAddress;
     
 	protected IP.AddressType addressType = AddressType.SERVER; //IP address of a server
 
@@ -69,6 +91,7 @@ public class IP
         mSubBlock = pSubBlock;
         mBlock = pBlock;
         mDC = pDC;
+        mAddress = pack(pServer, pSubBlock, pBlock, pDC);
     }
 
     /**
@@ -169,6 +192,90 @@ public class IP
         return mServer;
     }
     
+    /**
+     * Get the packed form of this IP.
+     * 
+     * @return the packed address
+     */
+    public long getAddress()
+    {
+        return mAddress;
+    }
+    
+    /**
+     * Pack the given network positions into a single long.
+     * 
+     * @param pServer
+     *            the server position, or -1 if unknown.
+     * @param pSubBlock
+     *            the sub-block (rack) position, or -1 if unknown.
+     * @param pBlock
+     *            the block (aisle) position, or -1 if unknown.
+     * @param pDC
+     *            the datacentre position, or -1 if unknown.
+     * @return the packed address.
+     * @throws IllegalArgumentException if a position is not between -1 and MAX_FIELD
+     */
+    public static long pack(final int pServer, final int pSubBlock, final int pBlock, final int pDC)
+    {
+        return (field(pDC) << DC_SHIFT) | (field(pBlock) << BLOCK_SHIFT) | (field(pSubBlock) << SUB_BLOCK_SHIFT) | (field(pServer) << SERVER_SHIFT);
+    }
+    
+    private static long field(final int pValue)
+    {
+        if (pValue < -1 || pValue > MAX_FIELD)
+        {
+            throw new IllegalArgumentException("IP field out of range [-1, " + MAX_FIELD + "]: " + pValue);
+        }
+        return pValue & FIELD_MASK;
+    }
+    
+    private static int unpack(final long pAddress, final int pShift)
+    {
+        final int value = (int) ((pAddress >>> pShift) & FIELD_MASK);
+        return value == FIELD_MASK ? -1 : value;
+    }
+    
+    /**
+     * @return the server position of a packed address (-1 if unknown)
+     */
+    public static int server(final long pAddress)
+    {
+        return unpack(pAddress, SERVER_SHIFT);
+    }
+    
+    /**
+     * @return the sub-block (rack) position of a packed address (-1 if unknown)
+     */
+    public static int subBlock(final long pAddress)
+    {
+        return unpack(pAddress, SUB_BLOCK_SHIFT);
+    }
+    
+    /**
+     * @return the block (aisle) position of a packed address (-1 if unknown)
+     */
+    public static int block(final long pAddress)
+    {
+        return unpack(pAddress, BLOCK_SHIFT);
+    }
+    
+    /**
+     * @return the datacentre position of a packed address (-1 if unknown)
+     */
+    public static int dc(final long pAddress)
+    {
+        return unpack(pAddress, DC_SHIFT);
+    }
+    
+    /**
+     * Convert a packed address to the string form ("Server.Rack.Aisle.DC")
+     */
+    public static String toString(final long pAddress)
+    {
+        return server(pAddress) + "." + subBlock(pAddress) + "." + block(pAddress) + "." + dc(pAddress);
+    }
+    
     /*
      * (non-Javadoc)
      * @see java.lang.Object#equals(java.lang.Object)
@@ -176,23 +283,22 @@ public class IP
     @Override
     public boolean equals(final Object pObject)
     {
-        boolean equals = false;
-        
-        if (pObject == null)
+        if (pObject == null || pObject.getClass() != getClass())
         {
-            equals = false;
-        }
-        else if (pObject.getClass().getName().equals(IP.class.getName()))
-        {
-            IP ip = (IP) pObject;
-            
-            if (this.dc() == ip.dc() && this.mBlock == ip.block() && this.subBlock() == ip.subBlock() && this.server() == ip.server())
-            {
-                equals = true;
-            }
+            return false;
         }
         
-        return equals;
+        return mAddress == ((IP) pObject).mAddress;
+    }
+    
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode()
+    {
+        return (int) (mAddress ^ (mAddress >>> 32));
     }
     
     /**
@@ -243,24 +349,38 @@ public class IP
      * ---
      */
     public static int navigatePointToPoint(IP from, IP to) {
+    	return navigatePointToPoint(from.mAddress, to.mAddress);
+    }
+    
+    /**
+     * Navigate network between 2 packed IP addresses: point to point distance.
+     * 
+     * @see #navigatePointToPoint(IP, IP)
+     * 
+     * @param from - packed address of origin 
+     * @param to - packed address of destination
+     * @return number of network "hops" between network hubs/switches
+     */
+    public static int navigatePointToPoint(final long from, final long to) {
     	
-    	int hops = 0; //same server
+    	final long diff = from ^ to;
     	
-    	if(from.dc()!=to.dc()) {
+    	if(diff == 0) {
+    		//same server
+    		return 0;
+    	} else if((diff >>> DC_SHIFT) != 0) {
     		//different datacentres
-    		hops = 8;
-    	} else if (from.block()!=to.block()){
+    		return 8;
+    	} else if ((diff >>> BLOCK_SHIFT) != 0){
     		//different aisles
-    		hops = 6;
-    	} else if (from.subBlock()!=to.subBlock()){
+    		return 6;
+    	} else if ((diff >>> SUB_BLOCK_SHIFT) != 0){
     		//different rack
-    		hops = 4;
-    	} else if (from.server()!=to.server()) {
+    		return 4;
+    	} else {
     		//different server
-    		hops = 2;
+    		return 2;
     	}
-    	
-    	return hops;	
     }
     
     /**
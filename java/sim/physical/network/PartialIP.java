@@ -37,6 +37,8 @@ import org.apache.log4j.Logger;
 
 public class PartialIP extends IP {
 
+	private static final long serialVersionUID = 1L;
+
 	public static final int UNKNOWN = -1;  
 	
 	public static Logger logger = Logger.getLogger(PartialIP.class);
@@ -151,31 +153,55 @@ public class PartialIP extends IP {
      * 
 	*/
     public static int navigatePointToPoint(PartialIP from, PartialIP to) {
+    	return navigatePointToPoint(from.mAddress, to.mAddress);
+    }
+    
+    /**
+     * Navigate a round trip between two packed partial addresses.  Unknown 
+     * fields are held as all ones, so they count as different from any known
+     * field but add no hop on their own side.
+     * 
+     * @see #navigatePointToPoint(PartialIP, PartialIP)
+     * 
+     * @param from - packed address of origin 
+     * @param to - packed address of destination
+     * @return number of network "hops" between network hubs/switches
+     */
+    public static int navigatePointToPoint(final long from, final long to) {
     	
     	int hops = 0; //same server
     	
-    	if(from.equals(to)) { //same server - no network hops
-    		return hops; 
+    	for(int shift = SERVER_SHIFT; shift <= DC_SHIFT; shift += FIELD_BITS) {
+    		final long f = (from >>> shift) & FIELD_MASK;
+    		final long t = (to >>> shift) & FIELD_MASK;
+    		if(f != t) {
+    			if(f != FIELD_MASK) hops++;
+    			if(t != FIELD_MASK) hops++;
+    		}
     	}
     	
-    	if(from.dc()!=to.dc()) { //different datacentres
-    		if(from.dc()>=0) hops++;
-    		if(to.dc()>=0) hops++;
-    	} 
-    	if (from.block()!=to.block()) { //different aisles
-    		if(from.block()>=0) hops++; 
-    		if(to.block()>=0) hops++;
-    	} 
-    	if (from.subBlock()!=to.subBlock()) { //different racks
-    		if(from.subBlock()>=0) hops++;
-    		if(to.subBlock()>=0) hops++;
-    	} 
-    	if (from.server()!=to.server()) { //different servers
-    		if(from.server()>=0) hops++;
-    		if(to.server()>=0) hops++;
-    	} 
-    	
-    return hops;	
+    	return hops;
+    }
+    
+    /**
+     * @return the packed partial address of the rack containing a packed address
+     */
+    public static long rackOf(final long pAddress) {
+    	return pAddress | (FIELD_MASK << SERVER_SHIFT);
+    }
+    
+    /**
+     * @return the packed partial address of the aisle containing a packed address
+     */
+    public static long aisleOf(final long pAddress) {
+    	return rackOf(pAddress) | (FIELD_MASK << SUB_BLOCK_SHIFT);
+    }
+    
+    /**
+     * @return the packed partial address of the datacentre containing a packed address
+     */
+    public static long datacentreOf(final long pAddress) {
+    	return aisleOf(pAddress) | (FIELD_MASK << BLOCK_SHIFT);
     }
     
     /**
@@ -37,24 +37,26 @@
  */
 package sim.probability;
 
+import java.io.Serializable;
 import java.util.Random;
 
 import org.apache.log4j.Logger;
 
 import cern.jet.random.engine.MersenneTwister;
 
+import sim.SimulationContext;
+
 /**
  * Singleton randomness object.
  */
-public class RandomSingleton
+public class RandomSingleton implements Serializable
 {
 	
+	private static final long serialVersionUID = 1L;
+	
 	//log4j logger
 	public static Logger logger = Logger.getLogger(RandomSingleton.class);
 	
-    // Singleton instance.
-    private static RandomSingleton instance   = null;
-
     // Member variables.
     private MersenneTwister        mGenerator = new MersenneTwister();
 
@@ -78,9 +80,11 @@ public class RandomSingleton
      */
     public static RandomSingleton getInstance()
     {
+        RandomSingleton instance = SimulationContext.getCurrent().getSingleton(RandomSingleton.class);
         if (instance == null)
         {
             instance = new RandomSingleton();
+            SimulationContext.getCurrent().setSingleton(RandomSingleton.class, instance);
         }
 
         return instance;
@@ -131,6 +135,16 @@ public class RandomSingleton
        	java_util_Random = new Random(seed);
     }
 
+    /**
+     * Get the seed the random number generator was last reset with.
+     * 
+     * @return the seed, or -1 if never reset.
+     */
+    public long getSeed()
+    {
+        return seed;
+    }
+
     /**
      * Get the RandomEngine object responsible for the actual random number generation.
      * 
@@ -0,0 +1,320 @@
+/**
+ *   This file is part of CReST: The Cloud Research Simulation Toolkit 
+ *   Copyright (C) 2011, 2012 John Cartlidge 
+ * 
+ *   For a full list of contributors, refer to file CONTRIBUTORS.txt 
+ *
+ *   CReST was developed at the University of Bristol, UK, using 
+ *   financial support from the UK's Engineering and Physical 
+ *   Sciences Research Council (EPSRC) grant EP/H042644/1 entitled 
+ *   "Cloud Computing for Large-Scale Complex IT Systems". Refer to
+ *   <http://gow.epsrc.ac.uk/NGBOViewGrant.aspx?GrantRef=EP/H042644/1>
+ * 
+ *   CReST is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/gpl.txt>.
+ *
+ *   For further information, contact: 
+ *
+ *   Dr. John Cartlidge: john@john-cartlidge.co.uk
+ *   Department of Computer Science,
+ *   University of Bristol, The Merchant Venturers Building,
+ *   Woodland Road, Bristol, BS8-1UB, United Kingdom.
+ *
+ */
+package sim.probability;
+
+import java.io.Serializable;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.log4j.Logger;
+
+import sim.SimulationContext;
+import sim.module.Module;
+import cern.jet.random.AbstractContinousDistribution;
+import cern.jet.random.Exponential;
+import cern.jet.random.engine.MersenneTwister;
+import cern.jet.random.engine.RandomEngine;
+
+/**
+ * Supplies the simulation modules with random variates.
+ * 
+ * Distribution objects are created once per module and parameter set, and then
+ * reused, rather than being constructed for every draw.
+ * 
+ * By default, all modules draw from the single RandomSingleton engine, in exactly
+ * the same order as they always have, so a seed reproduces previous results.
+ * 
+ * With independent streams switched on, each module draws from its own 
+ * MersenneTwister, seeded from the simulation seed and the module's name. A 
+ * module's draws then depend only on the seed and on that module, so adding, 
+ * removing or reordering another module (or its events) does not perturb them.
+ * Independent streams pre-generate variates in batches of BATCH_SIZE.
+ *
+ * When the RandomSingleton is reset with a new seed, all cached distributions
+ * and streams are discarded and recreated from the new seed.
+ * 
+ */
+public class SamplingService implements Serializable {
+
+	public static Logger logger = Logger.getLogger(SamplingService.class);
+	
+	private static final long serialVersionUID = 1L;
+	
+	/** Number of variates pre-generated at a time on independent streams */
+	public static final int BATCH_SIZE = 256;
+	
+	protected boolean independentStreams = false;
+	
+	/** The RandomSingleton engine the caches were created for */
+	protected MersenneTwister boundEngine = null;
+	
+	protected final Map<Module, MersenneTwister> streams = new EnumMap<Module, MersenneTwister>(Module.class);
+	protected final Map<Module, Random> javaUtilRandoms = new EnumMap<Module, Random>(Module.class);
+	protected final Map<Module, VariateBuffer> uniforms = new EnumMap<Module, VariateBuffer>(Module.class);
+	protected final Map<SamplerKey, VariateBuffer> samplers = new HashMap<SamplerKey, VariateBuffer>();
+	
+	/**
+	 * Cache key for a module's distribution with given parameters
+	 */
+	protected static final class SamplerKey implements Serializable {
+		
+		private static final long serialVersionUID = 1L;
+		
+		protected final Module module;
+		protected final String type;
+		protected final double p1;
+		protected final double p2;
+		
+		protected SamplerKey(Module module, String type, double p1, double p2) {
+			this.module = module;
+			this.type = type;
+			this.p1 = p1;
+			this.p2 = p2;
+		}
+		
+		@Override
+		public int hashCode() {
+			long bits = Double.doubleToLongBits(p1) * 31 + Double.doubleToLongBits(p2);
+			return (module.hashCode() * 31 + type.hashCode()) * 31 + (int) (bits ^ (bits >>> 32));
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if(!(obj instanceof SamplerKey)) return false;
+			SamplerKey other = (SamplerKey) obj;
+			return module == other.module && type.equals(other.type) && 
+				Double.doubleToLongBits(p1) == Double.doubleToLongBits(other.p1) &&
+				Double.doubleToLongBits(p2) == Double.doubleToLongBits(other.p2);
+		}
+	}
+	
+	/**
+	 * Uniform on the open interval (0,1), using RandomEngine.nextDouble() as
+	 * RandomSingleton.randomDouble() does (colt's Uniform uses raw() instead).
+	 */
+	protected static class OpenUnitUniform extends AbstractContinousDistribution {
+		
+		private static final long serialVersionUID = 1L;
+		
+		protected OpenUnitUniform(RandomEngine engine) {
+			setRandomGenerator(engine);
+		}
+		
+		@Override
+		public double nextDouble() {
+			return randomGenerator.nextDouble();
+		}
+	}
+	
+	protected SamplingService() {
+		
+	}
+	
+	/**
+	 * Get the SamplingService of the current simulation
+	 */
+	public static SamplingService getInstance() {
+		SamplingService instance = SimulationContext.getCurrent().getSingleton(SamplingService.class);
+		if(instance == null) {
+			instance = new SamplingService();
+			SimulationContext.getCurrent().setSingleton(SamplingService.class, instance);
+		}
+		return instance;
+	}
+	
+	/**
+	 * Give each module an independent random stream (true), or have all modules 
+	 * share the RandomSingleton engine (false, default)
+	 */
+	public void setIndependentStreams(boolean independentStreams) {
+		if(this.independentStreams != independentStreams) {
+			logger.info("Setting independent random streams per module: " + independentStreams);
+			this.independentStreams = independentStreams;
+			clear();
+		}
+	}
+	
+	public boolean isIndependentStreams() {
+		return independentStreams;
+	}
+	
+	/**
+	 * Get the random engine a module should draw from
+	 * @param module - the module
+	 * @return the module's own stream, or the shared engine
+	 */
+	public MersenneTwister getEngine(Module module) {
+		MersenneTwister shared = checkEngine();
+		if(!independentStreams) return shared;
+		
+		MersenneTwister stream = streams.get(module);
+		if(stream == null) {
+			stream = new MersenneTwister((int) streamSeed(RandomSingleton.getInstance().getSeed(), module));
+			streams.put(module, stream);
+		}
+		return stream;
+	}
+	
+	/**
+	 * Get a java.util.Random for a module.
+	 * 
+	 * @WARNING Only use when necessary, e.g., for Collections.shuffle(List,Random).
+	 */
+	public Random getJavaUtilRandom(Module module) {
+		checkEngine();
+		if(!independentStreams) return RandomSingleton.getInstance().getJavaUtilRandom();
+		
+		Random random = javaUtilRandoms.get(module);
+		if(random == null) {
+			random = new Random(streamSeed(RandomSingleton.getInstance().getSeed(), module));
+			javaUtilRandoms.put(module, random);
+		}
+		return random;
+	}
+	
+	/**
+	 * Get a random double x, 0.0 < x < 1.0, for a module.
+	 * 
+	 * Equivalent to RandomSingleton.randomDouble() when streams are shared.
+	 */
+	public double uniform(Module module) {
+		if(!independentStreams) return checkEngine().nextDouble();
+		
+		VariateBuffer buffer = uniforms.get(module);
+		if(buffer == null) {
+			buffer = new VariateBuffer(new OpenUnitUniform(getEngine(module)), BATCH_SIZE);
+			uniforms.put(module, buffer);
+		}
+		return buffer.nextDouble();
+	}
+	
+	/**
+	 * Get a positive random int for a module.
+	 * 
+	 * Equivalent to RandomSingleton.randomInt() when streams are shared.
+	 */
+	public int randomInt(Module module) {
+		return Math.abs(getEngine(module).nextInt());
+	}
+	
+	/**
+	 * Get a positive random long for a module.
+	 * 
+	 * Equivalent to RandomSingleton.randomLong() when streams are shared.
+	 */
+	public long randomLong(Module module) {
+		return Math.abs(getEngine(module).nextLong());
+	}
+	
+	/**
+	 * Get a (cached) sampler of the Normal distribution for a module
+	 * @param module - the module drawing variates
+	 * @param mean - the mean
+	 * @param standardDeviation - the standard deviation
+	 */
+	public VariateBuffer getNormal(Module module, double mean, double standardDeviation) {
+		checkEngine();
+		SamplerKey key = new SamplerKey(module, "normal", mean, standardDeviation);
+		VariateBuffer sampler = samplers.get(key);
+		if(sampler == null) {
+			// On a shared engine, discard Normal's cached second variate so each
+			// draw is the same as from a new Normal
+			sampler = new VariateBuffer(new ReusableNormal(mean, standardDeviation, getEngine(module), !independentStreams), capacity());
+			samplers.put(key, sampler);
+		}
+		return sampler;
+	}
+	
+	/**
+	 * Get a (cached) sampler of the Exponential distribution for a module
+	 * @param module - the module drawing variates
+	 * @param lambda - the rate
+	 */
+	public VariateBuffer getExponential(Module module, double lambda) {
+		checkEngine();
+		SamplerKey key = new SamplerKey(module, "exponential", lambda, 0);
+		VariateBuffer sampler = samplers.get(key);
+		if(sampler == null) {
+			sampler = new VariateBuffer(new Exponential(lambda, getEngine(module)), capacity());
+			samplers.put(key, sampler);
+		}
+		return sampler;
+	}
+	
+	/**
+	 * Discard all cached distributions and streams
+	 */
+	public void clear() {
+		streams.clear();
+		javaUtilRandoms.clear();
+		uniforms.clear();
+		samplers.clear();
+	}
+	
+	/**
+	 * Derive the seed of a module's stream from the simulation seed.
+	 * 
+	 * Uses the module's name, not its ordinal, so adding modules does not change 
+	 * the streams of existing ones. Mixed with the SplitMix64 finaliser.
+	 * 
+	 * @param seed - the simulation seed
+	 * @param module - the module
+	 * @return the stream seed
+	 */
+	public static long streamSeed(long seed, Module module) {
+		long z = seed + 0x9E3779B97F4A7C15L * (module.name().hashCode() | 1L);
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+	
+	protected int capacity() {
+		return independentStreams ? BATCH_SIZE : 1;
+	}
+	
+	/**
+	 * Get the shared engine, discarding caches if it has been replaced (i.e., the
+	 * RandomSingleton has been reset with a new seed)
+	 */
+	protected MersenneTwister checkEngine() {
+		MersenneTwister shared = RandomSingleton.getInstance().getEngine();
+		if(shared != boundEngine) {
+			clear();
+			boundEngine = shared;
+		}
+		return shared;
+	}
+}
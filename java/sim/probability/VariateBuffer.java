@@ -0,0 +1,111 @@
+/**
+ *   This file is part of CReST: The Cloud Research Simulation Toolkit 
+ *   Copyright (C) 2011, 2012 John Cartlidge 
+ * 
+ *   For a full list of contributors, refer to file CONTRIBUTORS.txt 
+ *
+ *   CReST was developed at the University of Bristol, UK, using 
+ *   financial support from the UK's Engineering and Physical 
+ *   Sciences Research Council (EPSRC) grant EP/H042644/1 entitled 
+ *   "Cloud Computing for Large-Scale Complex IT Systems". Refer to
+ *   <http://gow.epsrc.ac.uk/NGBOViewGrant.aspx?GrantRef=EP/H042644/1>
+ * 
+ *   CReST is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/gpl.txt>.
+ *
+ *   For further information, contact: 
+ *
+ *   Dr. John Cartlidge: john@john-cartlidge.co.uk
+ *   Department of Computer Science,
+ *   University of Bristol, The Merchant Venturers Building,
+ *   Woodland Road, Bristol, BS8-1UB, United Kingdom.
+ *
+ */
+package sim.probability;
+
+import java.io.Serializable;
+
+import cern.jet.random.AbstractDistribution;
+
+/**
+ * Draws variates from a distribution in batches, into a primitive buffer.
+ * 
+ * With a capacity of 1 each draw goes straight to the distribution, so the 
+ * sequence of draws from a shared random engine is unchanged. Larger capacities 
+ * should only be used when the distribution has a random engine of its own, 
+ * since pre-generating variates changes the order in which a shared engine is 
+ * consumed.
+ *
+ */
+public class VariateBuffer implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	protected final AbstractDistribution distribution;
+	protected final double[] buffer;
+	protected int next;
+	
+	/**
+	 * @param distribution - the distribution to draw from
+	 * @param capacity - the number of variates to generate at a time (>=1)
+	 */
+	public VariateBuffer(AbstractDistribution distribution, int capacity) {
+		if(capacity < 1) throw new IllegalArgumentException("VariateBuffer capacity must be at least 1: " + capacity);
+		this.distribution = distribution;
+		this.buffer = new double[capacity];
+		this.next = capacity;
+	}
+	
+	/**
+	 * Get the next variate
+	 */
+	public double nextDouble() {
+		if(buffer.length == 1) return distribution.nextDouble();
+		if(next == buffer.length) refill();
+		return buffer[next++];
+	}
+	
+	/**
+	 * Fill an array with the next variates
+	 * @param values - the array to fill
+	 * @param from - index of the first value to fill
+	 * @param length - number of values to fill
+	 */
+	public void fill(double[] values, int from, int length) {
+		for(int i=from; i<from+length; i++) {
+			values[i] = nextDouble();
+		}
+	}
+	
+	/**
+	 * Discard any pre-generated variates
+	 */
+	public void clear() {
+		next = buffer.length;
+	}
+	
+	public int getCapacity() {
+		return buffer.length;
+	}
+	
+	public AbstractDistribution getDistribution() {
+		return distribution;
+	}
+	
+	protected void refill() {
+		for(int i=0; i<buffer.length; i++) {
+			buffer[i] = distribution.nextDouble();
+		}
+		next = 0;
+	}
+}
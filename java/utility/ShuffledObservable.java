@@ -82,6 +82,14 @@ public class ShuffledObservable extends Observable{
 		obs.remove(o);
 	}
 	
+	/**
+	 * Get the observers, in the order they will next be notified (unless shuffled)
+	 * @return a copy of the observers list
+	 */
+	public List<Observer> getObservers() {
+		return new ArrayList<Observer>(obs);
+	}
+	
 	/**
 	 * Are observers shuffled before notify called?
 	 * 
@@ -0,0 +1,90 @@
+/**
+ *   This file is part of CReST: The Cloud Research Simulation Toolkit 
+ *   Copyright (C) 2011, 2012, 2013 John Cartlidge 
+ * 
+ *   For a full list of contributors, refer to file CONTRIBUTORS.txt 
+ *
+ *   CReST was developed at the University of Bristol, UK, using 
+ *   financial support from the UK's Engineering and Physical 
+ *   Sciences Research Council (EPSRC) grant EP/H042644/1 entitled 
+ *   "Cloud Computing for Large-Scale Complex IT Systems". Refer to
+ *   <http://gow.epsrc.ac.uk/NGBOViewGrant.aspx?GrantRef=EP/H042644/1>
+ * 
+ *   CReST is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/gpl.txt>.
+ *
+ *   For further information, contact: 
+ *
+ *   Dr. John Cartlidge: john@john-cartlidge.co.uk
+ *   Department of Computer Science,
+ *   University of Bristol, The Merchant Venturers Building,
+ *   Woodland Road, Bristol, BS8-1UB, United Kingdom.
+ *
+ */
+package utility.benchmark;
+
+/**
+ * A micro-benchmark, measured by the BenchmarkRunner.
+ * 
+ * setUp() is called (untimed) before every measured invocation of run(), so each 
+ * invocation can start from identical state. run() returns the number of operations 
+ * it performed, so per-operation cost can be reported.
+ *
+ */
+public abstract class Benchmark {
+
+	protected final String name;
+	
+	/** Sink for values produced by benchmarks, to stop the JIT removing dead code */
+	protected long blackhole = 0;
+	
+	public Benchmark(String name) {
+		this.name = name;
+	}
+	
+	public String getName() {
+		return name;
+	}
+	
+	/**
+	 * Prepare state for the next invocation of run(). Not timed.
+	 */
+	public void setUp() {}
+	
+	/**
+	 * Perform the operations being measured.
+	 * @return number of operations performed
+	 */
+	public abstract int run();
+	
+	/**
+	 * Release state after an invocation of run(). Not timed.
+	 */
+	public void tearDown() {}
+	
+	/**
+	 * Consume a value so the JIT cannot remove the code that produced it
+	 * @param value - the value to consume
+	 */
+	protected void consume(long value) {
+		blackhole += value;
+	}
+	
+	protected void consume(double value) {
+		blackhole += Double.doubleToRawLongBits(value);
+	}
+	
+	public long getBlackhole() {
+		return blackhole;
+	}
+}
@@ -0,0 +1,171 @@
+/**
+ *   This file is part of CReST: The Cloud Research Simulation Toolkit 
+ *   Copyright (C) 2011, 2012, 2013 John Cartlidge 
+ * 
+ *   For a full list of contributors, refer to file CONTRIBUTORS.txt 
+ *
+ *   CReST was developed at the University of Bristol, UK, using 
+ *   financial support from the UK's Engineering and Physical 
+ *   Sciences Research Council (EPSRC) grant EP/H042644/1 entitled 
+ *   "Cloud Computing for Large-Scale Complex IT Systems". Refer to
+ *   <http://gow.epsrc.ac.uk/NGBOViewGrant.aspx?GrantRef=EP/H042644/1>
+ * 
+ *   CReST is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/gpl.txt>.
+ *
+ *   For further information, contact: 
+ *
+ *   Dr. John Cartlidge: john@john-cartlidge.co.uk
+ *   Department of Computer Science,
+ *   University of Bristol, The Merchant Venturers Building,
+ *   Woodland Road, Bristol, BS8-1UB, United Kingdom.
+ *
+ */
+package utility.benchmark;
+
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Runs Benchmarks with warmup and measurement iterations and reports the 
+ * mean cost per operation (and standard deviation over iterations).
+ * 
+ * Results are printed to System.out as a table, one row per benchmark.
+ *
+ */
+public class BenchmarkRunner {
+
+	public static Logger logger = Logger.getLogger(BenchmarkRunner.class);
+	
+	public static final int DEFAULT_WARMUP_ITERATIONS = 5;
+	public static final int DEFAULT_MEASUREMENT_ITERATIONS = 10;
+	
+	protected DecimalFormat df = new DecimalFormat("#,##0.0");
+	
+	protected int warmupIterations;
+	protected int measurementIterations;
+	
+	protected List<Result> results = new ArrayList<Result>();
+	
+	/**
+	 * The measured cost of a benchmark
+	 */
+	public static class Result {
+		
+		protected final String name;
+		protected final double meanNanosPerOp;
+		protected final double sdNanosPerOp;
+		protected final long operations;
+		
+		public Result(String name, double meanNanosPerOp, double sdNanosPerOp, long operations) {
+			this.name = name;
+			this.meanNanosPerOp = meanNanosPerOp;
+			this.sdNanosPerOp = sdNanosPerOp;
+			this.operations = operations;
+		}
+		
+		public String getName() {
+			return name;
+		}
+		
+		public double getMeanNanosPerOp() {
+			return meanNanosPerOp;
+		}
+		
+		public double getSdNanosPerOp() {
+			return sdNanosPerOp;
+		}
+		
+		public double getOpsPerSecond() {
+			return (meanNanosPerOp>0)?1e9/meanNanosPerOp:0;
+		}
+		
+		public long getOperations() {
+			return operations;
+		}
+	}
+	
+	public BenchmarkRunner() {
+		this(DEFAULT_WARMUP_ITERATIONS, DEFAULT_MEASUREMENT_ITERATIONS);
+	}
+	
+	public BenchmarkRunner(int warmupIterations, int measurementIterations) {
+		this.warmupIterations = warmupIterations;
+		this.measurementIterations = measurementIterations;
+	}
+	
+	/**
+	 * Run a benchmark: warmup iterations (discarded), then measurement iterations.
+	 * @param b - the benchmark
+	 * @return the measured result
+	 */
+	public Result run(Benchmark b) {
+		
+		logger.info("Running benchmark: " + b.getName());
+		
+		for(int i=0; i<warmupIterations; i++) {
+			invoke(b);
+		}
+		
+		double[] nanosPerOp = new double[measurementIterations];
+		long operations = 0;
+		for(int i=0; i<measurementIterations; i++) {
+			long[] measurement = invoke(b);
+			nanosPerOp[i] = (measurement[1]>0)?measurement[0]/(double)measurement[1]:0;
+			operations += measurement[1];
+		}
+		
+		double mean = 0;
+		for(double n: nanosPerOp) mean += n;
+		mean /= nanosPerOp.length;
+		double var = 0;
+		for(double n: nanosPerOp) var += (n-mean)*(n-mean);
+		double sd = (nanosPerOp.length>1)?Math.sqrt(var/(nanosPerOp.length-1)):0;
+		
+		Result result = new Result(b.getName(), mean, sd, operations);
+		results.add(result);
+		logger.info("Benchmark " + b.getName() + ": " + df.format(mean) + " ns/op (sd " + df.format(sd) + "), blackhole=" + b.getBlackhole());
+		return result;
+	}
+	
+	/**
+	 * Time a single invocation of a benchmark
+	 * @return {elapsed nanoseconds, operations}
+	 */
+	protected long[] invoke(Benchmark b) {
+		b.setUp();
+		long start = System.nanoTime();
+		int ops = b.run();
+		long elapsed = System.nanoTime()-start;
+		b.tearDown();
+		return new long[]{elapsed, ops};
+	}
+	
+	public List<Result> getResults() {
+		return results;
+	}
+	
+	/**
+	 * Print a table of all results measured by this runner
+	 */
+	public void printResults() {
+		System.out.println(String.format("%-55s %15s %12s %15s", "Benchmark", "ns/op", "sd", "ops/s"));
+		for(Result r: results) {
+			System.out.println(String.format("%-55s %15s %12s %15s", r.getName(), 
+					df.format(r.getMeanNanosPerOp()), df.format(r.getSdNanosPerOp()), df.format(r.getOpsPerSecond())));
+		}
+	}
+}
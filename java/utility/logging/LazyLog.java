@@ -0,0 +1,204 @@
+/**
+ *   This file is part of CReST: The Cloud Research Simulation Toolkit 
+ *   Copyright (C) 2011, 2012 John Cartlidge 
+ * 
+ *   For a full list of contributors, refer to file CONTRIBUTORS.txt 
+ *
+ *   CReST was developed at the University of Bristol, UK, using 
+ *   financial support from the UK's Engineering and Physical 
+ *   Sciences Research Council (EPSRC) grant EP/H042644/1 entitled 
+ *   "Cloud Computing for Large-Scale Complex IT Systems". Refer to
+ *   <http://gow.epsrc.ac.uk/NGBOViewGrant.aspx?GrantRef=EP/H042644/1>
+ * 
+ *   CReST is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/gpl.txt>.
+ *
+ *   For further information, contact: 
+ *
+ *   Dr. John Cartlidge: john@john-cartlidge.co.uk
+ *   Department of Computer Science,
+ *   University of Bristol, The Merchant Venturers Building,
+ *   Woodland Road, Bristol, BS8-1UB, United Kingdom.
+ *
+ */
+package utility.logging;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+import utility.Debug;
+import utility.time.TimeManager;
+
+/**
+ * Logging helpers that only build message strings when the level is enabled.
+ * 
+ * Messages are given as a format with "{}" placeholders, which are replaced by
+ * the arguments in order. Arguments are only converted to strings (and Message 
+ * arguments only built) if the message is going to be logged, so a disabled 
+ * call costs a level check and nothing else:
+ * 
+ * <pre>
+ * LazyLog.debug(logger, "Adding order {} to book {}", o, this);
+ * LazyLog.infoAt(logger, "Performing event {}", event);   // time stamped, as TimeManager.log()
+ * </pre>
+ * 
+ * Fixed-arity overloads are provided so the common cases do not allocate a 
+ * varargs array when logging is disabled, and int, long and double overloads so 
+ * primitive arguments are not boxed unless the message is logged. Use with the 
+ * LogSwitch constants to remove a call completely at compile time.
+ *
+ */
+public final class LazyLog {
+
+	/** The placeholder replaced by arguments in a format */
+	public static final String PLACEHOLDER = "{}";
+	
+	/** A message holding the current memory usage, built only when logged */
+	public static final Message MEMORY_USAGE = new Message() {
+		@Override
+		public String build() {
+			return Debug.getMemoryUsage();
+		}
+	};
+	
+	private LazyLog() {}
+	
+	/*
+	 * DEBUG
+	 */
+	
+	public static void debug(Logger logger, String format, Object arg) {
+		if(logger.isDebugEnabled()) logger.debug(format(format, arg));
+	}
+	
+	public static void debug(Logger logger, String format, Object arg1, Object arg2) {
+		if(logger.isDebugEnabled()) logger.debug(format(format, arg1, arg2));
+	}
+	
+	public static void debug(Logger logger, String format, Object arg1, Object arg2, Object arg3) {
+		if(logger.isDebugEnabled()) logger.debug(format(format, arg1, arg2, arg3));
+	}
+	
+	public static void debug(Logger logger, String format, int arg) {
+		if(logger.isDebugEnabled()) logger.debug(format(format, arg));
+	}
+	
+	public static void debug(Logger logger, String format, long arg) {
+		if(logger.isDebugEnabled()) logger.debug(format(format, arg));
+	}
+	
+	public static void debug(Logger logger, String format, double arg) {
+		if(logger.isDebugEnabled()) logger.debug(format(format, arg));
+	}
+	
+	public static void debug(Logger logger, String format, int arg1, int arg2) {
+		if(logger.isDebugEnabled()) logger.debug(format(format, arg1, arg2));
+	}
+	
+	public static void debug(Logger logger, String format, long arg1, long arg2) {
+		if(logger.isDebugEnabled()) logger.debug(format(format, arg1, arg2));
+	}
+	
+	public static void debug(Logger logger, String format, double arg1, double arg2) {
+		if(logger.isDebugEnabled()) logger.debug(format(format, arg1, arg2));
+	}
+	
+	/*
+	 * Time stamped debug messages (as TimeManager.log())
+	 */
+	
+	public static void debugAt(Logger logger, String message) {
+		if(logger.isDebugEnabled()) logger.debug(TimeManager.log(message));
+	}
+	
+	public static void debugAt(Logger logger, String format, Object arg) {
+		if(logger.isDebugEnabled()) logger.debug(TimeManager.log(format(format, arg)));
+	}
+	
+	public static void debugAt(Logger logger, String format, Object arg1, Object arg2) {
+		if(logger.isDebugEnabled()) logger.debug(TimeManager.log(format(format, arg1, arg2)));
+	}
+	
+	/*
+	 * INFO
+	 */
+	
+	public static void info(Logger logger, String format, Object arg) {
+		if(logger.isInfoEnabled()) logger.info(format(format, arg));
+	}
+	
+	public static void info(Logger logger, String format, Object arg1, Object arg2) {
+		if(logger.isInfoEnabled()) logger.info(format(format, arg1, arg2));
+	}
+	
+	public static void info(Logger logger, String format, Object arg1, Object arg2, Object arg3) {
+		if(logger.isInfoEnabled()) logger.info(format(format, arg1, arg2, arg3));
+	}
+	
+	public static void info(Logger logger, String format, int arg) {
+		if(logger.isInfoEnabled()) logger.info(format(format, arg));
+	}
+	
+	public static void info(Logger logger, String format, long arg) {
+		if(logger.isInfoEnabled()) logger.info(format(format, arg));
+	}
+	
+	public static void info(Logger logger, String format, double arg) {
+		if(logger.isInfoEnabled()) logger.info(format(format, arg));
+	}
+	
+	/*
+	 * Time stamped info messages (as TimeManager.log())
+	 */
+	
+	public static void infoAt(Logger logger, String message) {
+		if(logger.isInfoEnabled()) logger.info(TimeManager.log(message));
+	}
+	
+	public static void infoAt(Logger logger, String format, Object arg) {
+		if(logger.isInfoEnabled()) logger.info(TimeManager.log(format(format, arg)));
+	}
+	
+	public static void infoAt(Logger logger, String format, Object arg1, Object arg2) {
+		if(logger.isInfoEnabled()) logger.info(TimeManager.log(format(format, arg1, arg2)));
+	}
+	
+	/**
+	 * Log a message at the given level, if enabled
+	 */
+	public static void log(Logger logger, Level level, String format, Object... args) {
+		if(logger.isEnabledFor(level)) logger.log(level, format(format, args));
+	}
+	
+	/**
+	 * Replace each "{}" in the format with the next argument. Surplus placeholders
+	 * are left in place; surplus arguments are ignored.
+	 * @param format - the message format
+	 * @param args - the arguments
+	 * @return the formatted message
+	 */
+	public static String format(String format, Object... args) {
+		if(args == null || args.length == 0) return format;
+		
+		StringBuilder sb = new StringBuilder(format.length() + 16*args.length);
+		int from = 0;
+		for(Object arg: args) {
+			int at = format.indexOf(PLACEHOLDER, from);
+			if(at < 0) break;
+			sb.append(format, from, at).append(arg);
+			from = at + PLACEHOLDER.length();
+		}
+		sb.append(format, from, format.length());
+		return sb.toString();
+	}
+}
@@ -0,0 +1,59 @@
+/**
+ *   This file is part of CReST: The Cloud Research Simulation Toolkit 
+ *   Copyright (C) 2011, 2012 John Cartlidge 
+ * 
+ *   For a full list of contributors, refer to file CONTRIBUTORS.txt 
+ *
+ *   CReST was developed at the University of Bristol, UK, using 
+ *   financial support from the UK's Engineering and Physical 
+ *   Sciences Research Council (EPSRC) grant EP/H042644/1 entitled 
+ *   "Cloud Computing for Large-Scale Complex IT Systems". Refer to
+ *   <http://gow.epsrc.ac.uk/NGBOViewGrant.aspx?GrantRef=EP/H042644/1>
+ * 
+ *   CReST is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/gpl.txt>.
+ *
+ *   For further information, contact: 
+ *
+ *   Dr. John Cartlidge: john@john-cartlidge.co.uk
+ *   Department of Computer Science,
+ *   University of Bristol, The Merchant Venturers Building,
+ *   Woodland Road, Bristol, BS8-1UB, United Kingdom.
+ *
+ */
+package utility.logging;
+
+/**
+ * Compile-time switches for categories of logging on the simulation hot paths.
+ * 
+ * Each switch is a compile-time constant, so a statement guarded with 
+ * <code>if(LogSwitch.EVENTS) {...}</code> is removed entirely by javac when the 
+ * switch is set to false, leaving no cost at all in the compiled class. When a
+ * switch is true, the normal log4j level checks apply as before.
+ * 
+ * Note: classes that use a switch must be recompiled when it is changed.
+ *
+ */
+public final class LogSwitch {
+
+	/** Event creation and execution (failure events, spawners, log events) */
+	public static final boolean EVENTS = true;
+	
+	/** Order book and trading activity in the market */
+	public static final boolean MARKET = true;
+	
+	/** Subscription update protocols and pollers */
+	public static final boolean PROTOCOLS = true;
+	
+	private LogSwitch() {}
+}
@@ -0,0 +1,202 @@
+/**
+ *   This file is part of CReST: The Cloud Research Simulation Toolkit 
+ *   Copyright (C) 2011, 2012 John Cartlidge 
+ * 
+ *   For a full list of contributors, refer to file CONTRIBUTORS.txt 
+ *
+ *   CReST was developed at the University of Bristol, UK, using 
+ *   financial support from the UK's Engineering and Physical 
+ *   Sciences Research Council (EPSRC) grant EP/H042644/1 entitled 
+ *   "Cloud Computing for Large-Scale Complex IT Systems". Refer to
+ *   <http://gow.epsrc.ac.uk/NGBOViewGrant.aspx?GrantRef=EP/H042644/1>
+ * 
+ *   CReST is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/gpl.txt>.
+ *
+ *   For further information, contact: 
+ *
+ *   Dr. John Cartlidge: john@john-cartlidge.co.uk
+ *   Department of Computer Science,
+ *   University of Bristol, The Merchant Venturers Building,
+ *   Woodland Road, Bristol, BS8-1UB, United Kingdom.
+ *
+ */
+package utility.logging;
+
+import java.io.Writer;
+
+import org.apache.log4j.BasicConfigurator;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.PatternLayout;
+import org.apache.log4j.WriterAppender;
+
+import utility.benchmark.Benchmark;
+import utility.benchmark.BenchmarkRunner;
+import utility.time.TimeManager;
+
+/**
+ * Measures the per-event cost of hot path logging, with INFO enabled and disabled.
+ * 
+ * Each operation is the logging done for one failure event: the event is 
+ * logged (time stamped) when performed, along with the object it acts on and 
+ * the fix event it generates. The eager variants build the messages by string 
+ * concatenation, as the event code used to; the lazy variants use LazyLog; the 
+ * switched variant is guarded by a false compile-time constant, as LogSwitch.
+ * 
+ * When enabled, messages are written through a PatternLayout to a Writer that 
+ * discards its output, so the cost of rendering every message is included.
+ * 
+ * Usage: java utility.logging.LoggingBenchmark
+ *
+ */
+public class LoggingBenchmark {
+
+	public static Logger logger = Logger.getLogger(LoggingBenchmark.class);
+	
+	/** The logger used by the benchmarked statements */
+	protected static final Logger eventLogger = Logger.getLogger(LoggingBenchmark.class.getName() + ".events");
+	
+	/** Events logged per invocation of run() */
+	public static final int EVENTS = 20000;
+	
+	/** A switch that is off, as LogSwitch */
+	protected static final boolean SWITCH_OFF = false;
+	
+	/**
+	 * Stands in for a failure event: building its string has similar cost
+	 */
+	protected static class EventStub {
+		
+		protected final int objectID;
+		protected final long time;
+		
+		public EventStub(int objectID, long time) {
+			this.objectID = objectID;
+			this.time = time;
+		}
+		
+		@Override
+		public String toString() {
+			return "Hard Fail event on Server: " + objectID + "/" + EVENTS + " ObjectType=server at " + TimeManager.getTimeString(time);
+		}
+	}
+	
+	protected static abstract class LoggingCase extends Benchmark {
+		
+		protected final Level level;
+		protected EventStub[] events;
+		
+		public LoggingCase(String name, Level level) {
+			super(name + ", level=" + level);
+			this.level = level;
+		}
+		
+		@Override
+		public void setUp() {
+			eventLogger.setLevel(level);
+			if(events == null) {
+				events = new EventStub[EVENTS];
+				for(int i=0; i<EVENTS; i++) {
+					events[i] = new EventStub(i, i*1000L);
+				}
+			}
+		}
+		
+		@Override
+		public int run() {
+			for(EventStub e: events) {
+				logEvent(e);
+				consume(e.objectID);
+			}
+			return EVENTS;
+		}
+		
+		protected abstract void logEvent(EventStub e);
+	}
+	
+	protected static class EagerLogging extends LoggingCase {
+		
+		public EagerLogging(Level level) {
+			super("Eager concatenation", level);
+		}
+		
+		@Override
+		protected void logEvent(EventStub e) {
+			eventLogger.info(TimeManager.log(e.toString()));
+			eventLogger.info("Performing a hard fail event for object: " + e.objectID);
+			eventLogger.info("New failure event generated: " + e);
+		}
+	}
+	
+	protected static class LazyLogging extends LoggingCase {
+		
+		public LazyLogging(Level level) {
+			super("LazyLog", level);
+		}
+		
+		@Override
+		protected void logEvent(EventStub e) {
+			LazyLog.infoAt(eventLogger, "{}", e);
+			LazyLog.info(eventLogger, "Performing a hard fail event for object: {}", e.objectID);
+			LazyLog.info(eventLogger, "New failure event generated: {}", e);
+		}
+	}
+	
+	protected static class SwitchedLogging extends LoggingCase {
+		
+		public SwitchedLogging(Level level) {
+			super("LazyLog, category switched off", level);
+		}
+		
+		@Override
+		protected void logEvent(EventStub e) {
+			if(SWITCH_OFF) {
+				LazyLog.infoAt(eventLogger, "{}", e);
+				LazyLog.info(eventLogger, "Performing a hard fail event for object: {}", e.objectID);
+				LazyLog.info(eventLogger, "New failure event generated: {}", e);
+			}
+		}
+	}
+	
+	/**
+	 * A writer that discards everything written to it
+	 */
+	protected static class NullWriter extends Writer {
+		@Override
+		public void write(char[] cbuf, int off, int len) {}
+		@Override
+		public void flush() {}
+		@Override
+		public void close() {}
+	}
+	
+	public static void main(String[] args) {
+		
+		BasicConfigurator.configure();
+		Logger.getRootLogger().setLevel(Level.OFF);
+		
+		eventLogger.setAdditivity(false);
+		eventLogger.addAppender(new WriterAppender(new PatternLayout("%-5p %c - %m%n"), new NullWriter()));
+		
+		BenchmarkRunner runner = new BenchmarkRunner();
+		
+		for(Level level: new Level[]{Level.INFO, Level.WARN}) {
+			runner.run(new EagerLogging(level));
+			runner.run(new LazyLogging(level));
+			runner.run(new SwitchedLogging(level));
+		}
+		
+		runner.printResults();
+	}
+}
@@ -1,14 +1,17 @@
 package utility.physics;
 
+import java.io.Serializable;
 import java.text.DecimalFormat;
 
 import org.apache.log4j.Logger;
 
 
-public class Velocity {
+public class Velocity implements Serializable {
 
 	public static Logger logger = Logger.getLogger(Velocity.class);
 	
+	private static final long serialVersionUID = 1L;
+	
 	private DecimalFormat df = new DecimalFormat("0.00");
 	
 	protected double x = 0;
@@ -355,13 +355,25 @@ public class TimeManager
      * @return simulation time rounded down to the nearest unit time
      */
     public static long getTime(TimeManager.UnitTime timeUnit) {
+    	return getTime(timeUnit, World.getInstance().getTime());
+    } 
+    
+    /**
+     * Return a given simulation time rounded down to the nearest time unit
+     * 
+     * @param timeUnit - the TimeManager.UnitTime (e.g., SECOND, HOUR, DAY...)
+     * @param simulationTime - the simulation time to convert
+     * 
+     * @return simulationTime rounded down to the nearest unit time
+     */
+    public static long getTime(TimeManager.UnitTime timeUnit, long simulationTime) {
     	switch(timeUnit) {
-    	case MICROSECOND: return World.getInstance().getTime(); 
-    	case MILLISECOND: return simulationTimeToMilliseconds(World.getInstance().getTime()); 
-    	case SECOND: return simulationTimeToSeconds(World.getInstance().getTime()); 
-    	case MINUTE: return simulationTimeToMinutes(World.getInstance().getTime()); 
-    	case HOUR: return simulationTimeToHours(World.getInstance().getTime());  
-    	case DAY: return simulationTimeToDays(World.getInstance().getTime()); 
+    	case MICROSECOND: return simulationTime; 
+    	case MILLISECOND: return simulationTimeToMilliseconds(simulationTime); 
+    	case SECOND: return simulationTimeToSeconds(simulationTime); 
+    	case MINUTE: return simulationTimeToMinutes(simulationTime); 
+    	case HOUR: return simulationTimeToHours(simulationTime);  
+    	case DAY: return simulationTimeToDays(simulationTime); 
     	default: logger.warn("Unknown timeUnit="+timeUnit+", returning -1"); return -1;
     	}
     } 